@@ -2,7 +2,10 @@
 
 namespace App\Console\Commands;
 
+use App\Models\ClientMutation;
 use App\Models\Notification;
+use App\Models\PushEvent;
+use App\Models\SyncTombstone;
 use App\Services\TaskAbandonmentService;
 use Illuminate\Console\Command;
 
@@ -45,6 +48,24 @@ public function handle(): int
 
         $this->line("Deleted {$deletedAbandonments} old abandonment records.");
 
+        // Delete old sync tombstones (clients older than this get a full snapshot)
+        $deletedTombstones = SyncTombstone::where('deleted_at', '<', now()->subDays(SyncTombstone::RETENTION_DAYS))
+            ->delete();
+
+        $this->line("Deleted {$deletedTombstones} old sync tombstones.");
+
+        // Delete old idempotency records for offline mutations
+        $deletedMutations = ClientMutation::where('created_at', '<', now()->subDays(ClientMutation::RETENTION_DAYS))
+            ->delete();
+
+        $this->line("Deleted {$deletedMutations} old client mutation records.");
+
+        // Delete old push channel events (only needed for replay on reconnect)
+        $deletedPushEvents = PushEvent::where('created_at', '<', now()->subHours(PushEvent::RETENTION_HOURS))
+            ->delete();
+
+        $this->line("Deleted {$deletedPushEvents} old push events.");
+
         $this->info('Cleanup completed successfully.');
 
         return Command::SUCCESS;
@@ -38,11 +38,9 @@ public function handle(): int
         foreach ($notifications as $notification) {
             try {
                 // Mark as sent
+                // 保存時のモデルイベントでpush_eventsに記録され、接続中のクライアントにプッシュチャネルで届く
                 $notification->markAsSent();
 
-                // TODO: Integrate with push notification service (FCM)
-                // For now, just mark as sent
-
                 $sentCount++;
 
                 $this->line("Sent: {$notification->title} to user #{$notification->user_id}");
@@ -0,0 +1,46 @@
+<?php
+
+namespace App\Console\Commands;
+
+use App\Models\Notification;
+use App\Models\User;
+use Illuminate\Console\Command;
+
+class SendTestPush extends Command
+{
+    /**
+     * The name and signature of the console command.
+     */
+    protected $signature = 'push:test {user : User ID} {--title=Test notification} {--message=Push channel test}';
+
+    /**
+     * The console command description.
+     */
+    protected $description = 'Create a notification for a user to check delivery through the push channel (local stand-in for FCM)';
+
+    /**
+     * Execute the console command.
+     */
+    public function handle(): int
+    {
+        $user = User::find((int) $this->argument('user'));
+        if (!$user) {
+            $this->error('User not found.');
+            return Command::FAILURE;
+        }
+
+        // 通知の保存でpush_eventsに記録され、GET /api/push/stream に接続中の端末へ届く
+        $notification = Notification::create([
+            'user_id' => $user->id,
+            'type' => 'system',
+            'title' => $this->option('title'),
+            'message' => $this->option('message'),
+            'is_read' => false,
+            'sent_at' => now(),
+        ]);
+
+        $this->info("Created notification #{$notification->id} for user #{$user->id}.");
+
+        return Command::SUCCESS;
+    }
+}
@@ -20,6 +20,10 @@ class AIController extends Controller
 {
     private AIService $aiService;
 
+    // メッセージ履歴の1ページの件数（上にスクロールした時に続きを取得）
+    private const DEFAULT_MESSAGES_PAGE = 30;
+    private const MAX_MESSAGES_PAGE = 100;
+
     public function __construct(AIService $aiService)
     {
         $this->aiService = $aiService;
@@ -527,6 +531,58 @@ public function getConversation(Request $request, string $id): JsonResponse
         ]);
     }
 
+    /**
+     * Get messages of a conversation (cursor by message id)
+     * GET /api/ai/chat/conversations/{id}/messages?before_id=&after_id=&limit=
+     * - before_id: それより古いメッセージ（上にスクロールした時）
+     * - after_id: それより新しいメッセージ（端末に保存済みの続き）
+     * - どちらもなし: 最新のメッセージ
+     * messagesは古い順。has_moreは同じ方向にまだメッセージがあるか
+     */
+    public function getConversationMessages(Request $request, string $id): JsonResponse
+    {
+        $request->validate([
+            'before_id' => 'nullable|integer|min:1',
+            'after_id' => 'nullable|integer|min:0',
+            'limit' => 'nullable|integer|min:1|max:' . self::MAX_MESSAGES_PAGE,
+        ]);
+
+        $conversation = ChatConversation::where('user_id', $request->user()->id)
+            ->findOrFail($id);
+
+        $limit = (int) $request->get('limit', self::DEFAULT_MESSAGES_PAGE);
+        $newer = $request->filled('after_id');
+
+        // idは作成順なので、(conversation_id)のインデックスと主キーだけで範囲を引ける
+        $query = ChatMessage::where('conversation_id', $conversation->id);
+        if ($newer) {
+            $query->where('id', '>', (int) $request->after_id)->orderBy('id');
+        } else {
+            if ($request->filled('before_id')) {
+                $query->where('id', '<', (int) $request->before_id);
+            }
+            $query->orderByDesc('id');
+        }
+
+        // 1件多く取得して続きがあるかを判定
+        $messages = $query->limit($limit + 1)->get();
+        $hasMore = $messages->count() > $limit;
+        $messages = $messages->take($limit);
+        if (!$newer) {
+            $messages = $messages->reverse();
+        }
+
+        return response()->json([
+            'success' => true,
+            'data' => [
+                'conversation' => $conversation,
+                'messages' => $messages->values(),
+                'has_more' => $hasMore,
+            ],
+            'message' => 'メッセージを取得しました'
+        ]);
+    }
+
     /**
      * Create a new conversation
      * POST /api/ai/chat/conversations
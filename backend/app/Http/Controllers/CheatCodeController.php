@@ -5,43 +5,95 @@
 use App\Models\CheatCodeLanguage;
 use App\Models\CheatCodeSection;
 use App\Models\CodeExample;
+use App\Models\Translation;
+use App\Traits\RespondsWithConditionalGet;
 use Illuminate\Http\Request;
+use Illuminate\Http\Response;
+use Illuminate\Support\Facades\Cache;
 use Illuminate\Support\Facades\Process;
 use Illuminate\Support\Str;
 
 class CheatCodeController extends Controller
 {
+    use RespondsWithConditionalGet;
+
     /**
      * Get all cheat code languages
      * すべてのチートコード言語を取得
      */
     public function getLanguages(Request $request)
     {
-        $query = CheatCodeLanguage::where('is_active', true);
+        [$version, $lastModified] = $this->catalogVersion();
 
-        // Filter by category
-        if ($request->has('category')) {
-            $query->where('category', $request->category);
-        }
+        return $this->conditionalJson($request, function () use ($request) {
+            $query = CheatCodeLanguage::where('is_active', true);
 
-        // Search
-        if ($request->has('search')) {
-            $search = $request->search;
-            $query->where(function ($q) use ($search) {
-                $q->where('name', 'like', "%{$search}%")
-                    ->orWhere('display_name', 'like', "%{$search}%")
-                    ->orWhere('description', 'like', "%{$search}%");
-            });
-        }
+            // Filter by category
+            if ($request->has('category')) {
+                $query->where('category', $request->category);
+            }
 
-        // Sort
-        $sortBy = $request->input('sort_by', 'sort_order');
-        $sortOrder = $request->input('sort_order', 'asc');
-        $query->orderBy($sortBy, $sortOrder);
+            // Search
+            if ($request->has('search')) {
+                $search = $request->search;
+                $query->where(function ($q) use ($search) {
+                    $q->where('name', 'like', "%{$search}%")
+                        ->orWhere('display_name', 'like', "%{$search}%")
+                        ->orWhere('description', 'like', "%{$search}%");
+                });
+            }
+
+            // Sort
+            $sortBy = $request->input('sort_by', 'sort_order');
+            $sortOrder = $request->input('sort_order', 'asc');
+            $query->orderBy($sortBy, $sortOrder);
+
+            $locale = app()->getLocale();
+            $languages = $query->with('translations')->get()->map(function ($language) use ($locale) {
+                return [
+                    'id' => $language->id,
+                    'name' => $language->name,
+                    'displayName' => $language->display_name,
+                    'icon' => $language->icon,
+                    'color' => $language->color,
+                    'description' => $language->getTranslation('description', $locale) ?? $language->description,
+                    'popularity' => $language->popularity,
+                    'category' => $language->category,
+                    'sectionsCount' => $language->sections_count,
+                    'examplesCount' => $language->examples_count,
+                    'exercisesCount' => $language->exercises_count,
+                    'createdAt' => $language->created_at?->toISOString(),
+                    'updatedAt' => $language->updated_at?->toISOString(),
+                ];
+            });
 
-        $locale = app()->getLocale();
-        $languages = $query->with('translations')->get()->map(function ($language) use ($locale) {
             return [
+                'success' => true,
+                'data' => $languages,
+                'message' => 'Languages retrieved successfully'
+            ];
+        }, $version, $lastModified, shared: true);
+    }
+
+    /**
+     * Get a single language by ID or slug
+     * 言語IDまたはslugで言語を取得
+     */
+    public function getLanguage(Request $request, $identifier)
+    {
+        [$version, $lastModified] = $this->catalogVersion();
+
+        return $this->conditionalJson($request, function () use ($identifier) {
+            $locale = app()->getLocale();
+            $language = CheatCodeLanguage::where('is_active', true)
+                ->where(function ($query) use ($identifier) {
+                    $query->where('id', $identifier)
+                        ->orWhere('slug', $identifier);
+                })
+                ->with('translations')
+                ->firstOrFail();
+
+            $languageData = [
                 'id' => $language->id,
                 'name' => $language->name,
                 'displayName' => $language->display_name,
@@ -56,79 +108,128 @@ public function getLanguages(Request $request)
                 'createdAt' => $language->created_at?->toISOString(),
                 'updatedAt' => $language->updated_at?->toISOString(),
             ];
-        });
 
-        return response()->json([
-            'success' => true,
-            'data' => $languages,
-            'message' => 'Languages retrieved successfully'
-        ]);
+            return [
+                'success' => true,
+                'data' => $languageData,
+                'message' => 'Language retrieved successfully'
+            ];
+        }, $version, $lastModified, shared: true);
     }
 
     /**
-     * Get a single language by ID or slug
-     * 言語IDまたはslugで言語を取得
+     * Get sections for a language
+     * 言語のセクションを取得
      */
-    public function getLanguage($identifier)
+    public function getSections(Request $request, $languageId)
     {
-        $locale = app()->getLocale();
-        $language = CheatCodeLanguage::where('is_active', true)
-            ->where(function ($query) use ($identifier) {
-                $query->where('id', $identifier)
-                    ->orWhere('slug', $identifier);
-            })
-            ->with('translations')
-            ->firstOrFail();
+        [$version, $lastModified] = $this->catalogVersion();
+
+        return $this->conditionalJson($request, function () use ($languageId) {
+            $language = CheatCodeLanguage::where('is_active', true)
+                ->where(function ($query) use ($languageId) {
+                    $query->where('id', $languageId)
+                        ->orWhere('slug', $languageId);
+                })
+                ->firstOrFail();
+
+            $locale = app()->getLocale();
+            $query = CheatCodeSection::where('language_id', $language->id)
+                ->where('is_published', true)
+                ->with('translations')
+                ->with(['examples' => function ($query) {
+                    $query->where('is_published', true)
+                        ->with('translations')
+                        ->orderBy('sort_order');
+                }])
+                ->orderBy('sort_order');
+
+            $sections = $query->get()->map(function ($section) use ($locale) {
+                return [
+                    'id' => $section->id,
+                    'languageId' => $section->language_id,
+                    'title' => $section->getTranslation('title', $locale) ?? $section->title,
+                    'description' => $section->getTranslation('description', $locale) ?? $section->description,
+                    'sortOrder' => $section->sort_order,
+                    'examples' => $section->examples->map(function ($example) use ($locale) {
+                        return [
+                            'id' => $example->id,
+                            'sectionId' => $example->section_id,
+                            'title' => $example->getTranslation('title', $locale) ?? $example->title,
+                            'code' => $example->getTranslation('code', $locale) ?? $example->code,
+                            'description' => $example->getTranslation('description', $locale) ?? $example->description,
+                            'output' => $example->output,
+                            'tags' => $example->tags,
+                            'difficulty' => $example->difficulty,
+                            'sortOrder' => $example->sort_order,
+                            'createdAt' => $example->created_at?->toISOString(),
+                            'updatedAt' => $example->updated_at?->toISOString(),
+                        ];
+                    }),
+                    'createdAt' => $section->created_at?->toISOString(),
+                    'updatedAt' => $section->updated_at?->toISOString(),
+                ];
+            });
 
-        $languageData = [
-            'id' => $language->id,
-            'name' => $language->name,
-            'displayName' => $language->display_name,
-            'icon' => $language->icon,
-            'color' => $language->color,
-            'description' => $language->getTranslation('description', $locale) ?? $language->description,
-            'popularity' => $language->popularity,
-            'category' => $language->category,
-            'sectionsCount' => $language->sections_count,
-            'examplesCount' => $language->examples_count,
-            'exercisesCount' => $language->exercises_count,
-            'createdAt' => $language->created_at?->toISOString(),
-            'updatedAt' => $language->updated_at?->toISOString(),
-        ];
+            $languageData = [
+                'id' => $language->id,
+                'name' => $language->name,
+                'displayName' => $language->display_name,
+                'icon' => $language->icon,
+                'color' => $language->color,
+                'description' => $language->getTranslation('description', $locale) ?? $language->description,
+                'popularity' => $language->popularity,
+                'category' => $language->category,
+                'sectionsCount' => $language->sections_count,
+                'examplesCount' => $language->examples_count,
+                'exercisesCount' => $language->exercises_count,
+                'createdAt' => $language->created_at?->toISOString(),
+                'updatedAt' => $language->updated_at?->toISOString(),
+            ];
 
-        return response()->json([
-            'success' => true,
-            'data' => $languageData,
-            'message' => 'Language retrieved successfully'
-        ]);
+            return [
+                'success' => true,
+                'data' => [
+                    'language' => $languageData,
+                    'sections' => $sections
+                ],
+                'message' => 'Sections retrieved successfully'
+            ];
+        }, $version, $lastModified, shared: true);
     }
 
     /**
-     * Get sections for a language
-     * 言語のセクションを取得
+     * Get a single section with examples
+     * セクションと例を取得
      */
-    public function getSections(Request $request, $languageId)
+    public function getSection(Request $request, $languageId, $sectionId)
     {
-        $language = CheatCodeLanguage::where('is_active', true)
-            ->where(function ($query) use ($languageId) {
-                $query->where('id', $languageId)
-                    ->orWhere('slug', $languageId);
-            })
-            ->firstOrFail();
-
-        $locale = app()->getLocale();
-        $query = CheatCodeSection::where('language_id', $language->id)
-            ->where('is_published', true)
-            ->with('translations')
-            ->with(['examples' => function ($query) {
-                $query->where('is_published', true)
-                    ->with('translations')
-                    ->orderBy('sort_order');
-            }])
-            ->orderBy('sort_order');
-
-        $sections = $query->get()->map(function ($section) use ($locale) {
-            return [
+        [$version, $lastModified] = $this->catalogVersion();
+
+        return $this->conditionalJson($request, function () use ($languageId, $sectionId) {
+            $language = CheatCodeLanguage::where('is_active', true)
+                ->where(function ($query) use ($languageId) {
+                    $query->where('id', $languageId)
+                        ->orWhere('slug', $languageId);
+                })
+                ->firstOrFail();
+
+            $locale = app()->getLocale();
+            $section = CheatCodeSection::where('language_id', $language->id)
+                ->where('is_published', true)
+                ->where(function ($query) use ($sectionId) {
+                    $query->where('id', $sectionId)
+                        ->orWhere('slug', $sectionId);
+                })
+                ->with('translations')
+                ->with(['examples' => function ($query) {
+                    $query->where('is_published', true)
+                        ->with('translations')
+                        ->orderBy('sort_order');
+                }])
+                ->firstOrFail();
+
+            $sectionData = [
                 'id' => $section->id,
                 'languageId' => $section->language_id,
                 'title' => $section->getTranslation('title', $locale) ?? $section->title,
@@ -152,69 +253,61 @@ public function getSections(Request $request, $languageId)
                 'createdAt' => $section->created_at?->toISOString(),
                 'updatedAt' => $section->updated_at?->toISOString(),
             ];
-        });
 
-        $languageData = [
-            'id' => $language->id,
-            'name' => $language->name,
-            'displayName' => $language->display_name,
-            'icon' => $language->icon,
-            'color' => $language->color,
-            'description' => $language->getTranslation('description', $locale) ?? $language->description,
-            'popularity' => $language->popularity,
-            'category' => $language->category,
-            'sectionsCount' => $language->sections_count,
-            'examplesCount' => $language->examples_count,
-            'exercisesCount' => $language->exercises_count,
-            'createdAt' => $language->created_at?->toISOString(),
-            'updatedAt' => $language->updated_at?->toISOString(),
-        ];
-
-        return response()->json([
-            'success' => true,
-            'data' => [
-                'language' => $languageData,
-                'sections' => $sections
-            ],
-            'message' => 'Sections retrieved successfully'
-        ]);
+            return [
+                'success' => true,
+                'data' => $sectionData,
+                'message' => 'Section retrieved successfully'
+            ];
+        }, $version, $lastModified, shared: true);
     }
 
     /**
-     * Get a single section with examples
-     * セクションと例を取得
+     * Get code examples for a section
+     * セクションのコード例を取得
      */
-    public function getSection($languageId, $sectionId)
+    public function getExamples(Request $request, $languageId, $sectionId)
     {
-        $language = CheatCodeLanguage::where('is_active', true)
-            ->where(function ($query) use ($languageId) {
-                $query->where('id', $languageId)
-                    ->orWhere('slug', $languageId);
-            })
-            ->firstOrFail();
+        [$version, $lastModified] = $this->catalogVersion();
+
+        return $this->conditionalJson($request, function () use ($request, $languageId, $sectionId) {
+            $language = CheatCodeLanguage::where('is_active', true)
+                ->where(function ($query) use ($languageId) {
+                    $query->where('id', $languageId)
+                        ->orWhere('slug', $languageId);
+                })
+                ->firstOrFail();
+
+            $section = CheatCodeSection::where('language_id', $language->id)
+                ->where(function ($query) use ($sectionId) {
+                    $query->where('id', $sectionId)
+                        ->orWhere('slug', $sectionId);
+                })
+                ->firstOrFail();
+
+            $locale = app()->getLocale();
+            $query = CodeExample::where('section_id', $section->id)
+                ->where('is_published', true)
+                ->with('translations');
+
+            // Filter by difficulty
+            if ($request->has('difficulty')) {
+                $query->where('difficulty', $request->difficulty);
+            }
 
-        $locale = app()->getLocale();
-        $section = CheatCodeSection::where('language_id', $language->id)
-            ->where('is_published', true)
-            ->where(function ($query) use ($sectionId) {
-                $query->where('id', $sectionId)
-                    ->orWhere('slug', $sectionId);
-            })
-            ->with('translations')
-            ->with(['examples' => function ($query) {
-                $query->where('is_published', true)
-                    ->with('translations')
-                    ->orderBy('sort_order');
-            }])
-            ->firstOrFail();
+            // Search
+            if ($request->has('search')) {
+                $search = $request->search;
+                $query->where(function ($q) use ($search) {
+                    $q->where('title', 'like', "%{$search}%")
+                        ->orWhere('description', 'like', "%{$search}%")
+                        ->orWhere('code', 'like', "%{$search}%");
+                });
+            }
+
+            $query->orderBy('sort_order');
 
-        $sectionData = [
-            'id' => $section->id,
-            'languageId' => $section->language_id,
-            'title' => $section->getTranslation('title', $locale) ?? $section->title,
-            'description' => $section->getTranslation('description', $locale) ?? $section->description,
-            'sortOrder' => $section->sort_order,
-            'examples' => $section->examples->map(function ($example) use ($locale) {
+            $examples = $query->get()->map(function ($example) use ($locale) {
                 return [
                     'id' => $example->id,
                     'sectionId' => $example->section_id,
@@ -228,81 +321,14 @@ public function getSection($languageId, $sectionId)
                     'createdAt' => $example->created_at?->toISOString(),
                     'updatedAt' => $example->updated_at?->toISOString(),
                 ];
-            }),
-            'createdAt' => $section->created_at?->toISOString(),
-            'updatedAt' => $section->updated_at?->toISOString(),
-        ];
-
-        return response()->json([
-            'success' => true,
-            'data' => $sectionData,
-            'message' => 'Section retrieved successfully'
-        ]);
-    }
-
-    /**
-     * Get code examples for a section
-     * セクションのコード例を取得
-     */
-    public function getExamples(Request $request, $languageId, $sectionId)
-    {
-        $language = CheatCodeLanguage::where('is_active', true)
-            ->where(function ($query) use ($languageId) {
-                $query->where('id', $languageId)
-                    ->orWhere('slug', $languageId);
-            })
-            ->firstOrFail();
-
-        $section = CheatCodeSection::where('language_id', $language->id)
-            ->where(function ($query) use ($sectionId) {
-                $query->where('id', $sectionId)
-                    ->orWhere('slug', $sectionId);
-            })
-            ->firstOrFail();
-
-        $locale = app()->getLocale();
-        $query = CodeExample::where('section_id', $section->id)
-            ->where('is_published', true)
-            ->with('translations');
-
-        // Filter by difficulty
-        if ($request->has('difficulty')) {
-            $query->where('difficulty', $request->difficulty);
-        }
-
-        // Search
-        if ($request->has('search')) {
-            $search = $request->search;
-            $query->where(function ($q) use ($search) {
-                $q->where('title', 'like', "%{$search}%")
-                    ->orWhere('description', 'like', "%{$search}%")
-                    ->orWhere('code', 'like', "%{$search}%");
             });
-        }
 
-        $query->orderBy('sort_order');
-
-        $examples = $query->get()->map(function ($example) use ($locale) {
             return [
-                'id' => $example->id,
-                'sectionId' => $example->section_id,
-                'title' => $example->getTranslation('title', $locale) ?? $example->title,
-                'code' => $example->getTranslation('code', $locale) ?? $example->code,
-                'description' => $example->getTranslation('description', $locale) ?? $example->description,
-                'output' => $example->output,
-                'tags' => $example->tags,
-                'difficulty' => $example->difficulty,
-                'sortOrder' => $example->sort_order,
-                'createdAt' => $example->created_at?->toISOString(),
-                'updatedAt' => $example->updated_at?->toISOString(),
+                'success' => true,
+                'data' => $examples,
+                'message' => 'Examples retrieved successfully'
             ];
-        });
-
-        return response()->json([
-            'success' => true,
-            'data' => $examples,
-            'message' => 'Examples retrieved successfully'
-        ]);
+        }, $version, $lastModified, shared: true);
     }
 
     /**
@@ -335,7 +361,8 @@ public function getExample($languageId, $sectionId, $exampleId)
             ->firstOrFail();
 
         // Increment view count
-        $example->increment('views_count');
+        // updated_atは変えない（閲覧数はカタログの内容ではないため、条件付きGETのバージョンを変えない）
+        CodeExample::withoutTimestamps(fn () => $example->increment('views_count'));
 
         $locale = app()->getLocale();
         $exampleData = [
@@ -363,18 +390,223 @@ public function getExample($languageId, $sectionId, $exampleId)
      * Get categories of languages
      * 言語のカテゴリを取得
      */
-    public function getCategories()
+    public function getCategories(Request $request)
     {
-        $categories = CheatCodeLanguage::where('is_active', true)
-            ->select('category')
-            ->distinct()
-            ->pluck('category');
+        [$version, $lastModified] = $this->catalogVersion();
 
-        return response()->json([
-            'success' => true,
-            'data' => $categories,
-            'message' => 'Categories retrieved successfully'
+        return $this->conditionalJson($request, function () {
+            $categories = CheatCodeLanguage::where('is_active', true)
+                ->select('category')
+                ->distinct()
+                ->pluck('category');
+
+            return [
+                'success' => true,
+                'data' => $categories,
+                'message' => 'Categories retrieved successfully'
+            ];
+        }, $version, $lastModified, shared: true);
+    }
+
+    /**
+     * Get the content pack manifest
+     * 言語ごとのコンテンツパック（オフライン用）の一覧とバージョン
+     * クライアントは保存済みのバージョンと比べ、変わった言語のパックだけを取得する
+     */
+    public function getPacks(Request $request)
+    {
+        [$version, $lastModified] = $this->catalogVersion();
+
+        return $this->conditionalJson($request, function () use ($version) {
+            $packs = array_map(fn ($pack) => [
+                'language' => $pack['language'],
+                'version' => $pack['version'],
+                'size' => $pack['size'],
+            ], $this->packIndex($version));
+
+            return [
+                'success' => true,
+                'data' => [
+                    'packs' => array_values($packs),
+                ],
+                'message' => 'Content packs retrieved successfully'
+            ];
+        }, $version, $lastModified, shared: true);
+    }
+
+    /**
+     * Get the content pack for a language
+     * 言語・セクション・例をすべて含むパック（1回のリクエストで言語のページをすべて表示できる）
+     * ETagはパックのバージョン。クライアントが対応していればgzipで圧縮して返す
+     */
+    public function getPack(Request $request, $languageId)
+    {
+        [$catalog] = $this->catalogVersion();
+        $locale = app()->getLocale();
+
+        $entry = collect($this->packIndex($catalog))->first(
+            fn ($pack) => (string) $pack['language']['id'] === (string) $languageId || $pack['slug'] === $languageId
+        );
+        abort_if($entry === null, 404, 'Language not found');
+
+        $response = new Response();
+        $response->setEtag($entry['version']);
+        $response->setPublic();
+        $response->headers->addCacheControlDirective('no-cache');
+        $response->setVary(['Accept-Encoding', 'Accept-Language', 'X-Locale']);
+        if ($response->isNotModified($request)) {
+            return $response;
+        }
+
+        // パックのキャッシュが消えていれば、その言語だけ作り直す
+        $json = Cache::get($this->packCacheKey($entry['language']['id'], $entry['version'], $locale))
+            ?? $this->buildPack(CheatCodeLanguage::findOrFail($entry['language']['id']), $locale)['json'];
+
+        $response->headers->set('Content-Type', 'application/json');
+        if (str_contains((string) $request->header('Accept-Encoding'), 'gzip')) {
+            $response->headers->set('Content-Encoding', 'gzip');
+            $response->setContent(gzencode($json, 6));
+        } else {
+            $response->setContent($json);
+        }
+
+        return $response;
+    }
+
+    /**
+     * 全言語のパックのバージョン（カタログのバージョン・ロケールごとにキャッシュ）
+     * カタログが変わった時に全言語のパックを作り直すが、バージョンは各パックの内容のハッシュなので
+     * 内容が変わっていない言語はクライアントが取得し直すことはない
+     *
+     * @return array<int, array{language: array, slug: string, version: string, size: int}>
+     */
+    private function packIndex(array $catalog): array
+    {
+        $locale = app()->getLocale();
+        $key = 'cheat_code_packs:' . $locale . ':' . md5(json_encode($catalog));
+
+        return Cache::remember($key, now()->addDay(), function () use ($locale) {
+            $index = [];
+            foreach (CheatCodeLanguage::where('is_active', true)->orderBy('sort_order')->get() as $language) {
+                $pack = $this->buildPack($language, $locale);
+                $index[$language->id] = [
+                    'language' => $pack['language'],
+                    'slug' => $language->slug,
+                    'version' => $pack['version'],
+                    'size' => strlen($pack['json']),
+                ];
+            }
+
+            return $index;
+        });
+    }
+
+    /**
+     * 1言語分のパックを作成してキャッシュする
+     *
+     * @return array{language: array, version: string, json: string}
+     */
+    private function buildPack(CheatCodeLanguage $language, string $locale): array
+    {
+        $language->load([
+            'translations',
+            'sections' => function ($query) {
+                $query->where('is_published', true)
+                    ->with(['translations', 'examples' => function ($query) {
+                        $query->where('is_published', true)->with('translations');
+                    }]);
+            },
         ]);
+
+        $content = [
+            'language' => $this->formatLanguage($language, $locale),
+            'sections' => $language->sections->map(fn ($section) => [
+                'id' => $section->id,
+                'languageId' => $section->language_id,
+                'title' => $section->getTranslation('title', $locale) ?? $section->title,
+                'description' => $section->getTranslation('description', $locale) ?? $section->description,
+                'sortOrder' => $section->sort_order,
+                'examples' => $section->examples->map(fn ($example) => [
+                    'id' => $example->id,
+                    'sectionId' => $example->section_id,
+                    'title' => $example->getTranslation('title', $locale) ?? $example->title,
+                    'code' => $example->getTranslation('code', $locale) ?? $example->code,
+                    'description' => $example->getTranslation('description', $locale) ?? $example->description,
+                    'output' => $example->output,
+                    'tags' => $example->tags,
+                    'difficulty' => $example->difficulty,
+                    'sortOrder' => $example->sort_order,
+                    'updatedAt' => $example->updated_at?->toISOString(),
+                ])->values(),
+                'updatedAt' => $section->updated_at?->toISOString(),
+            ])->values(),
+        ];
+
+        $version = substr(md5(json_encode($content)), 0, 16);
+        $json = json_encode([
+            'success' => true,
+            'data' => ['version' => $version] + $content,
+            'message' => 'Content pack retrieved successfully'
+        ], JSON_UNESCAPED_UNICODE);
+
+        Cache::put($this->packCacheKey($language->id, $version, $locale), $json, now()->addDay());
+
+        return ['language' => $content['language'], 'version' => $version, 'json' => $json];
+    }
+
+    private function packCacheKey(int $languageId, string $version, string $locale): string
+    {
+        return "cheat_code_pack:{$locale}:{$languageId}:{$version}";
+    }
+
+    private function formatLanguage(CheatCodeLanguage $language, string $locale): array
+    {
+        return [
+            'id' => $language->id,
+            'name' => $language->name,
+            'displayName' => $language->display_name,
+            'icon' => $language->icon,
+            'color' => $language->color,
+            'description' => $language->getTranslation('description', $locale) ?? $language->description,
+            'popularity' => $language->popularity,
+            'category' => $language->category,
+            'sectionsCount' => $language->sections_count,
+            'examplesCount' => $language->examples_count,
+            'exercisesCount' => $language->exercises_count,
+            'createdAt' => $language->created_at?->toISOString(),
+            'updatedAt' => $language->updated_at?->toISOString(),
+        ];
+    }
+
+    /**
+     * チートコードのカタログ全体のバージョン（条件付きGET用）
+     * 言語・セクション・例・翻訳の件数と最終更新日時から求める（安価な集計クエリのみ）
+     * いずれかが追加・更新・削除されると変わる
+     *
+     * @return array{0: array, 1: string|null} [バージョン, 最終更新日時]
+     */
+    private function catalogVersion(): array
+    {
+        $models = [CheatCodeLanguage::class, CheatCodeSection::class, CodeExample::class];
+
+        $version = [];
+        $lastModified = null;
+        foreach ($models as $model) {
+            $row = $model::query()->toBase()
+                ->selectRaw('COUNT(*) as total, MAX(updated_at) as updated')
+                ->first();
+            $version[] = [$row->total, $row->updated];
+            $lastModified = max($lastModified, $row->updated);
+        }
+
+        $translations = Translation::query()->toBase()
+            ->whereIn('translatable_type', array_map(fn ($model) => (new $model)->getMorphClass(), $models))
+            ->selectRaw('COUNT(*) as total, MAX(updated_at) as updated')
+            ->first();
+        $version[] = [$translations->total, $translations->updated];
+        $lastModified = max($lastModified, $translations->updated);
+
+        return [$version, $lastModified];
     }
 
     /**
@@ -25,6 +25,7 @@ public function start(Request $request): JsonResponse
             'task_id' => 'required|exists:tasks,id',
             'duration_minutes' => 'required|integer|min:1|max:120',  // 最低1分に変更（短いタスク対応）
             'session_type' => 'required|in:work,break,long_break',
+            'started_at' => 'nullable|date',  // オフラインで開始したセッション（送信キューから再送）
         ]);
 
         // Kiểm tra có session đang chạy không
@@ -47,7 +48,7 @@ public function start(Request $request): JsonResponse
                 'task_id' => $request->task_id,
                 'session_type' => $request->session_type,
                 'duration_minutes' => $request->duration_minutes,
-                'started_at' => now(),
+                'started_at' => $this->clientTime($request, 'started_at'),
                 'status' => 'active',
             ]);
 
@@ -92,6 +93,7 @@ public function stop(Request $request, string $id): JsonResponse
         $request->validate([
             'notes' => 'nullable|string|max:1000',
             'force_complete_task' => 'nullable|boolean',
+            'ended_at' => 'nullable|date',  // オフラインで終了したセッション（送信キューから再送）
         ]);
 
         $session = FocusSession::where('user_id', $request->user()->id)
@@ -107,8 +109,11 @@ public function stop(Request $request, string $id): JsonResponse
         try {
             DB::beginTransaction();
 
+            // 終了時刻（開始時刻より前にはしない）
+            $endedAt = $this->clientTime($request, 'ended_at')->max($session->started_at);
+
             // セッションの実際の時間を計算
-            $calculatedMinutes = $session->started_at->diffInMinutes(now());
+            $calculatedMinutes = $session->started_at->diffInMinutes($endedAt);
 
             // セッション時間が0または負の値の場合、duration_minutesを使用
             // または、セッションが開始されてすぐに停止された場合（1分未満）
@@ -130,7 +135,7 @@ public function stop(Request $request, string $id): JsonResponse
             Log::info('Session stop - time calculation', [
                 'session_id' => $session->id,
                 'started_at' => $session->started_at->format('Y-m-d H:i:s'),
-                'ended_at' => now()->format('Y-m-d H:i:s'),
+                'ended_at' => $endedAt->format('Y-m-d H:i:s'),
                 'calculated_minutes' => $calculatedMinutes,
                 'duration_minutes' => $session->duration_minutes,
                 'actual_minutes' => $actualMinutes,
@@ -138,7 +143,7 @@ public function stop(Request $request, string $id): JsonResponse
 
             $updateData = [
                 'status' => 'completed',
-                'ended_at' => now(),
+                'ended_at' => $endedAt,
                 'actual_minutes' => $actualMinutes,
             ];
 
@@ -169,13 +174,13 @@ public function stop(Request $request, string $id): JsonResponse
                 // タスクのtotal_focus_minutesを更新（actualMinutesが0より大きい場合のみ）
                 if ($actualMinutes > 0) {
                     $task->increment('total_focus_minutes', $actualMinutes);
-                    $task->update(['last_focus_at' => now()]);
+                    $task->update(['last_focus_at' => $endedAt]);
                     $task->refresh(); // total_focus_minutesを更新後にリロード
                 } else {
                     // actualMinutesが0の場合、duration_minutesを使用
                     $minutesToAdd = $session->duration_minutes > 0 ? $session->duration_minutes : 1;
                     $task->increment('total_focus_minutes', $minutesToAdd);
-                    $task->update(['last_focus_at' => now()]);
+                    $task->update(['last_focus_at' => $endedAt]);
                     $task->refresh();
                     $actualMinutes = $minutesToAdd; // 以降のチェックで使用
 
@@ -322,6 +327,21 @@ public function stop(Request $request, string $id): JsonResponse
         }
     }
 
+    /**
+     * クライアントが送信した時刻（なければ現在時刻）
+     * 端末の時計が進んでいる場合に備えて未来の時刻は現在時刻に丸める
+     */
+    private function clientTime(Request $request, string $field): Carbon
+    {
+        if (!$request->filled($field)) {
+            return now();
+        }
+
+        return Carbon::parse($request->input($field))
+            ->setTimezone(config('app.timezone'))
+            ->min(now());
+    }
+
     /**
      * セッションメモをKnowledge Itemとして「Note」フォルダに保存
      */
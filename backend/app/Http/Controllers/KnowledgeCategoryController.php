@@ -5,6 +5,7 @@
 use App\Models\KnowledgeCategory;
 use App\Models\KnowledgeItem;
 use App\Services\CourseTranslationService;
+use App\Traits\RespondsWithConditionalGet;
 use Database\Seeders\KnowledgeCategorySeeder;
 use Illuminate\Http\Request;
 use Illuminate\Http\JsonResponse;
@@ -14,6 +15,8 @@
 
 class KnowledgeCategoryController extends Controller
 {
+    use RespondsWithConditionalGet;
+
     /**
      * Get all categories for authenticated user
      * GET /api/knowledge/categories
@@ -105,7 +108,8 @@ public function tree(Request $request): JsonResponse
             return $this->buildCategoryTreeWithCounts($category, $allCategories, $itemCounts);
         });
 
-        return response()->json([
+        // 内容のハッシュをETagにする（変更がなければ304で本体を送らない）
+        return $this->conditionalJson($request, [
             'success' => true,
             'data' => $tree,
             'message' => 'Category tree retrieved successfully'
@@ -572,6 +576,18 @@ public function stats(Request $request): JsonResponse
             ->orderBy('item_count', 'desc')
             ->first();
 
+        // カテゴリごとのアイテム数（モバイルのツリーは変わった行だけ更新する）
+        // アイテムがなくなったカテゴリも0に更新されるよう、所有するすべてのカテゴリを含める
+        $counts = KnowledgeItem::where('user_id', $user->id)
+            ->whereNotNull('category_id')
+            ->where('is_archived', false)
+            ->groupBy('category_id')
+            ->selectRaw('category_id, count(*) as count')
+            ->pluck('count', 'category_id');
+        $itemCounts = KnowledgeCategory::where('user_id', $user->id)
+            ->pluck('id')
+            ->mapWithKeys(fn ($id) => [$id => (int) ($counts[$id] ?? 0)]);
+
         return response()->json([
             'success' => true,
             'data' => [
@@ -582,7 +598,8 @@ public function stats(Request $request): JsonResponse
                     'id' => $mostUsedCategory->id,
                     'name' => $mostUsedCategory->name,
                     'item_count' => $mostUsedCategory->item_count
-                ] : null
+                ] : null,
+                'item_counts' => (object) $itemCounts->all(),
             ],
             'message' => 'Category statistics retrieved successfully'
         ]);
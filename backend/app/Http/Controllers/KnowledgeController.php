@@ -2,14 +2,54 @@
 
 namespace App\Http\Controllers;
 
+use App\Models\ClientMutation;
 use App\Models\KnowledgeItem;
 use App\Models\KnowledgeCategory;
+use App\Models\SyncTombstone;
+use Carbon\Carbon;
+use Illuminate\Database\QueryException;
 use Illuminate\Http\Request;
 use Illuminate\Support\Facades\Validator;
 use Illuminate\Support\Facades\Log;
 
 class KnowledgeController extends Controller
 {
+    /**
+     * index()で並び替えに使用できるカラム
+     */
+    private const SORTABLE_COLUMNS = [
+        'created_at', 'updated_at', 'title', 'view_count', 'review_count',
+        'next_review_date', 'last_reviewed_at', 'retention_score',
+    ];
+
+    /**
+     * カーソルページングで並び替えに使用できるカラム（NULLにならないもののみ）
+     * cursorPaginateは「col > 前ページの値」で続きを取るため、NULLの行は比較から外れて取得されなくなる
+     */
+    private const CURSOR_SORTABLE_COLUMNS = [
+        'created_at', 'updated_at', 'title', 'view_count', 'review_count',
+    ];
+
+    /**
+     * bulkReview()で一度に受け付ける最大件数
+     */
+    private const MAX_BULK_REVIEWS = 200;
+
+    /**
+     * dueReview()で先読みできる最大日数
+     */
+    private const MAX_REVIEW_AHEAD_DAYS = 14;
+
+    /**
+     * forTask()で返す最大件数
+     */
+    private const MAX_ITEMS_FOR_TASK = 100;
+
+    /**
+     * 全文検索インデックスを使える最短の語の長さ（ngram_token_size）
+     */
+    private const FULLTEXT_MIN_TERM_LENGTH = 2;
+
     /**
      * Get all knowledge items for authenticated user
      */
@@ -33,16 +73,21 @@ public function index(Request $request)
             'full_url' => $request->fullUrl(),
         ]);
 
-        // Filter by type (also support 'filter' parameter for backward compatibility)
+        // Filter by type (also support 'filter' / 'item_type' parameters for backward compatibility)
         if ($request->has('type')) {
             $query->where('item_type', $request->type);
         } elseif ($request->has('filter')) {
             $query->where('item_type', $request->filter);
+        } elseif ($request->filled('item_type')) {
+            $query->where('item_type', $request->item_type);
         }
 
         // Filter by category
         if ($request->has('category_id')) {
             $query->where('category_id', $request->category_id);
+        } elseif ($request->boolean('uncategorized')) {
+            // Root folder: items without category
+            $query->whereNull('category_id');
         }
 
         // Filter by learning path
@@ -143,13 +188,15 @@ public function index(Request $request)
         }
 
         // Filter favorites
-        if ($request->has('favorites') && $request->favorites) {
+        if (($request->has('favorites') && $request->favorites) || $request->boolean('is_favorite')) {
             $query->where('is_favorite', true);
         }
 
         // Filter archived
         if ($request->has('archived')) {
             $query->where('is_archived', $request->archived);
+        } elseif ($request->has('is_archived')) {
+            $query->where('is_archived', $request->boolean('is_archived'));
         } else {
             // By default, don't show archived items
             $query->where('is_archived', false);
@@ -160,51 +207,57 @@ public function index(Request $request)
             $query->dueForReview();
         }
 
+        // Filter by tags (all given tags must be present)
+        if ($request->has('tags')) {
+            foreach ((array) $request->input('tags') as $tag) {
+                if ($tag !== null && $tag !== '') {
+                    $query->whereJsonContains('tags', $tag);
+                }
+            }
+        }
+
         // Search
-        if ($request->has('search')) {
-            $search = $request->search;
-            $query->where(function ($q) use ($search) {
-                $q->where('title', 'like', "%{$search}%")
-                    ->orWhere('content', 'like', "%{$search}%")
-                    ->orWhere('tags', 'like', "%{$search}%");
-            });
+        if ($request->filled('search')) {
+            $this->applySearch($query, (string) $request->search);
         }
 
         // Sort
+        $useCursor = $request->input('paginate') === 'cursor';
         $sortBy = $request->input('sort_by', 'created_at');
-        $sortOrder = $request->input('sort_order', 'desc');
+        $sortOrder = strtolower($request->input('sort_order', 'desc')) === 'asc' ? 'asc' : 'desc';
+        $sortable = $useCursor ? self::CURSOR_SORTABLE_COLUMNS : self::SORTABLE_COLUMNS;
+        if (!in_array($sortBy, $sortable, true)) {
+            $sortBy = 'created_at';
+        }
         $query->orderBy($sortBy, $sortOrder);
 
+        // Cursor-based paging (paginate=cursor)
+        // idをタイブレーカーにしてカーソルを一意にする
+        if ($useCursor) {
+            $query->orderBy('id', $sortOrder);
+            $perPage = min(max((int) $request->input('per_page', 20), 1), 100);
+            $page = $query->cursorPaginate($perPage);
+
+            return response()->json([
+                'success' => true,
+                'data' => collect($page->items())->map(fn ($item) => $this->transformItem($item))->values(),
+                'pagination' => [
+                    'per_page' => $page->perPage(),
+                    'next_cursor' => $page->nextCursor()?->encode(),
+                    'prev_cursor' => $page->previousCursor()?->encode(),
+                    'has_more' => $page->hasMorePages(),
+                ],
+                'message' => 'Knowledge items retrieved successfully'
+            ]);
+        }
+
         // Log the SQL query before execution
         Log::info('Knowledge API query SQL', [
             'sql' => $query->toSql(),
             'bindings' => $query->getBindings(),
         ]);
 
-        $items = $query->get()->map(function ($item) {
-            $itemArray = $item->toArray();
-            // Apply translations
-            if (method_exists($item, 'getTranslatableFields')) {
-                foreach ($item->getTranslatableFields() as $field) {
-                    $translated = $item->getTranslation($field);
-                    if ($translated !== null) {
-                        $itemArray[$field] = $translated;
-                    }
-                }
-            }
-            // Apply category translations if exists
-            if ($item->category && method_exists($item->category, 'getTranslatableFields')) {
-                $categoryArray = $item->category->toArray();
-                foreach ($item->category->getTranslatableFields() as $field) {
-                    $translated = $item->category->getTranslation($field);
-                    if ($translated !== null) {
-                        $categoryArray[$field] = $translated;
-                    }
-                }
-                $itemArray['category'] = $categoryArray;
-            }
-            return $itemArray;
-        });
+        $items = $query->get()->map(fn ($item) => $this->transformItem($item));
 
         // Debug logging - detailed
         Log::info('Knowledge API response', [
@@ -479,33 +532,110 @@ public function markReviewed(Request $request, $id)
         // Get quality from request (default: "good")
         $quality = $request->input('quality', 'good');
 
-        // Update review count based on quality
-        $currentReviewCount = $item->review_count ?? 0;
+        $this->applyReview($item, $quality, now());
 
-        if ($quality === 'hard') {
-            // Hard: Reset to beginning or decrease review count
-            // If review_count > 0, decrease by 1, otherwise keep at 0
-            $item->review_count = max(0, $currentReviewCount - 1);
-        } elseif ($quality === 'easy') {
-            // Easy: Increase review count to advance faster
-            $item->review_count = $currentReviewCount + 2;
-        } else {
-            // Good: Normal progression
-            $item->review_count = $currentReviewCount + 1;
+        return response()->json([
+            'success' => true,
+            'data' => $item,
+            'message' => 'Item marked as reviewed'
+        ]);
+    }
+
+    /**
+     * 端末で記録した復習結果をまとめて適用
+     * POST /api/knowledge/reviews/bulk
+     *
+     * Body: { reviews: [{ key, item_id, quality, reviewed_at }] }
+     * - 送られた順（=端末で採点した順）に適用する
+     * - keyは冪等キー。適用済みのキーは保存した結果を返す（再送しても二重に数えない）
+     * - next_review_date は reviewed_at（オフラインで採点した時刻）から計算する
+     */
+    public function bulkReview(Request $request)
+    {
+        $validator = Validator::make($request->all(), [
+            'reviews' => 'required|array|min:1|max:' . self::MAX_BULK_REVIEWS,
+            'reviews.*.key' => 'required|string|max:64',
+            'reviews.*.item_id' => 'required|integer',
+            'reviews.*.quality' => 'required|string|in:hard,good,easy',
+            'reviews.*.reviewed_at' => 'nullable|date',
+        ]);
+
+        if ($validator->fails()) {
+            return response()->json([
+                'success' => false,
+                'message' => 'Validation error',
+                'errors' => $validator->errors()
+            ], 422);
         }
 
-        $item->last_reviewed_at = now();
+        $user = $request->user();
+        $reviews = $request->input('reviews');
 
-        // Calculate next review date using spaced repetition algorithm with quality
-        $interval = $this->calculateReviewInterval($item->review_count, $quality);
-        $item->next_review_date = now()->addDays($interval)->toDateString();
+        $applied = ClientMutation::where('user_id', $user->id)
+            ->whereIn('idempotency_key', array_column($reviews, 'key'))
+            ->get()
+            ->keyBy('idempotency_key');
 
-        $item->save();
+        $items = KnowledgeItem::where('user_id', $user->id)
+            ->whereIn('id', array_unique(array_column($reviews, 'item_id')))
+            ->get()
+            ->keyBy('id');
+
+        $results = [];
+        foreach ($reviews as $review) {
+            $key = $review['key'];
+
+            if ($applied->has($key)) {
+                $results[] = array_merge($applied[$key]->response ?? [], [
+                    'key' => $key,
+                    'status' => $applied[$key]->status,
+                    'replayed' => true,
+                ]);
+                continue;
+            }
+
+            $item = $items->get($review['item_id']);
+            if (!$item) {
+                $status = 404;
+                $body = ['item_id' => $review['item_id'], 'success' => false];
+            } else {
+                $reviewedAt = !empty($review['reviewed_at'])
+                    ? Carbon::parse($review['reviewed_at'])->setTimezone(config('app.timezone'))->min(now())
+                    : now();
+                $this->applyReview($item, $review['quality'], $reviewedAt);
+
+                $status = 200;
+                $body = [
+                    'item_id' => $item->id,
+                    'success' => true,
+                    'review_count' => $item->review_count,
+                    'next_review_date' => $item->next_review_date,
+                ];
+            }
+
+            try {
+                ClientMutation::create([
+                    'user_id' => $user->id,
+                    'idempotency_key' => $key,
+                    'type' => 'knowledge.review',
+                    'status' => $status,
+                    'response' => $body,
+                    'created_at' => now(),
+                ]);
+            } catch (QueryException $e) {
+                // 同じキーの再送が並行して適用された場合
+                Log::warning('KnowledgeController: duplicate review key', ['key' => $key]);
+            }
+
+            $results[] = array_merge($body, ['key' => $key, 'status' => $status, 'replayed' => false]);
+        }
 
         return response()->json([
             'success' => true,
-            'data' => $item,
-            'message' => 'Item marked as reviewed'
+            'data' => [
+                'results' => $results,
+            ],
+            'message' => 'Reviews applied'
         ]);
     }
 
@@ -862,9 +992,10 @@ public function bulkDelete(Request $request)
         try {
             \DB::beginTransaction();
 
-            $deleted = KnowledgeItem::where('user_id', $user->id)
-                ->whereIn('id', $request->input('item_ids'))
-                ->delete();
+            $query = KnowledgeItem::where('user_id', $user->id)
+                ->whereIn('id', $request->input('item_ids'));
+            SyncTombstone::recordMany($user->id, 'knowledge', (clone $query)->pluck('id'));
+            $deleted = $query->delete();
 
             \DB::commit();
 
@@ -913,11 +1044,25 @@ public function dueReview(Request $request)
     {
         $user = $request->user();
 
-        $items = KnowledgeItem::where('user_id', $user->id)
-            ->dueForReview()
-            ->with(['category'])
-            ->orderBy('next_review_date')
-            ->get();
+        // ahead_days: 端末の復習キュー用に、数日先までに期限が来るアイテムも先読みする
+        $aheadDays = min(max((int) $request->query('ahead_days', 0), 0), self::MAX_REVIEW_AHEAD_DAYS);
+
+        $query = KnowledgeItem::where('user_id', $user->id)
+            ->with(['category']);
+
+        if ($aheadDays > 0) {
+            $query->where('next_review_date', '<=', now()->addDays($aheadDays)->toDateString());
+        } else {
+            $query->dueForReview();
+        }
+
+        $query->orderBy('next_review_date');
+
+        if ($request->filled('limit')) {
+            $query->limit(min(max((int) $request->query('limit'), 1), self::MAX_BULK_REVIEWS));
+        }
+
+        $items = $query->get();
 
         return response()->json([
             'success' => true,
@@ -926,6 +1071,35 @@ public function dueReview(Request $request)
         ]);
     }
 
+    /**
+     * フォーカス画面用: タスクに紐づく知識アイテム（アーカイブ済みを除く・新しい順）
+     * GET /api/knowledge/for-task/{taskId}
+     * (user_id, source_task_id, is_archived, created_at) のインデックスだけで絞り込み・並び替えできる
+     */
+    public function forTask(Request $request, $taskId)
+    {
+        $user = $request->user();
+        $limit = min(max((int) $request->query('limit', self::MAX_ITEMS_FOR_TASK), 1), self::MAX_ITEMS_FOR_TASK);
+
+        $items = KnowledgeItem::where('user_id', $user->id)
+            ->where('source_task_id', (int) $taskId)
+            ->where('is_archived', false)
+            ->withTranslations()
+            ->with(['category' => function ($q) {
+                $q->withTranslations();
+            }])
+            ->orderByDesc('created_at')
+            ->orderByDesc('id')
+            ->limit($limit)
+            ->get();
+
+        return response()->json([
+            'success' => true,
+            'data' => $items->map(fn ($item) => $this->transformItem($item))->values(),
+            'message' => 'Knowledge items for task retrieved successfully'
+        ]);
+    }
+
     /**
      * Get related items based on tags and category
      * GET /api/knowledge/{id}/related
@@ -958,6 +1132,68 @@ public function related(Request $request, $id)
 
     // ==================== Helper Methods ====================
 
+    /**
+     * 検索条件を追加
+     * MySQLでは全文検索インデックス（title, content, tags_text / ngram）ですべての語を含むアイテムに絞る
+     * 短すぎる語（1文字）を含む場合やMySQL以外ではLIKEの部分一致で探す
+     */
+    private function applySearch($query, string $search): void
+    {
+        $terms = array_values(array_filter(
+            array_map(
+                // BOOLEAN MODEの演算子は取り除く
+                fn ($term) => preg_replace('/[+\-<>()~*"@]+/u', '', $term),
+                preg_split('/\s+/u', trim($search), -1, PREG_SPLIT_NO_EMPTY) ?: []
+            ),
+            fn ($term) => $term !== ''
+        ));
+
+        $useFullText = $query->getConnection()->getDriverName() === 'mysql'
+            && $terms !== []
+            && min(array_map('mb_strlen', $terms)) >= self::FULLTEXT_MIN_TERM_LENGTH;
+
+        if ($useFullText) {
+            $against = implode(' ', array_map(fn ($term) => '+"' . $term . '"', $terms));
+            $query->whereRaw('MATCH(title, content, tags_text) AGAINST (? IN BOOLEAN MODE)', [$against]);
+            return;
+        }
+
+        $query->where(function ($q) use ($search) {
+            $q->where('title', 'like', "%{$search}%")
+                ->orWhere('content', 'like', "%{$search}%")
+                ->orWhere('tags', 'like', "%{$search}%");
+        });
+    }
+
+    /**
+     * アイテムを配列に変換（アイテム・カテゴリの翻訳を適用）
+     */
+    private function transformItem(KnowledgeItem $item): array
+    {
+        $itemArray = $item->toArray();
+        // Apply translations
+        if (method_exists($item, 'getTranslatableFields')) {
+            foreach ($item->getTranslatableFields() as $field) {
+                $translated = $item->getTranslation($field);
+                if ($translated !== null) {
+                    $itemArray[$field] = $translated;
+                }
+            }
+        }
+        // Apply category translations if exists
+        if ($item->category && method_exists($item->category, 'getTranslatableFields')) {
+            $categoryArray = $item->category->toArray();
+            foreach ($item->category->getTranslatableFields() as $field) {
+                $translated = $item->category->getTranslation($field);
+                if ($translated !== null) {
+                    $categoryArray[$field] = $translated;
+                }
+            }
+            $itemArray['category'] = $categoryArray;
+        }
+        return $itemArray;
+    }
+
     /**
      * Extract title from content
      */
@@ -1106,6 +1342,36 @@ private function generateTags($content, $itemType, $codeLanguage)
         return array_unique($tags);
     }
 
+    /**
+     * 復習結果を適用（review_count・last_reviewed_at・next_review_date）
+     * モバイルのSrsSchedulerと同じ計算（変更する場合は両方を合わせること）
+     */
+    private function applyReview(KnowledgeItem $item, string $quality, Carbon $reviewedAt): void
+    {
+        // Update review count based on quality
+        $currentReviewCount = $item->review_count ?? 0;
+
+        if ($quality === 'hard') {
+            // Hard: Reset to beginning or decrease review count
+            // If review_count > 0, decrease by 1, otherwise keep at 0
+            $item->review_count = max(0, $currentReviewCount - 1);
+        } elseif ($quality === 'easy') {
+            // Easy: Increase review count to advance faster
+            $item->review_count = $currentReviewCount + 2;
+        } else {
+            // Good: Normal progression
+            $item->review_count = $currentReviewCount + 1;
+        }
+
+        $item->last_reviewed_at = $reviewedAt;
+
+        // Calculate next review date using spaced repetition algorithm with quality
+        $interval = $this->calculateReviewInterval($item->review_count, $quality);
+        $item->next_review_date = $reviewedAt->copy()->addDays($interval)->toDateString();
+
+        $item->save();
+    }
+
     /**
      * Calculate review interval based on review count and quality (spaced repetition)
      *
@@ -8,14 +8,18 @@
 use App\Models\Task;
 use App\Models\KnowledgeItem;
 use App\Models\KnowledgeCategory;
+use App\Models\Translation;
 use App\Services\CategoryService;
 use App\Services\CourseTranslationService;
+use App\Traits\RespondsWithConditionalGet;
 use Illuminate\Http\Request;
 use Illuminate\Support\Facades\DB;
 use Illuminate\Support\Facades\Log;
 
 class LearningPathTemplateController extends Controller
 {
+    use RespondsWithConditionalGet;
+
     protected $categoryService;
 
     public function __construct(CategoryService $categoryService)
@@ -29,44 +33,48 @@ public function __construct(CategoryService $categoryService)
     public function index(Request $request)
     {
         try {
-            $query = LearningPathTemplate::query()->withTranslations();
+            [$version, $lastModified] = $this->templateVersion();
 
-            // Filter by category
-            if ($request->has('category')) {
-                $query->byCategory($request->category);
-            }
+            return $this->conditionalJson($request, function () use ($request) {
+                $query = LearningPathTemplate::query()->withTranslations();
 
-            // Filter by difficulty
-            if ($request->has('difficulty')) {
-                $query->byDifficulty($request->difficulty);
-            }
+                // Filter by category
+                if ($request->has('category')) {
+                    $query->byCategory($request->category);
+                }
 
-            // Filter featured
-            if ($request->has('featured') && $request->featured) {
-                $query->featured();
-            }
+                // Filter by difficulty
+                if ($request->has('difficulty')) {
+                    $query->byDifficulty($request->difficulty);
+                }
 
-            // Sort
-            $sortBy = $request->get('sort_by', 'usage_count');
-            $sortOrder = $request->get('sort_order', 'desc');
-            $query->orderBy($sortBy, $sortOrder);
-
-            // Paginate or get all
-            if ($request->has('per_page')) {
-                $templates = $query->paginate($request->per_page);
-                $templates->getCollection()->transform(function ($template) {
-                    return $template->toArrayWithTranslations();
-                });
-            } else {
-                $templates = $query->get()->map(function ($template) {
-                    return $template->toArrayWithTranslations();
-                });
-            }
+                // Filter featured
+                if ($request->has('featured') && $request->featured) {
+                    $query->featured();
+                }
 
-            return response()->json([
-                'success' => true,
-                'data' => $templates
-            ]);
+                // Sort
+                $sortBy = $request->get('sort_by', 'usage_count');
+                $sortOrder = $request->get('sort_order', 'desc');
+                $query->orderBy($sortBy, $sortOrder);
+
+                // Paginate or get all
+                if ($request->has('per_page')) {
+                    $templates = $query->paginate($request->per_page);
+                    $templates->getCollection()->transform(function ($template) {
+                        return $template->toArrayWithTranslations();
+                    });
+                } else {
+                    $templates = $query->get()->map(function ($template) {
+                        return $template->toArrayWithTranslations();
+                    });
+                }
+
+                return [
+                    'success' => true,
+                    'data' => $templates
+                ];
+            }, $version, $lastModified, shared: true);
         } catch (\Exception $e) {
             Log::error('Error fetching templates: ' . $e->getMessage());
             return response()->json([
@@ -79,66 +87,68 @@ public function index(Request $request)
     /**
      * Get template detail with milestones and tasks
      */
-    public function show($id)
+    public function show(Request $request, $id)
     {
         try {
-            $template = LearningPathTemplate::withTranslations()
-                ->with([
-                    'milestones' => function ($query) {
-                        $query->withTranslations()
-                            ->with(['tasks' => function ($q) {
-                                $q->withTranslations()->orderBy('sort_order');
-                            }])
-                            ->orderBy('sort_order');
-                    }
-                ])
-                ->findOrFail($id);
+            return $this->conditionalJson($request, function () use ($id) {
+                $template = LearningPathTemplate::withTranslations()
+                    ->with([
+                        'milestones' => function ($query) {
+                            $query->withTranslations()
+                                ->with(['tasks' => function ($q) {
+                                    $q->withTranslations()->orderBy('sort_order');
+                                }])
+                                ->orderBy('sort_order');
+                        }
+                    ])
+                    ->findOrFail($id);
 
-            // Transform template with translations
-            $templateData = $template->toArrayWithTranslations();
-            $templateTitle = $template->title; // Get original title for course key mapping
+                // Transform template with translations
+                $templateData = $template->toArrayWithTranslations();
+                $templateTitle = $template->title; // Get original title for course key mapping
             
-            // Transform milestones and tasks using the loaded relationships
-            if ($template->milestones && $template->milestones->isNotEmpty()) {
-                $templateData['milestones'] = $template->milestones->map(function ($milestoneModel) use ($templateTitle) {
-                    $milestone = $milestoneModel->toArrayWithTranslations();
-                    if ($milestoneModel->tasks && $milestoneModel->tasks->isNotEmpty()) {
-                        $milestone['tasks'] = $milestoneModel->tasks->map(function ($taskModel) use ($templateTitle) {
-                            $task = $taskModel->toArrayWithTranslations();
+                // Transform milestones and tasks using the loaded relationships
+                if ($template->milestones && $template->milestones->isNotEmpty()) {
+                    $templateData['milestones'] = $template->milestones->map(function ($milestoneModel) use ($templateTitle) {
+                        $milestone = $milestoneModel->toArrayWithTranslations();
+                        if ($milestoneModel->tasks && $milestoneModel->tasks->isNotEmpty()) {
+                            $milestone['tasks'] = $milestoneModel->tasks->map(function ($taskModel) use ($templateTitle) {
+                                $task = $taskModel->toArrayWithTranslations();
                             
-                            // Apply translations to subtasks
-                            if (!empty($task['subtasks']) && is_array($task['subtasks'])) {
-                                $task['subtasks'] = $this->translateSubtasks(
-                                    $task['subtasks'],
-                                    $taskModel->title, // Task title để tìm trong translation file
-                                    $templateTitle, // Template title để xác định course
-                                    app()->getLocale()
-                                );
-                            }
+                                // Apply translations to subtasks
+                                if (!empty($task['subtasks']) && is_array($task['subtasks'])) {
+                                    $task['subtasks'] = $this->translateSubtasks(
+                                        $task['subtasks'],
+                                        $taskModel->title, // Task title để tìm trong translation file
+                                        $templateTitle, // Template title để xác định course
+                                        app()->getLocale()
+                                    );
+                                }
                             
-                            // Apply translations to knowledge_items
-                            if (!empty($task['knowledge_items']) && is_array($task['knowledge_items'])) {
-                                $task['knowledge_items'] = $this->translateKnowledgeItems(
-                                    $task['knowledge_items'],
-                                    $taskModel->title, // Task title để tìm trong translation file
-                                    $templateTitle, // Template title để xác định course
-                                    app()->getLocale()
-                                );
-                            }
+                                // Apply translations to knowledge_items
+                                if (!empty($task['knowledge_items']) && is_array($task['knowledge_items'])) {
+                                    $task['knowledge_items'] = $this->translateKnowledgeItems(
+                                        $task['knowledge_items'],
+                                        $taskModel->title, // Task title để tìm trong translation file
+                                        $templateTitle, // Template title để xác định course
+                                        app()->getLocale()
+                                    );
+                                }
                             
-                            return $task;
-                        })->values()->toArray();
-                    } else {
-                        $milestone['tasks'] = [];
-                    }
-                    return $milestone;
-                })->values()->toArray();
-            }
+                                return $task;
+                            })->values()->toArray();
+                        } else {
+                            $milestone['tasks'] = [];
+                        }
+                        return $milestone;
+                    })->values()->toArray();
+                }
 
-            return response()->json([
-                'success' => true,
-                'data' => $templateData
-            ]);
+                return [
+                    'success' => true,
+                    'data' => $templateData
+                ];
+            }, shared: true);
         } catch (\Exception $e) {
             Log::error('Error fetching template detail: ' . $e->getMessage());
             return response()->json([
@@ -323,22 +333,26 @@ private function translateSubtasks(array $subtasks, string $taskTitle, string $t
     /**
      * Get featured templates
      */
-    public function featured()
+    public function featured(Request $request)
     {
         try {
-            $templates = LearningPathTemplate::featured()
-                ->withTranslations()
-                ->orderBy('usage_count', 'desc')
-                ->limit(6)
-                ->get()
-                ->map(function ($template) {
-                    return $template->toArrayWithTranslations();
-                });
-
-            return response()->json([
-                'success' => true,
-                'data' => $templates
-            ]);
+            [$version, $lastModified] = $this->templateVersion();
+
+            return $this->conditionalJson($request, function () {
+                $templates = LearningPathTemplate::featured()
+                    ->withTranslations()
+                    ->orderBy('usage_count', 'desc')
+                    ->limit(6)
+                    ->get()
+                    ->map(function ($template) {
+                        return $template->toArrayWithTranslations();
+                    });
+
+                return [
+                    'success' => true,
+                    'data' => $templates
+                ];
+            }, $version, $lastModified, shared: true);
         } catch (\Exception $e) {
             Log::error('Error fetching featured templates: ' . $e->getMessage());
             return response()->json([
@@ -351,17 +365,21 @@ public function featured()
     /**
      * Get templates by category
      */
-    public function byCategory($category)
+    public function byCategory(Request $request, $category)
     {
         try {
-            $templates = LearningPathTemplate::byCategory($category)
-                ->orderBy('usage_count', 'desc')
-                ->get();
-
-            return response()->json([
-                'success' => true,
-                'data' => $templates
-            ]);
+            [$version, $lastModified] = $this->templateVersion();
+
+            return $this->conditionalJson($request, function () use ($category) {
+                $templates = LearningPathTemplate::byCategory($category)
+                    ->orderBy('usage_count', 'desc')
+                    ->get();
+
+                return [
+                    'success' => true,
+                    'data' => $templates
+                ];
+            }, $version, $lastModified, shared: true);
         } catch (\Exception $e) {
             Log::error('Error fetching templates by category: ' . $e->getMessage());
             return response()->json([
@@ -561,15 +579,19 @@ public function clone(Request $request, $id)
     /**
      * Get popular templates
      */
-    public function popular()
+    public function popular(Request $request)
     {
         try {
-            $templates = LearningPathTemplate::popular(10)->get();
+            [$version, $lastModified] = $this->templateVersion();
 
-            return response()->json([
-                'success' => true,
-                'data' => $templates
-            ]);
+            return $this->conditionalJson($request, function () {
+                $templates = LearningPathTemplate::popular(10)->get();
+
+                return [
+                    'success' => true,
+                    'data' => $templates
+                ];
+            }, $version, $lastModified, shared: true);
         } catch (\Exception $e) {
             Log::error('Error fetching popular templates: ' . $e->getMessage());
             return response()->json([
@@ -582,18 +604,22 @@ public function popular()
     /**
      * Get available categories
      */
-    public function categories()
+    public function categories(Request $request)
     {
         try {
-            $categories = DB::table('learning_path_templates')
-                ->select('category', DB::raw('COUNT(*) as count'))
-                ->groupBy('category')
-                ->get();
-
-            return response()->json([
-                'success' => true,
-                'data' => $categories
-            ]);
+            [$version, $lastModified] = $this->templateVersion();
+
+            return $this->conditionalJson($request, function () {
+                $categories = DB::table('learning_path_templates')
+                    ->select('category', DB::raw('COUNT(*) as count'))
+                    ->groupBy('category')
+                    ->get();
+
+                return [
+                    'success' => true,
+                    'data' => $categories
+                ];
+            }, $version, $lastModified, shared: true);
         } catch (\Exception $e) {
             Log::error('Error fetching categories: ' . $e->getMessage());
             return response()->json([
@@ -603,6 +629,29 @@ public function categories()
         }
     }
 
+    /**
+     * テンプレート一覧のバージョン（条件付きGET用）
+     * テンプレートとその翻訳の件数・最終更新日時（クローン時のusage_count更新でも変わる）
+     *
+     * @return array{0: array, 1: string|null} [バージョン, 最終更新日時]
+     */
+    private function templateVersion(): array
+    {
+        $templates = LearningPathTemplate::query()->toBase()
+            ->selectRaw('COUNT(*) as total, MAX(updated_at) as updated')
+            ->first();
+
+        $translations = Translation::query()->toBase()
+            ->where('translatable_type', (new LearningPathTemplate)->getMorphClass())
+            ->selectRaw('COUNT(*) as total, MAX(updated_at) as updated')
+            ->first();
+
+        return [
+            [[$templates->total, $templates->updated], [$translations->total, $translations->updated]],
+            max($templates->updated, $translations->updated),
+        ];
+    }
+
     /**
      * Map template category to learning path goal_type
      */
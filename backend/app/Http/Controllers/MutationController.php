@@ -0,0 +1,204 @@
+<?php
+
+namespace App\Http\Controllers;
+
+use App\Models\ClientMutation;
+use App\Models\User;
+use Illuminate\Database\Eloquent\ModelNotFoundException;
+use Illuminate\Database\QueryException;
+use Illuminate\Http\JsonResponse;
+use Illuminate\Http\Request;
+use Illuminate\Support\Facades\Log;
+use Illuminate\Validation\ValidationException;
+
+/**
+ * オフライン操作の一括適用API
+ * クライアントの送信キューに溜まった操作を順番に適用する
+ * - 各操作は冪等キーを持ち、適用済みのキーは保存した結果をそのまま返す（再送しても二重に適用されない）
+ * - 操作の中身は既存のエンドポイントと同じ処理に委譲する
+ */
+class MutationController extends Controller
+{
+    /**
+     * 1リクエストあたりの最大操作数
+     */
+    private const MAX_BATCH_SIZE = 50;
+
+    /**
+     * 対応している操作
+     */
+    private const TYPES = [
+        'task.complete',
+        'subtask.toggle',
+        'subtask.complete',
+        'focus_session.start',
+        'focus_session.stop',
+    ];
+
+    /**
+     * Apply queued mutations in order
+     * POST /api/sync/mutations
+     *
+     * Body: { mutations: [{ key, type, payload }] }
+     * Result per mutation: { key, status, replayed, success, data, message, ... }
+     * - status < 500 は確定（クライアントはキューから削除）
+     * - status >= 500 は一時的な失敗（記録しないので、同じキーで再送できる）
+     */
+    public function apply(Request $request): JsonResponse
+    {
+        $request->validate([
+            'mutations' => 'required|array|min:1|max:' . self::MAX_BATCH_SIZE,
+            'mutations.*.key' => 'required|string|max:64',
+            'mutations.*.type' => 'required|string|in:' . implode(',', self::TYPES),
+            'mutations.*.payload' => 'nullable|array',
+        ]);
+
+        $user = $request->user();
+        $results = [];
+
+        foreach ($request->input('mutations') as $mutation) {
+            $results[] = $this->applyOne($user, $mutation);
+        }
+
+        Log::info('MutationController: batch applied', [
+            'user_id' => $user->id,
+            'count' => count($results),
+            'replayed' => count(array_filter($results, fn ($result) => $result['replayed'])),
+            'failed' => count(array_filter($results, fn ($result) => $result['status'] >= 400)),
+        ]);
+
+        return response()->json([
+            'success' => true,
+            'data' => [
+                'results' => $results,
+            ],
+            'message' => 'Mutations applied'
+        ]);
+    }
+
+    private function applyOne(User $user, array $mutation): array
+    {
+        $key = $mutation['key'];
+        $type = $mutation['type'];
+
+        $existing = $this->findApplied($user, $key);
+        if ($existing) {
+            return $this->result($key, $existing->status, $existing->response ?? [], true);
+        }
+
+        [$status, $body] = $this->dispatch($user, $type, $mutation['payload'] ?? []);
+
+        if ($status < 500) {
+            try {
+                ClientMutation::create([
+                    'user_id' => $user->id,
+                    'idempotency_key' => $key,
+                    'type' => $type,
+                    'status' => $status,
+                    'response' => $body,
+                    'created_at' => now(),
+                ]);
+            } catch (QueryException $e) {
+                // 同じキーが並行して適用された場合は先に保存された結果を返す
+                $existing = $this->findApplied($user, $key);
+                if ($existing) {
+                    return $this->result($key, $existing->status, $existing->response ?? [], true);
+                }
+                throw $e;
+            }
+        }
+
+        return $this->result($key, $status, $body, false);
+    }
+
+    /**
+     * 既存のコントローラーに処理を委譲
+     *
+     * @return array{0: int, 1: array}
+     */
+    private function dispatch(User $user, string $type, array $payload): array
+    {
+        try {
+            $response = match ($type) {
+                'task.complete' => app(TaskController::class)
+                    ->complete($this->subRequest($user, $payload), (string) ($payload['task_id'] ?? '')),
+                'subtask.toggle' => app(SubtaskController::class)
+                    ->toggle($this->subRequest($user, $payload), (string) ($payload['subtask_id'] ?? '')),
+                'subtask.complete' => app(SubtaskController::class)
+                    ->complete($this->subRequest($user, $payload), (string) ($payload['subtask_id'] ?? '')),
+                'focus_session.start' => app(FocusSessionController::class)
+                    ->start($this->subRequest($user, $payload)),
+                'focus_session.stop' => $this->stopFocusSession($user, $payload),
+            };
+
+            return [$response->getStatusCode(), $response->getData(true)];
+        } catch (ValidationException $e) {
+            return [422, [
+                'success' => false,
+                'message' => $e->getMessage(),
+                'errors' => $e->errors(),
+            ]];
+        } catch (ModelNotFoundException $e) {
+            return [404, [
+                'success' => false,
+                'message' => '対象が見つかりません',
+            ]];
+        } catch (\Exception $e) {
+            Log::error('MutationController: mutation failed', [
+                'user_id' => $user->id,
+                'type' => $type,
+                'error' => $e->getMessage(),
+            ]);
+
+            return [500, [
+                'success' => false,
+                'message' => '操作の適用に失敗しました',
+            ]];
+        }
+    }
+
+    /**
+     * セッション終了
+     * オフラインで開始したセッションはサーバーIDを知らないため、開始操作の冪等キー（start_key）で参照する
+     */
+    private function stopFocusSession(User $user, array $payload): JsonResponse
+    {
+        $sessionId = $payload['session_id'] ?? null;
+
+        if ($sessionId === null && !empty($payload['start_key'])) {
+            $start = $this->findApplied($user, $payload['start_key']);
+            $sessionId = $start && $start->status < 300 ? ($start->response['data']['id'] ?? null) : null;
+        }
+
+        if ($sessionId === null) {
+            throw new ModelNotFoundException('Focus session not found');
+        }
+
+        return app(FocusSessionController::class)
+            ->stop($this->subRequest($user, $payload), (string) $sessionId);
+    }
+
+    private function subRequest(User $user, array $payload): Request
+    {
+        $subRequest = Request::create('/', 'POST', $payload);
+        $subRequest->setUserResolver(fn () => $user);
+
+        return $subRequest;
+    }
+
+    private function findApplied(User $user, string $key): ?ClientMutation
+    {
+        return ClientMutation::where('user_id', $user->id)
+            ->where('idempotency_key', $key)
+            ->first();
+    }
+
+    private function result(string $key, int $status, array $body, bool $replayed): array
+    {
+        return array_merge($body, [
+            'key' => $key,
+            'status' => $status,
+            'replayed' => $replayed,
+        ]);
+    }
+}
@@ -3,6 +3,7 @@
 namespace App\Http\Controllers;
 
 use App\Models\Notification;
+use App\Models\SyncTombstone;
 use Illuminate\Http\Request;
 use Illuminate\Http\JsonResponse;
 use Illuminate\Support\Facades\Validator;
@@ -227,9 +228,10 @@ public function clearRead(Request $request): JsonResponse
         try {
             $userId = $request->user()->id;
 
-            $count = Notification::where('user_id', $userId)
-                ->where('is_read', true)
-                ->delete();
+            $query = Notification::where('user_id', $userId)
+                ->where('is_read', true);
+            SyncTombstone::recordMany($userId, 'notifications', (clone $query)->pluck('id'));
+            $count = $query->delete();
 
             return response()->json([
                 'success' => true,
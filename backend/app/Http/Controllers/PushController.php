@@ -0,0 +1,101 @@
+<?php
+
+namespace App\Http\Controllers;
+
+use App\Models\PushEvent;
+use Illuminate\Http\Request;
+use Symfony\Component\HttpFoundation\StreamedResponse;
+
+/**
+ * プッシュチャネル（Server-Sent Events）
+ * 接続中のクライアントに変更があったエンティティを数秒以内に知らせる
+ * データ自体は送らず、クライアントは通知を受けて差分同期（sync/changes）を行う
+ * 接続中はPHPワーカーを占有するため、nginxでAPIとは別のFPMプール（docker/php-fpm.conf の [push]）に振り分ける
+ * （接続数が増えてもAPIのワーカーを使い切らない）
+ */
+class PushController extends Controller
+{
+    /**
+     * 1回の接続を保持する秒数（pushプールのワーカーを占有し続けないよう区切り、クライアントが再接続する）
+     */
+    private const STREAM_SECONDS = 55;
+
+    /**
+     * push_events を確認する間隔
+     */
+    private const POLL_SECONDS = 2;
+
+    /**
+     * 変更がない時のkeepalive間隔（プロキシ・クライアントの読み取りタイムアウト対策）
+     */
+    private const KEEPALIVE_SECONDS = 15;
+
+    /**
+     * クライアントの再接続までの待ち時間（SSEのretry）
+     */
+    private const RETRY_MILLISECONDS = 3000;
+
+    /**
+     * Push stream
+     * GET /api/push/stream
+     * Header: Last-Event-ID（再接続時。以降のイベントを再送）
+     *
+     * event: sync / data: {"entities": ["tasks", "notifications"]}
+     * - 同じ確認間隔内のイベントはエンティティごとにまとめて1件にする
+     * - Last-Event-ID がなければ接続時点以降のイベントだけを送る（接続直後の同期はクライアントが行う）
+     * - 接続直後に現在のイベントIDを送る（data なし）。クライアントは次の再接続からLast-Event-IDを付けられるので、
+     *   イベントがなかった接続のたびに同期し直さなくてよい
+     */
+    public function stream(Request $request): StreamedResponse
+    {
+        $userId = $request->user()->id;
+        $lastEventId = (int) $request->header('Last-Event-ID', 0);
+        if ($lastEventId <= 0) {
+            $lastEventId = (int) (PushEvent::where('user_id', $userId)->max('id') ?? 0);
+        }
+
+        return response()->stream(function () use ($userId, $lastEventId) {
+            set_time_limit(self::STREAM_SECONDS + 10);
+
+            echo 'retry: ' . self::RETRY_MILLISECONDS . "\n\n";
+            echo "id: {$lastEventId}\n\n";
+            flush();
+
+            $startedAt = time();
+            $lastWriteAt = time();
+
+            while (time() - $startedAt < self::STREAM_SECONDS) {
+                if (connection_aborted()) {
+                    break;
+                }
+
+                $events = PushEvent::where('user_id', $userId)
+                    ->where('id', '>', $lastEventId)
+                    ->orderBy('id')
+                    ->get(['id', 'entity']);
+
+                if ($events->isNotEmpty()) {
+                    $lastEventId = $events->last()->id;
+                    echo "id: {$lastEventId}\n";
+                    echo "event: sync\n";
+                    echo 'data: ' . json_encode([
+                        'entities' => $events->pluck('entity')->unique()->values()->all(),
+                    ]) . "\n\n";
+                    flush();
+                    $lastWriteAt = time();
+                } elseif (time() - $lastWriteAt >= self::KEEPALIVE_SECONDS) {
+                    echo ": keepalive\n\n";
+                    flush();
+                    $lastWriteAt = time();
+                }
+
+                sleep(self::POLL_SECONDS);
+            }
+        }, 200, [
+            'Content-Type' => 'text/event-stream',
+            'Cache-Control' => 'no-cache',
+            'Connection' => 'keep-alive',
+            'X-Accel-Buffering' => 'no', // Nginx bufferingを無効化
+        ]);
+    }
+}
@@ -3,6 +3,7 @@
 namespace App\Http\Controllers;
 
 use App\Services\RoadmapApiService;
+use App\Traits\RespondsWithConditionalGet;
 use App\Models\LearningPathTemplate;
 use App\Models\LearningMilestoneTemplate;
 use App\Models\TaskTemplate;
@@ -23,6 +24,8 @@
  */
 class RoadmapApiController extends Controller
 {
+    use RespondsWithConditionalGet;
+
     private RoadmapApiService $roadmapService;
 
     public function __construct(RoadmapApiService $roadmapService)
@@ -34,16 +37,17 @@ public function __construct(RoadmapApiService $roadmapService)
      * Get popular IT roadmaps
      * GET /api/roadmaps/popular
      */
-    public function popular(): JsonResponse
+    public function popular(Request $request): JsonResponse
     {
         try {
             $roadmaps = $this->roadmapService->getPopularRoadmaps();
 
-            return response()->json([
+            // 全ユーザー共通の内容（ハッシュが同じなら304）
+            return $this->conditionalJson($request, [
                 'success' => true,
                 'data' => $roadmaps,
                 'message' => '人気のロードマップを取得しました'
-            ]);
+            ], shared: true);
         } catch (\Exception $e) {
             Log::error('Error fetching popular roadmaps: ' . $e->getMessage());
             return response()->json([
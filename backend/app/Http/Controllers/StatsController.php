@@ -8,6 +8,7 @@
 use App\Models\PerformanceMetric;
 use App\Models\UserStatsCache;
 use App\Jobs\UpdateUserStatsCache;
+use App\Traits\RespondsWithConditionalGet;
 use Illuminate\Http\Request;
 use Illuminate\Http\JsonResponse;
 use Illuminate\Support\Facades\DB;
@@ -16,6 +17,8 @@
 
 class StatsController extends Controller
 {
+    use RespondsWithConditionalGet;
+
     /**
      * Get user statistics (for mobile app)
      * GET /api/stats/user
@@ -221,11 +224,14 @@ public function dashboard(Request $request): JsonResponse
                 'generated_at' => now()->toISOString(),
             ];
 
-            return response()->json([
+            // generated_at は毎回変わるためETagの元から除外（集計結果が同じなら304）
+            $version = [$today->toDateString(), $tasksStats, $sessionsStats, $projectsStats, $performanceStats];
+
+            return $this->conditionalJson($request, [
                 'success' => true,
                 'data' => $dashboardData,
                 'message' => 'ダッシュボード統計を取得しました'
-            ]);
+            ], $version);
 
         } catch (\Exception $e) {
             return response()->json([
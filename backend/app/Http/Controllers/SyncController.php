@@ -0,0 +1,206 @@
+<?php
+
+namespace App\Http\Controllers;
+
+use App\Models\KnowledgeItem;
+use App\Models\Notification;
+use App\Models\SyncTombstone;
+use App\Models\Task;
+use App\Models\TimetableClass;
+use App\Models\UserSetting;
+use App\Services\TaskAbandonmentService;
+use Carbon\Carbon;
+use Illuminate\Http\JsonResponse;
+use Illuminate\Http\Request;
+use Illuminate\Support\Facades\Log;
+
+/**
+ * 差分同期API
+ * クライアントが保持するwatermark以降に変更されたレコードと削除（tombstone）のみを返す
+ */
+class SyncController extends Controller
+{
+    /**
+     * 同期対象のエンティティ
+     */
+    private const ENTITIES = ['tasks', 'knowledge', 'notifications', 'timetable'];
+
+    /**
+     * 通知は直近のみ同期（フルスナップショット時）
+     */
+    private const NOTIFICATION_WINDOW_DAYS = 30;
+
+    /**
+     * 期間で絞るエンティティ（クライアントは期間外になったレコードも保持するため、件数を比較しない）
+     */
+    private const WINDOWED_ENTITIES = ['notifications'];
+
+    /**
+     * 1回のバッチで受け付けるハートビートの件数
+     */
+    private const MAX_BATCH_HEARTBEATS = 10;
+
+    private TaskAbandonmentService $abandonmentService;
+
+    public function __construct(TaskAbandonmentService $abandonmentService)
+    {
+        $this->abandonmentService = $abandonmentService;
+    }
+
+    /**
+     * Get changes since watermark
+     * GET /api/sync/changes?since=...&entities=tasks,knowledge
+     *
+     * - since がない / 保持期間より古い場合はフルスナップショット（full=true）
+     * - updated_at >= since のため境界のレコードは再送されることがある（クライアント側はupsertで冪等）
+     * - live_count はクライアントがDBカスケード削除などの取りこぼしを検知するため
+     *   通知は期間（NOTIFICATION_WINDOW_DAYS）で絞るため、古くなった分だけ件数がずれる。live_countはnull（確認しない）
+     * - watermarkはUTCで返すが、updated_at・deleted_atはアプリのタイムゾーンで保存されているため、
+     *   比較する前にsinceをアプリのタイムゾーンに変換する
+     */
+    public function changes(Request $request): JsonResponse
+    {
+        $request->validate([
+            'since' => 'nullable|date',
+            'entities' => 'nullable|string',
+        ]);
+
+        $user = $request->user();
+        $result = $this->collectChanges($user->id, $request->input('since'), $request->input('entities'));
+
+        return response()->json([
+            'success' => true,
+            'data' => $result,
+            'message' => 'Changes retrieved successfully'
+        ]);
+    }
+
+    /**
+     * Batched background sync
+     * POST /api/sync/batch
+     * Body: { since, entities, heartbeat_task_ids: [..], include_settings: bool }
+     *
+     * クライアントのバックグラウンド同期1回分を1リクエストにまとめる
+     * - 差分（changes と同じ形式）
+     * - 実行中タスクのハートビート（tasks/{id}/heartbeat と同じ処理）
+     * - 設定（include_settings の場合のみ）
+     */
+    public function batch(Request $request): JsonResponse
+    {
+        $request->validate([
+            'since' => 'nullable|date',
+            'entities' => 'nullable|string',
+            'heartbeat_task_ids' => 'nullable|array|max:' . self::MAX_BATCH_HEARTBEATS,
+            'heartbeat_task_ids.*' => 'integer',
+            'include_settings' => 'nullable|boolean',
+        ]);
+
+        $user = $request->user();
+
+        // ハートビートを先に反映（同じレスポンスの差分に last_active_at の更新が含まれるように）
+        $heartbeats = [];
+        foreach (array_unique($request->input('heartbeat_task_ids', [])) as $taskId) {
+            $heartbeats[(string) $taskId] = $this->abandonmentService->updateTaskHeartbeat((int) $taskId, $user->id);
+        }
+
+        $result = $this->collectChanges($user->id, $request->input('since'), $request->input('entities'));
+        $result['heartbeats'] = (object) $heartbeats;
+        $result['settings'] = $request->boolean('include_settings')
+            ? UserSetting::firstOrCreate(['user_id' => $user->id], UserSetting::getDefaultSettings())
+            : null;
+
+        return response()->json([
+            'success' => true,
+            'data' => $result,
+            'message' => 'Batch sync completed'
+        ]);
+    }
+
+    /**
+     * watermark以降の変更を集める（changes / batch 共通）
+     */
+    private function collectChanges(int $userId, ?string $sinceInput, ?string $entitiesInput): array
+    {
+        // Watermark is taken before querying so nothing written during the request is skipped
+        $watermark = now();
+
+        $since = $sinceInput !== null && $sinceInput !== ''
+            ? Carbon::parse($sinceInput)->setTimezone(config('app.timezone'))
+            : null;
+        $full = $since === null
+            || $since->lt(now()->subDays(SyncTombstone::RETENTION_DAYS));
+        if ($full) {
+            $since = null;
+        }
+
+        $requested = $entitiesInput !== null && $entitiesInput !== ''
+            ? array_values(array_intersect(self::ENTITIES, array_map('trim', explode(',', $entitiesInput))))
+            : self::ENTITIES;
+
+        $data = [];
+        foreach ($requested as $entity) {
+            $data[$entity] = [
+                'updated' => $this->updatedRecords($entity, $userId, $since),
+                'deleted' => $since === null ? [] : $this->deletedIds($entity, $userId, $since),
+                'live_count' => in_array($entity, self::WINDOWED_ENTITIES, true)
+                    ? null
+                    : $this->baseQuery($entity, $userId)->count(),
+            ];
+        }
+
+        Log::info('SyncController: changes', [
+            'user_id' => $userId,
+            'since' => $since?->toIso8601String(),
+            'full' => $full,
+            'counts' => array_map(fn ($changes) => count($changes['updated']) + count($changes['deleted']), $data),
+        ]);
+
+        return [
+            'watermark' => $watermark->toIso8601ZuluString(),
+            'full' => $full,
+            'changes' => $data,
+        ];
+    }
+
+    /**
+     * ユーザーのレコード（同期範囲内）
+     */
+    private function baseQuery(string $entity, int $userId)
+    {
+        return match ($entity) {
+            'tasks' => Task::where('user_id', $userId),
+            'knowledge' => KnowledgeItem::where('user_id', $userId),
+            'notifications' => Notification::where('user_id', $userId)
+                ->where('created_at', '>=', now()->subDays(self::NOTIFICATION_WINDOW_DAYS)),
+            'timetable' => TimetableClass::where('user_id', $userId),
+        };
+    }
+
+    private function updatedRecords(string $entity, int $userId, ?Carbon $since): array
+    {
+        $query = $this->baseQuery($entity, $userId);
+        if ($since !== null) {
+            $query->where('updated_at', '>=', $since);
+        }
+
+        return match ($entity) {
+            'tasks' => $query->with('subtasks')->orderBy('id')->get()->toArray(),
+            'knowledge' => $query->withTranslations()->orderBy('id')->get()
+                ->map(fn ($item) => $item->toArrayWithTranslations())
+                ->all(),
+            'notifications' => $query->orderBy('id')->get()->toArray(),
+            'timetable' => $query->with(['learningPath'])->orderBy('id')->get()->toArray(),
+        };
+    }
+
+    private function deletedIds(string $entity, int $userId, Carbon $since): array
+    {
+        return SyncTombstone::where('user_id', $userId)
+            ->where('entity_type', $entity)
+            ->where('deleted_at', '>=', $since)
+            ->pluck('entity_id')
+            ->unique()
+            ->values()
+            ->all();
+    }
+}
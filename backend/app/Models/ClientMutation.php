@@ -0,0 +1,40 @@
+<?php
+
+namespace App\Models;
+
+use Illuminate\Database\Eloquent\Model;
+use Illuminate\Database\Eloquent\Relations\BelongsTo;
+
+/**
+ * オフライン操作の適用結果（冪等キーごとに1件）
+ */
+class ClientMutation extends Model
+{
+    /**
+     * 保持期間（クライアントはこれより長くキューに溜めない想定）
+     */
+    public const RETENTION_DAYS = 14;
+
+    public $timestamps = false;
+
+    protected $fillable = [
+        'user_id',
+        'idempotency_key',
+        'type',
+        'status',
+        'response',
+        'created_at',
+    ];
+
+    protected $casts = [
+        'status' => 'integer',
+        'response' => 'array',
+        'created_at' => 'datetime',
+    ];
+
+    // Relationships
+    public function user(): BelongsTo
+    {
+        return $this->belongsTo(User::class);
+    }
+}
@@ -3,13 +3,14 @@
 namespace App\Models;
 
 use App\Traits\HasTranslations;
+use App\Traits\RecordsSyncTombstones;
 use Illuminate\Database\Eloquent\Factories\HasFactory;
 use Illuminate\Database\Eloquent\Model;
 use Illuminate\Database\Eloquent\Relations\BelongsTo;
 
 class KnowledgeItem extends Model
 {
-    use HasFactory, HasTranslations;
+    use HasFactory, HasTranslations, RecordsSyncTombstones;
 
     /**
      * Các field có thể dịch
@@ -55,6 +56,19 @@ class KnowledgeItem extends Model
         'next_review_date' => 'date',
     ];
 
+    /**
+     * 全文検索用の生成カラム（MySQLのみ）はレスポンスに含めない
+     */
+    protected $hidden = ['tags_text'];
+
+    /**
+     * 差分同期APIでのエンティティ名
+     */
+    public function syncEntityType(): string
+    {
+        return 'knowledge';
+    }
+
     // Relationships
     public function user(): BelongsTo
     {
@@ -2,13 +2,15 @@
 
 namespace App\Models;
 
+use App\Traits\PublishesPushEvents;
+use App\Traits\RecordsSyncTombstones;
 use Illuminate\Database\Eloquent\Factories\HasFactory;
 use Illuminate\Database\Eloquent\Model;
 use Illuminate\Database\Eloquent\Relations\BelongsTo;
 
 class Notification extends Model
 {
-    use HasFactory;
+    use HasFactory, RecordsSyncTombstones, PublishesPushEvents;
 
     protected $fillable = [
         'user_id',
@@ -28,6 +30,14 @@ class Notification extends Model
         'sent_at' => 'datetime',
     ];
 
+    /**
+     * 差分同期APIでのエンティティ名
+     */
+    public function syncEntityType(): string
+    {
+        return 'notifications';
+    }
+
     // Relationships
     public function user(): BelongsTo
     {
@@ -0,0 +1,67 @@
+<?php
+
+namespace App\Models;
+
+use Illuminate\Database\Eloquent\Model;
+use Illuminate\Database\Eloquent\Relations\BelongsTo;
+
+/**
+ * プッシュチャネルの変更通知（GET /api/push/stream）
+ * どのエンティティが変わったかだけを伝え、データはクライアントが差分同期で取得する
+ */
+class PushEvent extends Model
+{
+    /**
+     * 保持期間（再接続時に Last-Event-ID 以降を再送できる範囲）
+     */
+    public const RETENTION_HOURS = 24;
+
+    public $timestamps = false;
+
+    protected $fillable = [
+        'user_id',
+        'entity',
+        'created_at',
+    ];
+
+    protected $casts = [
+        'created_at' => 'datetime',
+    ];
+
+    /**
+     * 同じ秒の連続した保存（タスク + サブタスクなど）は1件にまとめる
+     * 長く動くワーカー（キュー）で増え続けないよう、保持するのは現在の秒の分だけ
+     */
+    private static array $recentlyPublished = [];
+
+    private static ?int $recentlyPublishedAt = null;
+
+    // Relationships
+    public function user(): BelongsTo
+    {
+        return $this->belongsTo(User::class);
+    }
+
+    /**
+     * 変更を通知
+     */
+    public static function publish(int $userId, string $entity): void
+    {
+        $key = $userId . '|' . $entity;
+        $now = time();
+        if (self::$recentlyPublishedAt !== $now) {
+            self::$recentlyPublished = [];
+            self::$recentlyPublishedAt = $now;
+        }
+        if (isset(self::$recentlyPublished[$key])) {
+            return;
+        }
+        self::$recentlyPublished[$key] = true;
+
+        static::insert([
+            'user_id' => $userId,
+            'entity' => $entity,
+            'created_at' => now(),
+        ]);
+    }
+}
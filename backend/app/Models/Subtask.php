@@ -18,6 +18,11 @@ class Subtask extends Model
         'sort_order',
     ];
 
+    /**
+     * サブタスクの変更で親タスクのupdated_atを更新（差分同期でタスクごと再送される）
+     */
+    protected $touches = ['task'];
+
     protected $casts = [
         'is_completed' => 'boolean',
         'estimated_minutes' => 'integer',
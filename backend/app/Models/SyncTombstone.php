@@ -0,0 +1,66 @@
+<?php
+
+namespace App\Models;
+
+use Illuminate\Database\Eloquent\Model;
+use Illuminate\Database\Eloquent\Relations\BelongsTo;
+
+/**
+ * 削除済みレコードの記録（差分同期用）
+ */
+class SyncTombstone extends Model
+{
+    /**
+     * 保持期間（これより古いwatermarkのクライアントにはフルスナップショットを返す）
+     */
+    public const RETENTION_DAYS = 30;
+
+    public $timestamps = false;
+
+    protected $fillable = [
+        'user_id',
+        'entity_type',
+        'entity_id',
+        'deleted_at',
+    ];
+
+    protected $casts = [
+        'entity_id' => 'integer',
+        'deleted_at' => 'datetime',
+    ];
+
+    // Relationships
+    public function user(): BelongsTo
+    {
+        return $this->belongsTo(User::class);
+    }
+
+    /**
+     * 1件の削除を記録
+     */
+    public static function record(int $userId, string $entityType, int $entityId): void
+    {
+        static::recordMany($userId, $entityType, [$entityId]);
+    }
+
+    /**
+     * 複数の削除を記録（クエリビルダーでの一括削除用。モデルイベントが発火しないため）
+     */
+    public static function recordMany(int $userId, string $entityType, iterable $entityIds): void
+    {
+        $now = now();
+        $rows = [];
+        foreach ($entityIds as $entityId) {
+            $rows[] = [
+                'user_id' => $userId,
+                'entity_type' => $entityType,
+                'entity_id' => (int) $entityId,
+                'deleted_at' => $now,
+            ];
+        }
+
+        if (!empty($rows)) {
+            static::insert($rows);
+        }
+    }
+}
@@ -2,6 +2,8 @@
 
 namespace App\Models;
 
+use App\Traits\PublishesPushEvents;
+use App\Traits\RecordsSyncTombstones;
 use Illuminate\Database\Eloquent\Factories\HasFactory;
 use Illuminate\Database\Eloquent\Model;
 use Illuminate\Database\Eloquent\Relations\BelongsTo;
@@ -10,7 +12,7 @@
 
 class Task extends Model
 {
-    use HasFactory;
+    use HasFactory, RecordsSyncTombstones, PublishesPushEvents;
 
     protected $fillable = [
         'user_id',
@@ -81,6 +83,14 @@ protected function serializeDate(\DateTimeInterface $date): string
         return $date->format('Y-m-d');
     }
 
+    /**
+     * 差分同期APIでのエンティティ名
+     */
+    public function syncEntityType(): string
+    {
+        return 'tasks';
+    }
+
     // Relationships
     public function user(): BelongsTo
     {
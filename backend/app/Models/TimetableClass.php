@@ -2,6 +2,7 @@
 
 namespace App\Models;
 
+use App\Traits\RecordsSyncTombstones;
 use Illuminate\Database\Eloquent\Factories\HasFactory;
 use Illuminate\Database\Eloquent\Model;
 use Illuminate\Database\Eloquent\Relations\BelongsTo;
@@ -9,7 +10,7 @@
 
 class TimetableClass extends Model
 {
-    use HasFactory;
+    use HasFactory, RecordsSyncTombstones;
 
     protected $fillable = [
         'user_id',
@@ -32,6 +33,14 @@ class TimetableClass extends Model
         // Database TIME type (HH:mm:ss) should remain as string for API
     ];
 
+    /**
+     * 差分同期APIでのエンティティ名
+     */
+    public function syncEntityType(): string
+    {
+        return 'timetable';
+    }
+
     // Relationships
     public function user(): BelongsTo
     {
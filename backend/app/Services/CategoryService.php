@@ -3,6 +3,7 @@
 namespace App\Services;
 
 use App\Models\KnowledgeCategory;
+use App\Models\SyncTombstone;
 use Illuminate\Support\Facades\Log;
 
 class CategoryService
@@ -224,7 +225,9 @@ private function handleMoveUpStrategy(int $userId, KnowledgeCategory $category)
     private function handleDeleteAllStrategy(int $userId, KnowledgeCategory $category)
     {
         // Delete all knowledge items in this category
-        \App\Models\KnowledgeItem::where('category_id', $category->id)->delete();
+        $itemQuery = \App\Models\KnowledgeItem::where('category_id', $category->id);
+        SyncTombstone::recordMany($userId, 'knowledge', (clone $itemQuery)->pluck('id'));
+        $itemQuery->delete();
 
         // Recursively delete all subcategories
         $subcategories = KnowledgeCategory::where('parent_id', $category->id)->get();
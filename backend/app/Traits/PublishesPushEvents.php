@@ -0,0 +1,29 @@
+<?php
+
+namespace App\Traits;
+
+use App\Models\PushEvent;
+
+/**
+ * Trait PublishesPushEvents
+ *
+ * 保存・削除時にpush_eventsへ記録し、GET /api/push/stream で
+ * 接続中のクライアントに変更を知らせる（RecordsSyncTombstones と併用。syncEntityType() を使う）
+ *
+ * 注意: クエリビルダーでの一括更新・削除はモデルイベントが発火しないため、
+ * 必要なら PushEvent::publish() を直接呼ぶこと（届かなくても定期同期で反映される）
+ */
+trait PublishesPushEvents
+{
+    protected static function bootPublishesPushEvents(): void
+    {
+        $publish = function ($model) {
+            if ($model->user_id) {
+                PushEvent::publish($model->user_id, $model->syncEntityType());
+            }
+        };
+
+        static::saved($publish);
+        static::deleted($publish);
+    }
+}
@@ -0,0 +1,31 @@
+<?php
+
+namespace App\Traits;
+
+use App\Models\SyncTombstone;
+
+/**
+ * Trait RecordsSyncTombstones
+ *
+ * 削除時にsync_tombstonesへ記録し、GET /api/sync/changes で
+ * クライアントに削除を伝える（モデルに user_id カラムが必要）
+ *
+ * 注意: クエリビルダーでの一括削除（Model::where(...)->delete()）は
+ * モデルイベントが発火しないため、SyncTombstone::recordMany() を直接呼ぶこと
+ */
+trait RecordsSyncTombstones
+{
+    /**
+     * 同期APIでのエンティティ名（tasks / knowledge / notifications / timetable）
+     */
+    abstract public function syncEntityType(): string;
+
+    protected static function bootRecordsSyncTombstones(): void
+    {
+        static::deleted(function ($model) {
+            if ($model->user_id) {
+                SyncTombstone::record($model->user_id, $model->syncEntityType(), $model->getKey());
+            }
+        });
+    }
+}
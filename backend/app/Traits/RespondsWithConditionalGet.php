@@ -0,0 +1,91 @@
+<?php
+
+namespace App\Traits;
+
+use DateTimeInterface;
+use Illuminate\Http\JsonResponse;
+use Illuminate\Http\Request;
+
+/**
+ * Trait RespondsWithConditionalGet
+ *
+ * 条件付きGET（ETag / Last-Modified → 304 Not Modified）
+ * クライアント（OkHttpのディスクキャッシュ）は毎回 If-None-Match / If-Modified-Since で再検証する
+ *
+ * - $version を渡した場合: 本体を組み立てる前に検証し、一致すれば重いクエリを実行せずに304を返す
+ *   （max(updated_at) や count など安価に求められる値を渡すこと）
+ * - $version を省略した場合: 本体を組み立ててからそのハッシュをETagにする（帯域のみ節約）
+ */
+trait RespondsWithConditionalGet
+{
+    /**
+     * @param array|callable $payload レスポンス本体（callableなら変更があった場合のみ呼ばれる）
+     * @param mixed $version 内容のバージョン（nullなら本体のハッシュを使う）
+     * @param DateTimeInterface|string|null $lastModified 内容の最終更新日時
+     * @param bool $shared 全ユーザー共通の内容か（falseなら private）
+     */
+    protected function conditionalJson(
+        Request $request,
+        array|callable $payload,
+        mixed $version = null,
+        DateTimeInterface|string|null $lastModified = null,
+        bool $shared = false
+    ): JsonResponse {
+        $response = new JsonResponse();
+
+        // 同じURLでもロケールやユーザーで内容が変わるため、ETagの元に含める
+        $scope = [
+            $request->path(),
+            $request->query(),
+            app()->getLocale(),
+            $shared ? null : $request->user()?->id,
+        ];
+
+        if ($version !== null) {
+            $this->applyValidators($response, $scope, $version, $lastModified, $shared);
+            if ($response->isNotModified($request)) {
+                return $response;
+            }
+        }
+
+        $data = is_callable($payload) ? $payload() : $payload;
+        $response->setData($data);
+
+        if ($version === null) {
+            $this->applyValidators($response, $scope, $data, $lastModified, $shared);
+            $response->isNotModified($request);
+        }
+
+        return $response;
+    }
+
+    /**
+     * ETag・Last-Modified・Cache-Control を設定
+     * no-cache: キャッシュしてよいが、使う前に必ず再検証する
+     */
+    private function applyValidators(
+        JsonResponse $response,
+        array $scope,
+        mixed $version,
+        DateTimeInterface|string|null $lastModified,
+        bool $shared
+    ): void {
+        // 圧縮などで本体のバイト列が変わっても同じ内容として扱えるよう弱いETagにする
+        $response->setEtag(md5(json_encode([$scope, $version])), true);
+
+        if ($lastModified !== null) {
+            $response->setLastModified(
+                $lastModified instanceof DateTimeInterface ? $lastModified : new \DateTimeImmutable($lastModified)
+            );
+        }
+
+        $shared ? $response->setPublic() : $response->setPrivate();
+        $response->headers->addCacheControlDirective('no-cache');
+
+        $vary = ['Accept-Language', 'X-Locale'];
+        if (!$shared) {
+            $vary[] = 'Authorization';
+        }
+        $response->setVary($vary);
+    }
+}
@@ -0,0 +1,26 @@
+<?php
+
+use Illuminate\Database\Migrations\Migration;
+use Illuminate\Database\Schema\Blueprint;
+use Illuminate\Support\Facades\Schema;
+
+return new class extends Migration
+{
+    /**
+     * Index for cursor paging of knowledge items
+     * (user_id, is_archived) filter + (created_at, id) cursor order
+     */
+    public function up(): void
+    {
+        Schema::table('knowledge_items', function (Blueprint $table) {
+            $table->index(['user_id', 'is_archived', 'created_at', 'id'], 'idx_user_archived_cursor');
+        });
+    }
+
+    public function down(): void
+    {
+        Schema::table('knowledge_items', function (Blueprint $table) {
+            $table->dropIndex('idx_user_archived_cursor');
+        });
+    }
+};
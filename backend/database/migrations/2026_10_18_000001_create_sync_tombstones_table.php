@@ -0,0 +1,56 @@
+<?php
+
+use Illuminate\Database\Migrations\Migration;
+use Illuminate\Database\Schema\Blueprint;
+use Illuminate\Support\Facades\Schema;
+
+return new class extends Migration
+{
+    /**
+     * Tombstones for delta sync (GET /api/sync/changes)
+     * Records deleted rows so clients can remove them without refetching everything
+     */
+    public function up(): void
+    {
+        Schema::create('sync_tombstones', function (Blueprint $table) {
+            $table->id();
+            $table->foreignId('user_id')->constrained('users')->onDelete('cascade');
+            $table->string('entity_type', 32)->comment('tasks / knowledge / notifications / timetable');
+            $table->unsignedBigInteger('entity_id');
+            $table->timestamp('deleted_at')->useCurrent();
+
+            $table->index(['user_id', 'entity_type', 'deleted_at'], 'idx_tombstone_user_entity_deleted');
+        });
+
+        // updated_since lookups
+        Schema::table('tasks', function (Blueprint $table) {
+            $table->index(['user_id', 'updated_at'], 'idx_tasks_user_updated');
+        });
+        Schema::table('knowledge_items', function (Blueprint $table) {
+            $table->index(['user_id', 'updated_at'], 'idx_knowledge_user_updated');
+        });
+        Schema::table('notifications', function (Blueprint $table) {
+            $table->index(['user_id', 'updated_at'], 'idx_notifications_user_updated');
+        });
+        Schema::table('timetable_classes', function (Blueprint $table) {
+            $table->index(['user_id', 'updated_at'], 'idx_timetable_classes_user_updated');
+        });
+    }
+
+    public function down(): void
+    {
+        Schema::table('timetable_classes', function (Blueprint $table) {
+            $table->dropIndex('idx_timetable_classes_user_updated');
+        });
+        Schema::table('notifications', function (Blueprint $table) {
+            $table->dropIndex('idx_notifications_user_updated');
+        });
+        Schema::table('knowledge_items', function (Blueprint $table) {
+            $table->dropIndex('idx_knowledge_user_updated');
+        });
+        Schema::table('tasks', function (Blueprint $table) {
+            $table->dropIndex('idx_tasks_user_updated');
+        });
+        Schema::dropIfExists('sync_tombstones');
+    }
+};
@@ -0,0 +1,33 @@
+<?php
+
+use Illuminate\Database\Migrations\Migration;
+use Illuminate\Database\Schema\Blueprint;
+use Illuminate\Support\Facades\Schema;
+
+return new class extends Migration
+{
+    /**
+     * Idempotency records for the offline mutation outbox (POST /api/sync/mutations)
+     * A retried batch returns the stored result instead of applying the mutation twice
+     */
+    public function up(): void
+    {
+        Schema::create('client_mutations', function (Blueprint $table) {
+            $table->id();
+            $table->foreignId('user_id')->constrained('users')->onDelete('cascade');
+            $table->string('idempotency_key', 64);
+            $table->string('type', 48);
+            $table->unsignedSmallInteger('status');
+            $table->json('response')->nullable();
+            $table->timestamp('created_at')->useCurrent();
+
+            $table->unique(['user_id', 'idempotency_key'], 'uniq_client_mutation_key');
+            $table->index('created_at');
+        });
+    }
+
+    public function down(): void
+    {
+        Schema::dropIfExists('client_mutations');
+    }
+};
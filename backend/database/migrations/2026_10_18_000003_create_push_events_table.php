@@ -0,0 +1,30 @@
+<?php
+
+use Illuminate\Database\Migrations\Migration;
+use Illuminate\Database\Schema\Blueprint;
+use Illuminate\Support\Facades\Schema;
+
+return new class extends Migration
+{
+    /**
+     * Change signals for the push channel (GET /api/push/stream)
+     * Only tells the client which entity changed; the data itself is fetched via sync/changes
+     */
+    public function up(): void
+    {
+        Schema::create('push_events', function (Blueprint $table) {
+            $table->id();
+            $table->foreignId('user_id')->constrained('users')->onDelete('cascade');
+            $table->string('entity', 32)->comment('tasks / notifications');
+            $table->timestamp('created_at')->useCurrent();
+
+            $table->index(['user_id', 'id'], 'idx_push_events_user_id');
+            $table->index('created_at', 'idx_push_events_created');
+        });
+    }
+
+    public function down(): void
+    {
+        Schema::dropIfExists('push_events');
+    }
+};
@@ -0,0 +1,37 @@
+<?php
+
+use Illuminate\Database\Migrations\Migration;
+use Illuminate\Support\Facades\DB;
+
+return new class extends Migration
+{
+    /**
+     * Full-text index for knowledge search (title, content, tags)
+     * - tags (JSON) is searched through the stored generated column tags_text
+     * - ngram parser so that Japanese text (no word separators) is matched by 2-character tokens
+     * - stopwords are disabled for this index (the ngram parser drops every token containing a stopword such as "a")
+     * MySQL only: other drivers keep using the LIKE search in KnowledgeController::index
+     */
+    public function up(): void
+    {
+        if (DB::getDriverName() !== 'mysql') {
+            return;
+        }
+
+        DB::statement('ALTER TABLE knowledge_items ADD COLUMN tags_text TEXT GENERATED ALWAYS AS (CAST(tags AS CHAR)) STORED');
+        DB::statement('ALTER TABLE knowledge_items DROP INDEX idx_fulltext_search');
+        DB::statement('SET SESSION innodb_ft_enable_stopword = 0');
+        DB::statement('ALTER TABLE knowledge_items ADD FULLTEXT INDEX idx_fulltext_search (title, content, tags_text) WITH PARSER ngram');
+    }
+
+    public function down(): void
+    {
+        if (DB::getDriverName() !== 'mysql') {
+            return;
+        }
+
+        DB::statement('ALTER TABLE knowledge_items DROP INDEX idx_fulltext_search');
+        DB::statement('ALTER TABLE knowledge_items DROP COLUMN tags_text');
+        DB::statement('ALTER TABLE knowledge_items ADD FULLTEXT INDEX idx_fulltext_search (title, content)');
+    }
+};
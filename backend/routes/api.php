@@ -20,6 +20,9 @@
 use App\Http\Controllers\FocusEnhancementController;
 use App\Http\Controllers\SettingsController;
 use App\Http\Controllers\NotificationController;
+use App\Http\Controllers\PushController;
+use App\Http\Controllers\SyncController;
+use App\Http\Controllers\MutationController;
 use App\Http\Controllers\TaskTrackingController;
 use Illuminate\Http\Request;
 use Illuminate\Support\Facades\Broadcast;
@@ -66,6 +69,9 @@
     Route::post('/languages/{languageId}/sections/{sectionId}/examples/{exampleId}/run-custom', [CheatCodeController::class, 'runCustomExample'])
         ->middleware('throttle:10,1');
     Route::get('/categories', [CheatCodeController::class, 'getCategories']);
+    // オフライン用のコンテンツパック（一覧とバージョン / 言語ごとのパック）
+    Route::get('/packs', [CheatCodeController::class, 'getPacks']);
+    Route::get('/languages/{languageId}/pack', [CheatCodeController::class, 'getPack']);
 
     // 演習ルート
     Route::get('/languages/{languageId}/exercises', [ExerciseController::class, 'getExercises']);
@@ -162,6 +168,7 @@
             Route::get('/conversations/{id}', [AIController::class, 'getConversation']);
             Route::put('/conversations/{id}', [AIController::class, 'updateConversation']);
             Route::delete('/conversations/{id}', [AIController::class, 'deleteConversation']);
+            Route::get('/conversations/{id}/messages', [AIController::class, 'getConversationMessages']);
             Route::post('/conversations/{id}/messages', [AIController::class, 'sendMessage']);
             Route::post('/conversations/{id}/messages/context-aware', [AIController::class, 'sendMessageWithContext']);
             Route::post('/conversations/{id}/messages/stream', [AIController::class, 'sendMessageStream']);
@@ -326,6 +333,8 @@
         // ナレッジアイテムルート
         Route::get('/stats', [KnowledgeController::class, 'stats']);
         Route::get('/due-review', [KnowledgeController::class, 'dueReview']);
+        Route::get('/for-task/{taskId}', [KnowledgeController::class, 'forTask']);
+        Route::post('/reviews/bulk', [KnowledgeController::class, 'bulkReview']);
         Route::post('/quick-capture', [KnowledgeController::class, 'quickCapture']);
 
         // スマートAI機能
@@ -369,6 +378,16 @@
         Route::delete('/clear-read', [NotificationController::class, 'clearRead']);
     });
 
+    // 差分同期ルート
+    Route::prefix('sync')->group(function () {
+        Route::get('/changes', [SyncController::class, 'changes']);
+        Route::post('/batch', [SyncController::class, 'batch']);
+        Route::post('/mutations', [MutationController::class, 'apply']);
+    });
+
+    // プッシュチャネル（SSE）
+    Route::get('/push/stream', [PushController::class, 'stream']);
+
     // 放棄統計ルート
     Route::prefix('abandonments')->group(function () {
         Route::get('/', [TaskTrackingController::class, 'getUserAbandonments']);
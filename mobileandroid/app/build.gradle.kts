@@ -2,6 +2,7 @@ plugins {
     alias(libs.plugins.android.application)
     alias(libs.plugins.kotlin.android)
     id("kotlin-kapt")
+    alias(libs.plugins.baselineprofile)
     // Firebaseは使用しないためコメントアウト
     // id("com.google.gms.google-services")
 }
@@ -22,7 +23,9 @@ android {
 
     buildTypes {
         release {
-            isMinifyEnabled = false
+            // R8（コードの縮小・最適化）とリソースの縮小
+            isMinifyEnabled = true
+            isShrinkResources = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
@@ -38,6 +41,8 @@ android {
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
+        // java.time を minSdk 24 で使うため（utils/DateTimes）
+        isCoreLibraryDesugaringEnabled = true
     }
     kotlinOptions {
         jvmTarget = "17"
@@ -47,10 +52,27 @@ android {
         viewBinding = true
         dataBinding = true
     }
+
+    // JVMのユニットテストでandroid.util.Logなどを呼んでも落ちないように（既定値を返す）
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
+}
+
+// Baseline Profile（:benchmark のBaselineProfileGeneratorで生成し、src/release/generated に保存）
+// 生成: ./gradlew :app:generateReleaseBaselineProfile（端末・エミュレーターを接続して実行）
+baselineProfile {
+    // 通常のビルドでは生成しない（保存済みのプロファイルを使う）
+    automaticGenerationDuringBuild = false
+    // 起動時に使うクラスをdexの先頭にまとめる（Startup Profile）
+    dexLayoutOptimization = true
 }
 
 // Dependencies cho TodoApp AI
 dependencies {
+    // java.time などのJava 8+ APIをAPI 26未満でも使用
+    coreLibraryDesugaring(libs.desugar.jdk.libs)
+
     // Core Android (sử dụng libs.versions.toml)
     implementation(libs.androidx.core.ktx)
     implementation(libs.androidx.appcompat)
@@ -90,6 +112,9 @@ dependencies {
     implementation(libs.androidx.room.ktx)
     kapt(libs.androidx.room.compiler)
 
+    // Paging 3 (knowledge list cursor paging)
+    implementation(libs.androidx.paging.runtime)
+
     // Security (cho token storage)
     implementation(libs.androidx.security.crypto)
 
@@ -103,16 +128,23 @@ dependencies {
     // WorkManager for background tasks
     implementation("androidx.work:work-runtime-ktx:2.9.0")
 
+    // 演習のローカル実行（JavaScriptを隔離プロセスのV8で実行）
+    implementation(libs.androidx.javascriptengine)
+    implementation(libs.androidx.concurrent.futures.ktx)
+
     // Firebaseは使用しないためコメントアウト
     // Firebase Cloud Messaging (FCM) for push notifications
     // implementation(platform("com.google.firebase:firebase-bom:34.6.0"))
     // implementation("com.google.firebase:firebase-messaging")
     // implementation("com.google.firebase:firebase-analytics")
 
+    // Baseline Profile（インストール時にプロファイルをAOTコンパイル）
+    implementation(libs.androidx.profileinstaller)
+    baselineProfile(project(":benchmark"))
+
     // Testing
     testImplementation(libs.junit)
-    testImplementation(libs.kotlinx.coroutines.test)
-    testImplementation(libs.androidx.room.testing)
+    testImplementation(libs.okhttp.mockwebserver)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
     androidTestImplementation(libs.androidx.navigation.testing)
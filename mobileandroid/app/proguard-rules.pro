@@ -5,17 +5,24 @@
 # For more details, see
 #   http://developer.android.com/guide/developing/tools/proguard.html
 
-# If your project uses WebView with JS, uncomment the following
-# and specify the fully qualified class name to the JavaScript interface
-# class:
-#-keepclassmembers class fqcn.of.javascript.interface.for.webview {
-#   public *;
-#}
+# API・同期・設定のJSONモデル
+# Gsonはフィールド名でマッピングするため、名前を変更・削除しない
+# （SyncEngineのキャッシュ・MutationOutboxのペイロード・SettingsPreferencesも同じモデルを使う）
+-keep class ecccomp.s2240788.mobile_android.data.models.** {
+    <fields>;
+    <init>(...);
+}
+-keepattributes Signature, InnerClasses, EnclosingMethod, *Annotation*
 
-# Uncomment this to preserve the line number information for
-# debugging stack traces.
-#-keepattributes SourceFile,LineNumberTable
+# Gson: TypeToken の匿名サブクラス（ジェネリクスの型情報を保持）
+-keep,allowobfuscation,allowshrinking class com.google.gson.reflect.TypeToken
+-keep,allowobfuscation,allowshrinking class * extends com.google.gson.reflect.TypeToken
 
-# If you keep the line number information, uncomment this to
-# hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+# Retrofit: suspend関数の戻り値（Response<ApiResponse<T>>）の型情報
+-keep,allowobfuscation,allowshrinking interface retrofit2.Call
+-keep,allowobfuscation,allowshrinking class retrofit2.Response
+-keep,allowobfuscation,allowshrinking class kotlin.coroutines.Continuation
+
+# クラッシュレポートのスタックトレースで行番号を使う
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
@@ -0,0 +1,54 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * 知識アイテムの検索索引の置き換えテスト（件数がSQLiteの変数の上限999を超える場合）
+ * API 30未満の端末・エミュレータで実行すると上限を超えたクエリが失敗する
+ */
+@RunWith(AndroidJUnit4::class)
+class KnowledgeSearchDaoTest {
+
+    private lateinit var db: TodoDatabase
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        db = Room.inMemoryDatabaseBuilder(context, TodoDatabase::class.java).build()
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun replaceAll_keepsOnlySnapshotEntriesBeyondVariableLimit() = runBlocking {
+        val dao = db.knowledgeSearchDao()
+        dao.replaceAll((1..3000).map { entry(it) })
+        assertEquals(3000, dao.getIds().size)
+
+        dao.replaceAll((1001..3000).map { entry(it) })
+        assertEquals((1001..3000).toSet(), dao.getIds().toSet())
+
+        dao.applyChanges(emptyList(), (1001..2500).toList())
+        assertEquals((2501..3000).toSet(), dao.getIds().toSet())
+        // 全文検索の索引も一緒に更新される
+        assertEquals(500, dao.search("\"note*\"").size)
+    }
+
+    private fun entry(id: Int) = KnowledgeSearchEntity(
+        id = id,
+        title = "Note $id",
+        tags = "kotlin",
+        content = "content $id"
+    )
+}
@@ -0,0 +1,66 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * 復習カードの置き換えテスト（件数がSQLiteの変数の上限999を超える場合）
+ * API 30未満の端末・エミュレータで実行すると上限を超えたクエリが失敗する
+ */
+@RunWith(AndroidJUnit4::class)
+class ReviewDaoTest {
+
+    private lateinit var db: TodoDatabase
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        db = Room.inMemoryDatabaseBuilder(context, TodoDatabase::class.java).build()
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun replaceCards_keepsServerAndPendingCardsBeyondVariableLimit() = runBlocking {
+        val dao = db.reviewDao()
+        dao.replaceCards((1..2000).map { card(it, "2026-10-18") }, emptySet())
+        // 未送信の採点があるカード（サーバーの一覧から外れても残し、端末の予定を優先する）
+        dao.updateSchedule(5, 2, "2026-10-21", "2026-10-18T10:00:00+09:00")
+        dao.updateSchedule(1500, 2, "2026-10-21", "2026-10-18T10:00:00+09:00")
+
+        dao.replaceCards((1001..2000).map { card(it, "2026-10-18") }, setOf(5, 1500))
+
+        assertEquals((1001..2000).toSet() + 5, dao.getCardIds().toSet())
+        assertEquals("2026-10-21", dao.getCard(5)?.next_review_date)
+        assertEquals("2026-10-21", dao.getCard(1500)?.next_review_date)
+    }
+
+    private fun card(id: Int, nextReviewDate: String) = ReviewCardEntity(
+        id = id,
+        user_id = 1,
+        category_id = null,
+        category_name = null,
+        title = "Card $id",
+        item_type = "note",
+        content = null,
+        code_language = null,
+        question = null,
+        answer = null,
+        difficulty = null,
+        review_count = 1,
+        last_reviewed_at = null,
+        next_review_date = nextReviewDate,
+        created_at = "",
+        updated_at = ""
+    )
+}
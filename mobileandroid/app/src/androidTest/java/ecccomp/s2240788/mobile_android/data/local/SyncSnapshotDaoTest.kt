@@ -0,0 +1,123 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Room
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * フルスナップショットの置き換え・tombstone削除のテスト（件数がSQLiteの変数の上限999を超える場合）
+ * API 30未満の端末・エミュレータで実行すると上限を超えたクエリが失敗する
+ */
+@RunWith(AndroidJUnit4::class)
+class SyncSnapshotDaoTest {
+
+    private lateinit var db: TodoDatabase
+
+    @Before
+    fun setUp() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        db = Room.inMemoryDatabaseBuilder(context, TodoDatabase::class.java).build()
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun reconcile_keepsOnlySnapshotTasksBeyondVariableLimit() = runBlocking {
+        val dao = db.taskDao()
+        val ids = (1..1500).toList()
+        dao.reconcile(ids.map { task(it) }, ids.map { subtask(it) })
+        assertEquals(1500, dao.count())
+
+        val kept = ids.take(1200)
+        dao.reconcile(kept.map { task(it) }, kept.map { subtask(it) })
+
+        assertEquals(1200, dao.count())
+        assertEquals(kept.toSet(), dao.getTaskIds().toSet())
+        assertEquals(1200, dao.getAllWithSubtasks().sumOf { it.subtasks.size })
+    }
+
+    @Test
+    fun applyChanges_deletesTombstonesBeyondVariableLimit() = runBlocking {
+        val dao = db.taskDao()
+        val ids = (1..2000).toList()
+        dao.reconcile(ids.map { task(it) }, emptyList())
+
+        dao.applyChanges(
+            tasks = ids.take(1000).map { task(it) },
+            subtasks = ids.take(1000).map { subtask(it) },
+            deletedIds = ids.drop(1000)
+        )
+
+        assertEquals(1000, dao.count())
+        assertEquals(ids.take(1000).toSet(), dao.getTaskIds().toSet())
+    }
+
+    @Test
+    fun replaceAll_keepsOnlySnapshotRecordsBeyondVariableLimit() = runBlocking {
+        val dao = db.syncDao()
+        dao.replaceAll("knowledge", (1..2000).map { record("knowledge", it) })
+        dao.replaceAll("notifications", (1..10).map { record("notifications", it) })
+
+        dao.replaceAll("knowledge", (501..2000).map { record("knowledge", it) })
+        assertEquals(1500, dao.count("knowledge"))
+        assertEquals(10, dao.count("notifications"))
+
+        dao.applyChanges("knowledge", emptyList(), (501..1600).toList())
+        assertEquals(400, dao.count("knowledge"))
+    }
+
+    private fun record(entity: String, id: Int) = SyncRecordEntity(entity = entity, id = id, json = "{\"id\":$id}")
+
+    private fun subtask(taskId: Int) = SubtaskEntity(
+        id = taskId,
+        task_id = taskId,
+        title = "Subtask $taskId",
+        is_completed = false,
+        estimated_minutes = null,
+        sort_order = 0,
+        created_at = "",
+        updated_at = ""
+    )
+
+    private fun task(id: Int) = TaskEntity(
+        id = id,
+        title = "Task $id",
+        category = null,
+        description = null,
+        status = "pending",
+        priority = 3,
+        energy_level = "medium",
+        estimated_minutes = null,
+        deadline = null,
+        scheduled_time = null,
+        created_at = "",
+        updated_at = "",
+        user_id = 1,
+        project_id = null,
+        learning_milestone_id = null,
+        learning_path_id = null,
+        ai_breakdown_enabled = false,
+        requires_deep_focus = false,
+        allow_interruptions = true,
+        focus_difficulty = 3,
+        warmup_minutes = null,
+        cooldown_minutes = null,
+        recovery_minutes = null,
+        last_focus_at = null,
+        total_focus_minutes = 0,
+        distraction_count = 0,
+        last_active_at = null,
+        is_abandoned = false,
+        abandonment_count = 0,
+        remaining_minutes = null
+    )
+}
@@ -1,24 +1,31 @@
 package ecccomp.s2240788.mobile_android
 
+import android.app.Activity
 import android.app.Application
-import androidx.work.ExistingPeriodicWorkPolicy
-import androidx.work.PeriodicWorkRequestBuilder
-import androidx.work.WorkManager
+import android.os.Bundle
+import ecccomp.s2240788.mobile_android.data.cheatcode.CheatCodeLibrary
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.review.ReviewQueue
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
+import ecccomp.s2240788.mobile_android.data.sync.PushChannel
+import ecccomp.s2240788.mobile_android.data.sync.SyncScheduler
+import ecccomp.s2240788.mobile_android.services.FocusTimerEngine
 // Firebaseは使用しないためコメントアウト
 // import ecccomp.s2240788.mobile_android.utils.FCMTokenHelper
 import ecccomp.s2240788.mobile_android.utils.LocaleHelper
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import ecccomp.s2240788.mobile_android.utils.NotificationHelper
 import ecccomp.s2240788.mobile_android.utils.TokenManager
-import ecccomp.s2240788.mobile_android.workers.NotificationSyncWorker
-import java.util.concurrent.TimeUnit
 
 /**
  * Application class for TodoApp
- * Initializes TokenManager, Notification Channels, and Background Workers
+ * Initializes TokenManager, Local Database, Notification Channels, and Background Workers
  */
 class TodoApplication : Application() {
 
+    // 表示中（onStart〜onStop）のActivity数（0になったらバックグラウンド）
+    private var startedActivities = 0
+
     override fun onCreate() {
         super.onCreate()
 
@@ -31,6 +38,21 @@ class TodoApplication : Application() {
         // NetworkModuleにContextを設定（ResponseInterceptorで使用）
         NetworkModule.setContext(this)
 
+        // ローカルDB（オフラインキャッシュ）を初期化
+        TodoDatabase.init(this)
+
+        // 送信キューを初期化（未送信の操作があれば接続後に再送）
+        MutationOutbox.init(this)
+
+        // 復習キューを初期化（オフラインで記録した採点があれば接続後に送信）
+        ReviewQueue.init(this)
+
+        // チートコードのパック（オフライン用）を1日1回確認し、変わった言語だけ取得し直す
+        CheatCodeLibrary.init(this)
+
+        // フォーカスタイマーの状態を復元（プロセス終了前に実行中だった場合も続きから）
+        FocusTimerEngine.init(this)
+
         // Initialize notification channels (Android 8.0+)
         NotificationHelper.createNotificationChannels(this)
 
@@ -38,8 +60,36 @@ class TodoApplication : Application() {
         // Initialize FCM and get token
         // initializeFCM()
 
-        // Schedule periodic notification sync worker (every 30 minutes)
-        scheduleNotificationSyncWorker()
+        // バックグラウンド同期（通知・タスク・ハートビート・設定をまとめて、変更の頻度に合わせた間隔で）
+        SyncScheduler.init(this)
+
+        // 前面にある間だけプッシュチャネルに接続（新しい通知・他の端末での変更を数秒で反映）
+        registerPushChannelLifecycle()
+    }
+
+    private fun registerPushChannelLifecycle() {
+        val pushChannel = PushChannel.get(this)
+        registerActivityLifecycleCallbacks(object : ActivityLifecycleCallbacks {
+            override fun onActivityStarted(activity: Activity) {
+                startedActivities++
+                // ログイン直後など、接続していなければ開始（接続中なら何もしない）
+                pushChannel.start()
+            }
+
+            override fun onActivityStopped(activity: Activity) {
+                startedActivities--
+                if (startedActivities <= 0) {
+                    startedActivities = 0
+                    pushChannel.stop()
+                }
+            }
+
+            override fun onActivityCreated(activity: Activity, savedInstanceState: Bundle?) = Unit
+            override fun onActivityResumed(activity: Activity) = Unit
+            override fun onActivityPaused(activity: Activity) = Unit
+            override fun onActivitySaveInstanceState(activity: Activity, outState: Bundle) = Unit
+            override fun onActivityDestroyed(activity: Activity) = Unit
+        })
     }
 
     /**
@@ -56,17 +106,5 @@ class TodoApplication : Application() {
         }
     }
     */
-
-    private fun scheduleNotificationSyncWorker() {
-        val syncWorkRequest = PeriodicWorkRequestBuilder<NotificationSyncWorker>(
-            30, TimeUnit.MINUTES
-        ).build()
-
-        WorkManager.getInstance(this).enqueueUniquePeriodicWork(
-            "notification_sync",
-            ExistingPeriodicWorkPolicy.KEEP,
-            syncWorkRequest
-        )
-    }
 }
 
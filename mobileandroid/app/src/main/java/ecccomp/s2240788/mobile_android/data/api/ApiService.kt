@@ -33,9 +33,24 @@ interface ApiService {
     @GET("email/verify/{id}/{hash}")
     suspend fun verifyEmail(@Path("id") id: Int, @Path("hash") hash: String): Response<Map<String, String>>
 
+    // Delta sync (changes since watermark, including tombstones)
+    @GET("sync/changes")
+    suspend fun getSyncChanges(
+        @Query("since") since: String? = null,
+        @Query("entities") entities: String
+    ): Response<ApiResponse<SyncChangesResponse>>
+
+    // Batched background sync (changes + heartbeats + settings in one request)
+    @POST("sync/batch")
+    suspend fun syncBatch(@Body request: SyncBatchRequest): Response<ApiResponse<SyncBatchResponse>>
+
+    // Offline mutation outbox (idempotent batch replay)
+    @POST("sync/mutations")
+    suspend fun applyMutations(@Body request: MutationBatchRequest): Response<ApiResponse<MutationBatchResponse>>
+
     //Tasks
     @GET("tasks")
-    suspend fun getTasks(@Query("per_page") perPage: Int = 100): Response<ApiResponse<Any>>
+    suspend fun getTasks(@Query("per_page") perPage: Int = 100): Response<ApiResponse<PagedList<Task>>>
 
     @GET("tasks/{id}")
     suspend fun getTask(@Path("id") id: Int): Response<ApiResponse<Task>>
@@ -232,8 +247,18 @@ interface ApiService {
     @GET("knowledge/stats")
     suspend fun getKnowledgeStats(): Response<ApiResponse<KnowledgeStats>>
 
+    /**
+     * @param aheadDays 指定日数先までに期限が来るアイテムも含める（端末の復習キューの先読み用）
+     */
     @GET("knowledge/due-review")
-    suspend fun getKnowledgeDueReview(): Response<ApiResponse<List<KnowledgeItem>>>
+    suspend fun getKnowledgeDueReview(
+        @Query("ahead_days") aheadDays: Int? = null,
+        @Query("limit") limit: Int? = null
+    ): Response<ApiResponse<List<KnowledgeItem>>>
+
+    // 端末で記録した採点の一括送信（冪等キー付き）
+    @POST("knowledge/reviews/bulk")
+    suspend fun bulkReview(@Body request: BulkReviewRequest): Response<ApiResponse<BulkReviewResponse>>
 
     @POST("knowledge/quick-capture")
     suspend fun quickCaptureKnowledge(@Body request: QuickCaptureRequest): Response<ApiResponse<QuickCaptureResponse>>
@@ -266,7 +291,28 @@ interface ApiService {
         @Query("sort_by") sortBy: String = "created_at",
         @Query("sort_order") sortOrder: String = "desc",
         @Query("per_page") perPage: Int = 20
-    ): Response<ApiResponse<Any>>
+    ): Response<ApiResponse<PagedList<KnowledgeItem>>>
+
+    /**
+     * カーソルページング版（Paging 3用）
+     * フィルター・検索はサーバー側で実行
+     * @param cursor 前ページのnext_cursor（最初のページはnull）
+     * @param uncategorized trueの場合、カテゴリなしのアイテムのみ（ルートフォルダ）
+     */
+    @GET("knowledge")
+    suspend fun getKnowledgeItemsPage(
+        @Query("cursor") cursor: String? = null,
+        @Query("category_id") categoryId: Int? = null,
+        @Query("uncategorized") uncategorized: Int? = null,
+        @Query("item_type") itemType: String? = null,
+        @Query("is_favorite") isFavorite: Boolean? = null,
+        @Query("learning_path_id") learningPathId: Int? = null,
+        @Query("search") search: String? = null,
+        @Query("sort_by") sortBy: String = "created_at",
+        @Query("sort_order") sortOrder: String = "desc",
+        @Query("per_page") perPage: Int = 20,
+        @Query("paginate") paginate: String = "cursor"
+    ): Response<KnowledgePageResponse>
 
     @POST("knowledge")
     suspend fun createKnowledgeItem(@Body request: CreateKnowledgeItemRequest): Response<ApiResponse<KnowledgeItem>>
@@ -298,6 +344,12 @@ interface ApiService {
     @POST("knowledge/{id}/clone")
     suspend fun cloneKnowledgeItem(@Path("id") id: Int, @Body request: CloneKnowledgeRequest): Response<ApiResponse<KnowledgeItem>>
 
+    /**
+     * フォーカス画面用: タスクに紐づく知識アイテム（アーカイブ済みを除く・新しい順）
+     */
+    @GET("knowledge/for-task/{taskId}")
+    suspend fun getKnowledgeForTask(@Path("taskId") taskId: Int): Response<ApiResponse<List<KnowledgeItem>>>
+
     @GET("knowledge/{id}/related")
     suspend fun getRelatedKnowledgeItems(@Path("id") id: Int, @Query("limit") limit: Int = 5): Response<ApiResponse<List<KnowledgeItem>>>
     
@@ -375,6 +427,17 @@ interface ApiService {
     @GET("cheat-code/categories")
     suspend fun getCheatCodeCategories(): Response<ApiResponse<List<String>>>
 
+    // オフライン用のコンテンツパック（言語ごとのバージョン一覧 / 言語・セクション・例をすべて含むパック）
+    @GET("cheat-code/packs")
+    suspend fun getCheatCodePacks(): Response<ApiResponse<CheatCodePackManifest>>
+
+    // 保存済みのバージョンをIf-None-Matchで送り、変わっていなければ304（本体なし）
+    @GET("cheat-code/languages/{languageId}/pack")
+    suspend fun getCheatCodePack(
+        @Path("languageId") languageId: Int,
+        @Header("If-None-Match") ifNoneMatch: String? = null
+    ): Response<ApiResponse<CheatCodePack>>
+
     // Exercise endpoints
     @GET("cheat-code/languages/{languageId}/exercises")
     suspend fun getExercises(
@@ -454,6 +517,18 @@ interface ApiService {
     @GET("ai/chat/conversations/{id}")
     suspend fun getChatConversation(@Path("id") id: Long): Response<ApiResponse<ChatConversation>>
 
+    /**
+     * メッセージ履歴を取得（メッセージIDのカーソル・古い順）
+     * beforeId: それより古いページ / afterId: それより新しいページ / どちらもなし: 最新のページ
+     */
+    @GET("ai/chat/conversations/{id}/messages")
+    suspend fun getChatMessages(
+        @Path("id") id: Long,
+        @Query("before_id") beforeId: Long? = null,
+        @Query("after_id") afterId: Long? = null,
+        @Query("limit") limit: Int? = null
+    ): Response<ApiResponse<ChatMessagesPage>>
+
     @PUT("ai/chat/conversations/{id}")
     suspend fun updateChatConversation(
         @Path("id") id: Long,
@@ -516,7 +591,7 @@ interface ApiService {
         @Query("sort_by") sortBy: String = "date",
         @Query("sort_order") sortOrder: String = "desc",
         @Query("per_page") perPage: Int = 20
-    ): Response<ApiResponse<Any>>
+    ): Response<ApiResponse<PagedList<DailyReview>>>
 
     @GET("daily-review/stats")
     suspend fun getDailyReviewStats(
@@ -542,7 +617,7 @@ interface ApiService {
 
     // Get all schedules for a learning path
     @GET("learning-paths/{id}/study-schedules")
-    suspend fun getStudySchedules(@Path("id") learningPathId: Int): Response<ApiResponse<Any>>
+    suspend fun getStudySchedules(@Path("id") learningPathId: Int): Response<ApiResponse<StudySchedulesResponse>>
 
     // Create new study schedule for a learning path
     @POST("learning-paths/{id}/study-schedules")
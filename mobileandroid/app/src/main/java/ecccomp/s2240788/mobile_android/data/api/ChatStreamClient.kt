@@ -0,0 +1,130 @@
+package ecccomp.s2240788.mobile_android.data.api
+
+import android.util.Log
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+import ecccomp.s2240788.mobile_android.data.models.SendMessageRequest
+import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.channels.trySendBlocking
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.RequestBody.Companion.toRequestBody
+import okhttp3.Response
+import java.io.IOException
+
+/**
+ * Chat Stream Event
+ * POST ai/chat/conversations/{id}/messages/stream のSSEイベント
+ */
+sealed class ChatStreamEvent {
+    /** 生成されたトークン（差分） */
+    data class Chunk(val content: String) : ChatStreamEvent()
+
+    /** チャットから作成されたタスク */
+    data class CreatedTask(val task: Task) : ChatStreamEvent()
+
+    /** 完了（サーバーに保存されたメッセージ） */
+    data class Done(val messageId: Long, val fullContent: String) : ChatStreamEvent()
+
+    /** サーバー側のエラー */
+    data class Error(val message: String) : ChatStreamEvent()
+}
+
+/**
+ * HTTPエラー（ストリーム開始前）
+ */
+class ChatStreamHttpException(val code: Int, message: String) : IOException(message)
+
+/**
+ * ChatStreamClient
+ * AI CoachのSSEエンドポイントを読み取り、イベントをFlowで返す
+ * Flowの収集をキャンセルするとHTTP接続も切断される
+ */
+class ChatStreamClient(
+    private val client: OkHttpClient = NetworkModule.streamingClient,
+    private val baseUrl: String = NetworkModule.baseUrl,
+    private val gson: Gson = NetworkModule.gson
+) {
+    companion object {
+        private const val TAG = "ChatStreamClient"
+        private const val DATA_PREFIX = "data:"
+    }
+
+    /**
+     * メッセージを送信し、AIの応答をストリーミングで受け取る
+     */
+    fun streamMessage(conversationId: Long, message: String): Flow<ChatStreamEvent> = callbackFlow {
+        val body = gson.toJson(SendMessageRequest(message))
+            .toRequestBody("application/json".toMediaType())
+        val request = Request.Builder()
+            .url("${baseUrl}ai/chat/conversations/$conversationId/messages/stream")
+            .header("Accept", "text/event-stream")
+            .post(body)
+            .build()
+
+        val call = client.newCall(request)
+        call.enqueue(object : Callback {
+            override fun onFailure(call: Call, e: IOException) {
+                close(e)
+            }
+
+            override fun onResponse(call: Call, response: Response) {
+                response.use {
+                    if (!response.isSuccessful) {
+                        close(ChatStreamHttpException(response.code, response.message))
+                        return
+                    }
+                    try {
+                        val source = response.body?.source()
+                        if (source == null) {
+                            close()
+                            return
+                        }
+                        // SSE: 1イベント = "data: {json}" + 空行
+                        while (!source.exhausted()) {
+                            val line = source.readUtf8Line() ?: break
+                            if (!line.startsWith(DATA_PREFIX)) continue
+                            val event = parseEvent(line.substring(DATA_PREFIX.length).trim()) ?: continue
+                            if (trySendBlocking(event).isFailure) break  // 収集側がキャンセル済み
+                            if (event is ChatStreamEvent.Done) break
+                        }
+                        close()
+                    } catch (e: IOException) {
+                        close(e)
+                    }
+                }
+            }
+        })
+
+        awaitClose { call.cancel() }
+    }
+
+    private fun parseEvent(json: String): ChatStreamEvent? {
+        return try {
+            val obj: JsonObject = JsonParser.parseString(json).asJsonObject
+            when (obj.get("type")?.asString) {
+                "chunk" -> obj.get("content")?.asString?.let { ChatStreamEvent.Chunk(it) }
+                "created_task" -> obj.get("task")?.let {
+                    ChatStreamEvent.CreatedTask(gson.fromJson(it, Task::class.java))
+                }
+                "done" -> ChatStreamEvent.Done(
+                    messageId = obj.get("message_id")?.asLong ?: 0L,
+                    fullContent = obj.get("full_content")?.asString ?: ""
+                )
+                "error" -> ChatStreamEvent.Error(obj.get("content")?.asString ?: "")
+                else -> null
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Skipping malformed SSE event: ${e.message}")
+            null
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package ecccomp.s2240788.mobile_android.data.api
+
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import com.google.gson.TypeAdapter
+import com.google.gson.TypeAdapterFactory
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import ecccomp.s2240788.mobile_android.data.models.PagedList
+import java.lang.reflect.ParameterizedType
+
+/**
+ * API共通のTypeAdapterを登録する
+ * NetworkModule.gson（Retrofitのコンバーターと手動パースで共有）から使用
+ */
+fun GsonBuilder.registerApiAdapters(): GsonBuilder {
+    return registerTypeAdapterFactory(PagedListTypeAdapterFactory)
+        .registerTypeAdapter(Int::class.javaPrimitiveType, LenientIntAdapter)
+        .registerTypeAdapter(Int::class.javaObjectType, LenientIntAdapter)
+        .registerTypeAdapter(Boolean::class.javaPrimitiveType, LenientBooleanAdapter)
+        .registerTypeAdapter(Boolean::class.javaObjectType, LenientBooleanAdapter)
+}
+
+/**
+ * PagedList<T> 用のファクトリ
+ * - Laravelのページネーター: { data: [...], current_page, last_page, per_page, total, ... }
+ * - 素の配列: [...]
+ * どちらもJsonReaderで逐次読み、要素はTの型アダプターで直接デコードする（Map経由の変換なし）
+ */
+object PagedListTypeAdapterFactory : TypeAdapterFactory {
+
+    override fun <R> create(gson: Gson, type: TypeToken<R>): TypeAdapter<R>? {
+        if (type.rawType != PagedList::class.java) return null
+
+        val elementType = (type.type as? ParameterizedType)?.actualTypeArguments?.firstOrNull()
+            ?: Any::class.java
+        val elementAdapter = gson.getAdapter(TypeToken.get(elementType))
+
+        @Suppress("UNCHECKED_CAST")
+        return PagedListAdapter(elementAdapter).nullSafe() as TypeAdapter<R>
+    }
+
+    private class PagedListAdapter<T>(
+        private val elementAdapter: TypeAdapter<T>
+    ) : TypeAdapter<PagedList<T>>() {
+
+        override fun read(reader: JsonReader): PagedList<T> {
+            return when (reader.peek()) {
+                JsonToken.BEGIN_ARRAY -> {
+                    val items = readItems(reader)
+                    PagedList(items)
+                }
+                JsonToken.BEGIN_OBJECT -> readPaginator(reader)
+                else -> {
+                    reader.skipValue()
+                    PagedList(emptyList())
+                }
+            }
+        }
+
+        private fun readPaginator(reader: JsonReader): PagedList<T> {
+            var items: List<T> = emptyList()
+            var currentPage: Int? = null
+            var lastPage: Int? = null
+            var perPage: Int? = null
+            var total: Int? = null
+
+            reader.beginObject()
+            while (reader.hasNext()) {
+                when (reader.nextName()) {
+                    "data" -> items = if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        readItems(reader)
+                    } else {
+                        reader.skipValue()
+                        emptyList()
+                    }
+                    "current_page" -> currentPage = LenientIntAdapter.read(reader)
+                    "last_page" -> lastPage = LenientIntAdapter.read(reader)
+                    "per_page" -> perPage = LenientIntAdapter.read(reader)
+                    "total" -> total = LenientIntAdapter.read(reader)
+                    // links, path, from, to など画面で使わないものは読み飛ばす
+                    else -> reader.skipValue()
+                }
+            }
+            reader.endObject()
+
+            return PagedList(
+                items = items,
+                current_page = currentPage ?: 1,
+                last_page = lastPage ?: 1,
+                per_page = perPage ?: items.size,
+                total = total ?: items.size
+            )
+        }
+
+        private fun readItems(reader: JsonReader): List<T> {
+            val items = ArrayList<T>()
+            reader.beginArray()
+            while (reader.hasNext()) {
+                elementAdapter.read(reader)?.let { items.add(it) }
+            }
+            reader.endArray()
+            return items
+        }
+
+        override fun write(writer: JsonWriter, value: PagedList<T>) {
+            writer.beginObject()
+            writer.name("data")
+            writer.beginArray()
+            value.items.forEach { elementAdapter.write(writer, it) }
+            writer.endArray()
+            writer.name("current_page").value(value.current_page.toLong())
+            writer.name("last_page").value(value.last_page.toLong())
+            writer.name("per_page").value(value.per_page.toLong())
+            writer.name("total").value(value.total.toLong())
+            writer.endObject()
+        }
+    }
+}
+
+/**
+ * 数値の寛容なアダプター
+ * "12" や 12.0 のような値も受け付ける（MySQLのDECIMAL/文字列カラム対策）
+ * 解釈できない値はnull扱い（プリミティブのフィールドはデフォルト値のまま）
+ */
+object LenientIntAdapter : TypeAdapter<Int?>() {
+
+    override fun read(reader: JsonReader): Int? {
+        return when (reader.peek()) {
+            JsonToken.NULL -> {
+                reader.nextNull()
+                null
+            }
+            JsonToken.NUMBER, JsonToken.STRING -> {
+                val raw = reader.nextString().trim()
+                raw.toIntOrNull() ?: raw.toDoubleOrNull()?.toInt()
+            }
+            JsonToken.BOOLEAN -> if (reader.nextBoolean()) 1 else 0
+            else -> {
+                reader.skipValue()
+                null
+            }
+        }
+    }
+
+    override fun write(writer: JsonWriter, value: Int?) {
+        if (value == null) writer.nullValue() else writer.value(value.toLong())
+    }
+}
+
+/**
+ * 真偽値の寛容なアダプター
+ * MySQLのTINYINT（0/1）や "true"/"1" のような文字列も受け付ける
+ */
+object LenientBooleanAdapter : TypeAdapter<Boolean?>() {
+
+    override fun read(reader: JsonReader): Boolean? {
+        return when (reader.peek()) {
+            JsonToken.NULL -> {
+                reader.nextNull()
+                null
+            }
+            JsonToken.BOOLEAN -> reader.nextBoolean()
+            JsonToken.NUMBER -> reader.nextDouble() != 0.0
+            JsonToken.STRING -> when (reader.nextString().trim().lowercase()) {
+                "true", "1" -> true
+                "false", "0", "" -> false
+                else -> null
+            }
+            else -> {
+                reader.skipValue()
+                null
+            }
+        }
+    }
+
+    override fun write(writer: JsonWriter, value: Boolean?) {
+        if (value == null) writer.nullValue() else writer.value(value)
+    }
+}
@@ -0,0 +1,140 @@
+package ecccomp.s2240788.mobile_android.data.api
+
+import android.os.SystemClock
+import ecccomp.s2240788.mobile_android.data.models.ApiResponse
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import retrofit2.Response
+
+/**
+ * RequestCoalescer
+ * 同じGETリクエスト（エンドポイント + パラメータ）の重複をまとめる
+ * - 実行中の同じリクエストがあれば、新しく送らずにその結果を共有する（single-flight）
+ * - 成功したレスポンスはTTLの間だけ再利用する
+ * - POST/PUT/PATCH/DELETE が送られたらすべて無効化（MutationInvalidationInterceptor）
+ *   無効化より前に始まったリクエストの結果はキャッシュせず、新しい呼び出しも合流させない
+ * - 取得は呼び出し元ではなく共有のスコープで行う（1つの画面が閉じても他の待機者の取得は続く）
+ */
+object RequestCoalescer {
+
+    private class Entry(val value: Any?, val expiresAt: Long)
+
+    private class InFlight(val generation: Long, val deferred: CompletableDeferred<Any?>)
+
+    private val lock = Any()
+    private val cache = HashMap<String, Entry>()
+    private val inFlight = HashMap<String, InFlight>()
+    private var generation = 0L
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    /**
+     * @param key エンドポイント + パラメータ（例: "tasks/12"）
+     * @param ttlMs 成功したレスポンスを再利用する時間
+     * @param isCacheable キャッシュしてよい結果か（失敗レスポンスはキャッシュしない）
+     */
+    @Suppress("UNCHECKED_CAST")
+    suspend fun <T> load(
+        key: String,
+        ttlMs: Long,
+        isCacheable: (T) -> Boolean,
+        fetch: suspend () -> T
+    ): T {
+        val deferred = synchronized(lock) {
+            cache[key]?.let { entry ->
+                if (entry.expiresAt > SystemClock.elapsedRealtime()) return entry.value as T
+                cache.remove(key)
+            }
+
+            inFlight[key]?.takeIf { it.generation == generation }?.deferred
+                ?: start(key, ttlMs, isCacheable as (Any?) -> Boolean, fetch)
+        }
+        return deferred.await() as T
+    }
+
+    // lockを保持した状態で呼ぶ
+    private fun start(
+        key: String,
+        ttlMs: Long,
+        isCacheable: (Any?) -> Boolean,
+        fetch: suspend () -> Any?
+    ): CompletableDeferred<Any?> {
+        val startedGeneration = generation
+        val deferred = CompletableDeferred<Any?>()
+        inFlight[key] = InFlight(startedGeneration, deferred)
+
+        scope.launch {
+            val result = runCatching { fetch() }
+            synchronized(lock) {
+                if (inFlight[key]?.deferred === deferred) inFlight.remove(key)
+                result.onSuccess { value ->
+                    if (startedGeneration == generation && isCacheable(value)) {
+                        cache[key] = Entry(value, SystemClock.elapsedRealtime() + ttlMs)
+                    }
+                }
+            }
+            result.fold({ deferred.complete(it) }, { deferred.completeExceptionally(it) })
+        }
+        return deferred
+    }
+
+    /**
+     * すべて無効化（更新系のリクエストの開始時と完了時に呼ばれる）
+     */
+    fun invalidateAll() {
+        synchronized(lock) {
+            generation++
+            cache.clear()
+        }
+    }
+}
+
+/**
+ * CoalescedApi
+ * 複数の画面・ViewModelから同時に呼ばれやすいGETをRequestCoalescer経由で呼ぶ
+ * （フォーカス画面のタスク取得、ホームとカレンダーの今日の予定・タイムラインなど）
+ */
+object CoalescedApi {
+
+    // 1画面内の連続した呼び出しをまとめる程度の短いTTL（更新系のリクエストで即時に無効化される）
+    private const val TASK_TTL_MS = 5_000L
+    private const val LIST_TTL_MS = 10_000L
+
+    private val apiService: ApiService get() = NetworkModule.apiService
+
+    suspend fun getTask(taskId: Int) = load("tasks/$taskId", TASK_TTL_MS) {
+        apiService.getTask(taskId)
+    }
+
+    suspend fun getTasks(perPage: Int = 100) = load("tasks?per_page=$perPage", LIST_TTL_MS) {
+        apiService.getTasks(perPage)
+    }
+
+    suspend fun getTodaySessions() = load("study-schedules/today", LIST_TTL_MS) {
+        apiService.getTodaySessions()
+    }
+
+    suspend fun getTimelineItems() = load("study-schedules/timeline", LIST_TTL_MS) {
+        apiService.getTimelineItems()
+    }
+
+    /**
+     * 成功したAPIレスポンスだけをキャッシュする
+     */
+    private suspend fun <T> load(
+        key: String,
+        ttlMs: Long,
+        fetch: suspend () -> Response<ApiResponse<T>>
+    ): Response<ApiResponse<T>> = RequestCoalescer.load(
+        key,
+        ttlMs,
+        isCacheable = { response: Response<ApiResponse<T>> ->
+            response.isSuccessful && response.body()?.success == true
+        },
+        fetch = fetch
+    )
+}
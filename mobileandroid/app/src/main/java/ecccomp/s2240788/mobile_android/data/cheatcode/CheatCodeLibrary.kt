@@ -0,0 +1,206 @@
+package ecccomp.s2240788.mobile_android.data.cheatcode
+
+import android.content.Context
+import android.util.Log
+import androidx.work.Constraints
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import com.google.gson.Gson
+import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.local.CheatCodeDao
+import ecccomp.s2240788.mobile_android.data.local.CheatExampleEntity
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.local.toEntity
+import ecccomp.s2240788.mobile_android.data.local.toModel
+import ecccomp.s2240788.mobile_android.data.models.CheatCodeLanguage
+import ecccomp.s2240788.mobile_android.data.models.CheatCodeSection
+import ecccomp.s2240788.mobile_android.data.models.CheatCodeSectionsResponse
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import ecccomp.s2240788.mobile_android.workers.CheatCodePackWorker
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.TimeUnit
+
+/**
+ * CheatCodeLibrary
+ * チートコード（言語・セクション・例）の端末側の保存先
+ * - 画面はRoomから表示する（言語一覧 → セクション → 例の順にAPIを待たない・オフラインでも表示できる）
+ * - サーバーからは言語ごとのパック（cheat-code/languages/{id}/pack）を1回で取得して丸ごと置き換える
+ * - パックの一覧（cheat-code/packs）のバージョンが保存済みと違う言語だけ取得し直す
+ *   個別の取得も保存済みのバージョンをIf-None-Matchで送るので、変わっていなければ304で終わる
+ * - バックグラウンドではCheatCodePackWorkerが1日1回一覧を確認する
+ * - 例の検索は全文検索インデックス（cheat_examples_fts）で行う
+ */
+class CheatCodeLibrary(
+    private val apiService: ApiService,
+    private val dao: CheatCodeDao,
+    private val gson: Gson = NetworkModule.gson
+) {
+    companion object {
+        private const val TAG = "CheatCodeLibrary"
+        private const val WORK_NAME = "cheat_code_packs"
+        private const val REFRESH_INTERVAL_HOURS = 24L
+
+        @Volatile
+        private var instance: CheatCodeLibrary? = null
+
+        /**
+         * 初期化関数 - Applicationから呼び出す（TodoDatabase.init()の後）
+         * パックの確認を1日1回スケジュール（登録済みならそのまま）
+         */
+        fun init(context: Context) {
+            val request = PeriodicWorkRequestBuilder<CheatCodePackWorker>(REFRESH_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(
+                    Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .setRequiresBatteryNotLow(true)
+                        .build()
+                )
+                .build()
+
+            WorkManager.getInstance(context.applicationContext).enqueueUniquePeriodicWork(
+                WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP,
+                request
+            )
+        }
+
+        fun get(): CheatCodeLibrary {
+            return instance ?: synchronized(this) {
+                instance ?: CheatCodeLibrary(NetworkModule.apiService, TodoDatabase.get().cheatCodeDao())
+                    .also { instance = it }
+            }
+        }
+    }
+
+    // 一覧の保存とパックの保存が同時に走らないように（保存済みのバージョンを上書きしない）
+    private val mutex = Mutex()
+
+    /**
+     * 保存済みの言語一覧（ローカルのみ）
+     */
+    suspend fun getLanguages(): List<CheatCodeLanguage> =
+        dao.getLanguages().map { it.toModel(gson) }
+
+    /**
+     * 保存済みのパック（ローカルのみ）。まだ取得していなければnull
+     */
+    suspend fun getPack(languageId: Int): CheatCodeSectionsResponse? {
+        val language = dao.getLanguage(languageId)?.takeIf { it.installed_version != null } ?: return null
+        return CheatCodeSectionsResponse(
+            language = language.toModel(gson),
+            sections = toSections(languageId, dao.getExamples(languageId))
+        )
+    }
+
+    /**
+     * セクション名・タイトル・説明・コード・タグから例を検索（ローカルのみ）
+     * 一致した例だけを含むセクションを返す
+     */
+    suspend fun search(languageId: Int, query: String): List<CheatCodeSection> {
+        val terms = query.trim().split(Regex("\\s+")).filter { it.isNotEmpty() }
+        if (terms.isEmpty()) return emptyList()
+
+        // unicode61は単語の区切りがない日本語を分割できないため、ASCII以外を含む場合は部分一致で探す
+        val examples = if (terms.all { term -> term.all { it.code < 128 } }) {
+            val match = terms
+                .map { it.replace("\"", "").replace("*", "") }
+                .filter { it.isNotEmpty() }
+                .joinToString(" ") { "\"$it*\"" }
+            if (match.isEmpty()) return emptyList()
+            dao.searchExamples(languageId, match)
+        } else {
+            val escaped = query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+            dao.searchExamplesLike(languageId, "%$escaped%")
+        }
+        return toSections(languageId, examples).filter { !it.examples.isNullOrEmpty() }
+    }
+
+    private suspend fun toSections(languageId: Int, examples: List<CheatExampleEntity>): List<CheatCodeSection> {
+        val examplesBySection = examples.groupBy { it.section_id }
+        return dao.getSections(languageId).map { section ->
+            section.toModel(examplesBySection[section.id].orEmpty().map { it.toModel(gson) })
+        }
+    }
+
+    /**
+     * パックの一覧を取得して言語一覧を更新（サーバーの内容が変わっていなければ304で本体を受け取らない）
+     * @return 最新のバージョンが保存済みと違う言語のID（保存済みのパックのみ）。失敗した場合はnull
+     */
+    suspend fun refreshManifest(): List<Int>? {
+        return try {
+            val response = apiService.getCheatCodePacks()
+            val packs = response.body()?.takeIf { response.isSuccessful && it.success }?.data?.packs
+            if (packs == null) {
+                Log.w(TAG, "Pack manifest failed: HTTP ${response.code()}")
+                return null
+            }
+
+            mutex.withLock {
+                val installed = dao.getLanguages().associate { it.id to it.installed_version }
+                dao.replaceLanguages(packs.mapIndexed { index, pack ->
+                    pack.language.toEntity(gson, index, pack.version, installed[pack.language.id])
+                })
+                packs.filter { pack ->
+                    val version = installed[pack.language.id]
+                    version != null && version != pack.version
+                }.map { it.language.id }
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Pack manifest failed: ${e.message}")
+            null
+        }
+    }
+
+    /**
+     * 1言語分のパックを取得して保存（保存済みと同じバージョンなら何もしない）
+     * @return 保存済みのパックが最新になったか
+     */
+    suspend fun syncPack(languageId: Int): Boolean {
+        return try {
+            val current = dao.getLanguage(languageId)
+            val installedVersion = current?.installed_version
+            val response = apiService.getCheatCodePack(languageId, installedVersion?.let { "\"$it\"" })
+
+            if (response.code() == 304 && current != null && installedVersion != null) {
+                // 言語一覧より先に確認した場合に備えて、最新のバージョンも揃えておく
+                if (current.pack_version != installedVersion) {
+                    mutex.withLock { dao.upsertLanguages(listOf(current.copy(pack_version = installedVersion))) }
+                }
+                return true
+            }
+
+            val pack = response.body()?.takeIf { response.isSuccessful && it.success }?.data
+            if (pack == null) {
+                Log.w(TAG, "Pack $languageId failed: HTTP ${response.code()}")
+                return false
+            }
+
+            val sections = pack.sections.map { it.toEntity(languageId) }
+            val examples = pack.sections.flatMap { section ->
+                section.examples.orEmpty().map { it.toEntity(gson, languageId, section.title) }
+            }
+            mutex.withLock {
+                val sortIndex = dao.getLanguage(languageId)?.sort_index ?: Int.MAX_VALUE
+                dao.replacePack(
+                    pack.language.toEntity(gson, sortIndex, pack.version, pack.version),
+                    sections,
+                    examples
+                )
+            }
+            Log.d(TAG, "Pack $languageId updated to ${pack.version} (${examples.size} examples)")
+            true
+        } catch (e: Exception) {
+            Log.w(TAG, "Pack $languageId failed: ${e.message}")
+            false
+        }
+    }
+
+    /**
+     * まだ保存していない言語のパック（Wi-Fi接続時にまとめて取得する）
+     */
+    suspend fun missingPackIds(): List<Int> =
+        dao.getLanguages().filter { it.installed_version == null }.map { it.id }
+}
@@ -0,0 +1,298 @@
+package ecccomp.s2240788.mobile_android.data.exercise
+
+import android.content.Context
+import android.util.Log
+import androidx.concurrent.futures.await
+import androidx.javascriptengine.IsolateStartupParameters
+import androidx.javascriptengine.JavaScriptIsolate
+import androidx.javascriptengine.JavaScriptSandbox
+import androidx.javascriptengine.SandboxDeadException
+import com.google.gson.Gson
+import com.google.gson.JsonParser
+import ecccomp.s2240788.mobile_android.data.models.ExerciseTestCase
+import ecccomp.s2240788.mobile_android.data.models.TestCaseResult
+import ecccomp.s2240788.mobile_android.utils.CodeHighlightHelper
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.TimeoutCancellationException
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withTimeout
+
+/**
+ * LocalTestRunner
+ * 演習のサンプルテストケースを端末上で実行する（提出前の確認用。採点はサーバーの提出で行う）
+ * - 対応はJavaScriptのみ（JavaScriptSandbox: アプリとは別プロセスのV8。ファイル・ネットワークにはアクセスできない）
+ * - テストケースごとに新しいIsolateで実行（前のテストのグローバル変数が残らない）
+ * - サーバー（node main.js + 標準入力）と同じ書き方で動くように、require('fs') / require('readline') /
+ *   process.stdin / console.log の最小限の代替を用意する
+ * - 判定はサーバーと同じ（前後の空白を除いて期待される出力と一致するか・エラーなら不合格）
+ */
+class LocalTestRunner(
+    private val context: Context,
+    private val gson: Gson = NetworkModule.gson
+) {
+    companion object {
+        private const val TAG = "LocalTestRunner"
+
+        // サーバーの実行時間の上限（Process::timeout(5)）に合わせる
+        private const val TIMEOUT_MS = 5_000L
+        private const val MAX_HEAP_BYTES = 32L * 1024 * 1024
+
+        // 無限ループで出力し続けるコードでもメモリを使い切らないように
+        private const val MAX_OUTPUT_CHARS = 64 * 1024
+
+        @Volatile
+        private var instance: LocalTestRunner? = null
+
+        fun get(context: Context): LocalTestRunner {
+            return instance ?: synchronized(this) {
+                instance ?: LocalTestRunner(context.applicationContext).also { instance = it }
+            }
+        }
+
+        /**
+         * この言語を端末上で実行できるか
+         */
+        fun supports(language: String): Boolean =
+            CodeHighlightHelper.mapLanguage(language) == "javascript" && JavaScriptSandbox.isSupported()
+    }
+
+    private val mutex = Mutex()
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private var sandbox: JavaScriptSandbox? = null
+
+    /**
+     * テストケースを順に実行（同時に実行するのは1回分だけ）
+     * @return テストケースと同じ順の結果（isSample = true）
+     */
+    suspend fun run(code: String, testCases: List<ExerciseTestCase>): List<TestCaseResult> = mutex.withLock {
+        testCases.map { testCase ->
+            val outcome = execute(code, testCase.input)
+            val output = outcome.output
+            TestCaseResult(
+                description = testCase.description,
+                input = testCase.input,
+                expectedOutput = testCase.expectedOutput,
+                actualOutput = output,
+                passed = output != null && output.trim() == testCase.expectedOutput.trim(),
+                isSample = true,
+                error = outcome.error
+            )
+        }
+    }
+
+    /**
+     * サンドボックスのプロセスを終了（画面を閉じた時）
+     * 実行中のテストがあれば終わってから閉じる（呼び出し元の画面のスコープは使わない）
+     */
+    fun release() {
+        scope.launch {
+            mutex.withLock {
+                sandbox?.close()
+                sandbox = null
+            }
+        }
+    }
+
+    private class Outcome(val output: String?, val error: String?)
+
+    private suspend fun connect(): JavaScriptSandbox {
+        sandbox?.let { return it }
+        val connected = JavaScriptSandbox.createConnectedInstanceAsync(context).await()
+        // Promiseを返すコード（非同期の入力処理）を待つために必要
+        if (!connected.isFeatureSupported(JavaScriptSandbox.JS_FEATURE_PROMISE_RETURN)) {
+            connected.close()
+            throw IllegalStateException("JavaScript sandbox does not support promises")
+        }
+        sandbox = connected
+        return connected
+    }
+
+    private suspend fun execute(code: String, input: String): Outcome {
+        var isolate: JavaScriptIsolate? = null
+        return try {
+            val connected = connect()
+            val parameters = IsolateStartupParameters()
+            if (connected.isFeatureSupported(JavaScriptSandbox.JS_FEATURE_ISOLATE_MAX_HEAP_SIZE)) {
+                parameters.maxHeapSizeBytes = MAX_HEAP_BYTES
+            }
+            val created = connected.createIsolate(parameters)
+            isolate = created
+
+            val script = buildHarness(code, input)
+            val result = withTimeout(TIMEOUT_MS) {
+                created.evaluateJavaScriptAsync(script).await()
+            }
+            val json = JsonParser.parseString(result).asJsonObject
+            val error = json.get("error")?.takeUnless { it.isJsonNull }?.asString
+            if (error != null) {
+                Outcome(null, "Execution error: $error")
+            } else {
+                Outcome(json.get("output")?.asString.orEmpty(), null)
+            }
+        } catch (e: TimeoutCancellationException) {
+            Outcome(null, "Execution error: timed out after ${TIMEOUT_MS / 1000}s")
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: SandboxDeadException) {
+            // メモリ不足などでサンドボックスのプロセスが落ちた場合は次回つなぎ直す
+            Log.w(TAG, "Sandbox died", e)
+            sandbox = null
+            Outcome(null, "Execution error: ${e.message ?: "sandbox stopped"}")
+        } catch (e: Exception) {
+            Log.w(TAG, "Local execution failed", e)
+            Outcome(null, "Execution error: ${e.message ?: e.javaClass.simpleName}")
+        } finally {
+            // 実行中（タイムアウト時）でもIsolateを閉じれば評価は止まる
+            isolate?.close()
+        }
+    }
+
+    /**
+     * 実行用のスクリプト
+     * 入力とコードはJSONの文字列リテラルとして埋め込み、AsyncFunctionとして実行する
+     * 同期部分が終わってから入力（readlineのline / stdinのdata）を渡し、タイマーを順に実行して、最後に {output, error} をJSONで返す
+     */
+    private fun buildHarness(code: String, input: String): String = """
+        (async () => {
+          const __input = ${gson.toJson(input)};
+          const __source = ${gson.toJson(code)};
+          const __lines = __input.length === 0 ? [] : __input.replace(/\r?\n$/, '').split(/\r?\n/);
+          let __out = '';
+          let __err = '';
+          let __exitCode = null;
+          const __EXIT = {};
+          const __write = (s) => { if (__out.length < $MAX_OUTPUT_CHARS) __out += s; };
+
+          const __inspect = (v, depth) => {
+            if (typeof v === 'string') return depth > 0 ? "'" + v + "'" : v;
+            if (v === null || typeof v !== 'object') {
+              return typeof v === 'function' ? '[Function: ' + (v.name || 'anonymous') + ']' : String(v);
+            }
+            if (depth > 2) return Array.isArray(v) ? '[Array]' : '[Object]';
+            if (Array.isArray(v)) {
+              return v.length === 0 ? '[]' : '[ ' + v.map((x) => __inspect(x, depth + 1)).join(', ') + ' ]';
+            }
+            if (v instanceof Error) return String(v);
+            if (v instanceof Map) {
+              return 'Map(' + v.size + ') { ' + Array.from(v, ([k, x]) => __inspect(k, depth + 1) + ' => ' + __inspect(x, depth + 1)).join(', ') + ' }';
+            }
+            if (v instanceof Set) {
+              return 'Set(' + v.size + ') { ' + Array.from(v, (x) => __inspect(x, depth + 1)).join(', ') + ' }';
+            }
+            const keys = Object.keys(v);
+            if (keys.length === 0) return '{}';
+            return '{ ' + keys.map((k) => (/^[A-Za-z_][A-Za-z0-9_]*$/.test(k) ? k : "'" + k + "'") + ': ' + __inspect(v[k], depth + 1)).join(', ') + ' }';
+          };
+          const __format = (args) => args.map((a) => __inspect(a, 0)).join(' ') + '\n';
+          const console = {
+            log: (...a) => __write(__format(a)),
+            info: (...a) => __write(__format(a)),
+            debug: (...a) => __write(__format(a)),
+            error: (...a) => { __err += __format(a); },
+            warn: (...a) => { __err += __format(a); },
+          };
+
+          // タイマーは仮想の時計で実行する（実際には待たず、期限の早い順・登録順に呼ぶ）
+          const __timers = [];
+          let __now = 0;
+          let __timerId = 0;
+          const setTimeout = (fn, ms, ...a) => {
+            const id = ++__timerId;
+            __timers.push({ fn: () => fn(...a), due: __now + Math.max(0, Number(ms) || 0), id });
+            return id;
+          };
+          const clearTimeout = (id) => { const i = __timers.findIndex((x) => x.id === id); if (i >= 0) __timers.splice(i, 1); };
+          const __nextTimer = () => {
+            if (__timers.length === 0) return null;
+            let next = 0;
+            for (let i = 1; i < __timers.length; i++) {
+              const t = __timers[i];
+              if (t.due < __timers[next].due || (t.due === __timers[next].due && t.id < __timers[next].id)) next = i;
+            }
+            return __timers.splice(next, 1)[0];
+          };
+          const __drain = async () => { for (let i = 0; i < 1000; i++) await null; };
+
+          const __interfaces = [];
+          const __createInterface = () => {
+            const handlers = { line: [], close: [] };
+            const rl = {
+              closed: false,
+              on(ev, fn) { (handlers[ev] = handlers[ev] || []).push(fn); return rl; },
+              close() { if (!rl.closed) { rl.closed = true; handlers.close.forEach((f) => f()); } },
+              async *[Symbol.asyncIterator]() { for (const l of __lines) yield l; },
+            };
+            rl.once = rl.on;
+            rl.addListener = rl.on;
+            __interfaces.push({ rl, handlers });
+            return rl;
+          };
+          const require = (name) => {
+            switch (name.replace(/^node:/, '')) {
+              case 'fs': return { readFileSync: () => __input };
+              case 'readline': return { createInterface: __createInterface };
+              default: throw new Error("Cannot find module '" + name + "'");
+            }
+          };
+
+          const __stdin = { data: [], end: [] };
+          const process = {
+            argv: ['node', 'main.js'],
+            env: {},
+            exit: (c) => { __exitCode = c || 0; throw __EXIT; },
+            stdout: { write: (s) => { __write(String(s)); return true; } },
+            stdin: {
+              setEncoding() {},
+              resume() {},
+              on(ev, fn) { (__stdin[ev] = __stdin[ev] || []).push(fn); return process.stdin; },
+            },
+          };
+
+          let __error = null;
+          const __fail = (e) => {
+            if (e === __EXIT || __error !== null) return;
+            __error = String(e && e.name && e.message !== undefined ? e.name + ': ' + e.message : e);
+          };
+          const __stopped = () => __error !== null || __exitCode !== null;
+          const __call = (f, ...a) => { if (!__stopped()) { try { f(...a); } catch (e) { __fail(e); } } };
+
+          const AsyncFunction = Object.getPrototypeOf(async function () {}).constructor;
+          let __main = null;
+          try {
+            __main = new AsyncFunction('require', 'process', 'console', 'setTimeout', 'clearTimeout', 'module', 'exports', __source);
+          } catch (e) {
+            __fail(e);
+          }
+          if (__main) {
+            __main(require, process, console, setTimeout, clearTimeout, { exports: {} }, {}).catch(__fail);
+            for (const { rl, handlers } of __interfaces) {
+              for (const l of __lines) {
+                if (rl.closed) break;
+                handlers.line.forEach((f) => __call(f, l));
+              }
+              __call(() => rl.close());
+            }
+            __stdin.data.forEach((f) => __call(f, __input));
+            __stdin.end.forEach((f) => __call(f));
+            // Nodeのイベントループと同じく、待っている処理（Promise）を進めてから次のタイマーを呼ぶ
+            // （タイマーをawaitしているコードもここで再開する。タイマーが残っていなければ終了）
+            await __drain();
+            for (let t = __nextTimer(); t && !__stopped(); t = __nextTimer()) {
+              __now = t.due;
+              __call(t.fn);
+              await __drain();
+            }
+          }
+
+          if (__error === null && __exitCode) __error = __err.trim() || 'exit code ' + __exitCode;
+          if (__error !== null && __err.trim()) __error = __err.trim() + '\n' + __error;
+          return JSON.stringify({ output: __out, error: __error });
+        })()
+    """.trimIndent()
+}
@@ -0,0 +1,155 @@
+package ecccomp.s2240788.mobile_android.data.knowledge
+
+import android.database.sqlite.SQLiteException
+import android.util.Log
+import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.local.KnowledgeSearchDao
+import ecccomp.s2240788.mobile_android.data.local.KnowledgeSearchMatch
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.CancellationException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * KnowledgeSearchIndex
+ * 知識アイテムの端末内の全文検索
+ * - 検索用テキスト（knowledge_search）は知識アイテムの同期（バックグラウンド同期・知識画面を開いた時）のたびにSyncEngineが更新する
+ * - すべての語の前方一致で探し、一致した列（タイトル > タグ > 本文）と語の珍しさで並べる
+ * - unicode61は単語の区切りがない日本語を分割できないため、ASCII以外を含む場合は部分一致で探す
+ * - まだ同期されていないアイテム（作成直後など）が表示対象にある場合だけ、サーバーの全文検索で補う
+ */
+class KnowledgeSearchIndex(
+    private val apiService: ApiService,
+    private val dao: KnowledgeSearchDao
+) {
+    companion object {
+        private const val TAG = "KnowledgeSearchIndex"
+
+        // FTSの列（title, tags, content）ごとの重み
+        private val COLUMN_WEIGHTS = doubleArrayOf(3.0, 2.0, 1.0)
+
+        @Volatile
+        private var instance: KnowledgeSearchIndex? = null
+
+        /**
+         * 共有インスタンス（TodoDatabase.init()済みであること）
+         */
+        fun get(): KnowledgeSearchIndex {
+            return instance ?: synchronized(this) {
+                instance ?: KnowledgeSearchIndex(NetworkModule.apiService, TodoDatabase.get().knowledgeSearchDao())
+                    .also { instance = it }
+            }
+        }
+    }
+
+    /**
+     * 検索
+     * @param candidates 表示対象のアイテム（この中に端末の索引にないものがあればサーバーでも検索する）
+     */
+    suspend fun search(query: String, candidates: List<KnowledgeItem>): KnowledgeSearchResult {
+        val trimmed = query.trim()
+        val ranks = searchLocal(trimmed)
+        val indexedIds = dao.getIds().toHashSet()
+
+        val serverIds = if (candidates.any { it.id !in indexedIds }) searchServer(trimmed) else emptySet()
+        return KnowledgeSearchResult(trimmed, ranks, indexedIds, serverIds)
+    }
+
+    private suspend fun searchLocal(query: String): Map<Int, Double> {
+        val terms = query.split(Regex("\\s+")).filter { it.isNotEmpty() }
+        if (terms.isEmpty()) return emptyMap()
+
+        if (terms.all { term -> term.all { it.code < 128 } }) {
+            val match = terms
+                .map { it.replace("\"", "").replace("*", "") }
+                .filter { term -> term.any { it.isLetterOrDigit() } }
+                .joinToString(" ") { "\"$it*\"" }
+            if (match.isNotEmpty()) {
+                try {
+                    return dao.search(match).associate { it.id to score(it) }
+                } catch (e: SQLiteException) {
+                    // 記号だけの語などMATCH式として解釈できない場合は部分一致で探す
+                    Log.w(TAG, "FTS query failed, falling back to LIKE: ${e.message}")
+                }
+            }
+        }
+
+        val escaped = query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+        return dao.searchLike("%$escaped%").associate { it.id to it.score }
+    }
+
+    /**
+     * matchinfo 'pcx' から順位の点数を計算
+     * 語・列ごとに「この行の一致数 / 全行の一致数」に列の重みを掛けて合計する（珍しい語の一致ほど高い）
+     */
+    private fun score(match: KnowledgeSearchMatch): Double {
+        val info = ByteBuffer.wrap(match.matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer()
+        val phrases = info.get(0)
+        val columns = info.get(1)
+        var score = 0.0
+        for (phrase in 0 until phrases) {
+            for (column in 0 until columns) {
+                val offset = 2 + (phrase * columns + column) * 3
+                val hitsInRow = info.get(offset)
+                val hitsInAllRows = info.get(offset + 1)
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    score += COLUMN_WEIGHTS.getOrElse(column) { 1.0 } * hitsInRow / hitsInAllRows
+                }
+            }
+        }
+        return score
+    }
+
+    /**
+     * サーバーの全文検索で一致したアイテムのID（失敗した場合は空。端末側の部分一致で補う）
+     */
+    private suspend fun searchServer(query: String): Set<Int> {
+        return try {
+            val response = apiService.getKnowledgeItems(search = query)
+            val items = response.body()?.takeIf { response.isSuccessful && it.success }?.data?.items
+            if (items == null) {
+                Log.w(TAG, "Server search failed: HTTP ${response.code()}")
+                return emptySet()
+            }
+            items.map { it.id }.toHashSet()
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.w(TAG, "Server search failed: ${e.message}")
+            emptySet()
+        }
+    }
+}
+
+/**
+ * 検索結果
+ * @param ranks 端末の索引で一致したアイテムIDと点数
+ * @param indexedIds 端末の索引にあるアイテムID
+ * @param serverIds 索引にないアイテムのためにサーバーで検索した結果
+ */
+class KnowledgeSearchResult(
+    val query: String,
+    private val ranks: Map<Int, Double>,
+    private val indexedIds: Set<Int>,
+    private val serverIds: Set<Int>
+) {
+    /**
+     * 一致したアイテムだけを点数の高い順に返す
+     * 索引にないアイテムはサーバーの検索結果か部分一致で判定し、索引の結果の後に元の順番で並べる
+     */
+    fun apply(items: List<KnowledgeItem>): List<KnowledgeItem> {
+        val (indexed, unindexed) = items.partition { it.id in indexedIds }
+        val ranked = indexed
+            .filter { it.id in ranks }
+            .sortedByDescending { ranks[it.id] }
+        val others = unindexed.filter { it.id in serverIds || containsQuery(it) }
+        return ranked + others
+    }
+
+    private fun containsQuery(item: KnowledgeItem): Boolean =
+        item.title.contains(query, ignoreCase = true) ||
+            item.content?.contains(query, ignoreCase = true) == true ||
+            item.tags?.any { it.contains(query, ignoreCase = true) } == true
+}
@@ -0,0 +1,89 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * Chat DAO
+ * 会話メッセージのキャッシュ（idのカーソルでページ単位に読む）と会話リストのキャッシュ
+ * メッセージのページは新しい順で返す（呼び出し側で古い順に並べ替える）
+ */
+@Dao
+interface ChatDao {
+
+    @Query("SELECT * FROM chat_messages WHERE conversation_id = :conversationId ORDER BY id DESC LIMIT :limit")
+    suspend fun getLatest(conversationId: Long, limit: Int): List<ChatMessageEntity>
+
+    @Query("SELECT * FROM chat_messages WHERE conversation_id = :conversationId AND id < :beforeId ORDER BY id DESC LIMIT :limit")
+    suspend fun getBefore(conversationId: Long, beforeId: Long, limit: Int): List<ChatMessageEntity>
+
+    @Query("SELECT MAX(id) FROM chat_messages WHERE conversation_id = :conversationId")
+    suspend fun getMaxId(conversationId: Long): Long?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertMessages(messages: List<ChatMessageEntity>)
+
+    @Query("DELETE FROM chat_messages WHERE conversation_id = :conversationId")
+    suspend fun deleteMessages(conversationId: Long)
+
+    @Query("SELECT * FROM chat_history_state WHERE conversation_id = :conversationId")
+    suspend fun getState(conversationId: Long): ChatHistoryStateEntity?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertState(state: ChatHistoryStateEntity)
+
+    @Query("DELETE FROM chat_history_state WHERE conversation_id = :conversationId")
+    suspend fun deleteState(conversationId: Long)
+
+    /**
+     * 会話のメッセージと履歴の状態を削除
+     */
+    @Transaction
+    suspend fun clearConversation(conversationId: Long) {
+        deleteMessages(conversationId)
+        deleteState(conversationId)
+    }
+
+    /**
+     * 最新側のページで置き換え（ローカルの続きが取得しきれないほど離れた時）
+     */
+    @Transaction
+    suspend fun replaceConversation(conversationId: Long, messages: List<ChatMessageEntity>, reachedStart: Boolean) {
+        deleteMessages(conversationId)
+        if (messages.isNotEmpty()) upsertMessages(messages)
+        upsertState(ChatHistoryStateEntity(conversationId, reachedStart))
+    }
+
+    @Query("SELECT * FROM chat_conversations WHERE status = :status ORDER BY COALESCE(last_message_at, created_at) DESC")
+    suspend fun getConversations(status: String): List<ChatConversationEntity>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertConversations(conversations: List<ChatConversationEntity>)
+
+    @Query("DELETE FROM chat_conversations WHERE status = :status")
+    suspend fun deleteConversations(status: String)
+
+    @Query("DELETE FROM chat_conversations WHERE id = :conversationId")
+    suspend fun deleteConversation(conversationId: Long)
+
+    /**
+     * 会話リストを取得結果で置き換え
+     */
+    @Transaction
+    suspend fun replaceConversations(status: String, conversations: List<ChatConversationEntity>) {
+        deleteConversations(status)
+        if (conversations.isNotEmpty()) upsertConversations(conversations)
+    }
+
+    /**
+     * 会話を削除（リスト・メッセージ・履歴の状態）
+     */
+    @Transaction
+    suspend fun deleteConversationCache(conversationId: Long) {
+        deleteConversation(conversationId)
+        clearConversation(conversationId)
+    }
+}
@@ -0,0 +1,109 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import ecccomp.s2240788.mobile_android.data.models.ChatConversation
+import ecccomp.s2240788.mobile_android.data.models.ChatMessage
+
+/**
+ * Chat Message Entity
+ * AIコーチの会話メッセージのローカルキャッシュ
+ * - 会話を開いた時は最新のページだけを読み、上にスクロールしたら古いページを読む（全件を読み込まない）
+ * - idはサーバーのメッセージID（作成順）なので、そのままページングのカーソルに使う
+ */
+@Entity(
+    tableName = "chat_messages",
+    indices = [Index(value = ["conversation_id", "id"])]
+)
+data class ChatMessageEntity(
+    @PrimaryKey val id: Long,
+    val conversation_id: Long,
+    val user_id: Long?,
+    val role: String,
+    val content: String,
+    // metadataはJSONのまま保持
+    val metadata_json: String?,
+    val token_count: Int?,
+    val created_at: String,
+    val updated_at: String?
+)
+
+/**
+ * Chat History State Entity
+ * 会話ごとの履歴の状態
+ * reached_start: 最初のメッセージまでローカルに保存済み（これ以上サーバーに古いページを問い合わせない）
+ */
+@Entity(tableName = "chat_history_state")
+data class ChatHistoryStateEntity(
+    @PrimaryKey val conversation_id: Long,
+    val reached_start: Boolean
+)
+
+/**
+ * Chat Conversation Entity
+ * 会話履歴ダイアログ用の会話リスト（メッセージは含まない）
+ */
+@Entity(tableName = "chat_conversations")
+data class ChatConversationEntity(
+    @PrimaryKey val id: Long,
+    val user_id: Long,
+    val title: String?,
+    val status: String,
+    val last_message_at: String?,
+    val message_count: Int,
+    val created_at: String,
+    val updated_at: String
+)
+
+// ==================== Mappers ====================
+
+private val metadataType = object : TypeToken<Map<String, Any>>() {}.type
+
+fun ChatMessage.toEntity(gson: Gson): ChatMessageEntity = ChatMessageEntity(
+    id = id,
+    conversation_id = conversation_id,
+    user_id = user_id,
+    role = role,
+    content = content,
+    metadata_json = metadata?.let { gson.toJson(it) },
+    token_count = token_count,
+    created_at = created_at,
+    updated_at = updated_at
+)
+
+fun ChatMessageEntity.toModel(gson: Gson): ChatMessage = ChatMessage(
+    id = id,
+    conversation_id = conversation_id,
+    user_id = user_id,
+    role = role,
+    content = content,
+    metadata = metadata_json?.let { gson.fromJson<Map<String, Any>>(it, metadataType) },
+    token_count = token_count,
+    created_at = created_at,
+    updated_at = updated_at
+)
+
+fun ChatConversation.toEntity(): ChatConversationEntity = ChatConversationEntity(
+    id = id,
+    user_id = user_id,
+    title = title,
+    status = status,
+    last_message_at = last_message_at,
+    message_count = message_count,
+    created_at = created_at,
+    updated_at = updated_at
+)
+
+fun ChatConversationEntity.toModel(): ChatConversation = ChatConversation(
+    id = id,
+    user_id = user_id,
+    title = title,
+    status = status,
+    last_message_at = last_message_at,
+    message_count = message_count,
+    created_at = created_at,
+    updated_at = updated_at
+)
@@ -0,0 +1,118 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * Cheat Code DAO
+ * チートコードのコンテンツパック（言語・セクション・例）と全文検索
+ */
+@Dao
+interface CheatCodeDao {
+
+    // ==================== Languages ====================
+
+    @Query("SELECT * FROM cheat_languages ORDER BY sort_index")
+    suspend fun getLanguages(): List<CheatLanguageEntity>
+
+    @Query("SELECT * FROM cheat_languages WHERE id = :languageId")
+    suspend fun getLanguage(languageId: Int): CheatLanguageEntity?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertLanguages(languages: List<CheatLanguageEntity>)
+
+    @Query("UPDATE cheat_languages SET installed_version = :version WHERE id = :languageId")
+    suspend fun setInstalledVersion(languageId: Int, version: String)
+
+    @Query("DELETE FROM cheat_languages WHERE id NOT IN (:languageIds)")
+    suspend fun deleteLanguagesNotIn(languageIds: List<Int>)
+
+    @Query("DELETE FROM cheat_sections WHERE language_id NOT IN (SELECT id FROM cheat_languages)")
+    suspend fun deleteOrphanSections()
+
+    @Query("DELETE FROM cheat_examples WHERE language_id NOT IN (SELECT id FROM cheat_languages)")
+    suspend fun deleteOrphanExamples()
+
+    /**
+     * パックの一覧で言語を置き換え（保存済みのパックのバージョンは残す。一覧から消えた言語のパックは削除）
+     */
+    @Transaction
+    suspend fun replaceLanguages(languages: List<CheatLanguageEntity>) {
+        deleteLanguagesNotIn(languages.map { it.id })
+        upsertLanguages(languages)
+        deleteOrphanSections()
+        deleteOrphanExamples()
+    }
+
+    // ==================== Sections & Examples ====================
+
+    @Query("SELECT * FROM cheat_sections WHERE language_id = :languageId ORDER BY sort_order, id")
+    suspend fun getSections(languageId: Int): List<CheatSectionEntity>
+
+    @Query("SELECT * FROM cheat_examples WHERE language_id = :languageId ORDER BY sort_order, id")
+    suspend fun getExamples(languageId: Int): List<CheatExampleEntity>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertSections(sections: List<CheatSectionEntity>)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertExamples(examples: List<CheatExampleEntity>)
+
+    @Query("DELETE FROM cheat_sections WHERE language_id = :languageId")
+    suspend fun deleteSections(languageId: Int)
+
+    @Query("DELETE FROM cheat_examples WHERE language_id = :languageId")
+    suspend fun deleteExamples(languageId: Int)
+
+    /**
+     * 1言語分のパックを置き換え（途中で失敗しても古いパックが残る）
+     */
+    @Transaction
+    suspend fun replacePack(
+        language: CheatLanguageEntity,
+        sections: List<CheatSectionEntity>,
+        examples: List<CheatExampleEntity>
+    ) {
+        deleteExamples(language.id)
+        deleteSections(language.id)
+        insertSections(sections)
+        insertExamples(examples)
+        upsertLanguages(listOf(language))
+    }
+
+    // ==================== Search ====================
+
+    /**
+     * 全文検索（:query はFTSのMATCH式。例: "array*" "map*"（すべての語の前方一致））
+     * セクション・例の並び順で返す
+     */
+    @Query(
+        """
+        SELECT e.* FROM cheat_examples e
+        JOIN cheat_examples_fts ON e.rowid = cheat_examples_fts.rowid
+        JOIN cheat_sections s ON s.id = e.section_id
+        WHERE cheat_examples_fts MATCH :query AND e.language_id = :languageId
+        ORDER BY s.sort_order, s.id, e.sort_order, e.id
+        """
+    )
+    suspend fun searchExamples(languageId: Int, query: String): List<CheatExampleEntity>
+
+    /**
+     * 部分一致の検索（単語の区切りがない日本語などFTSのトークンに分けられない場合。:patternの%_は\でエスケープ）
+     */
+    @Query(
+        """
+        SELECT e.* FROM cheat_examples e
+        JOIN cheat_sections s ON s.id = e.section_id
+        WHERE e.language_id = :languageId
+          AND (e.title LIKE :pattern ESCAPE '\' OR e.description LIKE :pattern ESCAPE '\'
+               OR e.code LIKE :pattern ESCAPE '\' OR e.tags LIKE :pattern ESCAPE '\'
+               OR e.section_title LIKE :pattern ESCAPE '\')
+        ORDER BY s.sort_order, s.id, e.sort_order, e.id
+        """
+    )
+    suspend fun searchExamplesLike(languageId: Int, pattern: String): List<CheatExampleEntity>
+}
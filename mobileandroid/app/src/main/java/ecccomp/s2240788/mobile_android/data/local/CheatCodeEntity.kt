@@ -0,0 +1,146 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import ecccomp.s2240788.mobile_android.data.models.CheatCodeLanguage
+import ecccomp.s2240788.mobile_android.data.models.CheatCodeSection
+import ecccomp.s2240788.mobile_android.data.models.CodeExample
+
+/**
+ * Cheat Code Language Entity
+ * チートコードの言語（パックの一覧から保存。言語一覧はここから表示する）
+ */
+@Entity(tableName = "cheat_languages")
+data class CheatLanguageEntity(
+    @PrimaryKey val id: Int,
+    val name: String,
+    val display_name: String,
+    val category: String,
+    // サーバーの並び順
+    val sort_index: Int,
+    // CheatCodeLanguage全体（JSON）
+    val language_json: String,
+    // サーバーの最新のパックのバージョン
+    val pack_version: String,
+    // 端末に保存済みのパックのバージョン（未取得ならnull）
+    val installed_version: String? = null
+)
+
+/**
+ * Cheat Code Section Entity
+ */
+@Entity(
+    tableName = "cheat_sections",
+    indices = [Index(value = ["language_id"])]
+)
+data class CheatSectionEntity(
+    @PrimaryKey val id: Int,
+    val language_id: Int,
+    val title: String,
+    val description: String?,
+    val sort_order: Int
+)
+
+/**
+ * Cheat Code Example Entity
+ * 全文検索（CheatExampleFts）の元になるため、セクション名も持つ
+ */
+@Entity(
+    tableName = "cheat_examples",
+    indices = [Index(value = ["language_id"]), Index(value = ["section_id"])]
+)
+data class CheatExampleEntity(
+    @PrimaryKey val id: Int,
+    val section_id: Int,
+    val language_id: Int,
+    val title: String,
+    val code: String,
+    val description: String?,
+    val output: String?,
+    // タグ（JSON配列）
+    val tags: String?,
+    val difficulty: String?,
+    val sort_order: Int,
+    val section_title: String
+)
+
+/**
+ * セクション名・例のタイトル・説明・コード・タグの全文検索インデックス
+ * cheat_examplesの変更はRoomのトリガーで自動的に反映される
+ */
+@Fts4(contentEntity = CheatExampleEntity::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "cheat_examples_fts")
+data class CheatExampleFts(
+    val title: String,
+    val code: String,
+    val description: String?,
+    val tags: String?,
+    val section_title: String
+)
+
+// ==================== Mappers ====================
+
+private val tagsType = object : TypeToken<List<String>>() {}.type
+
+fun CheatCodeLanguage.toEntity(gson: Gson, sortIndex: Int, packVersion: String, installedVersion: String?) =
+    CheatLanguageEntity(
+        id = id,
+        name = name,
+        display_name = displayName,
+        category = category,
+        sort_index = sortIndex,
+        language_json = gson.toJson(this),
+        pack_version = packVersion,
+        installed_version = installedVersion
+    )
+
+fun CheatLanguageEntity.toModel(gson: Gson): CheatCodeLanguage =
+    gson.fromJson(language_json, CheatCodeLanguage::class.java)
+
+fun CheatCodeSection.toEntity(languageId: Int) = CheatSectionEntity(
+    id = id,
+    language_id = languageId,
+    title = title,
+    description = description,
+    sort_order = sortOrder
+)
+
+fun CodeExample.toEntity(gson: Gson, languageId: Int, sectionTitle: String) = CheatExampleEntity(
+    id = id,
+    section_id = sectionId,
+    language_id = languageId,
+    title = title,
+    code = code,
+    description = description,
+    output = output,
+    tags = tags?.let { gson.toJson(it) },
+    difficulty = difficulty,
+    sort_order = sortOrder,
+    section_title = sectionTitle
+)
+
+fun CheatExampleEntity.toModel(gson: Gson) = CodeExample(
+    id = id,
+    sectionId = section_id,
+    title = title,
+    code = code,
+    description = description,
+    output = output,
+    tags = tags?.let { gson.fromJson<List<String>>(it, tagsType) },
+    difficulty = difficulty,
+    sortOrder = sort_order
+)
+
+fun CheatSectionEntity.toModel(examples: List<CodeExample>) = CheatCodeSection(
+    id = id,
+    languageId = language_id,
+    title = title,
+    description = description,
+    sortOrder = sort_order,
+    examples = examples
+)
@@ -0,0 +1,23 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+
+/**
+ * Code Draft DAO
+ * 演習のコードの下書き
+ */
+@Dao
+interface CodeDraftDao {
+
+    @Query("SELECT * FROM code_drafts WHERE language_id = :languageId AND exercise_id = :exerciseId")
+    suspend fun getDraft(languageId: Int, exerciseId: Int): CodeDraftEntity?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertDraft(draft: CodeDraftEntity)
+
+    @Query("DELETE FROM code_drafts WHERE language_id = :languageId AND exercise_id = :exerciseId")
+    suspend fun deleteDraft(languageId: Int, exerciseId: Int)
+}
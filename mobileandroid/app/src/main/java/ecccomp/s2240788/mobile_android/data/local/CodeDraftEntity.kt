@@ -0,0 +1,17 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+
+/**
+ * Code Draft Entity
+ * 演習のコードの下書き（編集中に自動保存し、次に開いた時に復元する）
+ */
+@Entity(tableName = "code_drafts", primaryKeys = ["language_id", "exercise_id"])
+data class CodeDraftEntity(
+    val language_id: Int,
+    val exercise_id: Int,
+    val code: String,
+    // 保存した時刻（wall clock, ms）
+    @ColumnInfo(name = "updated_at") val updatedAt: Long = System.currentTimeMillis()
+)
@@ -0,0 +1,33 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * Exercise Test Case DAO
+ * 演習のサンプルテストケース
+ */
+@Dao
+interface ExerciseTestCaseDao {
+
+    @Query("SELECT * FROM exercise_test_cases WHERE language_id = :languageId AND exercise_id = :exerciseId ORDER BY sort_order, id")
+    suspend fun getTestCases(languageId: Int, exerciseId: Int): List<ExerciseTestCaseEntity>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun insertTestCases(testCases: List<ExerciseTestCaseEntity>)
+
+    @Query("DELETE FROM exercise_test_cases WHERE language_id = :languageId AND exercise_id = :exerciseId")
+    suspend fun deleteTestCases(languageId: Int, exerciseId: Int)
+
+    /**
+     * サーバーから取得したテストケースで置き換え（削除されたテストケースを残さない）
+     */
+    @Transaction
+    suspend fun replaceTestCases(languageId: Int, exerciseId: Int, testCases: List<ExerciseTestCaseEntity>) {
+        deleteTestCases(languageId, exerciseId)
+        insertTestCases(testCases)
+    }
+}
@@ -0,0 +1,43 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import ecccomp.s2240788.mobile_android.data.models.ExerciseTestCase
+
+/**
+ * Exercise Test Case Entity
+ * 演習のサンプルテストケース（一度取得すればオフラインでも端末上で実行できる）
+ */
+@Entity(
+    tableName = "exercise_test_cases",
+    indices = [Index(value = ["language_id", "exercise_id"])]
+)
+data class ExerciseTestCaseEntity(
+    @PrimaryKey val id: Int,
+    val language_id: Int,
+    val exercise_id: Int,
+    val input: String,
+    @ColumnInfo(name = "expected_output") val expectedOutput: String,
+    val description: String?,
+    @ColumnInfo(name = "sort_order") val sortOrder: Int
+)
+
+fun ExerciseTestCase.toEntity(languageId: Int, exerciseId: Int) = ExerciseTestCaseEntity(
+    id = id,
+    language_id = languageId,
+    exercise_id = exerciseId,
+    input = input,
+    expectedOutput = expectedOutput,
+    description = description,
+    sortOrder = sortOrder
+)
+
+fun ExerciseTestCaseEntity.toModel() = ExerciseTestCase(
+    id = id,
+    input = input,
+    expectedOutput = expectedOutput,
+    description = description,
+    sortOrder = sortOrder
+)
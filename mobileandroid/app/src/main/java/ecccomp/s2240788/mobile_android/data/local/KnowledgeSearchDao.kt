@@ -0,0 +1,83 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * Knowledge Search DAO
+ * 知識アイテムの検索用テキストと全文検索
+ */
+@Dao
+interface KnowledgeSearchDao {
+
+    @Query("SELECT id FROM knowledge_search")
+    suspend fun getIds(): List<Int>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsert(entries: List<KnowledgeSearchEntity>)
+
+    @Query("DELETE FROM knowledge_search WHERE id IN (:ids)")
+    suspend fun delete(ids: List<Int>)
+
+    @Query("DELETE FROM knowledge_search")
+    suspend fun clear()
+
+    /**
+     * 差分を適用（upsert + tombstone削除）
+     */
+    @Transaction
+    suspend fun applyChanges(entries: List<KnowledgeSearchEntity>, deletedIds: List<Int>) {
+        if (entries.isNotEmpty()) upsert(entries)
+        deletedIds.forEachQueryChunk { delete(it) }
+    }
+
+    /**
+     * フルスナップショットで置き換え
+     * スナップショットにないアイテムは、端末のIDと比べて分けて削除（NOT IN (:keepIds) は変数の上限を超えるため）
+     */
+    @Transaction
+    suspend fun replaceAll(entries: List<KnowledgeSearchEntity>) {
+        if (entries.isEmpty()) {
+            clear()
+            return
+        }
+        val keepIds = entries.mapTo(HashSet()) { it.id }
+        getIds().filter { it !in keepIds }.forEachQueryChunk { delete(it) }
+        upsert(entries)
+    }
+
+    /**
+     * 全文検索（:query はFTSのMATCH式。例: "kotlin*" "flow*"（すべての語の前方一致））
+     * 並び替えはmatchinfoからKnowledgeSearchIndexで行う
+     */
+    @Query(
+        """
+        SELECT rowid AS id, matchinfo(knowledge_search_fts, 'pcx') AS matchinfo
+        FROM knowledge_search_fts
+        WHERE knowledge_search_fts MATCH :query
+        """
+    )
+    suspend fun search(query: String): List<KnowledgeSearchMatch>
+
+    /**
+     * 部分一致の検索（単語の区切りがない日本語などFTSのトークンに分けられない場合。:patternの%_は\でエスケープ）
+     * 一致した列の重み（タイトル3・タグ2・本文1）の合計が大きい順
+     */
+    @Query(
+        """
+        SELECT id, score FROM (
+            SELECT id,
+                (CASE WHEN title LIKE :pattern ESCAPE '\' THEN 3.0 ELSE 0 END
+                 + CASE WHEN tags LIKE :pattern ESCAPE '\' THEN 2.0 ELSE 0 END
+                 + CASE WHEN content LIKE :pattern ESCAPE '\' THEN 1.0 ELSE 0 END) AS score
+            FROM knowledge_search
+        )
+        WHERE score > 0
+        ORDER BY score DESC
+        """
+    )
+    suspend fun searchLike(pattern: String): List<KnowledgeSearchScore>
+}
@@ -0,0 +1,62 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+import androidx.room.PrimaryKey
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+
+/**
+ * Knowledge Search Entity
+ * 知識アイテムの検索用テキスト（同期キャッシュ sync_records の知識アイテムと同じ内容をSyncEngineが保存する）
+ * idはrowidと同じになるため、全文検索（KnowledgeSearchFts）の結果をそのままアイテムIDとして使える
+ */
+@Entity(tableName = "knowledge_search")
+data class KnowledgeSearchEntity(
+    @PrimaryKey val id: Int,
+    val title: String,
+    // タグ（スペース区切り）
+    val tags: String,
+    // 本文・質問・答え・URLをまとめたもの
+    val content: String
+)
+
+/**
+ * タイトル・タグ・本文の全文検索インデックス
+ * knowledge_searchの変更はRoomのトリガーで自動的に反映される
+ * 列の順番はランキングの重み（KnowledgeSearchIndex）と対応している
+ */
+@Fts4(contentEntity = KnowledgeSearchEntity::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "knowledge_search_fts")
+data class KnowledgeSearchFts(
+    val title: String,
+    val tags: String,
+    val content: String
+)
+
+/**
+ * 全文検索の一致情報（matchinfo 'pcx'）
+ */
+class KnowledgeSearchMatch(
+    val id: Int,
+    val matchinfo: ByteArray
+)
+
+/**
+ * 部分一致の検索結果（一致した列の重みの合計）
+ */
+data class KnowledgeSearchScore(
+    val id: Int,
+    val score: Double
+)
+
+// ==================== Mappers ====================
+
+fun KnowledgeItem.toSearchEntity() = KnowledgeSearchEntity(
+    id = id,
+    title = title,
+    tags = tags.orEmpty().joinToString(" "),
+    content = listOfNotNull(content, question, answer, url)
+        .filter { it.isNotBlank() }
+        .joinToString("\n")
+)
@@ -0,0 +1,45 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import kotlinx.coroutines.flow.Flow
+
+/**
+ * Mutation DAO
+ * 送信キューの操作
+ */
+@Dao
+interface MutationDao {
+
+    @Query("SELECT * FROM pending_mutations ORDER BY seq ASC LIMIT :limit")
+    suspend fun getBatch(limit: Int): List<PendingMutationEntity>
+
+    @Query("SELECT COUNT(*) FROM pending_mutations")
+    suspend fun count(): Int
+
+    @Query("SELECT * FROM pending_mutations WHERE type IN (:types) ORDER BY seq ASC")
+    suspend fun getByTypes(types: List<String>): List<PendingMutationEntity>
+
+    @Query("SELECT COUNT(*) FROM pending_mutations")
+    fun observeCount(): Flow<Int>
+
+    /**
+     * 同じ対象に最後に積まれた操作（typesのいずれか）
+     */
+    @Query("SELECT * FROM pending_mutations WHERE type IN (:types) AND target_id = :targetId ORDER BY seq DESC LIMIT 1")
+    suspend fun findLatest(types: List<String>, targetId: Int): PendingMutationEntity?
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insert(mutation: PendingMutationEntity): Long
+
+    @Query("DELETE FROM pending_mutations WHERE seq IN (:seqs)")
+    suspend fun delete(seqs: List<Long>)
+
+    @Query("UPDATE pending_mutations SET attempts = attempts + 1 WHERE seq IN (:seqs)")
+    suspend fun incrementAttempts(seqs: List<Long>)
+
+    @Query("UPDATE pending_mutations SET sent = 1 WHERE seq IN (:seqs)")
+    suspend fun markSent(seqs: List<Long>)
+}
@@ -0,0 +1,31 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * Pending Mutation Entity
+ * オフライン時にも失われないようにローカルに溜めておく送信待ちの操作（送信キュー）
+ * - seqの順にサーバーへ再送する
+ * - idempotency_keyはサーバー側で二重適用を防ぐためのキー（再送しても同じキー）
+ * - 通信エラーでは諦めない（attemptsはサーバーが一括リクエスト自体を4xxで拒否した回数）
+ */
+@Entity(
+    tableName = "pending_mutations",
+    indices = [Index(value = ["idempotency_key"], unique = true)]
+)
+data class PendingMutationEntity(
+    @PrimaryKey(autoGenerate = true) val seq: Long = 0,
+    val idempotency_key: String,
+    val type: String,
+    // サーバーに送るpayload（JSON）
+    val payload: String,
+    // 操作対象のID（同じサブタスクのトグルを相殺するために使用）
+    val target_id: Int?,
+    val created_at: Long = System.currentTimeMillis(),
+    val attempts: Int = 0,
+    // 一度でも送信したか（応答がなくてもサーバーで適用済みの可能性があるため、相殺しない）
+    @ColumnInfo(defaultValue = "0") val sent: Boolean = false
+)
@@ -0,0 +1,20 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+/**
+ * 1回のクエリで使うバインド変数の上限
+ * API 30未満のSQLiteは999個までのため、IN (:ids) に渡すIDはこの件数ごとに分けて実行する
+ */
+internal const val MAX_QUERY_VARIABLES = 900
+
+/**
+ * 上限以下の件数に分けて順に処理する
+ * @Transactionのメソッドの中で呼べば、分けたクエリも含めて1つのトランザクションになる
+ */
+internal inline fun <T> Collection<T>.forEachQueryChunk(action: (List<T>) -> Unit) {
+    if (isEmpty()) return
+    if (size <= MAX_QUERY_VARIABLES) {
+        action(toList())
+        return
+    }
+    chunked(MAX_QUERY_VARIABLES).forEach(action)
+}
@@ -0,0 +1,123 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeCategory
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+
+/**
+ * Review Card Entity
+ * 復習キュー用に先読みしたナレッジアイテム（オフラインでも復習できるよう本文も保存）
+ * - review_count / next_review_date は端末のSrsSchedulerが更新する（サーバーとは同じ計算）
+ */
+@Entity(
+    tableName = "review_cards",
+    indices = [Index(value = ["next_review_date"])]
+)
+data class ReviewCardEntity(
+    @PrimaryKey val id: Int,
+    val user_id: Int,
+    val category_id: Int?,
+    val category_name: String?,
+    val title: String,
+    val item_type: String,
+    val content: String?,
+    val code_language: String?,
+    val question: String?,
+    val answer: String?,
+    val difficulty: String?,
+    val review_count: Int,
+    val last_reviewed_at: String?,
+    // yyyy-MM-dd（文字列のまま比較できる）
+    val next_review_date: String?,
+    val created_at: String,
+    val updated_at: String,
+    @ColumnInfo(name = "cached_at") val cachedAt: Long = System.currentTimeMillis()
+)
+
+/**
+ * Pending Review Entity
+ * サーバーに送っていない採点（seqの順に一括送信する）
+ */
+@Entity(
+    tableName = "pending_reviews",
+    indices = [Index(value = ["idempotency_key"], unique = true)]
+)
+data class PendingReviewEntity(
+    @PrimaryKey(autoGenerate = true) val seq: Long = 0,
+    val idempotency_key: String,
+    val item_id: Int,
+    val quality: String,
+    val reviewed_at: String,
+    val attempts: Int = 0
+)
+
+// ==================== Mappers ====================
+
+fun KnowledgeItem.toReviewCardEntity(): ReviewCardEntity = ReviewCardEntity(
+    id = id,
+    user_id = user_id,
+    category_id = category_id,
+    category_name = category?.name,
+    title = title,
+    item_type = item_type,
+    content = content,
+    code_language = code_language,
+    question = question,
+    answer = answer,
+    difficulty = difficulty,
+    review_count = review_count,
+    last_reviewed_at = last_reviewed_at,
+    next_review_date = next_review_date?.take(10),
+    created_at = created_at,
+    updated_at = updated_at
+)
+
+fun ReviewCardEntity.toModel(): KnowledgeItem = KnowledgeItem(
+    id = id,
+    user_id = user_id,
+    category_id = category_id,
+    title = title,
+    item_type = item_type,
+    content = content,
+    code_language = code_language,
+    url = null,
+    question = question,
+    answer = answer,
+    difficulty = difficulty,
+    attachment_path = null,
+    attachment_mime = null,
+    attachment_size = null,
+    tags = null,
+    learning_path_id = null,
+    source_task_id = null,
+    review_count = review_count,
+    last_reviewed_at = last_reviewed_at,
+    next_review_date = next_review_date,
+    retention_score = null,
+    ai_summary = null,
+    view_count = 0,
+    is_favorite = false,
+    is_archived = false,
+    created_at = created_at,
+    updated_at = updated_at,
+    category = if (category_id != null && category_name != null) {
+        KnowledgeCategory(
+            id = category_id,
+            user_id = user_id,
+            parent_id = null,
+            name = category_name,
+            description = null,
+            sort_order = 0,
+            color = null,
+            icon = null,
+            item_count = 0,
+            created_at = "",
+            updated_at = ""
+        )
+    } else {
+        null
+    }
+)
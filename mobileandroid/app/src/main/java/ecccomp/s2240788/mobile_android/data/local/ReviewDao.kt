@@ -0,0 +1,88 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+
+/**
+ * Review DAO
+ * 復習キュー（先読みしたカード）と未送信の採点
+ */
+@Dao
+interface ReviewDao {
+
+    /**
+     * 期限が来たカード（期限の古い順）
+     * @param today yyyy-MM-dd
+     */
+    @Query("SELECT * FROM review_cards WHERE next_review_date IS NOT NULL AND next_review_date <= :today ORDER BY next_review_date ASC, id ASC")
+    suspend fun getDue(today: String): List<ReviewCardEntity>
+
+    @Query("SELECT * FROM review_cards WHERE id = :id")
+    suspend fun getCard(id: Int): ReviewCardEntity?
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertCards(cards: List<ReviewCardEntity>)
+
+    @Query("SELECT id FROM review_cards")
+    suspend fun getCardIds(): List<Int>
+
+    @Query("DELETE FROM review_cards")
+    suspend fun deleteAllCards()
+
+    @Query("DELETE FROM review_cards WHERE id IN (:ids)")
+    suspend fun deleteCards(ids: List<Int>)
+
+    @Query("UPDATE review_cards SET review_count = :reviewCount, next_review_date = :nextReviewDate, last_reviewed_at = :reviewedAt WHERE id = :id")
+    suspend fun updateSchedule(id: Int, reviewCount: Int, nextReviewDate: String, reviewedAt: String)
+
+    /**
+     * サーバーの一覧で置き換え
+     * 未送信の採点があるカードは端末の予定を優先する（送信後にサーバーと一致する）
+     * 一覧にないカードは端末のIDと比べて分けて削除（NOT IN (:keepIds) は変数の上限を超えるため）
+     */
+    @Transaction
+    suspend fun replaceCards(cards: List<ReviewCardEntity>, pendingItemIds: Set<Int>) {
+        val localById = if (pendingItemIds.isEmpty()) emptyMap() else {
+            pendingItemIds.mapNotNull { getCard(it) }.associateBy { it.id }
+        }
+        val merged = cards.map { card ->
+            localById[card.id]?.let { local ->
+                card.copy(
+                    review_count = local.review_count,
+                    next_review_date = local.next_review_date,
+                    last_reviewed_at = local.last_reviewed_at
+                )
+            } ?: card
+        }
+        if (merged.isEmpty() && localById.isEmpty()) {
+            deleteAllCards()
+        } else {
+            val keepIds = merged.mapTo(HashSet()) { it.id } + localById.keys
+            getCardIds().filter { it !in keepIds }.forEachQueryChunk { deleteCards(it) }
+        }
+        upsertCards(merged)
+    }
+
+    // ==================== Pending reviews ====================
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insertPending(review: PendingReviewEntity): Long
+
+    @Query("SELECT * FROM pending_reviews ORDER BY seq ASC LIMIT :limit")
+    suspend fun getPendingBatch(limit: Int): List<PendingReviewEntity>
+
+    @Query("SELECT DISTINCT item_id FROM pending_reviews")
+    suspend fun getPendingItemIds(): List<Int>
+
+    @Query("SELECT COUNT(*) FROM pending_reviews")
+    suspend fun pendingCount(): Int
+
+    @Query("DELETE FROM pending_reviews WHERE seq IN (:seqs)")
+    suspend fun deletePending(seqs: List<Long>)
+
+    @Query("UPDATE pending_reviews SET attempts = attempts + 1 WHERE seq IN (:seqs)")
+    suspend fun incrementAttempts(seqs: List<Long>)
+}
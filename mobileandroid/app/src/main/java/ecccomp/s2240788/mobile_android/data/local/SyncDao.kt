@@ -0,0 +1,70 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import kotlinx.coroutines.flow.Flow
+
+/**
+ * Sync DAO
+ * 汎用レコードキャッシュとwatermarkの操作
+ */
+@Dao
+interface SyncDao {
+
+    @Query("SELECT * FROM sync_records WHERE entity = :entity")
+    suspend fun getRecords(entity: String): List<SyncRecordEntity>
+
+    @Query("SELECT * FROM sync_records WHERE entity = :entity")
+    fun observeRecords(entity: String): Flow<List<SyncRecordEntity>>
+
+    @Query("SELECT id FROM sync_records WHERE entity = :entity")
+    suspend fun getIds(entity: String): List<Int>
+
+    @Query("SELECT COUNT(*) FROM sync_records WHERE entity = :entity")
+    suspend fun count(entity: String): Int
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertRecords(records: List<SyncRecordEntity>)
+
+    @Query("DELETE FROM sync_records WHERE entity = :entity AND id IN (:ids)")
+    suspend fun deleteRecords(entity: String, ids: List<Int>)
+
+    @Query("DELETE FROM sync_records WHERE entity = :entity")
+    suspend fun clearRecords(entity: String)
+
+    /**
+     * 差分を適用（upsert + tombstone削除）
+     */
+    @Transaction
+    suspend fun applyChanges(entity: String, records: List<SyncRecordEntity>, deletedIds: List<Int>) {
+        if (records.isNotEmpty()) upsertRecords(records)
+        deletedIds.forEachQueryChunk { deleteRecords(entity, it) }
+    }
+
+    /**
+     * フルスナップショットで置き換え
+     * スナップショットにないレコードは、端末のIDと比べて分けて削除（NOT IN (:keepIds) は変数の上限を超えるため）
+     */
+    @Transaction
+    suspend fun replaceAll(entity: String, records: List<SyncRecordEntity>) {
+        if (records.isEmpty()) {
+            clearRecords(entity)
+            return
+        }
+        val keepIds = records.mapTo(HashSet()) { it.id }
+        getIds(entity).filter { it !in keepIds }.forEachQueryChunk { deleteRecords(entity, it) }
+        upsertRecords(records)
+    }
+
+    @Query("SELECT * FROM sync_state")
+    suspend fun getStates(): List<SyncStateEntity>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertStates(states: List<SyncStateEntity>)
+
+    @Query("DELETE FROM sync_state WHERE entity IN (:entities)")
+    suspend fun clearStates(entities: List<String>)
+}
@@ -0,0 +1,26 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * Sync Record Entity
+ * 差分同期で取得したレコード（知識・通知・時間割）をJSONのまま保持する汎用キャッシュ
+ * タスクは専用テーブル（TaskEntity）を使用
+ */
+@Entity(tableName = "sync_records", primaryKeys = ["entity", "id"])
+data class SyncRecordEntity(
+    val entity: String,
+    val id: Int,
+    val json: String
+)
+
+/**
+ * Sync State Entity
+ * エンティティごとのwatermark（サーバーが返した同期時刻）
+ */
+@Entity(tableName = "sync_state")
+data class SyncStateEntity(
+    @PrimaryKey val entity: String,
+    val watermark: String
+)
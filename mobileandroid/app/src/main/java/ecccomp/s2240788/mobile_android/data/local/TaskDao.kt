@@ -0,0 +1,99 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import kotlinx.coroutines.flow.Flow
+
+/**
+ * Task DAO
+ * タスク・サブタスクのローカルキャッシュ操作
+ */
+@Dao
+interface TaskDao {
+
+    @Transaction
+    @Query("SELECT * FROM tasks ORDER BY id DESC")
+    suspend fun getAllWithSubtasks(): List<TaskWithSubtasks>
+
+    @Transaction
+    @Query("SELECT * FROM tasks ORDER BY id DESC")
+    fun observeAllWithSubtasks(): Flow<List<TaskWithSubtasks>>
+
+    @Transaction
+    @Query("SELECT * FROM tasks WHERE id = :id")
+    suspend fun getWithSubtasks(id: Int): TaskWithSubtasks?
+
+    @Query("SELECT id FROM tasks")
+    suspend fun getTaskIds(): List<Int>
+
+    @Query("SELECT COUNT(*) FROM tasks")
+    suspend fun count(): Int
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertTasks(tasks: List<TaskEntity>)
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertSubtasks(subtasks: List<SubtaskEntity>)
+
+    @Query("UPDATE tasks SET status = :status WHERE id = :id")
+    suspend fun updateStatus(id: Int, status: String)
+
+    @Query("UPDATE subtasks SET is_completed = NOT is_completed WHERE id = :id")
+    suspend fun toggleSubtask(id: Int)
+
+    @Query("UPDATE subtasks SET is_completed = 1 WHERE id = :id")
+    suspend fun markSubtaskCompleted(id: Int)
+
+    @Query("SELECT task_id FROM subtasks WHERE id = :subtaskId")
+    suspend fun getSubtaskTaskId(subtaskId: Int): Int?
+
+    @Query("DELETE FROM tasks WHERE id = :id")
+    suspend fun deleteTask(id: Int)
+
+    @Query("DELETE FROM tasks WHERE id IN (:ids)")
+    suspend fun deleteTasks(ids: List<Int>)
+
+    @Query("DELETE FROM subtasks WHERE task_id IN (:taskIds)")
+    suspend fun deleteSubtasksOf(taskIds: List<Int>)
+
+    @Query("DELETE FROM tasks")
+    suspend fun clearTasks()
+
+    /**
+     * サーバーのスナップショットでローカルを同期
+     * - 全削除せずに差分で置き換えるため、Flowの購読側で一瞬空になることはない
+     * - スナップショットに含まれないタスクは削除（サブタスクはCASCADE）
+     *   （NOT IN (:keepIds) は変数の上限を超えるため、端末のIDと比べて消すものだけを分けて削除）
+     */
+    @Transaction
+    suspend fun reconcile(tasks: List<TaskEntity>, subtasks: List<SubtaskEntity>) {
+        if (tasks.isEmpty()) {
+            clearTasks()
+            return
+        }
+        val ids = tasks.map { it.id }
+        val keepIds = ids.toHashSet()
+        getTaskIds().filter { it !in keepIds }.forEachQueryChunk { deleteTasks(it) }
+        upsertTasks(tasks)
+        ids.forEachQueryChunk { deleteSubtasksOf(it) }
+        upsertSubtasks(subtasks)
+    }
+
+    /**
+     * 差分同期の結果を適用
+     * - 更新されたタスクはサブタスクごと置き換え
+     * - tombstoneのタスクは削除（サブタスクはCASCADE）
+     */
+    @Transaction
+    suspend fun applyChanges(tasks: List<TaskEntity>, subtasks: List<SubtaskEntity>, deletedIds: List<Int>) {
+        if (tasks.isNotEmpty()) {
+            upsertTasks(tasks)
+            tasks.map { it.id }.forEachQueryChunk { deleteSubtasksOf(it) }
+            upsertSubtasks(subtasks)
+        }
+        deletedIds.forEachQueryChunk { deleteTasks(it) }
+    }
+}
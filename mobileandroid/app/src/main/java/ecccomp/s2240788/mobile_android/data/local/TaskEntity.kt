@@ -0,0 +1,178 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import androidx.room.ColumnInfo
+import androidx.room.Embedded
+import androidx.room.Entity
+import androidx.room.ForeignKey
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import androidx.room.Relation
+import ecccomp.s2240788.mobile_android.data.models.Subtask
+import ecccomp.s2240788.mobile_android.data.models.Task
+
+/**
+ * Task Entity
+ * APIから取得したタスクのローカルキャッシュ（オフライン表示用）
+ */
+@Entity(tableName = "tasks")
+data class TaskEntity(
+    @PrimaryKey val id: Int,
+    val title: String,
+    val category: String?,
+    val description: String?,
+    val status: String,
+    val priority: Int,
+    val energy_level: String,
+    val estimated_minutes: Int?,
+    val deadline: String?,
+    val scheduled_time: String?,
+    val created_at: String,
+    val updated_at: String,
+    val user_id: Int,
+    val project_id: Int?,
+    val learning_milestone_id: Int?,
+    val learning_path_id: Int?,
+    val ai_breakdown_enabled: Boolean,
+    val requires_deep_focus: Boolean,
+    val allow_interruptions: Boolean,
+    val focus_difficulty: Int,
+    val warmup_minutes: Int?,
+    val cooldown_minutes: Int?,
+    val recovery_minutes: Int?,
+    val last_focus_at: String?,
+    val total_focus_minutes: Int,
+    val distraction_count: Int,
+    val last_active_at: String?,
+    val is_abandoned: Boolean,
+    val abandonment_count: Int,
+    val remaining_minutes: Int?,
+    // ローカルに書き込んだ時刻（SystemClockではなくwall clock, ms）
+    @ColumnInfo(name = "cached_at") val cachedAt: Long = System.currentTimeMillis()
+)
+
+/**
+ * Subtask Entity
+ * 親タスク削除時はCASCADEで一緒に削除される
+ */
+@Entity(
+    tableName = "subtasks",
+    foreignKeys = [
+        ForeignKey(
+            entity = TaskEntity::class,
+            parentColumns = ["id"],
+            childColumns = ["task_id"],
+            onDelete = ForeignKey.CASCADE
+        )
+    ],
+    indices = [Index("task_id")]
+)
+data class SubtaskEntity(
+    @PrimaryKey val id: Int,
+    val task_id: Int,
+    val title: String,
+    val is_completed: Boolean,
+    val estimated_minutes: Int?,
+    val sort_order: Int,
+    val created_at: String,
+    val updated_at: String
+)
+
+/**
+ * Task + Subtasks (Room @Relation)
+ */
+data class TaskWithSubtasks(
+    @Embedded val task: TaskEntity,
+    @Relation(parentColumn = "id", entityColumn = "task_id")
+    val subtasks: List<SubtaskEntity>
+)
+
+// ==================== Mappers ====================
+
+fun Task.toEntity(): TaskEntity = TaskEntity(
+    id = id,
+    title = title,
+    category = category,
+    description = description,
+    status = status,
+    priority = priority,
+    energy_level = energy_level,
+    estimated_minutes = estimated_minutes,
+    deadline = deadline,
+    scheduled_time = scheduled_time,
+    created_at = created_at,
+    updated_at = updated_at,
+    user_id = user_id,
+    project_id = project_id,
+    learning_milestone_id = learning_milestone_id,
+    learning_path_id = learning_path_id,
+    ai_breakdown_enabled = ai_breakdown_enabled,
+    requires_deep_focus = requires_deep_focus,
+    allow_interruptions = allow_interruptions,
+    focus_difficulty = focus_difficulty,
+    warmup_minutes = warmup_minutes,
+    cooldown_minutes = cooldown_minutes,
+    recovery_minutes = recovery_minutes,
+    last_focus_at = last_focus_at,
+    total_focus_minutes = total_focus_minutes,
+    distraction_count = distraction_count,
+    last_active_at = last_active_at,
+    is_abandoned = is_abandoned,
+    abandonment_count = abandonment_count,
+    remaining_minutes = remaining_minutes
+)
+
+fun Subtask.toEntity(): SubtaskEntity = SubtaskEntity(
+    id = id,
+    task_id = task_id,
+    title = title,
+    is_completed = is_completed,
+    estimated_minutes = estimated_minutes,
+    sort_order = sort_order,
+    created_at = created_at,
+    updated_at = updated_at
+)
+
+fun SubtaskEntity.toModel(): Subtask = Subtask(
+    id = id,
+    task_id = task_id,
+    title = title,
+    is_completed = is_completed,
+    estimated_minutes = estimated_minutes,
+    sort_order = sort_order,
+    created_at = created_at,
+    updated_at = updated_at
+)
+
+fun TaskWithSubtasks.toModel(): Task = Task(
+    id = task.id,
+    title = task.title,
+    category = task.category,
+    description = task.description,
+    status = task.status,
+    priority = task.priority,
+    energy_level = task.energy_level,
+    estimated_minutes = task.estimated_minutes,
+    deadline = task.deadline,
+    scheduled_time = task.scheduled_time,
+    created_at = task.created_at,
+    updated_at = task.updated_at,
+    user_id = task.user_id,
+    project_id = task.project_id,
+    learning_milestone_id = task.learning_milestone_id,
+    learning_path_id = task.learning_path_id,
+    ai_breakdown_enabled = task.ai_breakdown_enabled,
+    requires_deep_focus = task.requires_deep_focus,
+    allow_interruptions = task.allow_interruptions,
+    focus_difficulty = task.focus_difficulty,
+    warmup_minutes = task.warmup_minutes,
+    cooldown_minutes = task.cooldown_minutes,
+    recovery_minutes = task.recovery_minutes,
+    last_focus_at = task.last_focus_at,
+    total_focus_minutes = task.total_focus_minutes,
+    distraction_count = task.distraction_count,
+    last_active_at = task.last_active_at,
+    is_abandoned = task.is_abandoned,
+    abandonment_count = task.abandonment_count,
+    remaining_minutes = task.remaining_minutes,
+    subtasks = subtasks.sortedBy { it.sort_order }.map { it.toModel() }
+)
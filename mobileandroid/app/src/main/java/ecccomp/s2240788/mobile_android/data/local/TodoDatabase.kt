@@ -0,0 +1,123 @@
+package ecccomp.s2240788.mobile_android.data.local
+
+import android.content.Context
+import android.util.Log
+import androidx.room.Database
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * TodoDatabase
+ * オフライン表示用のローカルDB（Room）
+ * Applicationクラスでinit()を呼び出すこと
+ */
+@Database(
+    entities = [
+        TaskEntity::class,
+        SubtaskEntity::class,
+        SyncRecordEntity::class,
+        SyncStateEntity::class,
+        PendingMutationEntity::class,
+        ReviewCardEntity::class,
+        PendingReviewEntity::class,
+        ChatMessageEntity::class,
+        ChatHistoryStateEntity::class,
+        ChatConversationEntity::class,
+        CodeDraftEntity::class,
+        ExerciseTestCaseEntity::class,
+        CheatLanguageEntity::class,
+        CheatSectionEntity::class,
+        CheatExampleEntity::class,
+        CheatExampleFts::class,
+        KnowledgeSearchEntity::class,
+        KnowledgeSearchFts::class
+    ],
+    version = 10,
+    exportSchema = false
+)
+abstract class TodoDatabase : RoomDatabase() {
+
+    abstract fun taskDao(): TaskDao
+
+    abstract fun syncDao(): SyncDao
+
+    abstract fun mutationDao(): MutationDao
+
+    abstract fun reviewDao(): ReviewDao
+
+    abstract fun chatDao(): ChatDao
+
+    abstract fun codeDraftDao(): CodeDraftDao
+
+    abstract fun exerciseTestCaseDao(): ExerciseTestCaseDao
+
+    abstract fun cheatCodeDao(): CheatCodeDao
+
+    abstract fun knowledgeSearchDao(): KnowledgeSearchDao
+
+    companion object {
+        private const val DATABASE_NAME = "todo_local.db"
+
+        /**
+         * 送信キューに送信済みフラグを追加
+         * 送信待ちの操作（オフライン中の編集）を消さないように、作り直さずに移行する
+         */
+        private val MIGRATION_9_10 = object : Migration(9, 10) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("ALTER TABLE pending_mutations ADD COLUMN sent INTEGER NOT NULL DEFAULT 0")
+                // 以前は送信のたびにattemptsを増やしていたため、送信済みとして扱う
+                db.execSQL("UPDATE pending_mutations SET sent = 1, attempts = 0 WHERE attempts > 0")
+            }
+        }
+
+        @Volatile
+        private var instance: TodoDatabase? = null
+
+        /**
+         * 初期化関数 - Applicationから呼び出す
+         * Room自体は最初のクエリ時にDBを開くため、ここではI/Oは発生しない
+         */
+        fun init(context: Context) {
+            getInstance(context)
+        }
+
+        fun getInstance(context: Context): TodoDatabase {
+            return instance ?: synchronized(this) {
+                instance ?: Room.databaseBuilder(
+                    context.applicationContext,
+                    TodoDatabase::class.java,
+                    DATABASE_NAME
+                )
+                    .addMigrations(MIGRATION_9_10)
+                    // キャッシュDBなのでスキーマ変更時は作り直す（サーバーから再取得される）
+                    .fallbackToDestructiveMigration()
+                    .build()
+                    .also { instance = it }
+            }
+        }
+
+        /**
+         * ログアウト時にユーザーのキャッシュをすべて削除
+         * タスク・送信キュー・同期のwatermark・復習キュー・チャット・下書きなどが対象
+         * （次にログインしたユーザーに前のユーザーのデータが表示されたり、送信キューが新しいトークンで再送されたりしないように）
+         * ログアウト操作・設定画面・401での自動ログアウトのすべてから呼ぶ
+         * ブロッキング処理なのでメインスレッド以外から呼ぶこと
+         */
+        fun clearUserData() {
+            try {
+                instance?.clearAllTables()
+            } catch (e: Exception) {
+                Log.e("TodoDatabase", "Failed to clear local cache", e)
+            }
+        }
+
+        /**
+         * init()済みのインスタンスを取得（ViewModelなどContextを持たない場所から使用）
+         */
+        fun get(): TodoDatabase {
+            return instance ?: throw IllegalStateException("TodoDatabase is not initialized. Call TodoDatabase.init() in Application.")
+        }
+    }
+}
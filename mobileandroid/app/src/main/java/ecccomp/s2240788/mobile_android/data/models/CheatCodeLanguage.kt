@@ -112,6 +112,30 @@ data class CheatCodeSectionsResponse(
     val sections: List<CheatCodeSection>
 )
 
+/**
+ * CheatCodePack
+ * 言語ごとのコンテンツパック（言語・セクション・例をすべて含む。端末に保存してオフラインで表示する）
+ */
+data class CheatCodePack(
+    val version: String,
+    val language: CheatCodeLanguage,
+    val sections: List<CheatCodeSection>
+)
+
+/**
+ * CheatCodePackInfo
+ * パックの一覧の1件（最新のバージョン・サイズ）
+ */
+data class CheatCodePackInfo(
+    val language: CheatCodeLanguage,
+    val version: String,
+    val size: Long = 0
+)
+
+data class CheatCodePackManifest(
+    val packs: List<CheatCodePackInfo>
+)
+
 /**
  * ExerciseListResponse
  * 練習問題リストのレスポンス
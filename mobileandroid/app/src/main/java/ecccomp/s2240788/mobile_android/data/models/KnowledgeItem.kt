@@ -172,6 +172,25 @@ data class CloneKnowledgeRequest(
     val category_id: Int? = null
 )
 
+/**
+ * Cursor Paging Models
+ * Backend (paginate=cursor): { success: true, data: [...], pagination: { next_cursor, ... } }
+ * dataとpaginationが同じ階層のため、ApiResponse<T>ではなく専用モデルを使用
+ */
+data class KnowledgePageResponse(
+    val success: Boolean,
+    val data: List<KnowledgeItem>,
+    val pagination: CursorPaginationInfo,
+    val message: String? = null
+)
+
+data class CursorPaginationInfo(
+    val per_page: Int,
+    val next_cursor: String?,
+    val prev_cursor: String?,
+    val has_more: Boolean
+)
+
 /**
  * Statistics Models
  */
@@ -194,7 +213,9 @@ data class KnowledgeCategoryStats(
     val total_items: Int,
     val categories_with_items: Int,
     val empty_categories: Int,
-    val avg_items_per_category: Double
+    val avg_items_per_category: Double,
+    // カテゴリID → アイテム数（アーカイブ済みは除く）
+    val item_counts: Map<Int, Int>? = null
 )
 
 /**
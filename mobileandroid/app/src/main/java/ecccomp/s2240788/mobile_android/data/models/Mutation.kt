@@ -0,0 +1,44 @@
+package ecccomp.s2240788.mobile_android.data.models
+
+import com.google.gson.JsonElement
+import com.google.gson.JsonObject
+
+/**
+ * Offline Mutation Models
+ * POST /api/sync/mutations
+ * Backend: { success, data: { results: [{ key, status, replayed, success, data, message, ... }] } }
+ */
+data class MutationBatchRequest(
+    val mutations: List<MutationRequest>
+)
+
+/**
+ * @param key 冪等キー（再送時も同じ値）
+ * @param type task.complete / subtask.toggle / subtask.complete / focus_session.start / focus_session.stop
+ */
+data class MutationRequest(
+    val key: String,
+    val type: String,
+    val payload: JsonObject
+)
+
+data class MutationBatchResponse(
+    val results: List<MutationResult>
+)
+
+/**
+ * 1操作分の結果（元のエンドポイントのレスポンスにkey/status/replayedを加えたもの）
+ * @param status 元のエンドポイントのHTTPステータス（500以上は再送対象）
+ * @param replayed 適用済みのキーだった（保存済みの結果を返した）
+ */
+data class MutationResult(
+    val key: String,
+    val status: Int,
+    val replayed: Boolean = false,
+    val success: Boolean = false,
+    val message: String? = null,
+    val data: JsonElement? = null,
+    val task_completed: Boolean? = null
+) {
+    val isFinal: Boolean get() = status < 500
+}
@@ -0,0 +1,40 @@
+package ecccomp.s2240788.mobile_android.data.models
+
+/**
+ * Bulk Review Models
+ * POST /api/knowledge/reviews/bulk
+ * Backend: { success, data: { results: [{ key, status, replayed, item_id, success, review_count, next_review_date }] } }
+ */
+data class BulkReviewRequest(
+    val reviews: List<ReviewGrade>
+)
+
+/**
+ * 端末で記録した1回分の採点
+ * @param key 冪等キー（再送時も同じ値）
+ * @param quality hard / good / easy
+ * @param reviewed_at 採点した時刻（ISO8601）。サーバーはこの時刻から次回の復習日を計算する
+ */
+data class ReviewGrade(
+    val key: String,
+    val item_id: Int,
+    val quality: String,
+    val reviewed_at: String
+)
+
+data class BulkReviewResponse(
+    val results: List<ReviewGradeResult>
+)
+
+/**
+ * @param status 404 = アイテムが削除済み（確定として扱う）
+ */
+data class ReviewGradeResult(
+    val key: String,
+    val status: Int,
+    val replayed: Boolean = false,
+    val item_id: Int,
+    val success: Boolean = false,
+    val review_count: Int? = null,
+    val next_review_date: String? = null
+)
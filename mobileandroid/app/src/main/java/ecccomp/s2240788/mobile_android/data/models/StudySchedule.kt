@@ -124,6 +124,14 @@ data class WeeklyScheduleSummary(
     val total_schedules: Int
 )
 
+/**
+ * Study schedules of a learning path (GET learning-paths/{id}/study-schedules)
+ */
+data class StudySchedulesResponse(
+    val schedules: List<StudySchedule>,
+    val weekly_hours: Float?
+)
+
 /**
  * Study schedule statistics
  */
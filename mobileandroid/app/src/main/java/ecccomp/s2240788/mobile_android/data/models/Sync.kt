@@ -0,0 +1,55 @@
+package ecccomp.s2240788.mobile_android.data.models
+
+/**
+ * Delta Sync Models
+ * GET /api/sync/changes?since=...&entities=...
+ * Backend: { success, data: { watermark, full, changes: { tasks: { updated, deleted, live_count }, ... } } }
+ */
+data class SyncChangesResponse(
+    val watermark: String,
+    val full: Boolean,
+    val changes: SyncChanges
+)
+
+data class SyncChanges(
+    val tasks: EntityChanges<Task>? = null,
+    val knowledge: EntityChanges<KnowledgeItem>? = null,
+    val notifications: EntityChanges<Notification>? = null,
+    val timetable: EntityChanges<TimetableClass>? = null
+)
+
+/**
+ * 1エンティティ分の変更
+ * @param updated 追加・更新されたレコード
+ * @param deleted 削除されたID（tombstone）
+ * @param live_count サーバー上の件数（取りこぼし検知用。期間で絞るエンティティ（通知）はnull）
+ */
+data class EntityChanges<T>(
+    val updated: List<T>? = null,
+    val deleted: List<Int>? = null,
+    val live_count: Int? = null
+)
+
+/**
+ * バックグラウンド同期1回分のリクエスト
+ * POST /api/sync/batch
+ * @param heartbeat_task_ids 実行中のタスク（ハートビートを送る）
+ * @param include_settings 設定も取得するか
+ */
+data class SyncBatchRequest(
+    val since: String?,
+    val entities: String,
+    val heartbeat_task_ids: List<Int> = emptyList(),
+    val include_settings: Boolean = false
+)
+
+/**
+ * Backend: { success, data: { watermark, full, changes, heartbeats: { "taskId": bool }, settings } }
+ */
+data class SyncBatchResponse(
+    val watermark: String,
+    val full: Boolean,
+    val changes: SyncChanges,
+    val heartbeats: Map<String, Boolean>? = null,
+    val settings: UserSettings? = null
+)
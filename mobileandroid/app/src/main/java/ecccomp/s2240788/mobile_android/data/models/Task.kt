@@ -1,6 +1,7 @@
 package ecccomp.s2240788.mobile_android.data.models
 
 import com.google.gson.annotations.SerializedName
+import ecccomp.s2240788.mobile_android.utils.DateTimes
 
 data class Task(
     val id: Int,
@@ -39,6 +40,30 @@ data class Task(
     // Relations
     val subtasks: List<Subtask>? = null,
     val knowledge_items: List<KnowledgeItem>? = null
+) {
+    /**
+     * deadline / scheduled_time を解析した値（インスタンスごとに一度だけ解析）
+     * Gsonはコンストラクタを通らないため初回アクセス時に設定する（copy()後は新しい値で解析し直される）
+     */
+    @Transient
+    private var parsedDates: TaskDates? = null
+
+    private fun dates(): TaskDates =
+        parsedDates ?: TaskDates(
+            DateTimes.parseEpochDay(deadline),
+            DateTimes.parseMinuteOfDay(scheduled_time)
+        ).also { parsedDates = it }
+
+    /** deadlineの日付（epoch day）。未設定・解析できない場合はnull */
+    val deadlineEpochDay: Long? get() = dates().deadlineEpochDay
+
+    /** scheduled_timeの時刻（0〜1439分）。未設定・解析できない場合はnull */
+    val scheduledMinuteOfDay: Int? get() = dates().scheduledMinuteOfDay
+}
+
+private class TaskDates(
+    val deadlineEpochDay: Long?,
+    val scheduledMinuteOfDay: Int?
 )
 
 data class Subtask(
@@ -108,12 +133,14 @@ data class CreateSubtaskRequest(
 data class StartFocusSessionRequest(
     val task_id: Int,
     val duration_minutes: Int,
-    val session_type: String // "work", "break", "long_break"
+    val session_type: String, // "work", "break", "long_break"
+    val started_at: String? = null // ISO 8601, オフラインで開始した場合（送信キューから再送）
 )
 
 data class StopFocusSessionRequest(
     val notes: String? = null,
-    val force_complete_task: Boolean? = null
+    val force_complete_task: Boolean? = null,
+    val ended_at: String? = null // ISO 8601, オフラインで終了した場合（送信キューから再送）
 )
 
 data class FocusSession(
@@ -225,6 +252,21 @@ data class ApiResponse<T>(
     val error: String?
 )
 
+/**
+ * 一覧レスポンス
+ * Laravelのページネーター（{ data: [...], current_page, ... }）と素の配列のどちらでも受け取れる
+ * デコードはPagedListTypeAdapterFactory（NetworkModule.gsonに登録済み）
+ */
+data class PagedList<T>(
+    val items: List<T>,
+    val current_page: Int = 1,
+    val last_page: Int = 1,
+    val per_page: Int = items.size,
+    val total: Int = items.size
+) {
+    val hasMore: Boolean get() = current_page < last_page
+}
+
 data class AuthResponse(
     val user: User,
     val token: String,
@@ -395,6 +437,20 @@ data class ChatConversationsResponse(
     val per_page: Int
 )
 
+// メッセージ履歴の1ページ（messagesは古い順、has_moreは同じ方向の続きがあるか）
+data class ChatMessagesPage(
+    val conversation: ChatConversation,
+    val messages: List<ChatMessage>,
+    val has_more: Boolean
+)
+
+// 画面に表示するメッセージの範囲（ローカルキャッシュから読んだページ・古い順）
+data class ChatHistoryWindow(
+    val messages: List<ChatMessage>,
+    val hasMoreOlder: Boolean,
+    val conversation: ChatConversation? = null
+)
+
 data class CreateConversationResponse(
     val conversation: ChatConversation,
     val created_task: Task? = null,
@@ -1,9 +1,12 @@
 package ecccomp.s2240788.mobile_android.data.repository
 
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
 import ecccomp.s2240788.mobile_android.data.models.*
 import ecccomp.s2240788.mobile_android.utils.TokenManager
 import ecccomp.s2240788.mobile_android.data.result.AuthResult
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
 
 /**
  * Authentication Repository
@@ -26,6 +29,7 @@ class AuthRepository(
                 if (authResponse != null && authResponse.token.isNotEmpty()) {
                     // Tokenを保存
                     TokenManager.saveToken(authResponse.token)
+                    TokenManager.saveCachedUser(authResponse.user)
                     AuthResult.Success(authResponse)
                 } else {
                     AuthResult.Error("ログインに失敗しました")
@@ -57,6 +61,7 @@ class AuthRepository(
                 if (authResponse != null && authResponse.token.isNotEmpty()) {
                     // Tokenを保存
                     TokenManager.saveToken(authResponse.token)
+                    TokenManager.saveCachedUser(authResponse.user)
                     AuthResult.Success(authResponse)
                 } else {
                     AuthResult.Error("登録に失敗しました")
@@ -101,8 +106,17 @@ class AuthRepository(
 
     /**
      * ログアウト処理
+     * ローカルのキャッシュ（Room）も削除する
      */
     suspend fun logout(): AuthResult<Map<String, Any>> {
+        val result = logoutFromServer()
+        withContext(Dispatchers.IO) {
+            TodoDatabase.clearUserData()
+        }
+        return result
+    }
+
+    private suspend fun logoutFromServer(): AuthResult<Map<String, Any>> {
         return try {
             val response = apiService.logout()
 
@@ -138,6 +152,7 @@ class AuthRepository(
                 val user = responseBody?.data
                 if (user != null) {
                     android.util.Log.d("AuthRepository", "User loaded: name=${user.name}, email=${user.email}")
+                    TokenManager.saveCachedUser(user)
                     AuthResult.Success(user)
                 } else {
                     android.util.Log.e("AuthRepository", "User data is null in response body")
@@ -1,17 +1,51 @@
 package ecccomp.s2240788.mobile_android.data.repository
 
+import com.google.gson.Gson
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.ChatStreamClient
+import ecccomp.s2240788.mobile_android.data.api.ChatStreamEvent
+import ecccomp.s2240788.mobile_android.data.api.ChatStreamHttpException
+import ecccomp.s2240788.mobile_android.data.local.ChatDao
+import ecccomp.s2240788.mobile_android.data.local.ChatHistoryStateEntity
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.local.toEntity
+import ecccomp.s2240788.mobile_android.data.local.toModel
 import ecccomp.s2240788.mobile_android.data.models.*
 import ecccomp.s2240788.mobile_android.data.result.ChatResult
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.flow.Flow
 
 /**
  * Chat Repository
  * Chat AI API呼び出しを担当
  * ViewModelとApiServiceの間のレイヤー
+ * - メッセージ履歴はRoom（ChatDao）にキャッシュし、画面にはページ単位（MESSAGE_PAGE_SIZE件ずつ）で渡す
+ *   ローカルには最新のメッセージから連続した範囲だけを保存する（途中が抜けた状態にしない）
+ * - サーバーからは保存済みより新しいメッセージ（after_id）と、上にスクロールした時の古いページ（before_id）だけを取得
  */
 class ChatRepository(
-    private val apiService: ApiService
+    private val apiService: ApiService,
+    private val chatDao: ChatDao = TodoDatabase.get().chatDao(),
+    private val gson: Gson = NetworkModule.gson,
+    private val streamClient: ChatStreamClient = ChatStreamClient()
 ) {
+    companion object {
+        // 1ページのメッセージ数（会話を開いた時・上にスクロールするたびにこの件数ずつ表示）
+        const val MESSAGE_PAGE_SIZE = 30
+
+        // 新しいメッセージの差分がこれより多ければ、続きは取らずに最新のページから保存し直す
+        private const val MAX_CATCH_UP_MESSAGES = 100
+
+        // 時間割・知識の意図はContext-Awareエンドポイントのみが扱う（提案・作成結果を返す）
+        // AIController::sendMessageWithContext の判定パターンと揃える
+        private val CONTEXT_AWARE_INTENT = Regex(
+            "(授業|クラス|class|lecture|時間割|schedule|lịch học|thứ|monday|tuesday|wednesday|thursday|friday|saturday|sunday" +
+                "|メモ|ノート|記録|コード|演習|問題|資料|リンク|review|復習|search|探して|見せて" +
+                "|フォルダ|カテゴリ|knowledge|note|snippet|exercise|resource)",
+            RegexOption.IGNORE_CASE
+        )
+    }
+
     /**
      * 会話リストを取得
      */
@@ -27,6 +61,10 @@ class ChatRepository(
             if (response.isSuccessful) {
                 val data = response.body()?.data
                 if (data != null) {
+                    // 会話履歴ダイアログをすぐに表示できるよう、最初のページを保存
+                    if (status != null && data.current_page == 1) {
+                        chatDao.replaceConversations(status, data.data.map { it.toEntity() })
+                    }
                     ChatResult.Success(data)
                 } else {
                     ChatResult.Error("会話リストの取得に失敗しました")
@@ -60,6 +98,14 @@ class ChatRepository(
                 val body = response.body()
                 val data = body?.data
                 if (data != null) {
+                    // 新しい会話は最初のメッセージから揃っている
+                    val conversation = data.conversation
+                    chatDao.replaceConversation(
+                        conversation.id,
+                        conversation.messages.orEmpty().map { it.toEntity(gson) },
+                        reachedStart = true
+                    )
+                    chatDao.upsertConversations(listOf(conversation.toEntity()))
                     ChatResult.Success(data)
                 } else {
                     // Log để debug
@@ -113,6 +159,147 @@ class ChatRepository(
         }
     }
 
+    /**
+     * 会話リスト（前回取得した分・ネットワークなし）
+     */
+    suspend fun getCachedConversations(status: String): List<ChatConversation> {
+        return chatDao.getConversations(status).map { it.toModel() }
+    }
+
+    /**
+     * 保存済みの最新ページ（ネットワークなし・会話を開いた直後に表示）
+     * 保存されていなければmessagesは空
+     */
+    suspend fun getCachedMessages(conversationId: Long): ChatHistoryWindow {
+        val messages = chatDao.getLatest(conversationId, MESSAGE_PAGE_SIZE).asReversed().map { it.toModel(gson) }
+        return ChatHistoryWindow(messages, hasMoreOlder(conversationId, messages.size))
+    }
+
+    /**
+     * 新しいメッセージを保存し、最新ページを返す（会話を開いた時）
+     */
+    suspend fun syncMessages(conversationId: Long): ChatResult<ChatHistoryWindow> {
+        return when (val result = syncNewerMessages(conversationId)) {
+            is ChatResult.Success -> try {
+                ChatResult.Success(getCachedMessages(conversationId).copy(conversation = result.data))
+            } catch (e: Exception) {
+                ChatResult.Error("メッセージの取得に失敗しました: ${e.message}")
+            }
+            is ChatResult.Error -> result
+            is ChatResult.Loading -> ChatResult.Loading
+        }
+    }
+
+    /**
+     * 保存済みより新しいメッセージだけをサーバーから取得して保存（送信・ストリーミングの完了後にも呼ぶ）
+     * 未保存の会話・差分が多すぎる場合は最新のページだけを取得して保存し直す
+     * @return 最新の会話情報
+     */
+    suspend fun syncNewerMessages(conversationId: Long): ChatResult<ChatConversation> {
+        return try {
+            val maxId = chatDao.getMaxId(conversationId)
+            val newer = if (maxId != null) {
+                when (val result = fetchMessages(conversationId, afterId = maxId, limit = MAX_CATCH_UP_MESSAGES)) {
+                    is ChatResult.Success -> result.data
+                    is ChatResult.Error -> return result
+                    is ChatResult.Loading -> return ChatResult.Loading
+                }
+            } else {
+                null
+            }
+
+            val conversation = if (newer != null && !newer.has_more) {
+                if (newer.messages.isNotEmpty()) {
+                    chatDao.upsertMessages(newer.messages.map { it.toEntity(gson) })
+                }
+                newer.conversation
+            } else {
+                when (val result = fetchMessages(conversationId, limit = MESSAGE_PAGE_SIZE)) {
+                    is ChatResult.Success -> {
+                        val latest = result.data
+                        chatDao.replaceConversation(
+                            conversationId,
+                            latest.messages.map { it.toEntity(gson) },
+                            reachedStart = !latest.has_more
+                        )
+                        latest.conversation
+                    }
+                    is ChatResult.Error -> return result
+                    is ChatResult.Loading -> return ChatResult.Loading
+                }
+            }
+            chatDao.upsertConversations(listOf(conversation.toEntity()))
+            ChatResult.Success(conversation)
+        } catch (e: Exception) {
+            ChatResult.Error("ネットワークエラー: ${e.message}")
+        }
+    }
+
+    /**
+     * beforeIdより古いページ（上にスクロールした時）
+     * ローカルに足りない分だけサーバーから取得して保存
+     */
+    suspend fun loadOlderMessages(conversationId: Long, beforeId: Long): ChatResult<ChatHistoryWindow> {
+        return try {
+            val local = chatDao.getBefore(conversationId, beforeId, MESSAGE_PAGE_SIZE).asReversed()
+            val reachedStart = chatDao.getState(conversationId)?.reached_start == true
+            if (local.size >= MESSAGE_PAGE_SIZE || reachedStart) {
+                return ChatResult.Success(
+                    ChatHistoryWindow(local.map { it.toModel(gson) }, hasMoreOlder = local.size >= MESSAGE_PAGE_SIZE)
+                )
+            }
+
+            val oldestId = local.firstOrNull()?.id ?: beforeId
+            when (val result = fetchMessages(conversationId, beforeId = oldestId, limit = MESSAGE_PAGE_SIZE - local.size)) {
+                is ChatResult.Success -> {
+                    val page = result.data
+                    val fetched = page.messages.map { it.toEntity(gson) }
+                    if (fetched.isNotEmpty()) chatDao.upsertMessages(fetched)
+                    if (!page.has_more) chatDao.upsertState(ChatHistoryStateEntity(conversationId, reached_start = true))
+                    ChatResult.Success(
+                        ChatHistoryWindow((fetched + local).map { it.toModel(gson) }, hasMoreOlder = page.has_more)
+                    )
+                }
+                is ChatResult.Error -> result
+                is ChatResult.Loading -> ChatResult.Loading
+            }
+        } catch (e: Exception) {
+            ChatResult.Error("ネットワークエラー: ${e.message}")
+        }
+    }
+
+    private suspend fun hasMoreOlder(conversationId: Long, loaded: Int): Boolean {
+        return loaded >= MESSAGE_PAGE_SIZE || chatDao.getState(conversationId)?.reached_start != true
+    }
+
+    /**
+     * メッセージ履歴の1ページを取得（保存はしない）
+     */
+    private suspend fun fetchMessages(
+        conversationId: Long,
+        beforeId: Long? = null,
+        afterId: Long? = null,
+        limit: Int
+    ): ChatResult<ChatMessagesPage> {
+        val response = apiService.getChatMessages(conversationId, beforeId, afterId, limit)
+        if (response.isSuccessful) {
+            val data = response.body()?.data
+            return if (data != null) {
+                ChatResult.Success(data)
+            } else {
+                ChatResult.Error("メッセージの取得に失敗しました")
+            }
+        }
+        val errorMessage = when (response.code()) {
+            401 -> "認証に失敗しました"
+            403 -> "この会話にアクセスする権限がありません"
+            404 -> "会話が見つかりません"
+            500 -> "サーバーエラーが発生しました"
+            else -> "メッセージの取得に失敗しました: ${response.message()}"
+        }
+        return ChatResult.Error(errorMessage)
+    }
+
     /**
      * メッセージを送信
      */
@@ -164,6 +351,7 @@ class ChatRepository(
             if (response.isSuccessful) {
                 val data = response.body()?.data
                 if (data != null) {
+                    chatDao.upsertConversations(listOf(data.toEntity()))
                     ChatResult.Success(data)
                 } else {
                     ChatResult.Error("会話の更新に失敗しました")
@@ -192,6 +380,7 @@ class ChatRepository(
             val response = apiService.deleteChatConversation(conversationId)
 
             if (response.isSuccessful) {
+                chatDao.deleteConversationCache(conversationId)
                 ChatResult.Success(Unit)
             } else {
                 val errorMessage = when (response.code()) {
@@ -245,6 +434,40 @@ class ChatRepository(
         }
     }
 
+    /**
+     * メッセージを送信し、AIの応答をストリーミングで受け取る（SSE）
+     * 収集をキャンセルすると接続も切断される
+     */
+    fun streamMessage(conversationId: Long, message: String): Flow<ChatStreamEvent> {
+        return streamClient.streamMessage(conversationId, message)
+    }
+
+    /**
+     * Context-Awareエンドポイントが必要なメッセージか
+     * （時間割・知識の提案はストリーミングでは返されない）
+     */
+    fun needsContextAwareReply(message: String): Boolean {
+        return CONTEXT_AWARE_INTENT.containsMatchIn(message)
+    }
+
+    /**
+     * ストリーミング失敗時のエラーメッセージ
+     */
+    fun streamErrorMessage(error: Throwable): String {
+        return when ((error as? ChatStreamHttpException)?.code) {
+            400 -> "この会話は現在アクティブではありません"
+            401 -> "認証に失敗しました"
+            403 -> "この会話にアクセスする権限がありません"
+            404 -> "会話が見つかりません"
+            422 -> "メッセージが無効です"
+            429 -> "リクエストが多すぎます。しばらく待ってください"
+            500 -> "サーバーエラーが発生しました"
+            503 -> "AIサービスに接続できません。しばらく待ってください"
+            null -> "ネットワークエラー: ${error.message}"
+            else -> "メッセージの送信に失敗しました: ${error.message}"
+        }
+    }
+
     /**
      * タスク提案を確認して作成
      */
@@ -0,0 +1,92 @@
+package ecccomp.s2240788.mobile_android.data.repository
+
+import android.os.SystemClock
+import android.util.Log
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+import ecccomp.s2240788.mobile_android.data.result.TaskResult
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+
+/**
+ * FocusKnowledgeRepository
+ * フォーカス画面に表示するタスクの知識アイテム（knowledge/for-task/{taskId}）
+ * - タスク選択ダイアログでタスクが選ばれた時点で先読みし、フォーカス画面を開いた時には取得済みにする
+ * - 取得は共有のスコープで行う（ダイアログが閉じても続く）。同じタスクの取得中は結果を共有する
+ * - タスクの開始（ステータス更新）では無効化しない。知識アイテムの更新時だけ無効化する
+ */
+object FocusKnowledgeRepository {
+
+    private const val TAG = "FocusKnowledgeRepo"
+
+    // 先読みからフォーカス画面を開くまでの間を想定
+    private const val TTL_MS = 60_000L
+
+    private class Entry(val deferred: Deferred<TaskResult<List<KnowledgeItem>>>, val startedAt: Long)
+
+    private val lock = Any()
+    private val entries = HashMap<Int, Entry>()
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    /**
+     * 先読み（結果を待たない）
+     */
+    fun prefetch(taskId: Int) {
+        request(taskId)
+    }
+
+    /**
+     * タスクの知識アイテムを取得（先読み済み・取得中ならその結果を使う）
+     */
+    suspend fun getForTask(taskId: Int): TaskResult<List<KnowledgeItem>> = request(taskId).await()
+
+    private fun request(taskId: Int): Deferred<TaskResult<List<KnowledgeItem>>> = synchronized(lock) {
+        val now = SystemClock.elapsedRealtime()
+        entries[taskId]?.let { entry ->
+            if (now - entry.startedAt < TTL_MS) return entry.deferred
+        }
+
+        val deferred = CompletableDeferred<TaskResult<List<KnowledgeItem>>>()
+        entries[taskId] = Entry(deferred, now)
+        scope.launch {
+            val result = fetch(taskId)
+            // 失敗した結果は残さない（次の呼び出しで取得し直す）
+            if (result is TaskResult.Error) {
+                synchronized(lock) {
+                    if (entries[taskId]?.deferred === deferred) entries.remove(taskId)
+                }
+            }
+            deferred.complete(result)
+        }
+        deferred
+    }
+
+    private suspend fun fetch(taskId: Int): TaskResult<List<KnowledgeItem>> {
+        return try {
+            val response = NetworkModule.apiService.getKnowledgeForTask(taskId)
+            val body = response.body()
+            if (response.isSuccessful && body?.success == true) {
+                val items = body.data.orEmpty()
+                Log.d(TAG, "Loaded ${items.size} knowledge items for task #$taskId")
+                TaskResult.Success(items)
+            } else {
+                TaskResult.Error(body?.message ?: "HTTP ${response.code()}")
+            }
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to load knowledge for task #$taskId: ${e.message}")
+            TaskResult.Error(e.message ?: "Network error")
+        }
+    }
+
+    /**
+     * すべて無効化（知識アイテムの作成・更新・削除時）
+     */
+    fun invalidateAll() {
+        synchronized(lock) { entries.clear() }
+    }
+}
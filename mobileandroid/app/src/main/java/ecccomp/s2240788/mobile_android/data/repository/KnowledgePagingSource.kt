@@ -0,0 +1,72 @@
+package ecccomp.s2240788.mobile_android.data.repository
+
+import android.util.Log
+import androidx.paging.PagingSource
+import androidx.paging.PagingState
+import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+import retrofit2.HttpException
+
+/**
+ * 知識アイテム一覧の検索条件
+ * フィルター・検索はすべてサーバー側で実行する
+ */
+data class KnowledgeQuery(
+    val categoryId: Int? = null,          // null = カテゴリ指定なし
+    val uncategorized: Boolean = false,   // true = ルートフォルダ（カテゴリなしのアイテムのみ）
+    val itemType: String? = null,
+    val favoritesOnly: Boolean = false,
+    val learningPathId: Int? = null,
+    val search: String? = null
+)
+
+/**
+ * Knowledge PagingSource
+ * サーバーのカーソルページング（paginate=cursor）を使用
+ * Key = next_cursor（最初のページはnull）
+ */
+class KnowledgePagingSource(
+    private val apiService: ApiService,
+    private val query: KnowledgeQuery
+) : PagingSource<String, KnowledgeItem>() {
+
+    companion object {
+        private const val TAG = "KnowledgePagingSource"
+        const val PAGE_SIZE = 20
+    }
+
+    override suspend fun load(params: LoadParams<String>): LoadResult<String, KnowledgeItem> {
+        return try {
+            val response = apiService.getKnowledgeItemsPage(
+                cursor = params.key,
+                categoryId = query.categoryId,
+                uncategorized = if (query.uncategorized) 1 else null,
+                itemType = query.itemType,
+                isFavorite = if (query.favoritesOnly) true else null,
+                learningPathId = query.learningPathId,
+                search = query.search?.takeIf { it.isNotBlank() },
+                perPage = params.loadSize
+            )
+
+            val body = response.body()
+            if (!response.isSuccessful || body == null || !body.success) {
+                Log.e(TAG, "Failed to load page: ${response.code()} ${response.message()}")
+                return LoadResult.Error(HttpException(response))
+            }
+
+            LoadResult.Page(
+                data = body.data,
+                prevKey = null,  // 前方向のみ（リフレッシュは先頭から）
+                nextKey = if (body.pagination.has_more) body.pagination.next_cursor else null
+            )
+        } catch (e: Exception) {
+            Log.e(TAG, "Error loading page: ${e.message}", e)
+            LoadResult.Error(e)
+        }
+    }
+
+    /**
+     * カーソルは位置を表さないため、リフレッシュは常に先頭から
+     */
+    override fun getRefreshKey(state: PagingState<String, KnowledgeItem>): String? = null
+}
@@ -0,0 +1,78 @@
+package ecccomp.s2240788.mobile_android.data.repository
+
+import android.util.Log
+import ecccomp.s2240788.mobile_android.data.api.RequestCoalescer
+import ecccomp.s2240788.mobile_android.data.local.TaskDao
+import ecccomp.s2240788.mobile_android.data.local.toModel
+import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.data.result.SyncResult
+import ecccomp.s2240788.mobile_android.data.result.TaskResult
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
+import ecccomp.s2240788.mobile_android.data.sync.SyncEngine
+import ecccomp.s2240788.mobile_android.data.sync.SyncEntity
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
+
+/**
+ * Task Repository
+ * ローカルDB（Room）とApiServiceの間のレイヤー
+ * - 画面表示はまずローカルキャッシュから（stale-while-revalidate）
+ * - ネットワークの結果はバックグラウンドでローカルに反映（SyncEngineによる差分同期）
+ */
+class TaskRepository(
+    private val taskDao: TaskDao,
+    private val syncEngine: SyncEngine,
+    private val mutationOutbox: MutationOutbox
+) {
+    companion object {
+        private const val TAG = "TaskRepository"
+        private const val REFRESH_KEY = "sync/changes?entities=tasks"
+        private const val REFRESH_TTL_MS = 2_000L
+    }
+
+    /**
+     * ローカルキャッシュのタスクを取得（ネットワークなし）
+     */
+    suspend fun getCachedTasks(): List<Task> {
+        return try {
+            taskDao.getAllWithSubtasks().map { it.toModel() }
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to read cached tasks: ${e.message}", e)
+            emptyList()
+        }
+    }
+
+    /**
+     * ローカルキャッシュを監視（ローカル更新・同期のたびに再通知）
+     */
+    fun observeTasks(): Flow<List<Task>> {
+        return taskDao.observeAllWithSubtasks().map { list -> list.map { it.toModel() } }
+    }
+
+    /**
+     * サーバーとの差分同期を行い、同期後のローカルタスクを返す
+     * - 前回同期以降の変更とtombstoneだけを取得（件数上限なし）
+     */
+    suspend fun refreshTasks(): TaskResult<List<Task>> =
+        // ホームとカレンダーなど複数の画面から同時に呼ばれた場合は1回の同期を共有
+        RequestCoalescer.load(REFRESH_KEY, REFRESH_TTL_MS, isCacheable = { it is TaskResult.Success }) {
+            // 未送信の操作を先に送る（送れなかった操作は同期時にSyncEngineが同期結果の上に再適用する）
+            mutationOutbox.flush()
+            when (val result = syncEngine.sync(setOf(SyncEntity.TASKS))) {
+                is SyncResult.Success -> TaskResult.Success(getCachedTasks())
+                is SyncResult.Error -> TaskResult.Error(result.message)
+                is SyncResult.Loading -> TaskResult.Loading
+            }
+        }
+
+    /**
+     * 削除をローカルに即時反映
+     */
+    suspend fun deleteLocally(taskId: Int) {
+        try {
+            taskDao.deleteTask(taskId)
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to delete local task $taskId: ${e.message}", e)
+        }
+    }
+}
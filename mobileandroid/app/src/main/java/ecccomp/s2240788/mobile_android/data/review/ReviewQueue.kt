@@ -0,0 +1,281 @@
+package ecccomp.s2240788.mobile_android.data.review
+
+import android.content.Context
+import android.util.Log
+import androidx.work.BackoffPolicy
+import androidx.work.Constraints
+import androidx.work.ExistingWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkManager
+import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.local.PendingReviewEntity
+import ecccomp.s2240788.mobile_android.data.local.ReviewCardEntity
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.local.toReviewCardEntity
+import ecccomp.s2240788.mobile_android.data.models.BulkReviewRequest
+import ecccomp.s2240788.mobile_android.data.models.ReviewGrade
+import ecccomp.s2240788.mobile_android.data.models.ReviewGradeResult
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import ecccomp.s2240788.mobile_android.workers.ReviewUploadWorker
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * ReviewQueue
+ * 端末側の復習キュー
+ * - 数日先までに期限が来るカードを本文ごとRoomに先読みする（オフラインでも復習できる）
+ * - 期限の判定と採点後の予定はSrsSchedulerで端末が決める（1枚ごとにサーバーを待たない）
+ * - 採点は送信待ちに溜め、UPLOAD_THRESHOLD件ごと・画面を離れた時に一括API（knowledge/reviews/bulk）で送る
+ * - 送れなかった分はWorkManagerがネットワーク接続後に再送（冪等キーで二重に数えない）
+ *   通信エラー・5xxでは諦めない（attemptsはサーバーが一括リクエスト自体を4xxで拒否した回数）
+ * - サーバーに拒否された採点のカードは端末から消す（次の先読みでサーバーの予定に戻る）
+ */
+class ReviewQueue(
+    private val apiService: ApiService,
+    private val database: TodoDatabase
+) {
+    companion object {
+        private const val TAG = "ReviewQueue"
+        private const val WORK_NAME = "review_upload"
+
+        // 先読みする日数・件数
+        private const val PREFETCH_AHEAD_DAYS = 7
+        private const val PREFETCH_LIMIT = 200
+
+        // この件数が溜まったら復習中でも送信する
+        private const val UPLOAD_THRESHOLD = 20
+        private const val BATCH_SIZE = 100
+        // 一括リクエスト自体が4xxで拒否され続ける採点は諦める
+        private const val MAX_ATTEMPTS = 20
+
+        // 4xxでも時間をおけば通る応答（認証切れ・タイムアウト・レート制限）
+        private val TRANSIENT_CLIENT_ERRORS = setOf(401, 408, 429)
+
+        @Volatile
+        private var instance: ReviewQueue? = null
+
+        @Volatile
+        private var appContext: Context? = null
+
+        /**
+         * 初期化関数 - Applicationから呼び出す（TodoDatabase.init()の後）
+         * 前回の起動で送信できなかった採点があれば再送をスケジュール
+         */
+        fun init(context: Context) {
+            appContext = context.applicationContext
+            enqueueWorker(context.applicationContext)
+        }
+
+        fun get(): ReviewQueue {
+            return instance ?: synchronized(this) {
+                instance ?: ReviewQueue(NetworkModule.apiService, TodoDatabase.get()).also { instance = it }
+            }
+        }
+
+        private fun enqueueWorker(context: Context) {
+            val request = OneTimeWorkRequestBuilder<ReviewUploadWorker>()
+                .setConstraints(
+                    Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build()
+                )
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build()
+
+            WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME,
+                ExistingWorkPolicy.KEEP,
+                request
+            )
+        }
+    }
+
+    // カードの予定の更新（ローカルのみ）と送信は別のロックにする（送信中も採点を待たせない）
+    private val mutex = Mutex()
+    private val uploadMutex = Mutex()
+    private val reviewDao get() = database.reviewDao()
+
+    /**
+     * 期限が来たカード（ローカルのみ・ネットワークは使わない）
+     */
+    suspend fun dueCards(): List<ReviewCardEntity> = reviewDao.getDue(SrsScheduler.today())
+
+    /**
+     * サーバーから先読みしてローカルのカードを置き換える
+     * 先に未送信の採点を送る（サーバーの予定を最新にしてから取得する）
+     * @return 成功したか（オフラインならfalse・ローカルのカードはそのまま）
+     */
+    suspend fun refresh(): Boolean {
+        upload()
+        return try {
+            val response = apiService.getKnowledgeDueReview(
+                aheadDays = PREFETCH_AHEAD_DAYS,
+                limit = PREFETCH_LIMIT
+            )
+            val items = response.body()?.data
+            if (!response.isSuccessful || response.body()?.success != true || items == null) {
+                Log.w(TAG, "Prefetch failed: HTTP ${response.code()}")
+                return false
+            }
+            mutex.withLock {
+                val pendingIds = reviewDao.getPendingItemIds().toSet()
+                reviewDao.replaceCards(items.map { it.toReviewCardEntity() }, pendingIds)
+            }
+            Log.d(TAG, "Prefetched ${items.size} review cards")
+            true
+        } catch (e: Exception) {
+            Log.w(TAG, "Prefetch failed: ${e.message}")
+            false
+        }
+    }
+
+    /**
+     * 採点を記録（ローカルの予定を即時更新し、送信待ちに積む）
+     * @return 更新後の次回の復習日（カードが見つからなければnull）
+     */
+    suspend fun grade(itemId: Int, quality: String): String? {
+        val now = Date()
+        val reviewedAt = isoFormat().format(now)
+
+        val (nextReviewDate, pending) = mutex.withLock {
+            val card = reviewDao.getCard(itemId) ?: return null
+            val outcome = SrsScheduler.grade(card.review_count, quality)
+            val nextReviewDate = SrsScheduler.nextReviewDate(now, outcome.intervalDays)
+
+            reviewDao.updateSchedule(itemId, outcome.reviewCount, nextReviewDate, reviewedAt)
+            reviewDao.insertPending(
+                PendingReviewEntity(
+                    idempotency_key = UUID.randomUUID().toString(),
+                    item_id = itemId,
+                    quality = quality,
+                    reviewed_at = reviewedAt
+                )
+            )
+            nextReviewDate to reviewDao.pendingCount()
+        }
+
+        // 送信はWorkerに任せる（オフラインでも採点を待たせない。接続中ならすぐに送られる）
+        if (pending >= UPLOAD_THRESHOLD) {
+            scheduleUpload()
+        }
+        return nextReviewDate
+    }
+
+    /**
+     * 送信待ちの採点をWorkerで送る（画面を離れる時など、結果を待たない場合）
+     */
+    fun scheduleUpload() {
+        appContext?.let { enqueueWorker(it) }
+    }
+
+    /**
+     * 送信待ちの採点を一括送信
+     * 失敗した場合はWorkerに任せる（通信エラー・5xxは回数を数えずに再送）
+     * @return 残りの件数
+     */
+    suspend fun upload(): Int = uploadMutex.withLock {
+        while (true) {
+            val batch = reviewDao.getPendingBatch(BATCH_SIZE)
+            if (batch.isEmpty()) break
+
+            val outcome = try {
+                sendBatch(batch)
+            } catch (e: Exception) {
+                Log.w(TAG, "Review upload failed: ${e.message}")
+                BatchOutcome.Retry
+            }
+            val results = when (outcome) {
+                is BatchOutcome.Delivered -> outcome.results
+                BatchOutcome.Retry -> break
+                BatchOutcome.Rejected -> {
+                    discardRejected(markRejected(batch))
+                    break
+                }
+            }
+
+            val done = batch.filter { results[it.idempotency_key]?.let { result -> result.status < 500 } == true }
+            reviewDao.deletePending(done.map { it.seq })
+            Log.d(TAG, "Uploaded ${done.size} reviews")
+            discardRejected(done.filter { results[it.idempotency_key]?.success != true })
+
+            if (done.size < batch.size) break
+        }
+
+        reviewDao.pendingCount().also { remaining ->
+            if (remaining > 0) appContext?.let { enqueueWorker(it) }
+        }
+    }
+
+    /**
+     * 一括リクエストの結果
+     */
+    private sealed class BatchOutcome {
+        class Delivered(val results: Map<String, ReviewGradeResult>) : BatchOutcome()
+        // 通信エラー・5xx・認証切れなど（回数を数えずに再送）
+        object Retry : BatchOutcome()
+        // サーバーがリクエスト自体を拒否した（4xx）
+        object Rejected : BatchOutcome()
+    }
+
+    private suspend fun sendBatch(batch: List<PendingReviewEntity>): BatchOutcome {
+        val request = BulkReviewRequest(
+            reviews = batch.map {
+                ReviewGrade(
+                    key = it.idempotency_key,
+                    item_id = it.item_id,
+                    quality = it.quality,
+                    reviewed_at = it.reviewed_at
+                )
+            }
+        )
+        val response = apiService.bulkReview(request)
+        val body = response.body()
+        if (response.isSuccessful && body?.success == true && body.data != null) {
+            return BatchOutcome.Delivered(body.data.results.associateBy { it.key })
+        }
+
+        Log.w(TAG, "Review batch failed: HTTP ${response.code()}")
+        val code = response.code()
+        return if (code in 400..499 && code !in TRANSIENT_CLIENT_ERRORS) BatchOutcome.Rejected else BatchOutcome.Retry
+    }
+
+    /**
+     * 一括リクエストが拒否された回数を数え、上限に達した採点を諦める
+     * @return 諦めた採点
+     */
+    private suspend fun markRejected(reviews: List<PendingReviewEntity>): List<PendingReviewEntity> {
+        val (expired, retryable) = reviews.partition { it.attempts + 1 >= MAX_ATTEMPTS }
+        if (expired.isNotEmpty()) {
+            Log.e(TAG, "Dropping ${expired.size} reviews after $MAX_ATTEMPTS rejections")
+            reviewDao.deletePending(expired.map { it.seq })
+        }
+        if (retryable.isNotEmpty()) {
+            reviewDao.incrementAttempts(retryable.map { it.seq })
+        }
+        return expired
+    }
+
+    /**
+     * 拒否された採点の端末側の予定を取り消す（カードを消し、次の先読みでサーバーの予定を取得する）
+     * 同じカードの採点がまだ送信待ちに残っている場合はそのままにする
+     */
+    private suspend fun discardRejected(rejected: List<PendingReviewEntity>) {
+        if (rejected.isEmpty()) return
+        mutex.withLock {
+            val pendingIds = reviewDao.getPendingItemIds().toSet()
+            val itemIds = rejected.map { it.item_id }.distinct().filter { it !in pendingIds }
+            if (itemIds.isNotEmpty()) {
+                reviewDao.deleteCards(itemIds)
+                Log.w(TAG, "Discarded local schedule of ${itemIds.size} rejected reviews")
+            }
+        }
+    }
+
+    private fun isoFormat() = SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US)
+}
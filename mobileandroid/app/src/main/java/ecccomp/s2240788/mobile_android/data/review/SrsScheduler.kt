@@ -0,0 +1,75 @@
+package ecccomp.s2240788.mobile_android.data.review
+
+import java.text.SimpleDateFormat
+import java.util.Calendar
+import java.util.Date
+import java.util.Locale
+
+/**
+ * 1回の採点の結果
+ * @param reviewCount 採点後のreview_count
+ * @param intervalDays 次回までの日数
+ */
+data class SrsOutcome(
+    val reviewCount: Int,
+    val intervalDays: Int
+)
+
+/**
+ * SrsScheduler
+ * 端末側の間隔反復スケジューラ
+ * Backend: KnowledgeController::applyReview / calculateReviewInterval と同じ計算
+ * （変更する場合は両方を合わせること。ずれるとオフラインで採点した予定が送信後に変わる）
+ */
+object SrsScheduler {
+
+    const val QUALITY_HARD = "hard"
+    const val QUALITY_GOOD = "good"
+    const val QUALITY_EASY = "easy"
+
+    // Spaced repetition intervals in days
+    private val INTERVALS = intArrayOf(1, 3, 7, 14, 30, 60, 120)
+
+    /**
+     * 採点後のreview_countと次回までの日数
+     */
+    fun grade(currentReviewCount: Int, quality: String): SrsOutcome {
+        val reviewCount = when (quality) {
+            // Hard: decrease review count (minimum 0)
+            QUALITY_HARD -> maxOf(0, currentReviewCount - 1)
+            // Easy: advance faster
+            QUALITY_EASY -> currentReviewCount + 2
+            // Good: normal progression
+            else -> currentReviewCount + 1
+        }
+        return SrsOutcome(reviewCount, intervalFor(reviewCount, quality))
+    }
+
+    private fun intervalFor(reviewCount: Int, quality: String): Int {
+        val baseIndex = maxOf(0, minOf(reviewCount - 1, INTERVALS.size - 1))
+        val index = when (quality) {
+            QUALITY_HARD -> maxOf(0, baseIndex - 1)
+            QUALITY_EASY -> minOf(baseIndex + 1, INTERVALS.size - 1)
+            else -> baseIndex
+        }
+        return INTERVALS[index]
+    }
+
+    /**
+     * 採点した日から次回の復習日（yyyy-MM-dd）
+     */
+    fun nextReviewDate(reviewedAt: Date, intervalDays: Int): String {
+        val calendar = Calendar.getInstance().apply {
+            time = reviewedAt
+            add(Calendar.DAY_OF_YEAR, intervalDays)
+        }
+        return dateFormat().format(calendar.time)
+    }
+
+    /**
+     * 今日（yyyy-MM-dd）
+     */
+    fun today(): String = dateFormat().format(Date())
+
+    private fun dateFormat() = SimpleDateFormat("yyyy-MM-dd", Locale.US)
+}
@@ -0,0 +1,422 @@
+package ecccomp.s2240788.mobile_android.data.sync
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.NetworkCapabilities
+import android.util.Log
+import androidx.work.BackoffPolicy
+import androidx.work.Constraints
+import androidx.work.ExistingWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkManager
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.local.PendingMutationEntity
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.local.toEntity
+import ecccomp.s2240788.mobile_android.data.models.MutationBatchRequest
+import ecccomp.s2240788.mobile_android.data.models.MutationRequest
+import ecccomp.s2240788.mobile_android.data.models.MutationResult
+import ecccomp.s2240788.mobile_android.data.models.StartFocusSessionRequest
+import ecccomp.s2240788.mobile_android.data.models.StopFocusSessionRequest
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import ecccomp.s2240788.mobile_android.workers.MutationOutboxWorker
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withTimeoutOrNull
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.UUID
+import java.util.concurrent.TimeUnit
+
+/**
+ * 送信キューに積んだ操作の結果
+ * @param key 冪等キー（focus_session.startのキーは、IDが分からないセッションを終了するときの参照に使う）
+ * @param result サーバーの結果（null = まだ送信できていない。接続後にWorkManagerが再送する）
+ */
+data class OutboxSubmission(
+    val key: String,
+    val result: MutationResult?
+)
+
+/**
+ * 送信結果のまとめ
+ * @param delivered 今回サーバーで確定した操作（冪等キー → 結果）
+ * @param remaining キューに残っている件数
+ */
+data class FlushReport(
+    val delivered: Map<String, MutationResult>,
+    val remaining: Int
+)
+
+/**
+ * MutationOutbox
+ * タスク・サブタスク・フォーカスセッションの書き込みを送信キュー経由で行う
+ * - ローカルDBに即時反映（楽観的更新）してからキューに積む
+ * - 送信はバックグラウンドで行い、画面は最大SUBMIT_WAIT_MSだけ結果を待つ（オフラインなら待たない）
+ *   送れなかった操作はWorkManagerがネットワーク接続後にまとめて再送（通信エラーでは回数の上限なし）
+ * - 冪等キーによりサーバー側で二重適用されない（タイムアウト後の再送も安全）
+ * - 送信は一括API（sync/mutations）で最大BATCH_SIZE件ずつ
+ * - サーバーに拒否された操作（404/422など）は楽観的更新を取り消す（サーバーのタスクを取得し直す）
+ */
+class MutationOutbox(
+    private val apiService: ApiService,
+    private val database: TodoDatabase,
+    private val gson: Gson = NetworkModule.gson
+) {
+    companion object {
+        private const val TAG = "MutationOutbox"
+        private const val WORK_NAME = "mutation_outbox"
+        private const val BATCH_SIZE = 20
+        // 一括リクエスト自体が4xxで拒否され続ける操作（壊れたpayloadなど）は諦める
+        private const val MAX_ATTEMPTS = 20
+        // 画面が送信結果を待つ最大時間（これを過ぎたら「接続後に同期」として扱い、送信は裏で続ける）
+        private const val SUBMIT_WAIT_MS = 3_000L
+
+        const val TYPE_TASK_COMPLETE = "task.complete"
+        const val TYPE_SUBTASK_TOGGLE = "subtask.toggle"
+        const val TYPE_SUBTASK_COMPLETE = "subtask.complete"
+        const val TYPE_FOCUS_SESSION_START = "focus_session.start"
+        const val TYPE_FOCUS_SESSION_STOP = "focus_session.stop"
+
+        // 4xxでも時間をおけば通る応答（認証切れ・タイムアウト・レート制限）
+        private val TRANSIENT_CLIENT_ERRORS = setOf(401, 408, 429)
+
+        @Volatile
+        private var instance: MutationOutbox? = null
+
+        @Volatile
+        private var appContext: Context? = null
+
+        /**
+         * 初期化関数 - Applicationから呼び出す（TodoDatabase.init()の後）
+         * 前回の起動で送信できなかった操作があれば再送をスケジュール
+         */
+        fun init(context: Context) {
+            appContext = context.applicationContext
+            enqueueWorker(context.applicationContext)
+        }
+
+        fun get(): MutationOutbox {
+            return instance ?: synchronized(this) {
+                instance ?: MutationOutbox(NetworkModule.apiService, TodoDatabase.get()).also { instance = it }
+            }
+        }
+
+        /**
+         * 待機中・実行中のWorkerがあればそのまま（Workerはキューが空になるまで送信する）
+         */
+        private fun enqueueWorker(context: Context) {
+            val request = OneTimeWorkRequestBuilder<MutationOutboxWorker>()
+                .setConstraints(
+                    Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build()
+                )
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build()
+
+            WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_NAME,
+                ExistingWorkPolicy.KEEP,
+                request
+            )
+        }
+    }
+
+    private val mutex = Mutex()
+    // 送信は呼び出し元の画面ではなく共有のスコープで行う（画面を閉じても送信は続く）
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val mutationDao get() = database.mutationDao()
+    private val taskDao get() = database.taskDao()
+
+    /**
+     * 送信待ちの件数を監視
+     */
+    fun observePendingCount(): Flow<Int> = mutationDao.observeCount()
+
+    /**
+     * タスクを完了
+     */
+    suspend fun completeTask(taskId: Int): OutboxSubmission {
+        taskDao.updateStatus(taskId, "completed")
+        val payload = JsonObject().apply { addProperty("task_id", taskId) }
+        return submit(enqueue(TYPE_TASK_COMPLETE, payload, taskId))
+    }
+
+    /**
+     * サブタスクの完了状態を切り替え
+     * まだ一度も送信していない同じトグルが残っていれば相殺する（連打しても1件も送らない）
+     */
+    suspend fun toggleSubtask(subtaskId: Int): OutboxSubmission {
+        taskDao.toggleSubtask(subtaskId)
+
+        val cancelledKey = mutex.withLock {
+            val latest = mutationDao.findLatest(
+                listOf(TYPE_SUBTASK_TOGGLE, TYPE_SUBTASK_COMPLETE),
+                subtaskId
+            )
+            if (latest != null && latest.type == TYPE_SUBTASK_TOGGLE && !latest.sent) {
+                mutationDao.delete(listOf(latest.seq))
+                latest.idempotency_key
+            } else {
+                null
+            }
+        }
+        if (cancelledKey != null) {
+            Log.d(TAG, "Cancelled pending toggle for subtask $subtaskId")
+            return OutboxSubmission(cancelledKey, null)
+        }
+
+        val payload = JsonObject().apply { addProperty("subtask_id", subtaskId) }
+        return submit(enqueue(TYPE_SUBTASK_TOGGLE, payload, subtaskId))
+    }
+
+    /**
+     * サブタスクを完了（全サブタスク完了で親タスクもサーバー側で完了になる）
+     */
+    suspend fun completeSubtask(subtaskId: Int): OutboxSubmission {
+        taskDao.markSubtaskCompleted(subtaskId)
+        val payload = JsonObject().apply { addProperty("subtask_id", subtaskId) }
+        return submit(enqueue(TYPE_SUBTASK_COMPLETE, payload, subtaskId))
+    }
+
+    /**
+     * フォーカスセッションを開始
+     * started_atが未設定なら現在時刻を入れる（オフラインで再送が遅れても時間が正しく記録される）
+     */
+    suspend fun startFocusSession(request: StartFocusSessionRequest): OutboxSubmission {
+        val stamped = request.copy(started_at = request.started_at ?: nowIso())
+        val payload = gson.toJsonTree(stamped).asJsonObject
+        return submit(enqueue(TYPE_FOCUS_SESSION_START, payload, request.task_id))
+    }
+
+    /**
+     * フォーカスセッションを終了
+     * @param sessionId サーバーのセッションID（分かっている場合）
+     * @param startKey 開始操作の冪等キー（セッションIDがまだ分からない場合）
+     */
+    suspend fun stopFocusSession(
+        sessionId: Int?,
+        startKey: String?,
+        request: StopFocusSessionRequest
+    ): OutboxSubmission {
+        val stamped = request.copy(ended_at = request.ended_at ?: nowIso())
+        val payload = gson.toJsonTree(stamped).asJsonObject.apply {
+            sessionId?.let { addProperty("session_id", it) }
+            startKey?.let { addProperty("start_key", it) }
+        }
+        return submit(enqueue(TYPE_FOCUS_SESSION_STOP, payload, sessionId))
+    }
+
+    /**
+     * キューの操作を古い順に送信
+     * 一時的な失敗（通信エラー・5xx）があった時点で止める（順序を保つため）
+     * 拒否された操作のタスクは、送信後にサーバーの状態で置き換える
+     */
+    suspend fun flush(): FlushReport {
+        val rejected = mutableListOf<PendingMutationEntity>()
+        val report = mutex.withLock { flushLocked(rejected) }
+        if (rejected.isNotEmpty()) {
+            restoreRejected(rejected)
+        }
+        return report
+    }
+
+    private suspend fun flushLocked(rejected: MutableList<PendingMutationEntity>): FlushReport {
+        val delivered = mutableMapOf<String, MutationResult>()
+
+        while (true) {
+            val batch = mutationDao.getBatch(BATCH_SIZE)
+            if (batch.isEmpty()) break
+
+            // 応答が届かなくてもサーバーで適用されている可能性があるため、送る前に記録する
+            mutationDao.markSent(batch.filter { !it.sent }.map { it.seq })
+
+            val outcome = try {
+                sendBatch(batch)
+            } catch (e: Exception) {
+                Log.w(TAG, "Outbox flush failed: ${e.message}")
+                BatchOutcome.Retry
+            }
+            val results = when (outcome) {
+                is BatchOutcome.Delivered -> outcome.results
+                BatchOutcome.Retry -> break
+                BatchOutcome.Rejected -> {
+                    rejected += markRejected(batch)
+                    break
+                }
+            }
+
+            val done = mutableListOf<Long>()
+            var hasRetry = false
+            batch.forEach { mutation ->
+                val result = results[mutation.idempotency_key]
+                if (result != null && result.isFinal) {
+                    done += mutation.seq
+                    delivered[mutation.idempotency_key] = result
+                    if (!result.success) {
+                        Log.w(TAG, "Mutation ${mutation.type} rejected (${result.status}): ${result.message}")
+                        rejected += mutation
+                    }
+                } else {
+                    hasRetry = true
+                }
+            }
+            mutationDao.delete(done)
+
+            // 5xxの操作は回数を数えずに、次回（Workerのバックオフ後）に再送する
+            if (hasRetry) break
+        }
+
+        return FlushReport(delivered, mutationDao.count())
+    }
+
+    /**
+     * ネットワーク接続後に再送するWorkerをスケジュール
+     */
+    fun schedule() {
+        appContext?.let { enqueueWorker(it) }
+    }
+
+    private suspend fun enqueue(type: String, payload: JsonObject, targetId: Int?): String {
+        val key = UUID.randomUUID().toString()
+        mutationDao.insert(
+            PendingMutationEntity(
+                idempotency_key = key,
+                type = type,
+                payload = gson.toJson(payload),
+                target_id = targetId
+            )
+        )
+        Log.d(TAG, "Queued $type (key=$key)")
+        return key
+    }
+
+    /**
+     * ローカルに保存済みの操作をバックグラウンドで送信し、短い時間だけ結果を待つ
+     * オフラインなら送信せずにWorkerに任せる（接続タイムアウトまで画面を待たせない）
+     */
+    private suspend fun submit(key: String): OutboxSubmission {
+        if (!isOnline()) {
+            schedule()
+            return OutboxSubmission(key, null)
+        }
+
+        val flushing = scope.async {
+            val report = try {
+                flush()
+            } catch (e: Exception) {
+                Log.w(TAG, "Outbox flush failed: ${e.message}")
+                null
+            }
+            if (report == null || report.remaining > 0) {
+                schedule()
+            }
+            report
+        }
+        val report = withTimeoutOrNull(SUBMIT_WAIT_MS) { flushing.await() }
+        return OutboxSubmission(key, report?.delivered?.get(key))
+    }
+
+    private fun isOnline(): Boolean {
+        val context = appContext ?: return true
+        val connectivityManager = context.getSystemService(ConnectivityManager::class.java) ?: return true
+        val capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.activeNetwork) ?: return false
+        return capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+    }
+
+    /**
+     * 一括リクエストの結果
+     */
+    private sealed class BatchOutcome {
+        class Delivered(val results: Map<String, MutationResult>) : BatchOutcome()
+        // 通信エラー・5xx・認証切れなど（回数を数えずに再送）
+        object Retry : BatchOutcome()
+        // サーバーがリクエスト自体を拒否した（4xx）
+        object Rejected : BatchOutcome()
+    }
+
+    private suspend fun sendBatch(batch: List<PendingMutationEntity>): BatchOutcome {
+        val request = MutationBatchRequest(
+            mutations = batch.map {
+                MutationRequest(
+                    key = it.idempotency_key,
+                    type = it.type,
+                    payload = gson.fromJson(it.payload, JsonObject::class.java)
+                )
+            }
+        )
+        val response = apiService.applyMutations(request)
+        val body = response.body()
+        if (response.isSuccessful && body?.success == true && body.data != null) {
+            return BatchOutcome.Delivered(body.data.results.associateBy { it.key })
+        }
+
+        Log.w(TAG, "Outbox batch failed: HTTP ${response.code()}")
+        val code = response.code()
+        return if (code in 400..499 && code !in TRANSIENT_CLIENT_ERRORS) BatchOutcome.Rejected else BatchOutcome.Retry
+    }
+
+    /**
+     * 一括リクエストが拒否された回数を数え、上限に達した操作を諦める
+     * @return 諦めた操作（楽観的更新を取り消す）
+     */
+    private suspend fun markRejected(mutations: List<PendingMutationEntity>): List<PendingMutationEntity> {
+        val (expired, retryable) = mutations.partition { it.attempts + 1 >= MAX_ATTEMPTS }
+        if (expired.isNotEmpty()) {
+            expired.forEach { Log.e(TAG, "Dropping ${it.type} (key=${it.idempotency_key}) after $MAX_ATTEMPTS rejections") }
+            mutationDao.delete(expired.map { it.seq })
+        }
+        if (retryable.isNotEmpty()) {
+            mutationDao.incrementAttempts(retryable.map { it.seq })
+        }
+        return expired
+    }
+
+    /**
+     * 拒否された操作の対象タスクをサーバーから取得し直し、楽観的更新を取り消す
+     * 取得できなければ次回の同期をフルスナップショットにする（そこでサーバーの状態に戻る）
+     */
+    private suspend fun restoreRejected(rejected: List<PendingMutationEntity>) {
+        val taskIds = rejected.mapNotNull { mutation ->
+            when (mutation.type) {
+                TYPE_TASK_COMPLETE -> mutation.target_id
+                TYPE_SUBTASK_TOGGLE, TYPE_SUBTASK_COMPLETE -> mutation.target_id?.let { taskDao.getSubtaskTaskId(it) }
+                else -> null
+            }
+        }.distinct()
+
+        for (taskId in taskIds) {
+            try {
+                val response = apiService.getTask(taskId)
+                val task = response.body()?.takeIf { response.isSuccessful && it.success }?.data
+                when {
+                    task != null -> taskDao.applyChanges(
+                        listOf(task.toEntity()),
+                        task.subtasks.orEmpty().map { it.toEntity() },
+                        emptyList()
+                    )
+                    response.code() == 404 -> taskDao.deleteTask(taskId)
+                    else -> SyncEngine.get().resetWatermarks(setOf(SyncEntity.TASKS))
+                }
+                Log.d(TAG, "Restored task $taskId after rejected mutation")
+            } catch (e: Exception) {
+                Log.w(TAG, "Failed to restore task $taskId: ${e.message}")
+                SyncEngine.get().resetWatermarks(setOf(SyncEntity.TASKS))
+            }
+        }
+    }
+
+    private fun nowIso(): String {
+        return SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US).format(Date())
+    }
+}
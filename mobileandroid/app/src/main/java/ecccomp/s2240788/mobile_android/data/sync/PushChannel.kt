@@ -0,0 +1,246 @@
+package ecccomp.s2240788.mobile_android.data.sync
+
+import android.content.Context
+import android.util.Log
+import com.google.gson.JsonParser
+import ecccomp.s2240788.mobile_android.data.result.SyncResult
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import ecccomp.s2240788.mobile_android.utils.TokenManager
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import okhttp3.Call
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import java.io.IOException
+import kotlin.random.Random
+
+/**
+ * PushChannel
+ * サーバーからの変更通知（SSE: GET push/stream）を受け取り、該当エンティティだけ差分同期する
+ * - アプリが前面にある間だけ接続（バックグラウンドはSyncSchedulerの定期同期に任せる）
+ * - 通知にはデータを含まない（受け取ったら SyncEngine で取得。届かなくても定期同期で追いつく）
+ * - サーバーは一定時間で接続を閉じるので、すぐに再接続する（Last-Event-IDで取りこぼしを再送してもらう）
+ * - 接続に失敗した場合は指数バックオフ（ジッター付き）で再接続
+ * - 短時間に続いた通知はDEBOUNCE_MSでまとめて1回の同期にする
+ * 接続先・トークン・同期処理は差し替えられる（テストではローカルのSSEサーバーに接続する）
+ */
+class PushChannel(
+    private val client: OkHttpClient,
+    private val baseUrl: String,
+    private val tokenProvider: () -> String?,
+    private val onSync: suspend (Set<SyncEntity>) -> Unit,
+    private val minBackoffMs: Long = MIN_BACKOFF_MS,
+    private val debounceMs: Long = DEBOUNCE_MS
+) {
+    companion object {
+        private const val TAG = "PushChannel"
+        private const val EVENT_SYNC = "sync"
+
+        private const val DEBOUNCE_MS = 500L
+
+        // サーバーが接続を区切った時の再接続までの待ち時間（SSEのretryで上書きされる）
+        private const val DEFAULT_RETRY_MS = 3_000L
+        private const val MIN_BACKOFF_MS = 1_000L
+        private const val MAX_BACKOFF_MS = 60_000L
+
+        @Volatile
+        private var instance: PushChannel? = null
+
+        fun get(context: Context): PushChannel {
+            return instance ?: synchronized(this) {
+                instance ?: create(context.applicationContext).also { instance = it }
+            }
+        }
+
+        private fun create(context: Context) = PushChannel(
+            client = NetworkModule.streamingClient,
+            baseUrl = NetworkModule.baseUrl,
+            tokenProvider = { TokenManager.getToken() },
+            onSync = { entities ->
+                when (val result = SyncEngine.get().sync(entities)) {
+                    is SyncResult.Success -> {
+                        Log.d(TAG, "Push sync ${entities.map { it.key }}: ${result.data.changedCounts}")
+                        SyncScheduler.get(context).showNewNotifications(result.data)
+                    }
+                    is SyncResult.Error -> Log.w(TAG, "Push sync failed: ${result.message}")
+                    is SyncResult.Loading -> Unit
+                }
+            }
+        )
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private var streamJob: Job? = null
+    private var syncJob: Job? = null
+
+    // start()/stop()のたびに進める。古い世代のループは接続を作らずに終わる
+    private var generation = 0
+
+    private var currentCall: Call? = null
+
+    // 最後に受け取ったイベントのID（プロセス内のみ保持。再起動後は接続時に同期し直す）
+    @Volatile
+    private var lastEventId: String? = null
+
+    @Volatile
+    private var retryMs = DEFAULT_RETRY_MS
+
+    private val pendingEntities = mutableSetOf<SyncEntity>()
+
+    /**
+     * 接続を開始（アプリが前面に来た時）
+     */
+    @Synchronized
+    fun start() {
+        if (streamJob?.isActive == true) return
+        val current = ++generation
+        streamJob = scope.launch { runLoop(current) }
+        Log.d(TAG, "Push channel started")
+    }
+
+    /**
+     * 接続を終了（アプリがバックグラウンドに移った時・ログアウト時）
+     */
+    @Synchronized
+    fun stop() {
+        generation++
+        streamJob?.cancel()
+        streamJob = null
+        currentCall?.cancel()
+        currentCall = null
+        Log.d(TAG, "Push channel stopped")
+    }
+
+    private suspend fun runLoop(generation: Int) {
+        var backoffMs = minBackoffMs
+        while (scope.isActive) {
+            if (tokenProvider() == null) {
+                // 未ログイン（ログイン後にstart()し直される）
+                break
+            }
+
+            val outcome = try {
+                connect(generation)
+            } catch (e: IOException) {
+                Log.w(TAG, "Push stream failed: ${e.message}")
+                StreamOutcome.FAILED
+            }
+
+            when (outcome) {
+                StreamOutcome.CLOSED -> {
+                    // サーバーが区切っただけなので、retryの時間だけ待って再接続
+                    backoffMs = minBackoffMs
+                    delay(retryMs)
+                }
+                StreamOutcome.FAILED -> {
+                    // 同時に大量の端末が再接続しないようにジッターを入れる
+                    delay(backoffMs + Random.nextLong(backoffMs / 2 + 1))
+                    backoffMs = (backoffMs * 2).coerceAtMost(MAX_BACKOFF_MS)
+                }
+                StreamOutcome.UNAUTHORIZED, StreamOutcome.STOPPED -> break
+            }
+        }
+    }
+
+    private enum class StreamOutcome { CLOSED, FAILED, UNAUTHORIZED, STOPPED }
+
+    /**
+     * 1回分の接続を読み切る
+     */
+    private fun connect(generation: Int): StreamOutcome {
+        val request = Request.Builder()
+            .url("${baseUrl}push/stream")
+            .header("Accept", "text/event-stream")
+            .apply { lastEventId?.let { header("Last-Event-ID", it) } }
+            .build()
+
+        val call = client.newCall(request)
+        // stop()と同じロックで登録する（stop()の後に登録された接続が切られずに残らないように）
+        synchronized(this) {
+            if (generation != this.generation) return StreamOutcome.STOPPED
+            currentCall = call
+        }
+        call.execute().use { response ->
+            if (response.code == 401) {
+                Log.w(TAG, "Push stream unauthorized, stopping")
+                return StreamOutcome.UNAUTHORIZED
+            }
+            if (!response.isSuccessful) {
+                Log.w(TAG, "Push stream HTTP ${response.code}")
+                return StreamOutcome.FAILED
+            }
+
+            // 新しい接続（イベントIDなし）の場合は、接続前の変更を取りこぼさないよう一度同期
+            if (lastEventId == null) {
+                enqueueSync(setOf(SyncEntity.TASKS, SyncEntity.NOTIFICATIONS))
+            }
+
+            val source = response.body?.source() ?: return StreamOutcome.FAILED
+            var eventId: String? = null
+            var eventType: String? = null
+            val data = StringBuilder()
+
+            // SSE: フィールド行 + 空行で1イベント。":"で始まる行はコメント（keepalive）
+            while (!source.exhausted()) {
+                val line = source.readUtf8Line() ?: break
+                when {
+                    line.isEmpty() -> {
+                        // IDだけのイベント（接続直後にサーバーが送る現在のID）もIDは記録する
+                        eventId?.let { lastEventId = it }
+                        if (data.isNotEmpty()) {
+                            handleEvent(eventType, data.toString())
+                        }
+                        eventId = null
+                        eventType = null
+                        data.setLength(0)
+                    }
+                    line.startsWith(":") -> Unit
+                    line.startsWith("id:") -> eventId = line.substring(3).trim()
+                    line.startsWith("event:") -> eventType = line.substring(6).trim()
+                    line.startsWith("data:") -> {
+                        if (data.isNotEmpty()) data.append('\n')
+                        data.append(line.substring(5).trim())
+                    }
+                    line.startsWith("retry:") -> line.substring(6).trim().toLongOrNull()?.let { retryMs = it }
+                }
+            }
+        }
+        return StreamOutcome.CLOSED
+    }
+
+    private fun handleEvent(type: String?, data: String) {
+        if (type != EVENT_SYNC) return
+        val entities = try {
+            JsonParser.parseString(data).asJsonObject.getAsJsonArray("entities")
+                .mapNotNull { element -> SyncEntity.entries.firstOrNull { it.key == element.asString } }
+                .toSet()
+        } catch (e: Exception) {
+            Log.w(TAG, "Skipping malformed push event: ${e.message}")
+            return
+        }
+        if (entities.isNotEmpty()) enqueueSync(entities)
+    }
+
+    /**
+     * 同期を予約（DEBOUNCE_MS以内に届いた分はまとめる）
+     */
+    private fun enqueueSync(entities: Set<SyncEntity>) {
+        synchronized(pendingEntities) {
+            pendingEntities += entities
+            if (syncJob?.isActive == true) return
+            syncJob = scope.launch {
+                delay(debounceMs)
+                val toSync = synchronized(pendingEntities) {
+                    pendingEntities.toSet().also { pendingEntities.clear() }
+                }
+                onSync(toSync)
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package ecccomp.s2240788.mobile_android.data.sync
+
+import android.util.Log
+import androidx.room.withTransaction
+import com.google.gson.Gson
+import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.local.SyncRecordEntity
+import ecccomp.s2240788.mobile_android.data.local.SyncStateEntity
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.local.toEntity
+import ecccomp.s2240788.mobile_android.data.local.toSearchEntity
+import ecccomp.s2240788.mobile_android.data.models.EntityChanges
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+import ecccomp.s2240788.mobile_android.data.models.Notification
+import ecccomp.s2240788.mobile_android.data.models.SyncBatchRequest
+import ecccomp.s2240788.mobile_android.data.models.SyncChangesResponse
+import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.data.models.UserSettings
+import ecccomp.s2240788.mobile_android.data.result.SyncResult
+import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * 差分同期の対象
+ * @param key APIのエンティティ名（sync/changes の entities パラメータ）
+ */
+enum class SyncEntity(val key: String) {
+    TASKS("tasks"),
+    KNOWLEDGE("knowledge"),
+    NOTIFICATIONS("notifications"),
+    TIMETABLE("timetable");
+
+    companion object {
+        val ALL: Set<SyncEntity> = entries.toSet()
+    }
+}
+
+/**
+ * 同期結果のサマリー
+ * @param changedCounts エンティティごとの変更件数（更新 + 削除）
+ * @param newNotifications ローカルに存在しなかった通知（システム通知表示用）
+ * @param fullSnapshot フルスナップショットを受信したか
+ */
+data class SyncSummary(
+    val changedCounts: Map<SyncEntity, Int>,
+    val newNotifications: List<Notification>,
+    val fullSnapshot: Boolean
+)
+
+/**
+ * バッチ同期の結果
+ * @param heartbeats タスクID → ハートビートが反映されたか
+ * @param settings 設定（要求した場合のみ）
+ */
+data class BatchSyncResult(
+    val summary: SyncSummary,
+    val heartbeats: Map<Int, Boolean>,
+    val settings: UserSettings?
+)
+
+/**
+ * SyncEngine
+ * サーバーの差分同期API（sync/changes）を使い、ローカルDBに変更だけを適用する
+ * - watermarkはエンティティごとにRoomに保存（ログアウト時のclearAllTablesで初期化される）
+ * - tombstoneで削除を反映
+ * - live_countとローカル件数が合わない場合はフルスナップショットで修復（live_countがないエンティティは確認しない）
+ * - 同時実行はMutexで直列化（画面とWorkerが同時に呼んでも二重取得しない）
+ * - 知識アイテムは検索用テキスト（knowledge_search）も同じトランザクションで更新する
+ */
+class SyncEngine(
+    private val apiService: ApiService,
+    private val database: TodoDatabase,
+    private val gson: Gson = NetworkModule.gson
+) {
+    companion object {
+        private const val TAG = "SyncEngine"
+
+        @Volatile
+        private var instance: SyncEngine? = null
+
+        /**
+         * 共有インスタンス（TodoDatabase.init()済みであること）
+         */
+        fun get(): SyncEngine {
+            return instance ?: synchronized(this) {
+                instance ?: SyncEngine(NetworkModule.apiService, TodoDatabase.get()).also { instance = it }
+            }
+        }
+    }
+
+    private val mutex = Mutex()
+    private val taskDao get() = database.taskDao()
+    private val syncDao get() = database.syncDao()
+    private val knowledgeSearchDao get() = database.knowledgeSearchDao()
+    private val mutationDao get() = database.mutationDao()
+
+    /**
+     * 指定エンティティを同期
+     */
+    suspend fun sync(entities: Set<SyncEntity> = SyncEntity.ALL): SyncResult<SyncSummary> = mutex.withLock {
+        try {
+            val watermarks = syncDao.getStates().associate { it.entity to it.watermark }
+            val accumulator = SummaryAccumulator()
+
+            // 同じwatermarkのエンティティは1リクエストにまとめる
+            entities.groupBy { watermarks[it.key] }.forEach { (since, group) ->
+                fetchAndApply(since, group, accumulator)
+            }
+
+            // 取りこぼし（DBカスケード削除など）があればフルスナップショットで修復
+            val drifted = accumulator.drifted.toList()
+            if (drifted.isNotEmpty()) {
+                Log.w(TAG, "Local count drift detected for $drifted, requesting full snapshot")
+                accumulator.drifted.clear()
+                fetchAndApply(null, drifted, accumulator)
+            }
+
+            SyncResult.Success(accumulator.toSummary())
+        } catch (e: SyncHttpException) {
+            Log.e(TAG, "Sync failed: HTTP ${e.code}")
+            SyncResult.Error(
+                when (e.code) {
+                    401 -> "認証に失敗しました"
+                    500 -> "サーバーエラーが発生しました"
+                    else -> "同期に失敗しました: ${e.code}"
+                }
+            )
+        } catch (e: Exception) {
+            Log.e(TAG, "Sync failed: ${e.message}", e)
+            SyncResult.Error("ネットワークエラー: ${e.message}")
+        }
+    }
+
+    /**
+     * バックグラウンド同期1回分をまとめて送る（sync/batch）
+     * - 差分・ハートビート・設定を1リクエストで取得（無線の起動を1回にする）
+     * - エンティティごとのwatermarkが違う場合は最も古いものから取得（upsertなので重複しても冪等）
+     */
+    suspend fun syncBatch(
+        entities: Set<SyncEntity>,
+        heartbeatTaskIds: List<Int>,
+        includeSettings: Boolean
+    ): SyncResult<BatchSyncResult> = mutex.withLock {
+        try {
+            val watermarks = syncDao.getStates().associate { it.entity to it.watermark }
+            val entityWatermarks = entities.map { watermarks[it.key] }
+            // ISO8601（Zulu）の文字列なので辞書順で比較できる。未同期のエンティティがあればフルスナップショット
+            val since = if (entityWatermarks.any { it == null }) null else entityWatermarks.filterNotNull().minOrNull()
+
+            val response = apiService.syncBatch(
+                SyncBatchRequest(
+                    since = since,
+                    entities = entities.joinToString(",") { it.key },
+                    heartbeat_task_ids = heartbeatTaskIds,
+                    include_settings = includeSettings
+                )
+            )
+            val body = response.body()
+            if (!response.isSuccessful || body?.success != true || body.data == null) {
+                throw SyncHttpException(response.code())
+            }
+            val data = body.data
+
+            val accumulator = SummaryAccumulator()
+            apply(
+                SyncChangesResponse(watermark = data.watermark, full = data.full, changes = data.changes),
+                entities.toList(),
+                accumulator
+            )
+            Log.d(TAG, "Batch synced ${entities.map { it.key }} since=$since full=${data.full}")
+
+            val drifted = accumulator.drifted.toList()
+            if (drifted.isNotEmpty()) {
+                Log.w(TAG, "Local count drift detected for $drifted, requesting full snapshot")
+                accumulator.drifted.clear()
+                fetchAndApply(null, drifted, accumulator)
+            }
+
+            SyncResult.Success(
+                BatchSyncResult(
+                    summary = accumulator.toSummary(),
+                    heartbeats = data.heartbeats.orEmpty()
+                        .mapNotNull { (id, ok) -> id.toIntOrNull()?.let { it to ok } }
+                        .toMap(),
+                    settings = data.settings
+                )
+            )
+        } catch (e: SyncHttpException) {
+            Log.e(TAG, "Batch sync failed: HTTP ${e.code}")
+            SyncResult.Error("同期に失敗しました: ${e.code}")
+        } catch (e: Exception) {
+            Log.e(TAG, "Batch sync failed: ${e.message}", e)
+            SyncResult.Error("ネットワークエラー: ${e.message}")
+        }
+    }
+
+    /**
+     * 汎用キャッシュのレコードを読み込み（知識・通知・時間割）
+     */
+    suspend fun <T> readRecords(entity: SyncEntity, type: Class<T>): List<T> {
+        return syncDao.getRecords(entity.key).mapNotNull { decode(it.json, type) }
+    }
+
+    /**
+     * 汎用キャッシュのレコードを監視
+     */
+    fun <T> observeRecords(entity: SyncEntity, type: Class<T>): Flow<List<T>> {
+        return syncDao.observeRecords(entity.key).map { records ->
+            records.mapNotNull { decode(it.json, type) }
+        }
+    }
+
+    /**
+     * 次回の同期をフルスナップショットにする
+     */
+    suspend fun resetWatermarks(entities: Set<SyncEntity> = SyncEntity.ALL) {
+        syncDao.clearStates(entities.map { it.key })
+    }
+
+    private suspend fun fetchAndApply(
+        since: String?,
+        entities: List<SyncEntity>,
+        accumulator: SummaryAccumulator
+    ) {
+        val response = apiService.getSyncChanges(
+            since = since,
+            entities = entities.joinToString(",") { it.key }
+        )
+        val body = response.body()
+        if (!response.isSuccessful || body?.success != true || body.data == null) {
+            throw SyncHttpException(response.code())
+        }
+        apply(body.data, entities, accumulator)
+
+        Log.d(TAG, "Synced ${entities.map { it.key }} since=$since full=${body.data.full}")
+    }
+
+    private suspend fun apply(
+        data: SyncChangesResponse,
+        entities: List<SyncEntity>,
+        accumulator: SummaryAccumulator
+    ) {
+        database.withTransaction {
+            for (entity in entities) {
+                applyEntity(entity, data, accumulator)
+            }
+            syncDao.upsertStates(entities.map { SyncStateEntity(it.key, data.watermark) })
+        }
+        if (data.full) accumulator.fullSnapshot = true
+    }
+
+    private suspend fun applyEntity(entity: SyncEntity, data: SyncChangesResponse, accumulator: SummaryAccumulator) {
+        val changes = data.changes
+        when (entity) {
+            SyncEntity.TASKS -> changes.tasks?.let { applyTasks(it, data.full, accumulator) }
+            SyncEntity.KNOWLEDGE -> changes.knowledge?.let {
+                applyRecords(entity, it, data.full, accumulator) { item -> item.id }
+                applyKnowledgeSearch(it, data.full)
+            }
+            SyncEntity.NOTIFICATIONS -> changes.notifications?.let {
+                val knownIds = syncDao.getIds(entity.key).toHashSet()
+                accumulator.newNotifications += it.updated.orEmpty().filter { n -> n.id !in knownIds }
+                applyRecords(entity, it, data.full, accumulator) { n -> n.id }
+            }
+            SyncEntity.TIMETABLE -> changes.timetable?.let {
+                applyRecords(entity, it, data.full, accumulator) { c -> c.id }
+            }
+        }
+    }
+
+    private suspend fun applyTasks(changes: EntityChanges<Task>, full: Boolean, accumulator: SummaryAccumulator) {
+        val tasks = changes.updated.orEmpty()
+        val taskEntities = tasks.map { it.toEntity() }
+        val subtaskEntities = tasks.flatMap { task -> task.subtasks.orEmpty().map { it.toEntity() } }
+        val deleted = changes.deleted.orEmpty()
+
+        if (full) {
+            taskDao.reconcile(taskEntities, subtaskEntities)
+        } else {
+            taskDao.applyChanges(taskEntities, subtaskEntities, deleted)
+        }
+        reapplyPendingMutations(if (full) null else taskEntities.mapTo(HashSet()) { it.id })
+
+        accumulator.record(SyncEntity.TASKS, tasks.size + deleted.size)
+        if (!full && changes.live_count != null && taskDao.count() != changes.live_count) {
+            accumulator.drifted += SyncEntity.TASKS
+        }
+    }
+
+    /**
+     * 送信キューに残っているタスク・サブタスクの操作を同期結果の上に再適用（同じトランザクション内）
+     * 送信に失敗したまま同期しても、完了などの楽観的更新がサーバーの状態に巻き戻らない（送信後にサーバーと一致する）
+     * - 完了は何度適用しても同じなので、送信済み（応答待ち）のものも再適用する
+     * - トグルは未送信のものだけ（送信済みはサーバーで適用済みの可能性があり、二重に反転させない）
+     * @param taskIds 同期で書き換えたタスク（null = すべて。それ以外のタスクは端末の状態のまま）
+     */
+    private suspend fun reapplyPendingMutations(taskIds: Set<Int>?) {
+        val pending = mutationDao.getByTypes(
+            listOf(
+                MutationOutbox.TYPE_TASK_COMPLETE,
+                MutationOutbox.TYPE_SUBTASK_TOGGLE,
+                MutationOutbox.TYPE_SUBTASK_COMPLETE
+            )
+        )
+        for (mutation in pending) {
+            val targetId = mutation.target_id ?: continue
+            if (mutation.type == MutationOutbox.TYPE_TASK_COMPLETE) {
+                if (taskIds == null || targetId in taskIds) taskDao.updateStatus(targetId, "completed")
+                continue
+            }
+            val taskId = taskDao.getSubtaskTaskId(targetId) ?: continue
+            if (taskIds != null && taskId !in taskIds) continue
+            when {
+                mutation.type == MutationOutbox.TYPE_SUBTASK_COMPLETE -> taskDao.markSubtaskCompleted(targetId)
+                !mutation.sent -> taskDao.toggleSubtask(targetId)
+            }
+        }
+    }
+
+    private suspend fun <T> applyRecords(
+        entity: SyncEntity,
+        changes: EntityChanges<T>,
+        full: Boolean,
+        accumulator: SummaryAccumulator,
+        idOf: (T) -> Int
+    ) {
+        val records = changes.updated.orEmpty().map { SyncRecordEntity(entity.key, idOf(it), gson.toJson(it)) }
+        val deleted = changes.deleted.orEmpty()
+
+        if (full) {
+            syncDao.replaceAll(entity.key, records)
+        } else {
+            syncDao.applyChanges(entity.key, records, deleted)
+        }
+
+        accumulator.record(entity, records.size + deleted.size)
+        if (!full && changes.live_count != null && syncDao.count(entity.key) != changes.live_count) {
+            accumulator.drifted += entity
+        }
+    }
+
+    private suspend fun applyKnowledgeSearch(changes: EntityChanges<KnowledgeItem>, full: Boolean) {
+        val entries = changes.updated.orEmpty().map { it.toSearchEntity() }
+        if (full) {
+            knowledgeSearchDao.replaceAll(entries)
+        } else {
+            knowledgeSearchDao.applyChanges(entries, changes.deleted.orEmpty())
+        }
+    }
+
+    private fun <T> decode(json: String, type: Class<T>): T? {
+        return try {
+            gson.fromJson(json, type)
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to decode cached record: ${e.message}")
+            null
+        }
+    }
+
+    private class SummaryAccumulator {
+        val changedCounts = mutableMapOf<SyncEntity, Int>()
+        val newNotifications = mutableListOf<Notification>()
+        val drifted = mutableSetOf<SyncEntity>()
+        var fullSnapshot = false
+
+        fun record(entity: SyncEntity, count: Int) {
+            changedCounts[entity] = (changedCounts[entity] ?: 0) + count
+        }
+
+        fun toSummary() = SyncSummary(changedCounts.toMap(), newNotifications.toList(), fullSnapshot)
+    }
+
+    private class SyncHttpException(val code: Int) : Exception("HTTP $code")
+}
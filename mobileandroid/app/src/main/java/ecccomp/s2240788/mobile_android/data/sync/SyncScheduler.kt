@@ -0,0 +1,208 @@
+package ecccomp.s2240788.mobile_android.data.sync
+
+import android.content.Context
+import android.content.SharedPreferences
+import android.util.Log
+import androidx.work.Constraints
+import androidx.work.ExistingWorkPolicy
+import androidx.work.NetworkType
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkManager
+import ecccomp.s2240788.mobile_android.data.result.SyncResult
+import ecccomp.s2240788.mobile_android.utils.NotificationHelper
+import ecccomp.s2240788.mobile_android.utils.SettingsPreferences
+import ecccomp.s2240788.mobile_android.workers.BackgroundSyncWorker
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.TimeUnit
+
+/**
+ * SyncScheduler
+ * バックグラウンド同期のスケジューラー（固定間隔のポーリングの代わり）
+ * - 通知・タスク・知識アイテム（端末の検索索引）の差分・実行中タスクのハートビート・設定を1回のリクエスト（sync/batch）にまとめる
+ * - 次回までの間隔はデータが実際に変わる頻度に合わせる
+ *   変更があれば最短（MIN_INTERVAL_MINUTES）に戻し、変更がなければ倍にしていく（最大MAX_INTERVAL_MINUTES）
+ * - ネットワーク接続・バッテリー残量で実行を制限し、間隔が長い（静かな）時は端末のアイドル時にだけ実行
+ * - 1回ごとに次のWorkを登録する（PeriodicWorkは間隔を変えられないため）
+ */
+class SyncScheduler(
+    private val context: Context,
+    private val syncEngine: SyncEngine
+) {
+    companion object {
+        private const val TAG = "SyncScheduler"
+        private const val WORK_NAME = "background_sync"
+
+        // 以前の固定間隔（30分）の通知ポーリング
+        private const val LEGACY_WORK_NAME = "notification_sync"
+
+        private const val PREF_NAME = "sync_scheduler_prefs"
+        private const val KEY_INTERVAL_MINUTES = "interval_minutes"
+        private const val KEY_ACTIVE_TASK_ID = "active_task_id"
+
+        // WorkManagerの最短間隔に合わせる
+        private const val MIN_INTERVAL_MINUTES = 15L
+        private const val MAX_INTERVAL_MINUTES = 6 * 60L
+
+        // この間隔以上ならアイドル時だけ実行（変更が少ない時は急がない）
+        private const val IDLE_ONLY_INTERVAL_MINUTES = 60L
+
+        // 一度に表示するシステム通知（それ以上はまとめて1件）
+        private const val MAX_SYSTEM_NOTIFICATIONS = 3
+
+        private val BACKGROUND_ENTITIES = setOf(SyncEntity.TASKS, SyncEntity.NOTIFICATIONS, SyncEntity.KNOWLEDGE)
+
+        @Volatile
+        private var instance: SyncScheduler? = null
+
+        /**
+         * 初期化関数 - Applicationから呼び出す（TodoDatabase.init()の後）
+         * 登録済みの次回分があればそのまま（起動のたびに間隔をリセットしない）
+         */
+        fun init(context: Context) {
+            val scheduler = get(context)
+            WorkManager.getInstance(context.applicationContext).cancelUniqueWork(LEGACY_WORK_NAME)
+            scheduler.enqueue(scheduler.currentInterval(), ExistingWorkPolicy.KEEP)
+        }
+
+        fun get(context: Context): SyncScheduler {
+            return instance ?: synchronized(this) {
+                instance ?: SyncScheduler(context.applicationContext, SyncEngine.get()).also { instance = it }
+            }
+        }
+    }
+
+    private val mutex = Mutex()
+
+    private val prefs: SharedPreferences
+        get() = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE)
+
+    /**
+     * 実行中のタスクを登録（次回以降の同期でハートビートを送る）
+     * 間隔を最短に戻す（フォーカス中は変更が起きやすい）
+     */
+    fun setActiveTask(taskId: Int) {
+        prefs.edit()
+            .putInt(KEY_ACTIVE_TASK_ID, taskId)
+            .putLong(KEY_INTERVAL_MINUTES, MIN_INTERVAL_MINUTES)
+            .apply()
+        enqueue(MIN_INTERVAL_MINUTES, ExistingWorkPolicy.REPLACE)
+    }
+
+    /**
+     * 実行中のタスクを解除（別のタスクが登録されていれば何もしない）
+     */
+    fun clearActiveTask(taskId: Int) {
+        if (activeTaskId() == taskId) {
+            prefs.edit().remove(KEY_ACTIVE_TASK_ID).apply()
+        }
+    }
+
+    private fun activeTaskId(): Int? =
+        prefs.getInt(KEY_ACTIVE_TASK_ID, -1).takeIf { it != -1 }
+
+    private fun currentInterval(): Long =
+        prefs.getLong(KEY_INTERVAL_MINUTES, MIN_INTERVAL_MINUTES)
+
+    /**
+     * 1回分の同期（Worker・フォーカス中のハートビートから呼ぶ）
+     * 結果に合わせて次回までの間隔を更新する
+     * @return 成功したか
+     */
+    suspend fun syncNow(): Boolean = mutex.withLock {
+        val activeTaskId = activeTaskId()
+        val includeSettings = SettingsPreferences.needsSync(context)
+
+        val result = syncEngine.syncBatch(
+            entities = BACKGROUND_ENTITIES,
+            heartbeatTaskIds = listOfNotNull(activeTaskId),
+            includeSettings = includeSettings
+        )
+
+        when (result) {
+            is SyncResult.Success -> {
+                val batch = result.data
+                batch.settings?.let { SettingsPreferences.saveSettings(context, it) }
+
+                // 削除されたタスクなどはハートビートを止める
+                if (activeTaskId != null && batch.heartbeats[activeTaskId] == false) {
+                    Log.w(TAG, "Heartbeat rejected for task #$activeTaskId, clearing active task")
+                    clearActiveTask(activeTaskId)
+                }
+
+                showNewNotifications(batch.summary)
+
+                val changed = batch.summary.changedCounts.values.sum() > 0
+                updateInterval(changed)
+                Log.d(TAG, "Sync cycle done: changes=${batch.summary.changedCounts} " +
+                    "heartbeat=$activeTaskId settings=$includeSettings next=${currentInterval()}min")
+                true
+            }
+            is SyncResult.Error -> {
+                // 失敗時も間隔を延ばす（オフライン・サーバー障害時に起こし続けない）
+                updateInterval(changed = false)
+                Log.w(TAG, "Sync cycle failed: ${result.message}, next=${currentInterval()}min")
+                false
+            }
+            is SyncResult.Loading -> false
+        }
+    }
+
+    /**
+     * 次回を登録（Workerの終了時に呼ぶ）
+     */
+    fun scheduleNext() {
+        // 実行中のWorkから登録するため、置き換えではなく後ろに繋ぐ（REPLACEだと自分自身がキャンセルされる）
+        enqueue(currentInterval(), ExistingWorkPolicy.APPEND_OR_REPLACE)
+    }
+
+    private fun updateInterval(changed: Boolean) {
+        val next = when {
+            changed -> MIN_INTERVAL_MINUTES
+            // フォーカス中はハートビートのため最短のまま
+            activeTaskId() != null -> MIN_INTERVAL_MINUTES
+            else -> (currentInterval() * 2).coerceAtMost(MAX_INTERVAL_MINUTES)
+        }
+        prefs.edit().putLong(KEY_INTERVAL_MINUTES, next).apply()
+    }
+
+    private fun enqueue(delayMinutes: Long, policy: ExistingWorkPolicy) {
+        val constraints = Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .setRequiresBatteryNotLow(true)
+            .setRequiresDeviceIdle(delayMinutes >= IDLE_ONLY_INTERVAL_MINUTES && activeTaskId() == null)
+            .build()
+
+        // アイドル条件とbackoffは併用できないため、失敗時の再試行もscheduleNext()の間隔で行う
+        val request = OneTimeWorkRequestBuilder<BackgroundSyncWorker>()
+            .setConstraints(constraints)
+            .setInitialDelay(delayMinutes, TimeUnit.MINUTES)
+            .build()
+
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, policy, request)
+    }
+
+    /**
+     * 新しく届いた未読通知をシステム通知で表示（PushChannelからも使う）
+     */
+    fun showNewNotifications(summary: SyncSummary) {
+        val newUnread = summary.newNotifications
+            .filter { !it.read }
+            .sortedByDescending { it.created_at }
+        if (newUnread.isEmpty()) return
+
+        newUnread.take(MAX_SYSTEM_NOTIFICATIONS).forEach { notification ->
+            NotificationHelper.showNotification(
+                context = context,
+                id = notification.id,
+                title = notification.title,
+                message = notification.message,
+                taskId = notification.task_id
+            )
+        }
+        val remaining = newUnread.size - MAX_SYSTEM_NOTIFICATIONS
+        if (remaining > 0) {
+            NotificationHelper.showSummaryNotification(context, remaining)
+        }
+    }
+}
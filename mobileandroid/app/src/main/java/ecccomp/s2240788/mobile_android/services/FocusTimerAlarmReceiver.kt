@@ -0,0 +1,80 @@
+package ecccomp.s2240788.mobile_android.services
+
+import android.app.AlarmManager
+import android.app.PendingIntent
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.os.Build
+import android.util.Log
+
+/**
+ * FocusTimerAlarmReceiver
+ * フォーカスタイマーの完了時刻のアラームを受け取り、タイマーを完了にして完了通知を表示する
+ * - サービスが終了していても（プロセスが再作成されても）エンジンの復元済みの状態から完了できる
+ * - フォアグラウンドサービスは起動しない（完了後は不要。正確でないアラームからは起動も許可されない）
+ * - 一時停止・再開で古くなったアラームは何もしない。まだ実行中なら完了時刻に設定し直す
+ */
+class FocusTimerAlarmReceiver : BroadcastReceiver() {
+
+    companion object {
+        private const val TAG = "FocusTimerAlarm"
+        private const val ACTION_COMPLETE = "ecccomp.s2240788.mobile_android.action.FOCUS_TIMER_COMPLETE"
+        private const val REQUEST_COMPLETE = 3
+
+        /**
+         * 完了時刻にアラームを設定（開始・再開のたびに置き換え）
+         * Dozeでも遅れないよう正確なアラームを使い、許可されていない場合（Android 12以降）はDoze中も動く通常のアラームにする
+         */
+        fun schedule(context: Context, state: FocusTimerState) {
+            val startedAt = state.startedAtElapsed ?: return
+            val triggerAt = startedAt + (state.totalMillis - state.accumulatedMillis)
+            val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
+            val pendingIntent = pendingIntent(context)
+            val canExact = Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()
+            try {
+                if (canExact) {
+                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pendingIntent)
+                    return
+                }
+            } catch (e: SecurityException) {
+                // 確認後に許可が取り消された場合
+                Log.w(TAG, "Exact alarm not permitted: ${e.message}")
+            }
+            alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, pendingIntent)
+        }
+
+        /**
+         * 完了時刻のアラームを取り消す（一時停止・リセット・完了時）
+         */
+        fun cancel(context: Context) {
+            val alarmManager = context.getSystemService(Context.ALARM_SERVICE) as AlarmManager
+            alarmManager.cancel(pendingIntent(context))
+        }
+
+        private fun pendingIntent(context: Context): PendingIntent {
+            val intent = Intent(context, FocusTimerAlarmReceiver::class.java).setAction(ACTION_COMPLETE)
+            return PendingIntent.getBroadcast(
+                context, REQUEST_COMPLETE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+            )
+        }
+    }
+
+    override fun onReceive(context: Context, intent: Intent) {
+        if (intent.action != ACTION_COMPLETE) return
+        FocusTimerEngine.init(context)
+
+        if (FocusTimerEngine.completeIfDue()) {
+            // サービスが動いていればエンジンの状態の変化で通知を片付ける。ここでは完了通知だけ出す
+            FocusTimerService.notifyCompleted(context, FocusTimerEngine.state.value)
+            return
+        }
+
+        val state = FocusTimerEngine.state.value
+        if (state.isRunning) {
+            Log.d(TAG, "Alarm fired early, rescheduling")
+            schedule(context, state)
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package ecccomp.s2240788.mobile_android.services
+
+import android.content.Context
+import android.content.SharedPreferences
+import android.os.SystemClock
+import android.provider.Settings
+import android.util.Log
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+
+/**
+ * フォーカスタイマーの状態
+ * 残り時間はtickで積算せず、elapsedRealtime基準のタイムスタンプから都度計算する（ずれない）
+ * @param totalMillis タイマーの長さ
+ * @param accumulatedMillis 最後の一時停止までに経過した時間
+ * @param startedAtElapsed 実行中の場合、最後に開始・再開した時刻（SystemClock.elapsedRealtime）。停止中はnull
+ * @param mode タイマーモード名（FocusSessionViewModel.TimerMode）
+ * @param finished 最後まで完了した（次にconfigureされるまで保持）
+ */
+data class FocusTimerState(
+    val totalMillis: Long = FocusTimerEngine.DEFAULT_DURATION_MILLIS,
+    val accumulatedMillis: Long = 0,
+    val startedAtElapsed: Long? = null,
+    val mode: String = FocusTimerEngine.DEFAULT_MODE,
+    val taskId: Int? = null,
+    val title: String? = null,
+    val finished: Boolean = false
+) {
+    val isRunning: Boolean get() = startedAtElapsed != null
+
+    /**
+     * 途中まで進んでいる（実行中または一時停止中）
+     */
+    val isInProgress: Boolean get() = !finished && (isRunning || accumulatedMillis > 0)
+
+    fun elapsedMillis(now: Long = SystemClock.elapsedRealtime()): Long {
+        val running = startedAtElapsed?.let { (now - it).coerceAtLeast(0) } ?: 0L
+        return (accumulatedMillis + running).coerceIn(0, totalMillis)
+    }
+
+    fun remainingMillis(now: Long = SystemClock.elapsedRealtime()): Long {
+        return totalMillis - elapsedMillis(now)
+    }
+
+    fun progressPercent(now: Long = SystemClock.elapsedRealtime()): Int {
+        if (totalMillis <= 0) return 0
+        return (elapsedMillis(now) * 100 / totalMillis).toInt()
+    }
+}
+
+/**
+ * FocusTimerEngine
+ * フォーカスタイマーの唯一の情報源（ViewModelとFocusTimerServiceが同じ状態を参照する）
+ * - 開始・一時停止の時刻だけを保存し、残り時間は必要な時に計算する（1秒ごとの更新は不要）
+ * - 状態はSharedPreferencesに保存し、プロセスが終了しても復元できる
+ * - 実行中はFocusTimerAlarmReceiverが完了時刻のアラームで一度だけ起きて completeIfDue() を呼ぶ
+ * Applicationクラスでinit()を呼び出すこと
+ */
+object FocusTimerEngine {
+
+    private const val TAG = "FocusTimerEngine"
+    private const val PREFS_NAME = "focus_timer"
+
+    private const val KEY_TOTAL = "total_millis"
+    private const val KEY_ACCUMULATED = "accumulated_millis"
+    private const val KEY_STARTED_ELAPSED = "started_at_elapsed"
+    private const val KEY_STARTED_WALL = "started_at_wall"
+    private const val KEY_BOOT_COUNT = "boot_count"
+    private const val KEY_MODE = "mode"
+    private const val KEY_TASK_ID = "task_id"
+    private const val KEY_TITLE = "title"
+    private const val KEY_FINISHED = "finished"
+
+    const val DEFAULT_DURATION_MILLIS = 25 * 60 * 1000L
+    const val DEFAULT_MODE = "WORK"
+
+    private var appContext: Context? = null
+    private var prefs: SharedPreferences? = null
+
+    private val _state = MutableStateFlow(FocusTimerState())
+    val state: StateFlow<FocusTimerState> = _state.asStateFlow()
+
+    /**
+     * 初期化関数 - Applicationから呼び出す
+     * 保存されている状態を復元する（実行中だった場合は経過時間も引き継ぐ）
+     */
+    fun init(context: Context) {
+        if (prefs != null) return
+        appContext = context.applicationContext
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+        _state.value = restore()
+    }
+
+    /**
+     * タイマーを設定し直す（停止状態・経過0になる）
+     */
+    @Synchronized
+    fun configure(totalMillis: Long, mode: String, taskId: Int?, title: String?) {
+        val wasPaused = _state.value.let { !it.isRunning && it.isInProgress }
+        update(
+            FocusTimerState(
+                totalMillis = totalMillis.coerceAtLeast(0),
+                mode = mode,
+                taskId = taskId,
+                title = title
+            )
+        )
+        // 一時停止中の通知（再開ボタン付き）が残らないように
+        if (wasPaused) appContext?.let { FocusTimerService.clearNotification(it) }
+    }
+
+    /**
+     * 開始・再開（実行中・完了済みの場合は何もしない）
+     */
+    @Synchronized
+    fun start(title: String? = null) {
+        val current = _state.value
+        if (current.isRunning || current.finished || current.remainingMillis() <= 0) return
+
+        update(
+            current.copy(
+                startedAtElapsed = SystemClock.elapsedRealtime(),
+                title = title ?: current.title
+            )
+        )
+        appContext?.let { FocusTimerService.start(it) }
+    }
+
+    /**
+     * 一時停止（経過時間を確定させる）
+     */
+    @Synchronized
+    fun pause() {
+        val current = _state.value
+        if (!current.isRunning) return
+        update(current.copy(accumulatedMillis = current.elapsedMillis(), startedAtElapsed = null))
+    }
+
+    /**
+     * 経過を0に戻す（長さ・モード・タスクは維持）
+     */
+    @Synchronized
+    fun reset() {
+        val current = _state.value
+        configure(current.totalMillis, current.mode, current.taskId, current.title)
+    }
+
+    /**
+     * 完了にする（ServiceとViewModelの両方から呼ばれるため、二重に完了しない）
+     * @return 今回の呼び出しで完了した場合true
+     */
+    @Synchronized
+    fun complete(): Boolean {
+        val current = _state.value
+        if (current.finished || (!current.isRunning && current.accumulatedMillis == 0L)) return false
+        update(current.copy(accumulatedMillis = current.totalMillis, startedAtElapsed = null, finished = true))
+        return true
+    }
+
+    /**
+     * 完了時刻を過ぎていれば完了にする（完了アラームから呼ばれる。一時停止などで古くなったアラームでは完了しない）
+     * @return 今回の呼び出しで完了した場合true
+     */
+    @Synchronized
+    fun completeIfDue(): Boolean {
+        val current = _state.value
+        if (!current.isRunning || current.remainingMillis() > 0) return false
+        return complete()
+    }
+
+    private fun update(newState: FocusTimerState) {
+        _state.value = newState
+        persist(newState)
+    }
+
+    private fun persist(state: FocusTimerState) {
+        val editor = prefs?.edit() ?: return
+        editor.putLong(KEY_TOTAL, state.totalMillis)
+            .putLong(KEY_ACCUMULATED, state.accumulatedMillis)
+            .putString(KEY_MODE, state.mode)
+            .putString(KEY_TITLE, state.title)
+            .putBoolean(KEY_FINISHED, state.finished)
+
+        if (state.taskId != null) editor.putInt(KEY_TASK_ID, state.taskId) else editor.remove(KEY_TASK_ID)
+
+        if (state.startedAtElapsed != null) {
+            // 再起動でelapsedRealtimeが0に戻った場合の補正用に壁時計も保存
+            val wallStart = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - state.startedAtElapsed)
+            editor.putLong(KEY_STARTED_ELAPSED, state.startedAtElapsed)
+                .putLong(KEY_STARTED_WALL, wallStart)
+                .putInt(KEY_BOOT_COUNT, bootCount())
+        } else {
+            editor.remove(KEY_STARTED_ELAPSED).remove(KEY_STARTED_WALL).remove(KEY_BOOT_COUNT)
+        }
+        editor.apply()
+    }
+
+    private fun restore(): FocusTimerState {
+        val p = prefs ?: return FocusTimerState()
+        if (!p.contains(KEY_TOTAL)) return FocusTimerState()
+
+        val restored = FocusTimerState(
+            totalMillis = p.getLong(KEY_TOTAL, DEFAULT_DURATION_MILLIS),
+            accumulatedMillis = p.getLong(KEY_ACCUMULATED, 0),
+            startedAtElapsed = if (p.contains(KEY_STARTED_ELAPSED)) p.getLong(KEY_STARTED_ELAPSED, 0) else null,
+            mode = p.getString(KEY_MODE, DEFAULT_MODE) ?: DEFAULT_MODE,
+            taskId = if (p.contains(KEY_TASK_ID)) p.getInt(KEY_TASK_ID, 0) else null,
+            title = p.getString(KEY_TITLE, null),
+            finished = p.getBoolean(KEY_FINISHED, false)
+        )
+
+        val startedAt = restored.startedAtElapsed ?: return restored
+        val now = SystemClock.elapsedRealtime()
+        val rebooted = p.getInt(KEY_BOOT_COUNT, -1) != bootCount() || startedAt > now
+        if (!rebooted) return restored
+
+        // 端末の再起動をまたいだ：壁時計で経過時間を見積もり、開始時刻を現在の時計に付け替える
+        val wallStart = p.getLong(KEY_STARTED_WALL, System.currentTimeMillis())
+        val runningMillis = (System.currentTimeMillis() - wallStart).coerceAtLeast(0)
+        Log.d(TAG, "Timer survived reboot, running for ${runningMillis}ms before restore")
+        return restored.copy(startedAtElapsed = now - runningMillis).also { persist(it) }
+    }
+
+    private fun bootCount(): Int {
+        val resolver = appContext?.contentResolver ?: return -1
+        return Settings.Global.getInt(resolver, Settings.Global.BOOT_COUNT, -1)
+    }
+}
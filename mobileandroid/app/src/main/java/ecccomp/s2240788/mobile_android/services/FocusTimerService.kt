@@ -3,217 +3,279 @@ package ecccomp.s2240788.mobile_android.services
 import android.app.*
 import android.content.Context
 import android.content.Intent
+import android.content.pm.ServiceInfo
 import android.os.Build
-import android.os.CountDownTimer
 import android.os.IBinder
 import androidx.core.app.NotificationCompat
+import androidx.core.app.ServiceCompat
+import androidx.core.content.ContextCompat
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.ui.activities.FocusSessionActivity
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.launch
 
 /**
  * FocusTimerService
- * バックグラウンドでタイマーを実行するForeground Service
- * - Notification を表示
- * - タイマー完了時に通知
+ * タイマー実行中に表示するForeground Service
+ * - 状態はFocusTimerEngineが保持（このサービスは表示と完了時刻の監視だけ）
+ * - 通知はChronometerでカウントダウン表示（状態が変わった時だけ作り直す）
+ * - 完了時刻に一度だけFocusTimerAlarmReceiverが起きて完了通知を表示
+ *   （Handlerの時計は端末のスリープ中に止まるため、スリープ中も進むelapsedRealtimeのアラームを使う）
+ *   （アラームでこのサービスを直接起こすと、Android 12以降は正確でないアラームからの
+ *     フォアグラウンドサービス起動が許可されないため、BroadcastReceiverで受ける）
  */
 class FocusTimerService : Service() {
 
-    private var countDownTimer: CountDownTimer? = null
-    private var timeRemainingMillis: Long = 0
-    private var totalTimeMillis: Long = 0
-    private var isRunning = false
+    private val serviceScope = CoroutineScope(SupervisorJob() + Dispatchers.Main.immediate)
+
+    private var lastRendered: FocusTimerState? = null
+
+    private val notificationManager by lazy {
+        getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
+    }
+
+    // アクションのPendingIntentは一度だけ作成して使い回す
+    private val pausePendingIntent: PendingIntent by lazy {
+        PendingIntent.getService(
+            this, REQUEST_PAUSE, Intent(this, FocusTimerService::class.java).setAction(ACTION_PAUSE),
+            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+        )
+    }
+
+    private val resumePendingIntent: PendingIntent by lazy {
+        val intent = Intent(this, FocusTimerService::class.java).setAction(ACTION_RESUME)
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            PendingIntent.getForegroundService(
+                this, REQUEST_RESUME, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+            )
+        } else {
+            PendingIntent.getService(
+                this, REQUEST_RESUME, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+            )
+        }
+    }
 
     companion object {
         const val CHANNEL_ID = "focus_timer_channel"
         const val NOTIFICATION_ID = 1001
-        
+
         const val ACTION_START = "ACTION_START"
         const val ACTION_PAUSE = "ACTION_PAUSE"
+        const val ACTION_RESUME = "ACTION_RESUME"
         const val ACTION_STOP = "ACTION_STOP"
-        
-        const val EXTRA_DURATION_MILLIS = "EXTRA_DURATION_MILLIS"
-        const val EXTRA_TASK_TITLE = "EXTRA_TASK_TITLE"
-    }
 
-    override fun onCreate() {
-        super.onCreate()
-        createNotificationChannel()
-    }
+        private const val REQUEST_PAUSE = 1
+        private const val REQUEST_RESUME = 2
 
-    override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
-        when (intent?.action) {
-            ACTION_START -> {
-                totalTimeMillis = intent.getLongExtra(EXTRA_DURATION_MILLIS, 25 * 60 * 1000L)
-                timeRemainingMillis = totalTimeMillis
-                val taskTitle = intent.getStringExtra(EXTRA_TASK_TITLE) ?: "Focus Session"
-                startTimer(taskTitle)
-            }
-            ACTION_PAUSE -> {
-                pauseTimer()
-            }
-            ACTION_STOP -> {
-                stopTimer()
-            }
+        /**
+         * サービスを開始（FocusTimerEngine.start()から呼ばれる）
+         */
+        fun start(context: Context) {
+            val intent = Intent(context, FocusTimerService::class.java).setAction(ACTION_START)
+            ContextCompat.startForegroundService(context, intent)
         }
-        return START_NOT_STICKY
-    }
 
-    override fun onBind(intent: Intent?): IBinder? = null
+        /**
+         * 一時停止中の通知を消す（サービス停止中にタイマーが設定し直された場合）
+         */
+        fun clearNotification(context: Context) {
+            val manager = context.getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
+            manager.cancel(NOTIFICATION_ID)
+        }
 
-    /**
-     * タイマーを開始
-     */
-    private fun startTimer(taskTitle: String) {
-        if (isRunning) return
-        
-        isRunning = true
-        startForeground(NOTIFICATION_ID, buildNotification(taskTitle, timeRemainingMillis))
-
-        countDownTimer = object : CountDownTimer(timeRemainingMillis, 1000) {
-            override fun onTick(millisUntilFinished: Long) {
-                timeRemainingMillis = millisUntilFinished
-                updateNotification(taskTitle, millisUntilFinished)
-            }
+        /**
+         * 完了通知を表示（サービスとFocusTimerAlarmReceiverの両方から呼ばれる。同じIDなので二重には出ない）
+         */
+        fun notifyCompleted(context: Context, state: FocusTimerState) {
+            createNotificationChannel(context)
+            val manager = context.getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
+            manager.notify(NOTIFICATION_ID + 1, buildCompletionNotification(context, state))
+        }
+
+        /**
+         * 完了 Notification を作成
+         */
+        private fun buildCompletionNotification(context: Context, state: FocusTimerState): Notification {
+            val taskTitle = state.title ?: ""
+            return NotificationCompat.Builder(context, CHANNEL_ID)
+                .setContentTitle("Focus Session hoàn thành!")
+                .setContentText("$taskTitle - Tuyệt vời! Bạn đã hoàn thành phiên làm việc.")
+                .setSmallIcon(R.drawable.ic_check)
+                .setContentIntent(contentPendingIntent(context, state.taskId))
+                .setOnlyAlertOnce(true)
+                .setAutoCancel(true)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .build()
+        }
 
-            override fun onFinish() {
-                onTimerComplete(taskTitle)
+        /**
+         * 通知タップでタイマー中のタスクのFocus画面を開く
+         */
+        private fun contentPendingIntent(context: Context, taskId: Int?): PendingIntent {
+            val intent = Intent(context, FocusSessionActivity::class.java).apply {
+                flags = Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_CLEAR_TASK
+                taskId?.let { putExtra("task_id", it) }
             }
-        }.start()
-    }
+            return PendingIntent.getActivity(
+                context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+            )
+        }
 
-    /**
-     * タイマーを一時停止
-     */
-    private fun pauseTimer() {
-        countDownTimer?.cancel()
-        isRunning = false
-        stopForeground(STOP_FOREGROUND_REMOVE)
-        stopSelf()
-    }
+        /**
+         * Notification Channel を作成
+         */
+        private fun createNotificationChannel(context: Context) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                val channel = NotificationChannel(
+                    CHANNEL_ID,
+                    "Focus Timer",
+                    NotificationManager.IMPORTANCE_HIGH
+                ).apply {
+                    description = "Focus Timer notifications"
+                    setShowBadge(true)
+                }
 
-    /**
-     * タイマーを停止
-     */
-    private fun stopTimer() {
-        countDownTimer?.cancel()
-        isRunning = false
-        stopForeground(STOP_FOREGROUND_REMOVE)
-        stopSelf()
+                val manager = context.getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
+                manager.createNotificationChannel(channel)
+            }
+        }
     }
 
-    /**
-     * タイマー完了時の処理
-     */
-    private fun onTimerComplete(taskTitle: String) {
-        isRunning = false
-        
-        // 完了通知を表示
-        val completionNotification = buildCompletionNotification(taskTitle)
-        val notificationManager = getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
-        notificationManager.notify(NOTIFICATION_ID + 1, completionNotification)
-        
-        stopForeground(STOP_FOREGROUND_REMOVE)
-        stopSelf()
-    }
+    override fun onCreate() {
+        super.onCreate()
+        createNotificationChannel(this)
 
-    /**
-     * Notification を更新
-     */
-    private fun updateNotification(taskTitle: String, millisRemaining: Long) {
-        val notification = buildNotification(taskTitle, millisRemaining)
-        val notificationManager = getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
-        notificationManager.notify(NOTIFICATION_ID, notification)
+        // エンジンの状態が変わった時だけ通知を更新（1秒ごとの更新はしない）
+        serviceScope.launch {
+            FocusTimerEngine.state.collect { render(it) }
+        }
     }
 
-    /**
-     * Notification を作成
-     */
-    private fun buildNotification(taskTitle: String, millisRemaining: Long): Notification {
-        val minutes = (millisRemaining / 1000) / 60
-        val seconds = (millisRemaining / 1000) % 60
-        val timeText = String.format("%02d:%02d", minutes, seconds)
-
-        // Intent to open FocusSessionActivity
-        val intent = Intent(this, FocusSessionActivity::class.java).apply {
-            flags = Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_CLEAR_TASK
+    override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
+        val before = FocusTimerEngine.state.value
+        when (intent?.action) {
+            ACTION_PAUSE -> FocusTimerEngine.pause()
+            ACTION_RESUME -> FocusTimerEngine.start()
+            ACTION_STOP -> FocusTimerEngine.reset()
         }
-        val pendingIntent = PendingIntent.getActivity(
-            this, 0, intent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
 
-        // Pause action
-        val pauseIntent = Intent(this, FocusTimerService::class.java).apply {
-            action = ACTION_PAUSE
+        // startForegroundServiceで起動された場合は必ずフォアグラウンド化する
+        // （停止状態ならこの直後のrender()でフォアグラウンドを解除して終了する）
+        val state = FocusTimerEngine.state.value
+        try {
+            ServiceCompat.startForeground(
+                this,
+                NOTIFICATION_ID,
+                buildNotification(state),
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                    ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE
+                } else {
+                    0
+                }
+            )
+        } catch (e: Exception) {
+            // バックグラウンドからの再起動などでフォアグラウンド化できない場合
+            android.util.Log.w("FocusTimerService", "startForeground failed: ${e.message}")
         }
-        val pausePendingIntent = PendingIntent.getService(
-            this, 0, pauseIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
+        // 必ず描き直す（完了通知を出すかはアクション前の状態で判定する）
+        lastRendered = null
+        render(state, before)
 
-        return NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Focus Timer: $taskTitle")
-            .setContentText("Thời gian còn lại: $timeText")
-            .setSmallIcon(R.drawable.ic_timer)
-            .setContentIntent(pendingIntent)
-            .setOngoing(true)
-            .setPriority(NotificationCompat.PRIORITY_HIGH)
-            .addAction(R.drawable.ic_pause, "Pause", pausePendingIntent)
-            .setProgress(100, calculateProgress(), false)
-            .build()
+        // プロセスが終了しても再起動され、エンジンの復元済みの状態から続きを表示する
+        return START_STICKY
     }
 
+    override fun onBind(intent: Intent?): IBinder? = null
+
     /**
-     * 完了 Notification を作成
+     * 状態を通知に反映
      */
-    private fun buildCompletionNotification(taskTitle: String): Notification {
-        val intent = Intent(this, FocusSessionActivity::class.java).apply {
-            flags = Intent.FLAG_ACTIVITY_NEW_TASK or Intent.FLAG_ACTIVITY_CLEAR_TASK
+    private fun render(state: FocusTimerState, previous: FocusTimerState? = lastRendered) {
+        if (state == lastRendered) return
+        lastRendered = state
+
+        if (state.isRunning) {
+            // 完了時刻に一度だけ起きる（開始・再開のたびに置き換え）
+            FocusTimerAlarmReceiver.schedule(this, state)
+        } else {
+            FocusTimerAlarmReceiver.cancel(this)
         }
-        val pendingIntent = PendingIntent.getActivity(
-            this, 0, intent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
 
-        return NotificationCompat.Builder(this, CHANNEL_ID)
-            .setContentTitle("Focus Session hoàn thành!")
-            .setContentText("$taskTitle - Tuyệt vời! Bạn đã hoàn thành phiên làm việc.")
-            .setSmallIcon(R.drawable.ic_check)
-            .setContentIntent(pendingIntent)
-            .setAutoCancel(true)
-            .setPriority(NotificationCompat.PRIORITY_HIGH)
-            .build()
+        when {
+            state.isRunning -> {
+                notificationManager.notify(NOTIFICATION_ID, buildNotification(state))
+            }
+            state.finished -> {
+                stopForegroundCompat()
+                if (previous?.isRunning == true) {
+                    notifyCompleted(this, state)
+                }
+                stopSelf()
+            }
+            else -> {
+                stopForegroundCompat()
+                if (state.isInProgress) {
+                    // 一時停止中は再開ボタン付きの通知を残す（スワイプで消せる）
+                    notificationManager.notify(NOTIFICATION_ID, buildNotification(state))
+                } else {
+                    notificationManager.cancel(NOTIFICATION_ID)
+                }
+                stopSelf()
+            }
+        }
     }
 
-    /**
-     * プログレスを計算 (0-100)
-     */
-    private fun calculateProgress(): Int {
-        return ((totalTimeMillis - timeRemainingMillis) * 100 / totalTimeMillis).toInt()
+    private fun stopForegroundCompat() {
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE)
     }
 
     /**
-     * Notification Channel を作成
+     * Notification を作成
+     * 実行中はChronometerのカウントダウンをシステムに描画させる
      */
-    private fun createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            val channel = NotificationChannel(
-                CHANNEL_ID,
-                "Focus Timer",
-                NotificationManager.IMPORTANCE_HIGH
-            ).apply {
-                description = "Focus Timer notifications"
-                setShowBadge(true)
-            }
+    private fun buildNotification(state: FocusTimerState): Notification {
+        val taskTitle = state.title ?: "Focus Session"
+        val builder = NotificationCompat.Builder(this, CHANNEL_ID)
+            .setContentTitle("Focus Timer: $taskTitle")
+            .setSmallIcon(R.drawable.ic_timer)
+            .setContentIntent(contentPendingIntent(this, state.taskId))
+            .setOnlyAlertOnce(true)
+            .setPriority(NotificationCompat.PRIORITY_HIGH)
 
-            val notificationManager = getSystemService(Context.NOTIFICATION_SERVICE) as NotificationManager
-            notificationManager.createNotificationChannel(channel)
+        return if (state.isRunning) {
+            builder
+                .setContentText("Thời gian còn lại")
+                .setOngoing(true)
+                .setShowWhen(true)
+                .setUsesChronometer(true)
+                .setChronometerCountDown(true)
+                .setWhen(System.currentTimeMillis() + state.remainingMillis())
+                .addAction(R.drawable.ic_pause, "Pause", pausePendingIntent)
+                .build()
+        } else {
+            builder
+                .setContentText("Tạm dừng - còn lại ${formatRemaining(state.remainingMillis())}")
+                .setOngoing(false)
+                .setShowWhen(false)
+                .addAction(R.drawable.ic_timer, "Resume", resumePendingIntent)
+                .build()
         }
     }
 
+    private fun formatRemaining(millis: Long): String {
+        val totalSeconds = (millis + 999) / 1000
+        return String.format("%02d:%02d", totalSeconds / 60, totalSeconds % 60)
+    }
+
     override fun onDestroy() {
         super.onDestroy()
-        countDownTimer?.cancel()
+        // 完了時刻のアラームは残す（実行中にサービスが終了されても完了を通知できるように）
+        serviceScope.cancel()
     }
 }
-
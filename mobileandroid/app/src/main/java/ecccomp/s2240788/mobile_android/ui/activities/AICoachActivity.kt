@@ -13,9 +13,11 @@ import androidx.core.view.ViewCompat
 import androidx.core.view.WindowInsetsCompat
 import androidx.lifecycle.ViewModelProvider
 import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
 import com.google.android.material.snackbar.Snackbar
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.databinding.ActivityAiCoachBinding
+import ecccomp.s2240788.mobile_android.data.models.ChatMessage
 import ecccomp.s2240788.mobile_android.data.models.TimetableClass
 import ecccomp.s2240788.mobile_android.data.models.TimetableClassSuggestion
 import ecccomp.s2240788.mobile_android.ui.adapters.ChatMessageAdapter
@@ -36,11 +38,19 @@ import ecccomp.s2240788.mobile_android.utils.SpeechRecognitionHelper
  */
 class AICoachActivity : BaseActivity() {
 
+    companion object {
+        // 先頭からこの位置以内が見えたら古いメッセージを読み込む
+        private const val LOAD_OLDER_THRESHOLD = 5
+    }
+
     private lateinit var binding: ActivityAiCoachBinding
     private lateinit var viewModel: AICoachViewModel
     private lateinit var chatAdapter: ChatMessageAdapter
     private lateinit var speechHelper: SpeechRecognitionHelper
 
+    // 最後に表示したメッセージ（末尾が変わった時だけ下までスクロールする）
+    private var lastShownMessage: ChatMessage? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         binding = ActivityAiCoachBinding.inflate(layoutInflater)
@@ -92,6 +102,16 @@ class AICoachActivity : BaseActivity() {
             layoutManager = LinearLayoutManager(this@AICoachActivity).apply {
                 stackFromEnd = true // Start from bottom (most recent message)
             }
+            // 上端の近くまでスクロールしたら古いメッセージを読み込む
+            addOnScrollListener(object : RecyclerView.OnScrollListener() {
+                override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+                    if (dy >= 0) return
+                    val layoutManager = recyclerView.layoutManager as LinearLayoutManager
+                    if (layoutManager.findFirstVisibleItemPosition() in 0..LOAD_OLDER_THRESHOLD) {
+                        viewModel.loadOlderMessages()
+                    }
+                }
+            })
             // Hide empty state when we have messages
             visibility = View.GONE
         }
@@ -178,14 +198,20 @@ class AICoachActivity : BaseActivity() {
                 updateQuickActionsVisibility(false)
 
                 // Scroll to bottom when new message arrives
-                binding.rvSuggestions.postDelayed({
-                    val itemCount = chatAdapter.itemCount
-                    if (itemCount > 0) {
-                        binding.rvSuggestions.smoothScrollToPosition(itemCount - 1)
-                    }
-                }, 100)
+                // 古いメッセージを先頭に追加しただけの場合は、読んでいる位置をそのままにする
+                val lastMessage = messages.last()
+                if (lastMessage != lastShownMessage) {
+                    lastShownMessage = lastMessage
+                    binding.rvSuggestions.postDelayed({
+                        val itemCount = chatAdapter.itemCount
+                        if (itemCount > 0) {
+                            binding.rvSuggestions.smoothScrollToPosition(itemCount - 1)
+                        }
+                    }, 100)
+                }
             } else {
                 // Clear all messages
+                lastShownMessage = null
                 chatAdapter.updateMessages(emptyList())
                 updateEmptyState(true)
                 // Show quick actions when no messages
@@ -222,6 +248,13 @@ class AICoachActivity : BaseActivity() {
             }
         }
 
+        // Observe streaming state: the growing reply replaces the typing indicator
+        viewModel.isStreaming.observe(this) { isStreaming ->
+            if (isStreaming) {
+                chatAdapter.hideTypingIndicator()
+            }
+        }
+
         // Observe errors
         viewModel.error.observe(this) { error ->
             error?.let {
@@ -641,6 +674,10 @@ class AICoachActivity : BaseActivity() {
 
     override fun onDestroy() {
         super.onDestroy()
+        // Leaving the screen: stop the streaming reply (closes the SSE connection)
+        if (isFinishing) {
+            viewModel.cancelStreaming()
+        }
         // Destroy speech helper
         speechHelper.destroy()
         // Optional: Save conversation state or perform cleanup
@@ -2,6 +2,8 @@ package ecccomp.s2240788.mobile_android.ui.activities
 
 import android.content.Intent
 import android.os.Bundle
+import android.text.Editable
+import android.text.TextWatcher
 import android.view.View
 import android.widget.Toast
 import androidx.lifecycle.ViewModelProvider
@@ -94,6 +96,15 @@ class CheatCodeDetailActivity : BaseActivity() {
             }
             startActivity(intent)
         }
+
+        // Search examples (端末に保存したパックを全文検索)
+        binding.etSearch.addTextChangedListener(object : TextWatcher {
+            override fun beforeTextChanged(s: CharSequence?, start: Int, count: Int, after: Int) {}
+            override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {}
+            override fun afterTextChanged(s: Editable?) {
+                viewModel.search(s?.toString() ?: "")
+            }
+        })
     }
 
     private fun loadData() {
@@ -110,7 +121,17 @@ class CheatCodeDetailActivity : BaseActivity() {
 
             // Update sections count
             val totalExamples = sections.sumOf { it.examples?.size ?: 0 }
-            binding.tvSectionsCount.text = "${sections.size}個のセクション • ${totalExamples}個の例"
+            binding.tvSectionsCount.text = if (viewModel.isSearching.value == true) {
+                "${totalExamples}個の例が見つかりました"
+            } else {
+                "${sections.size}個のセクション • ${totalExamples}個の例"
+            }
+        }
+
+        viewModel.error.observe(this) { error ->
+            error?.let {
+                Toast.makeText(this, it, Toast.LENGTH_SHORT).show()
+            }
         }
 
         viewModel.isLoading.observe(this) { isLoading ->
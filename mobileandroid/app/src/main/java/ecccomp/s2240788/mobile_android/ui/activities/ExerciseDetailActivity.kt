@@ -1,22 +1,18 @@
 package ecccomp.s2240788.mobile_android.ui.activities
 
-import android.annotation.SuppressLint
 import android.graphics.Typeface
 import android.os.Bundle
 import android.view.View
-import android.webkit.JavascriptInterface
-import android.webkit.WebView
 import android.widget.Toast
 import androidx.appcompat.app.AlertDialog
 import androidx.lifecycle.ViewModelProvider
 import androidx.recyclerview.widget.LinearLayoutManager
 import com.google.android.material.dialog.MaterialAlertDialogBuilder
 import ecccomp.s2240788.mobile_android.R
+import ecccomp.s2240788.mobile_android.data.exercise.LocalTestRunner
 import ecccomp.s2240788.mobile_android.databinding.ActivityExerciseDetailBinding
 import ecccomp.s2240788.mobile_android.ui.adapters.TestCaseAdapter
 import ecccomp.s2240788.mobile_android.ui.viewmodels.ExerciseDetailViewModel
-import java.io.BufferedReader
-import java.io.InputStreamReader
 
 class ExerciseDetailActivity : BaseActivity() {
 
@@ -63,99 +59,22 @@ class ExerciseDetailActivity : BaseActivity() {
         viewModel = ViewModelProvider(this)[ExerciseDetailViewModel::class.java]
     }
 
-    @SuppressLint("SetJavaScriptEnabled")
+    /**
+     * ネイティブのコードエディタ（WebViewのテンプレート読み込み・JSとのやり取りなし）
+     * 変更は下書きとして自動保存する
+     */
     private fun setupCodeEditor() {
-        // Configure WebView for code editing
-        binding.webviewCodeEditor.settings.apply {
-            javaScriptEnabled = true
-            domStorageEnabled = true
-            loadWithOverviewMode = false
-            useWideViewPort = false
-            builtInZoomControls = false
-            displayZoomControls = false
-            setSupportZoom(false)
+        binding.codeEditor.setLanguage(languageName)
+        binding.codeEditor.onCodeChanged = { code ->
+            viewModel.onCodeChanged(languageId, exerciseId, code)
         }
-
-        // Disable scrollbars for WebView
-        binding.webviewCodeEditor.isVerticalScrollBarEnabled = false
-        binding.webviewCodeEditor.isHorizontalScrollBarEnabled = false
-
-        // Load editor template
-        loadCodeEditor("")
-    }
-
-    private fun loadCodeEditor(initialCode: String) {
-        try {
-            // Load template from assets
-            val inputStream = assets.open("code_editor_template.html")
-            val reader = BufferedReader(InputStreamReader(inputStream))
-            val stringBuilder = StringBuilder()
-            var line: String?
-
-            while (reader.readLine().also { line = it } != null) {
-                stringBuilder.append(line)
-                stringBuilder.append('\n')
-            }
-
-            reader.close()
-
-            // Replace placeholders
-            val language = mapExerciseLanguage(languageName)
-            val escapedCode = escapeHtml(initialCode)
-            val html = stringBuilder.toString()
-                .replace("LANGUAGE_PLACEHOLDER", language)
-                .replace("CODE_PLACEHOLDER", escapedCode)
-
-            // Load HTML into WebView
-            binding.webviewCodeEditor.loadDataWithBaseURL(
-                null,
-                html,
-                "text/html",
-                "UTF-8",
-                null
-            )
-
-        } catch (e: Exception) {
-            e.printStackTrace()
-            Toast.makeText(this, "Failed to load code editor", Toast.LENGTH_SHORT).show()
+        binding.codeEditor.onHistoryChanged = {
+            binding.btnUndo.isEnabled = binding.codeEditor.canUndo()
+            binding.btnRedo.isEnabled = binding.codeEditor.canRedo()
         }
-    }
-
-    private fun getCodeFromEditor(callback: (String) -> Unit) {
-        binding.webviewCodeEditor.evaluateJavascript("getCode()") { result ->
-            // Remove quotes from JavaScript string result
-            val code = result?.removeSurrounding("\"")?.replace("\\n", "\n")?.replace("\\t", "\t") ?: ""
-            callback(code)
-        }
-    }
-
-    private fun setCodeInEditor(code: String) {
-        val escapedCode = code.replace("\\", "\\\\")
-            .replace("\"", "\\\"")
-            .replace("\n", "\\n")
-            .replace("\r", "")
-        binding.webviewCodeEditor.evaluateJavascript("setCode(\"$escapedCode\")") { }
-    }
 
-    private fun escapeHtml(text: String): String {
-        return text
-            .replace("&", "&amp;")
-            .replace("<", "&lt;")
-            .replace(">", "&gt;")
-            .replace("\"", "&quot;")
-            .replace("'", "&#39;")
-    }
-
-    private fun mapExerciseLanguage(language: String): String {
-        return when (language.lowercase()) {
-            "php" -> "php"
-            "java" -> "java"
-            "javascript", "js" -> "javascript"
-            "python", "py" -> "python"
-            "bash", "shell" -> "bash"
-            "go" -> "go"
-            else -> "plaintext"
-        }
+        binding.btnUndo.setOnClickListener { binding.codeEditor.undo() }
+        binding.btnRedo.setOnClickListener { binding.codeEditor.redo() }
     }
 
     private fun setupRecyclerView() {
@@ -181,10 +100,16 @@ class ExerciseDetailActivity : BaseActivity() {
             submitSolution()
         }
 
-        // Reset button
+        // Run tests button (サンプルテストを端末上で実行。サーバーには送らない)
+        binding.btnRunTests.visibility = if (LocalTestRunner.supports(languageName)) View.VISIBLE else View.GONE
+        binding.btnRunTests.setOnClickListener {
+            runLocalTests()
+        }
+
+        // Reset button (元に戻すで取り消せる)
         binding.btnReset.setOnClickListener {
             viewModel.exercise.value?.starterCode?.let { starterCode ->
-                setCodeInEditor(starterCode)
+                binding.codeEditor.replaceAll(starterCode)
             }
         }
 
@@ -228,19 +153,44 @@ class ExerciseDetailActivity : BaseActivity() {
                     "No submissions yet"
                 }
 
-                // Set starter code in editor
-                setCodeInEditor(it.starterCode ?: "")
-
-                // Show test cases
-                it.testCases?.let { testCases ->
-                    testCaseAdapter.submitList(testCases)
-                }
-
                 // Show/hide hints button
                 binding.btnHints.visibility = if (it.hints.isNullOrEmpty()) View.GONE else View.VISIBLE
             }
         }
 
+        // Observe test cases (保存済みのものを先に表示)
+        viewModel.testCases.observe(this) { testCases ->
+            testCaseAdapter.submitList(testCases)
+        }
+
+        // Observe local test results
+        viewModel.localResults.observe(this) { results ->
+            testCaseAdapter.setResults(results)
+        }
+
+        viewModel.isRunningLocal.observe(this) { isRunning ->
+            binding.btnRunTests.isEnabled = !isRunning
+            binding.btnRunTests.text = if (isRunning) "実行中..." else "テスト実行"
+        }
+
+        viewModel.localRunSummary.observe(this) { summary ->
+            summary?.let {
+                Toast.makeText(this, it, Toast.LENGTH_SHORT).show()
+                viewModel.clearLocalRunSummary()
+            }
+        }
+
+        // Observe editor code (保存していた下書き、なければ初期コード)
+        viewModel.editorCode.observe(this) { editorCode ->
+            editorCode?.let {
+                binding.codeEditor.setCode(it.code)
+                if (it.isDraft) {
+                    Toast.makeText(this, "保存していた下書きを復元しました", Toast.LENGTH_SHORT).show()
+                }
+                viewModel.clearEditorCode()
+            }
+        }
+
         // Observe submit result
         viewModel.submitResult.observe(this) { result ->
             result?.let {
@@ -296,15 +246,37 @@ class ExerciseDetailActivity : BaseActivity() {
         viewModel.loadStatistics(languageId, exerciseId)
     }
 
-    private fun submitSolution() {
-        getCodeFromEditor { code ->
-            if (code.trim().isEmpty()) {
-                Toast.makeText(this, "Please write some code first", Toast.LENGTH_SHORT).show()
-                return@getCodeFromEditor
-            }
+    override fun onPause() {
+        super.onPause()
+        viewModel.saveDraftNow()
+    }
+
+    override fun onDestroy() {
+        super.onDestroy()
+        // 画面を閉じたらサンドボックスのプロセスも終了（回転などの再生成では残す）
+        if (isFinishing && LocalTestRunner.supports(languageName)) {
+            LocalTestRunner.get(this).release()
+        }
+    }
+
+    private fun runLocalTests() {
+        val code = binding.codeEditor.getCode()
+        if (code.trim().isEmpty()) {
+            Toast.makeText(this, "Please write some code first", Toast.LENGTH_SHORT).show()
+            return
+        }
+
+        viewModel.runLocalTests(LocalTestRunner.get(this), code)
+    }
 
-            viewModel.submitSolution(languageId, exerciseId, code)
+    private fun submitSolution() {
+        val code = binding.codeEditor.getCode()
+        if (code.trim().isEmpty()) {
+            Toast.makeText(this, "Please write some code first", Toast.LENGTH_SHORT).show()
+            return
         }
+
+        viewModel.submitSolution(languageId, exerciseId, code)
     }
 
     private fun showResultDialog(
@@ -380,7 +352,7 @@ class ExerciseDetailActivity : BaseActivity() {
             .setTitle("Solution")
             .setMessage(solution)
             .setPositiveButton("Copy to Editor") { dialog, _ ->
-                setCodeInEditor(solution)
+                binding.codeEditor.replaceAll(solution)
                 dialog.dismiss()
             }
             .setNegativeButton("Close") { dialog, _ ->
@@ -10,12 +10,11 @@ import androidx.core.content.ContextCompat
 import androidx.lifecycle.ViewModelProvider
 import androidx.recyclerview.widget.LinearLayoutManager
 import ecccomp.s2240788.mobile_android.R
-import ecccomp.s2240788.mobile_android.data.repository.TaskTrackingRepository
+import ecccomp.s2240788.mobile_android.data.sync.SyncScheduler
 import ecccomp.s2240788.mobile_android.databinding.ActivityFocusSessionBinding
 import ecccomp.s2240788.mobile_android.ui.adapters.FocusKnowledgeAdapter
 import ecccomp.s2240788.mobile_android.ui.adapters.FocusSubtaskAdapter
 import ecccomp.s2240788.mobile_android.ui.viewmodels.FocusSessionViewModel
-import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.*
 
 /**
@@ -27,6 +26,10 @@ import kotlinx.coroutines.*
  */
 class FocusSessionActivity : BaseActivity() {
 
+    companion object {
+        private const val HEARTBEAT_INTERVAL_MS = 5 * 60 * 1000L
+    }
+
     private lateinit var binding: ActivityFocusSessionBinding
     private lateinit var viewModel: FocusSessionViewModel
     private lateinit var knowledgeAdapter: FocusKnowledgeAdapter
@@ -634,8 +637,9 @@ class FocusSessionActivity : BaseActivity() {
 
     /**
      * Start periodic heartbeat for task tracking
-     * Sends heartbeat every 1-2 minutes as per backend requirements
-     * Uses Coroutine instead of WorkManager to achieve 1-2 minute interval
+     * ハートビートはバックグラウンド同期（sync/batch）に相乗りさせる
+     * - 実行中のタスクをSyncSchedulerに登録し、HEARTBEAT_INTERVAL_MSごとに同期1回分を送る
+     *   （サーバーの非アクティブ判定15分より十分短く、差分の取得と同じリクエストで済む）
      */
     private fun startHeartbeatWorker(taskId: Int) {
         if (taskId == -1) return
@@ -643,36 +647,24 @@ class FocusSessionActivity : BaseActivity() {
         // Cancel existing heartbeat if any
         stopHeartbeatWorker(taskId)
 
-        // Start heartbeat coroutine (every 2 minutes)
+        val scheduler = SyncScheduler.get(this)
+        scheduler.setActiveTask(taskId)
+
         heartbeatJob = heartbeatScope.launch {
             while (isActive) {
                 try {
-                    val apiService = NetworkModule.provideApiService(
-                        NetworkModule.provideRetrofit(
-                            NetworkModule.provideOkHttpClient()
-                        )
-                    )
-                    val repository = TaskTrackingRepository(apiService)
-                    
-                    val result = repository.sendHeartbeat(taskId)
-                    result.fold(
-                        onSuccess = {
-                            android.util.Log.d("FocusSessionActivity", "Heartbeat sent successfully for task #$taskId")
-                        },
-                        onError = { error ->
-                            android.util.Log.e("FocusSessionActivity", "Failed to send heartbeat: $error")
-                        }
-                    )
+                    if (!scheduler.syncNow()) {
+                        android.util.Log.e("FocusSessionActivity", "Failed to send heartbeat for task #$taskId")
+                    }
                 } catch (e: Exception) {
                     android.util.Log.e("FocusSessionActivity", "Error sending heartbeat: ${e.message}", e)
                 }
-                
-                // Wait 2 minutes before next heartbeat
-                delay(2 * 60 * 1000) // 2 minutes in milliseconds
+
+                delay(HEARTBEAT_INTERVAL_MS)
             }
         }
-        
-        android.util.Log.d("FocusSessionActivity", "Started heartbeat for task #$taskId (every 2 minutes)")
+
+        android.util.Log.d("FocusSessionActivity", "Started heartbeat for task #$taskId")
     }
 
     /**
@@ -681,6 +673,7 @@ class FocusSessionActivity : BaseActivity() {
     private fun stopHeartbeatWorker(taskId: Int) {
         heartbeatJob?.cancel()
         heartbeatJob = null
+        if (taskId != -1) SyncScheduler.get(this).clearActiveTask(taskId)
         android.util.Log.d("FocusSessionActivity", "Stopped heartbeat for task #$taskId")
     }
 }
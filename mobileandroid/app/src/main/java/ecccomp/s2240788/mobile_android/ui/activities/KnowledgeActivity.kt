@@ -11,15 +11,22 @@ import android.widget.LinearLayout
 import android.widget.PopupMenu
 import android.widget.TextView
 import android.widget.Toast
+import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.ViewModelProvider
+import androidx.lifecycle.lifecycleScope
+import androidx.lifecycle.repeatOnLifecycle
+import androidx.paging.CombinedLoadStates
+import androidx.paging.LoadState
 import androidx.recyclerview.widget.LinearLayoutManager
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.databinding.ActivityKnowledgeBinding
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeCategory
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
 import ecccomp.s2240788.mobile_android.ui.adapters.FolderAdapter
-import ecccomp.s2240788.mobile_android.ui.adapters.KnowledgeAdapter
+import ecccomp.s2240788.mobile_android.ui.adapters.KnowledgePagingAdapter
 import ecccomp.s2240788.mobile_android.ui.viewmodels.KnowledgeViewModel
+import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.launch
 
 /**
  * KnowledgeActivity (Redesigned)
@@ -30,17 +37,20 @@ import ecccomp.s2240788.mobile_android.ui.viewmodels.KnowledgeViewModel
  * - Mixed folder + file view
  * - Navigate into sub-categories
  * - Context-aware UI
+ * - Files are paged from the server (cursor paging, server-side search)
  */
 class KnowledgeActivity : BaseActivity() {
 
     private lateinit var binding: ActivityKnowledgeBinding
     private lateinit var viewModel: KnowledgeViewModel
     private lateinit var folderAdapter: FolderAdapter
-    private lateinit var knowledgeAdapter: KnowledgeAdapter
+    private lateinit var knowledgeAdapter: KnowledgePagingAdapter
 
     // Navigation state
     private val breadcrumbPath = mutableListOf<KnowledgeCategory?>()  // null = root
     private var currentCategoryId: Int? = null
+    private var isFirstResume = true
+    private var lastLoadStates: CombinedLoadStates? = null
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
@@ -59,10 +69,10 @@ class KnowledgeActivity : BaseActivity() {
         // Initialize at root level
         navigateToRoot()
 
-        // Load initial data
-        viewModel.loadKnowledgeItems()
+        // Load initial data (items are loaded by the pager)
         viewModel.loadCategories()
         viewModel.loadDueReviewItems()
+        viewModel.syncSearchIndex()
     }
 
     private fun setupAdapters() {
@@ -80,7 +90,7 @@ class KnowledgeActivity : BaseActivity() {
         binding.rvFolders.adapter = folderAdapter
 
         // Knowledge items adapter
-        knowledgeAdapter = KnowledgeAdapter(
+        knowledgeAdapter = KnowledgePagingAdapter(
             onItemClick = { item ->
                 val intent = Intent(this, KnowledgeDetailActivity::class.java)
                 intent.putExtra("KNOWLEDGE_ITEM_ID", item.id)
@@ -95,6 +105,17 @@ class KnowledgeActivity : BaseActivity() {
         )
         binding.rvKnowledge.layoutManager = LinearLayoutManager(this)
         binding.rvKnowledge.adapter = knowledgeAdapter
+
+        // Files section / empty state follow the pager's load state
+        knowledgeAdapter.addLoadStateListener { loadStates ->
+            val previousRefresh = lastLoadStates?.refresh
+            lastLoadStates = loadStates
+            val refresh = loadStates.refresh
+            if (refresh is LoadState.Error && previousRefresh !is LoadState.Error) {
+                Toast.makeText(this, "ネットワークエラー: ${refresh.error.message}", Toast.LENGTH_LONG).show()
+            }
+            updateFilesState(refresh)
+        }
     }
 
     private fun setupClickListeners() {
@@ -149,11 +170,12 @@ class KnowledgeActivity : BaseActivity() {
             override fun onTextChanged(s: CharSequence?, start: Int, before: Int, count: Int) {}
             override fun afterTextChanged(s: Editable?) {
                 val query = s?.toString() ?: ""
-                if (query.isNotEmpty()) {
-                    viewModel.setQuery(query)
-                } else {
+                viewModel.setPagedSearch(query)
+                if (query.isEmpty()) {
                     // Refresh current folder view
                     loadCurrentFolder()
+                } else {
+                    showSearchMode()
                 }
             }
         })
@@ -166,18 +188,12 @@ class KnowledgeActivity : BaseActivity() {
             loadCurrentFolder()
         }
 
-        // Observe all knowledge items
-        viewModel.knowledgeItems.observe(this) { items ->
-            // Update files view when items change
-            loadCurrentFolder()
-        }
-
-        // Observe filtered items (for search)
-        viewModel.filteredItems.observe(this) { items ->
-            val query = binding.etSearch.text.toString()
-            if (query.isNotEmpty()) {
-                // Show search results
-                displaySearchResults(items)
+        // Collect paged items (current folder or search results)
+        lifecycleScope.launch {
+            repeatOnLifecycle(Lifecycle.State.STARTED) {
+                viewModel.pagedItems.collectLatest { pagingData ->
+                    knowledgeAdapter.submitData(pagingData)
+                }
             }
         }
 
@@ -288,61 +304,85 @@ class KnowledgeActivity : BaseActivity() {
 
     /**
      * Load and display current folder contents
+     * Sub-folders come from categories, files are paged from the server
      */
     private fun loadCurrentFolder() {
+        // While searching, search results own the list
+        if (isSearching()) return
+
         val allCategories = viewModel.categories.value ?: emptyList()
-        val allItems = viewModel.knowledgeItems.value ?: emptyList()
 
         // Get sub-folders (child categories)
         val subFolders = allCategories.filter { it.parent_id == currentCategoryId }
 
-        // Get files (items in current category)
-        val files = allItems.filter { item ->
-            if (currentCategoryId == null) {
-                // At root: show items without category
-                item.category == null || item.category_id == null
-            } else {
-                // In folder: show items with matching category
-                item.category_id == currentCategoryId
-            }
-        }
+        // Files: items in current category (root = items without category)
+        viewModel.setPagedFolder(currentCategoryId)
 
-        // Update UI visibility
         val isRoot = currentCategoryId == null
         val hasSubFolders = subFolders.isNotEmpty()
-        val hasFiles = files.isNotEmpty()
-        val isEmpty = !hasSubFolders && !hasFiles
 
         // Show/hide quick actions (only at root)
         binding.quickActionsContainer.visibility = if (isRoot) View.VISIBLE else View.GONE
+        binding.tvFilesHeader.text = getString(R.string.files)
 
         // Show/hide folders section
         binding.foldersSection.visibility = if (hasSubFolders) View.VISIBLE else View.GONE
         if (hasSubFolders) {
             // Update counts for each folder (items + subfolders)
             val foldersWithCounts = subFolders.map { category ->
-                // Count items in this category
-                val itemCount = allItems.count {
-                    it.category_id == category.id && !it.is_archived
-                }
-                // Count subfolders in this category
+                // item_count = non-archived items (counted by the server)
                 val subfolderCount = allCategories.count {
                     it.parent_id == category.id
                 }
-                // Total count = items + subfolders
-                val totalCount = itemCount + subfolderCount
-                // Create a copy with updated item_count
-                category.copy(item_count = totalCount)
+                category.copy(item_count = category.item_count + subfolderCount)
             }
             folderAdapter.submitList(foldersWithCounts)
+        } else {
+            folderAdapter.submitList(emptyList())
         }
 
-        // Show/hide files section
-        binding.filesSection.visibility = if (hasFiles) View.VISIBLE else View.GONE
-        if (hasFiles) {
-            knowledgeAdapter.submitList(files)
+        updateFilesState(lastLoadStates?.refresh)
+    }
+
+    /**
+     * Switch to search mode (global search, flat list)
+     */
+    private fun showSearchMode() {
+        binding.quickActionsContainer.visibility = View.GONE
+        binding.foldersSection.visibility = View.GONE
+        binding.tvFolderInfo.visibility = View.GONE
+        updateFilesState(lastLoadStates?.refresh)
+    }
+
+    private fun isSearching(): Boolean = binding.etSearch.text?.isNotEmpty() == true
+
+    /**
+     * Update files section, empty state and folder info from the pager state
+     */
+    private fun updateFilesState(refreshState: LoadState?) {
+        // Keep the current UI until the first page arrives
+        if (refreshState is LoadState.Loading) return
+
+        val fileCount = knowledgeAdapter.itemCount
+        val hasFiles = fileCount > 0
+        val searching = isSearching()
+
+        binding.filesSection.visibility = if (hasFiles || searching) View.VISIBLE else View.GONE
+
+        if (searching) {
+            binding.tvFilesHeader.text = "Search Results ($fileCount${if (hasMorePages()) "+" else ""})"
+            binding.emptyState.visibility = if (hasFiles) View.GONE else View.VISIBLE
+            if (!hasFiles) {
+                binding.tvEmptyTitle.text = "No results found"
+                binding.tvEmptyDescription.text = "Try different keywords"
+            }
+            return
         }
 
+        val subFolderCount = (viewModel.categories.value ?: emptyList())
+            .count { it.parent_id == currentCategoryId }
+        val isEmpty = subFolderCount == 0 && !hasFiles
+
         // Show/hide empty state
         binding.emptyState.visibility = if (isEmpty) View.VISIBLE else View.GONE
         if (isEmpty) {
@@ -357,8 +397,11 @@ class KnowledgeActivity : BaseActivity() {
         }
 
         // Update folder info
-        if (!isRoot) {
-            val totalCount = subFolders.size + files.size
+        if (currentCategoryId != null) {
+            // Files are paged, so use the server-side count for the folder itself
+            val currentCategory = viewModel.categories.value?.find { it.id == currentCategoryId }
+            val itemCount = currentCategory?.item_count ?: fileCount
+            val totalCount = subFolderCount + itemCount
             binding.tvFolderInfo.text = "$totalCount items in this folder"
             binding.tvFolderInfo.visibility = View.VISIBLE
         } else {
@@ -366,24 +409,8 @@ class KnowledgeActivity : BaseActivity() {
         }
     }
 
-    /**
-     * Display search results (global search)
-     */
-    private fun displaySearchResults(items: List<KnowledgeItem>) {
-        // Hide folder structure, show flat list
-        binding.quickActionsContainer.visibility = View.GONE
-        binding.foldersSection.visibility = View.GONE
-        binding.filesSection.visibility = View.VISIBLE
-        binding.tvFilesHeader.text = "Search Results (${items.size})"
-
-        if (items.isNotEmpty()) {
-            binding.emptyState.visibility = View.GONE
-            knowledgeAdapter.submitList(items)
-        } else {
-            binding.emptyState.visibility = View.VISIBLE
-            binding.tvEmptyTitle.text = "No results found"
-            binding.tvEmptyDescription.text = "Try different keywords"
-        }
+    private fun hasMorePages(): Boolean {
+        return lastLoadStates?.append?.endOfPaginationReached == false
     }
 
     /**
@@ -414,11 +441,10 @@ class KnowledgeActivity : BaseActivity() {
      */
     private fun showDeleteFolderConfirmation(category: KnowledgeCategory) {
         val allCategories = viewModel.categories.value ?: emptyList()
-        val allItems = viewModel.knowledgeItems.value ?: emptyList()
 
-        // Count subfolders and items
+        // Count subfolders and items (item_count is counted by the server)
         val subfolderCount = allCategories.count { it.parent_id == category.id }
-        val itemCount = allItems.count { it.category_id == category.id }
+        val itemCount = category.item_count
 
         val message = when {
             subfolderCount > 0 && itemCount > 0 ->
@@ -573,8 +599,14 @@ class KnowledgeActivity : BaseActivity() {
 
     override fun onResume() {
         super.onResume()
-        // Reload data when returning
-        viewModel.refreshKnowledgeItems()
+        // Reload data when returning (first load is done in onCreate)
+        if (isFirstResume) {
+            isFirstResume = false
+            return
+        }
+        viewModel.refreshPagedItems()
+        viewModel.loadCategories()
+        viewModel.syncSearchIndex()
     }
 
     /**
@@ -1,6 +1,5 @@
 package ecccomp.s2240788.mobile_android.ui.activities
 
-import android.annotation.SuppressLint
 import android.content.ClipData
 import android.content.ClipboardManager
 import android.content.Context
@@ -17,7 +16,7 @@ import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
 import ecccomp.s2240788.mobile_android.databinding.ActivityKnowledgeDetailBinding
 import ecccomp.s2240788.mobile_android.ui.viewmodels.KnowledgeDetailViewModel
-import ecccomp.s2240788.mobile_android.utils.CodeHighlightHelper
+import ecccomp.s2240788.mobile_android.utils.SyntaxHighlighter
 
 /**
  * KnowledgeDetailActivity
@@ -49,7 +48,6 @@ class KnowledgeDetailActivity : BaseActivity() {
             return
         }
 
-        setupWebView()
         setupClickListeners()
         setupObservers()
 
@@ -57,48 +55,6 @@ class KnowledgeDetailActivity : BaseActivity() {
         viewModel.loadKnowledgeItem(knowledgeItemId)
     }
 
-    @SuppressLint("SetJavaScriptEnabled")
-    private fun setupWebView() {
-        // Setup code WebView
-        binding.webviewCode.settings.apply {
-            javaScriptEnabled = true
-            domStorageEnabled = true
-            loadWithOverviewMode = false
-            useWideViewPort = false
-            builtInZoomControls = false
-            displayZoomControls = false
-            setSupportZoom(false)
-        }
-        binding.webviewCode.isVerticalScrollBarEnabled = false
-        binding.webviewCode.isHorizontalScrollBarEnabled = false
-
-        // Setup answer WebView
-        binding.webviewAnswer.settings.apply {
-            javaScriptEnabled = true
-            domStorageEnabled = true
-            loadWithOverviewMode = false
-            useWideViewPort = false
-            builtInZoomControls = false
-            displayZoomControls = false
-            setSupportZoom(false)
-        }
-        binding.webviewAnswer.isVerticalScrollBarEnabled = false
-        binding.webviewAnswer.isHorizontalScrollBarEnabled = false
-
-        // Setup note WebView
-        binding.webviewNote.settings.apply {
-            javaScriptEnabled = true
-            domStorageEnabled = true
-            loadWithOverviewMode = false
-            useWideViewPort = false
-            builtInZoomControls = false
-            displayZoomControls = false
-            setSupportZoom(false)
-        }
-        binding.webviewNote.isVerticalScrollBarEnabled = false
-        binding.webviewNote.isHorizontalScrollBarEnabled = false
-    }
-
     private fun setupClickListeners() {
         binding.btnBack.setOnClickListener {
             finish()
@@ -236,9 +192,9 @@ class KnowledgeDetailActivity : BaseActivity() {
         android.util.Log.d("KnowledgeDetail", "displayNote - isCode: $isCode, content length: ${content.length}")
 
         if (isCode) {
-            // Use WebView for code highlighting
+            // Native syntax highlighting (cached Spanned)
             binding.tvContent.visibility = View.GONE
-            binding.webviewNote.visibility = View.VISIBLE
+            binding.scrollNoteCode.visibility = View.VISIBLE
 
             // Extract code from code blocks if present
             val (blockLanguage, codeContent) = extractCodeFromBlock(content)
@@ -249,18 +205,11 @@ class KnowledgeDetailActivity : BaseActivity() {
 
             android.util.Log.d("KnowledgeDetail", "Language detection - block: $blockLanguage, detected: $detectedLanguage, final: $language")
 
-            val html = CodeHighlightHelper.generateHighlightedHtml(this, codeContent, language)
-            binding.webviewNote.loadDataWithBaseURL(
-                null,
-                html,
-                "text/html",
-                "UTF-8",
-                null
-            )
+            binding.tvNoteCode.text = SyntaxHighlighter.highlight(codeContent, language)
         } else {
             // Use TextView for plain text
             binding.tvContent.visibility = View.VISIBLE
-            binding.webviewNote.visibility = View.GONE
+            binding.scrollNoteCode.visibility = View.GONE
             binding.tvContent.text = content
         }
     }
@@ -272,25 +221,8 @@ class KnowledgeDetailActivity : BaseActivity() {
         val code = item.content ?: ""
         val language = item.code_language ?: "plaintext"
 
-        if (code.isNotEmpty()) {
-            // Use WebView with syntax highlighting
-            binding.scrollCode.visibility = View.GONE
-            binding.webviewCode.visibility = View.VISIBLE
-
-            val html = CodeHighlightHelper.generateHighlightedHtml(this, code, language)
-            binding.webviewCode.loadDataWithBaseURL(
-                null,
-                html,
-                "text/html",
-                "UTF-8",
-                null
-            )
-        } else {
-            // Fallback to TextView for empty code
-            binding.scrollCode.visibility = View.VISIBLE
-            binding.webviewCode.visibility = View.GONE
-            binding.tvCodeContent.text = code
-        }
+        // Native syntax highlighting (cached Spanned, no WebView)
+        binding.tvCodeContent.text = SyntaxHighlighter.highlight(code, language)
     }
 
     private fun displayExercise(item: KnowledgeItem) {
@@ -302,9 +234,9 @@ class KnowledgeDetailActivity : BaseActivity() {
         val isCode = isCodeContent(answer)
         
         if (isCode) {
-            // Use WebView for code highlighting
+            // Native syntax highlighting (cached Spanned)
             binding.tvAnswer.visibility = View.GONE
-            binding.webviewAnswer.visibility = View.VISIBLE
+            binding.scrollAnswerCode.visibility = View.VISIBLE
             
             // Extract code from code blocks if present
             val (blockLanguage, codeContent) = extractCodeFromBlock(answer)
@@ -312,18 +244,11 @@ class KnowledgeDetailActivity : BaseActivity() {
             
             // Use language from code block, detected language, item's code_language, or default
             val language = blockLanguage ?: detectedLanguage ?: item.code_language ?: "plaintext"
-            val html = CodeHighlightHelper.generateHighlightedHtml(this, codeContent, language)
-            binding.webviewAnswer.loadDataWithBaseURL(
-                null,
-                html,
-                "text/html",
-                "UTF-8",
-                null
-            )
+            binding.tvAnswerCode.text = SyntaxHighlighter.highlight(codeContent, language)
         } else {
             // Use TextView for plain text
             binding.tvAnswer.visibility = View.VISIBLE
-            binding.webviewAnswer.visibility = View.GONE
+            binding.scrollAnswerCode.visibility = View.GONE
             binding.tvAnswer.text = answer
         }
 
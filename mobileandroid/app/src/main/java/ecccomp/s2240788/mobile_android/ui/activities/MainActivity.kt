@@ -18,6 +18,7 @@ import ecccomp.s2240788.mobile_android.ui.dialogs.StartTaskDialogFragment
 import ecccomp.s2240788.mobile_android.ui.viewmodels.LogoutViewModel
 import ecccomp.s2240788.mobile_android.ui.viewmodels.MainViewModel
 import ecccomp.s2240788.mobile_android.utils.LocaleHelper
+import ecccomp.s2240788.mobile_android.utils.StartupTrace
 import java.text.SimpleDateFormat
 import java.util.Calendar
 import java.util.Locale
@@ -34,6 +35,7 @@ class MainActivity : BaseActivity() {
         super.onCreate(savedInstanceState)
         binding = ActivityMainBinding.inflate(layoutInflater)
         setContentView(binding.root)
+        StartupTrace.markFirstFrame(this)
 
         setupWindowInsets()
 
@@ -269,6 +271,9 @@ class MainActivity : BaseActivity() {
             // Submit as new list to trigger update
             taskAdapter.submitList(topTasks.toList())
             taskAdapter.notifyDataSetChanged()
+
+            // 最初のタスク表示（キャッシュ含む）でコールドスタートの計測を終える
+            StartupTrace.markContentShown(this)
         }
 
         // Observe today's progress
@@ -54,6 +54,7 @@ class MilestoneKnowledgeActivity : BaseActivity() {
 
         // Load knowledge items for this milestone
         viewModel.loadKnowledgeItemsByMilestone(milestoneId)
+        viewModel.syncSearchIndex()
     }
 
     private fun setupUI() {
@@ -1,6 +1,5 @@
 package ecccomp.s2240788.mobile_android.ui.activities
 
-import android.annotation.SuppressLint
 import android.content.Intent
 import android.os.Bundle
 import android.view.View
@@ -9,8 +8,8 @@ import androidx.lifecycle.ViewModelProvider
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
 import ecccomp.s2240788.mobile_android.databinding.ActivityReviewBinding
-import ecccomp.s2240788.mobile_android.ui.viewmodels.KnowledgeViewModel
-import ecccomp.s2240788.mobile_android.utils.CodeHighlightHelper
+import ecccomp.s2240788.mobile_android.data.review.SrsScheduler
+import ecccomp.s2240788.mobile_android.ui.viewmodels.ReviewViewModel
 
 /**
  * ReviewActivity
@@ -21,17 +20,25 @@ import ecccomp.s2240788.mobile_android.utils.CodeHighlightHelper
  * - Quality feedback (Hard/Good/Easy)
  * - Progress tracking
  * - Auto-schedule next review
+ * 採点は端末で記録してすぐ次のカードへ進む（送信はReviewQueueがまとめて行う）
  */
 class ReviewActivity : BaseActivity() {
 
     private lateinit var binding: ActivityReviewBinding
-    private lateinit var viewModel: KnowledgeViewModel
+    private lateinit var viewModel: ReviewViewModel
 
     private var reviewItems: List<KnowledgeItem> = emptyList()
     private var currentIndex: Int = 0
     private var currentItem: KnowledgeItem? = null
     private var isAnswerShown: Boolean = false
 
+    // 画面回転後に同じカードから再開するための位置
+    private var restoredIndex: Int? = null
+
+    companion object {
+        private const val STATE_CURRENT_INDEX = "current_index"
+    }
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         binding = ActivityReviewBinding.inflate(layoutInflater)
@@ -39,43 +46,27 @@ class ReviewActivity : BaseActivity() {
 
         setupWindowInsets()
 
-        viewModel = ViewModelProvider(this)[KnowledgeViewModel::class.java]
+        viewModel = ViewModelProvider(this)[ReviewViewModel::class.java]
+        restoredIndex = savedInstanceState?.getInt(STATE_CURRENT_INDEX)
 
-        setupWebView()
         setupClickListeners()
         setupObservers()
 
-        // Load items due for review
-        viewModel.loadDueReviewItems()
+        // Load items due for review（ローカル → サーバーの順。回転時はViewModelが保持）
+        if (viewModel.cards.value == null) {
+            viewModel.loadCards()
+        }
     }
 
-    @SuppressLint("SetJavaScriptEnabled")
-    private fun setupWebView() {
-        // Setup content WebView
-        binding.webviewContent.settings.apply {
-            javaScriptEnabled = true
-            domStorageEnabled = true
-            loadWithOverviewMode = false
-            useWideViewPort = false
-            builtInZoomControls = false
-            displayZoomControls = false
-            setSupportZoom(false)
-        }
-        binding.webviewContent.isVerticalScrollBarEnabled = false
-        binding.webviewContent.isHorizontalScrollBarEnabled = false
-
-        // Setup answer WebView
-        binding.webviewAnswer.settings.apply {
-            javaScriptEnabled = true
-            domStorageEnabled = true
-            loadWithOverviewMode = false
-            useWideViewPort = false
-            builtInZoomControls = false
-            displayZoomControls = false
-            setSupportZoom(false)
-        }
-        binding.webviewAnswer.isVerticalScrollBarEnabled = false
-        binding.webviewAnswer.isHorizontalScrollBarEnabled = false
+    override fun onSaveInstanceState(outState: Bundle) {
+        super.onSaveInstanceState(outState)
+        outState.putInt(STATE_CURRENT_INDEX, currentIndex)
+    }
+
+    override fun onStop() {
+        super.onStop()
+        // 画面を離れたら送信待ちの採点を送る
+        viewModel.uploadPending()
     }
 
     private fun setupClickListeners() {
@@ -93,15 +84,15 @@ class ReviewActivity : BaseActivity() {
 
         // Review quality buttons
         binding.btnHard.setOnClickListener {
-            submitReview("hard")
+            submitReview(SrsScheduler.QUALITY_HARD)
         }
 
         binding.btnGood.setOnClickListener {
-            submitReview("good")
+            submitReview(SrsScheduler.QUALITY_GOOD)
         }
 
         binding.btnEasy.setOnClickListener {
-            submitReview("easy")
+            submitReview(SrsScheduler.QUALITY_EASY)
         }
 
         binding.btnSkip.setOnClickListener {
@@ -110,12 +101,13 @@ class ReviewActivity : BaseActivity() {
     }
 
     private fun setupObservers() {
-        viewModel.dueReviewItems.observe(this) { items ->
+        viewModel.cards.observe(this) { items ->
             reviewItems = items
             if (items.isEmpty()) {
                 showEmptyState()
             } else {
-                currentIndex = 0
+                currentIndex = restoredIndex?.coerceAtMost(items.size) ?: 0
+                restoredIndex = null
                 showCurrentItem()
             }
         }
@@ -123,25 +115,6 @@ class ReviewActivity : BaseActivity() {
         viewModel.isLoading.observe(this) { isLoading ->
             binding.loadingOverlay.visibility = if (isLoading) View.VISIBLE else View.GONE
         }
-
-        viewModel.error.observe(this) { error ->
-            error?.let {
-                Toast.makeText(this, it, Toast.LENGTH_LONG).show()
-                viewModel.clearError()
-            }
-        }
-
-        viewModel.successMessage.observe(this) { message ->
-            message?.let {
-                // Review marked successfully, move to next item with a short delay
-                viewModel.clearSuccessMessage()
-
-                // Delay to allow visual feedback to complete
-                binding.root.postDelayed({
-                    moveToNextItem()
-                }, 500)
-            }
-        }
     }
 
     private fun showCurrentItem() {
@@ -154,6 +127,9 @@ class ReviewActivity : BaseActivity() {
         currentItem = reviewItems[currentIndex]
         isAnswerShown = false
 
+        // 次の数枚を先に組み立てておく
+        viewModel.prerender(reviewItems, currentIndex + 1)
+
         // Show flashcard
         binding.flashcard.visibility = View.VISIBLE
         binding.emptyState.visibility = View.GONE
@@ -163,6 +139,7 @@ class ReviewActivity : BaseActivity() {
 
         // Populate card content
         currentItem?.let { item ->
+            val rendered = viewModel.renderedCard(item)
             binding.tvTitle.text = item.title
 
             // Show category breadcrumb
@@ -190,33 +167,17 @@ class ReviewActivity : BaseActivity() {
                     binding.tvQuestion.text = item.question ?: ""
                     
                     // Display answer with code highlighting if it contains code
-                    val answer = item.answer ?: ""
-                    val isCode = isCodeContent(answer)
-                    
-                    if (isCode) {
-                        // Use WebView for code highlighting
+                    val answerCode = rendered.answerCode
+                    if (answerCode != null) {
+                        // Native syntax highlighting (pre-rendered Spanned)
                         binding.tvAnswer.visibility = View.GONE
-                        binding.webviewAnswer.visibility = View.VISIBLE
-                        
-                        // Extract code from code blocks if present
-                        val (blockLanguage, codeContent) = extractCodeFromBlock(answer)
-                        val detectedLanguage = detectCodeLanguage(codeContent)
-                        
-                        // Use language from code block, detected language, item's code_language, or default
-                        val language = blockLanguage ?: detectedLanguage ?: item.code_language ?: "plaintext"
-                        val html = CodeHighlightHelper.generateHighlightedHtml(this, codeContent, language)
-                        binding.webviewAnswer.loadDataWithBaseURL(
-                            null,
-                            html,
-                            "text/html",
-                            "UTF-8",
-                            null
-                        )
+                        binding.scrollAnswerCode.visibility = View.VISIBLE
+                        binding.tvAnswerCode.text = answerCode
                     } else {
                         // Use TextView for plain text
                         binding.tvAnswer.visibility = View.VISIBLE
-                        binding.webviewAnswer.visibility = View.GONE
-                        binding.tvAnswer.text = answer
+                        binding.scrollAnswerCode.visibility = View.GONE
+                        binding.tvAnswer.text = item.answer ?: ""
                     }
                 }
                 "code_snippet" -> {
@@ -225,26 +186,16 @@ class ReviewActivity : BaseActivity() {
                     binding.llContent.visibility = View.VISIBLE
                     binding.tvContentLabel.text = getString(R.string.code)
 
-                    // Use WebView for code highlighting
-                    val code = item.content ?: ""
-                    val language = item.code_language ?: "plaintext"
-
-                    if (code.isNotEmpty()) {
+                    // Native syntax highlighting (pre-rendered Spanned)
+                    val contentCode = rendered.contentCode
+                    if (contentCode != null) {
                         binding.tvContent.visibility = View.GONE
-                        binding.webviewContent.visibility = View.VISIBLE
-
-                        val html = CodeHighlightHelper.generateHighlightedHtml(this, code, language)
-                        binding.webviewContent.loadDataWithBaseURL(
-                            null,
-                            html,
-                            "text/html",
-                            "UTF-8",
-                            null
-                        )
+                        binding.scrollContentCode.visibility = View.VISIBLE
+                        binding.tvContentCode.text = contentCode
                     } else {
                         binding.tvContent.visibility = View.VISIBLE
-                        binding.webviewContent.visibility = View.GONE
-                        binding.tvContent.text = code
+                        binding.scrollContentCode.visibility = View.GONE
+                        binding.tvContent.text = item.content ?: ""
                     }
                 }
                 else -> {
@@ -255,7 +206,7 @@ class ReviewActivity : BaseActivity() {
 
                     // Use TextView for non-code content
                     binding.tvContent.visibility = View.VISIBLE
-                    binding.webviewContent.visibility = View.GONE
+                    binding.scrollContentCode.visibility = View.GONE
                     binding.tvContent.text = item.content ?: ""
                 }
             }
@@ -281,33 +232,9 @@ class ReviewActivity : BaseActivity() {
 
     private fun submitReview(quality: String) {
         currentItem?.let { item: KnowledgeItem ->
-            // Disable buttons to prevent double-tap
-            binding.btnHard.isEnabled = false
-            binding.btnGood.isEnabled = false
-            binding.btnEasy.isEnabled = false
-
-            // Show visual feedback
-            val selectedButton = when (quality) {
-                "hard" -> binding.btnHard
-                "easy" -> binding.btnEasy
-                else -> binding.btnGood
-            }
-            selectedButton.alpha = 0.5f
-
-            // Mark as reviewed on backend with quality parameter
-            viewModel.markAsReviewed(item.id, quality)
-
-            // Add a short delay before moving to next card for better UX
-            binding.root.postDelayed({
-                // Re-enable buttons
-                binding.btnHard.isEnabled = true
-                binding.btnGood.isEnabled = true
-                binding.btnEasy.isEnabled = true
-                selectedButton.alpha = 1.0f
-            }, 300)
-
-            // Note: Backend calculates next_review_date based on review_count and quality
-            // moveToNextItem() will be called by the successMessage observer
+            // 端末に記録するだけなので応答を待たずに次へ
+            viewModel.grade(item, quality)
+            moveToNextItem()
         }
     }
 
@@ -317,6 +244,7 @@ class ReviewActivity : BaseActivity() {
     }
 
     private fun skipCurrentItem() {
+        viewModel.skip()
         // Move to next item without submitting review
         // Reset the flashcard to front side
         binding.btnShowAnswer.visibility = View.VISIBLE
@@ -340,13 +268,9 @@ class ReviewActivity : BaseActivity() {
     }
 
     private fun updateNextReviewInfo() {
-        // Show estimated next review times based on spaced repetition intervals
-        val currentReviewCount = currentItem?.review_count ?: 0
-
-        // Intervals: [1, 3, 7, 14, 30, 60, 120] days
-        val hardInterval = getNextInterval(currentReviewCount, "hard")
-        val goodInterval = getNextInterval(currentReviewCount, "good")
-        val easyInterval = getNextInterval(currentReviewCount, "easy")
+        val item = currentItem ?: return
+        // Show estimated next review times (SrsScheduler = backend algorithm)
+        val (hardInterval, goodInterval, easyInterval) = viewModel.nextIntervals(item)
 
         val hardText = formatInterval(hardInterval)
         val goodText = formatInterval(goodInterval)
@@ -358,31 +282,6 @@ class ReviewActivity : BaseActivity() {
         )
     }
 
-    private fun getNextInterval(currentCount: Int, quality: String): Int {
-        // Spaced repetition intervals in days (matches backend algorithm)
-        val intervals = listOf(1, 3, 7, 14, 30, 60, 120)
-
-        // Calculate base index (same as backend)
-        val baseIndex = maxOf(0, minOf(currentCount - 1, intervals.size - 1))
-
-        return when (quality) {
-            "hard" -> {
-                // Hard: Use shorter interval (previous level or minimum)
-                val index = maxOf(0, baseIndex - 1)
-                intervals.getOrElse(index) { 1 }
-            }
-            "easy" -> {
-                // Easy: Use longer interval (next level or maximum)
-                val index = minOf(baseIndex + 1, intervals.size - 1)
-                intervals.getOrElse(index) { 120 }
-            }
-            else -> {
-                // Good: Use normal interval
-                intervals.getOrElse(baseIndex) { 120 }
-            }
-        }
-    }
-
     private fun formatInterval(days: Int): String {
         return when {
             days == 1 -> getString(R.string.one_day)
@@ -393,75 +292,6 @@ class ReviewActivity : BaseActivity() {
         }
     }
 
-    /**
-     * Check if content is code (contains code blocks or code patterns)
-     */
-    private fun isCodeContent(content: String): Boolean {
-        if (content.isEmpty()) return false
-        
-        // Check for code blocks (```...```)
-        if (content.contains("```")) {
-            return true
-        }
-        
-        // Check for common code patterns
-        val codePatterns = listOf(
-            "def ", "function ", "class ", "import ", "from ",
-            "const ", "let ", "var ", "public ", "private ",
-            "<?php", "package ", "func ", "#include",
-            "SELECT ", "INSERT ", "UPDATE ", "DELETE ",
-            "if (", "for (", "while (", "return ",
-            "->", "::", "=>", "&&", "||"
-        )
-        
-        return codePatterns.any { content.contains(it) }
-    }
-
-    /**
-     * Extract code and language from code blocks (```language\ncode\n```)
-     * Returns Pair(language, code)
-     */
-    private fun extractCodeFromBlock(content: String): Pair<String?, String> {
-        // Check for code blocks
-        if (content.contains("```")) {
-            // Try to extract language and code: ```language\ncode\n```
-            val regex = Regex("```(\\w+)?\\s*\\n([\\s\\S]*?)\\n```")
-            val match = regex.find(content)
-            if (match != null) {
-                val language = match.groupValues[1].takeIf { it.isNotEmpty() }
-                val code = match.groupValues[2].trim()
-                return Pair(language, code)
-            }
-        }
-        return Pair(null, content.trim())
-    }
-
-    /**
-     * Detect code language from content
-     */
-    private fun detectCodeLanguage(content: String): String? {
-        val patterns = mapOf(
-            "python" to listOf("def ", "import ", "from ", "class ", "__init__", "print("),
-            "javascript" to listOf("const ", "let ", "var ", "function ", "=>", "console.log"),
-            "java" to listOf("public class", "private ", "protected ", "System.out", "public static"),
-            "php" to listOf("<?php", "namespace ", "use ", "::", "$"),
-            "go" to listOf("func ", "package ", "import ", "type ", "var "),
-            "cpp" to listOf("#include", "std::", "cout", "cin", "using namespace"),
-            "sql" to listOf("SELECT ", "INSERT ", "UPDATE ", "DELETE ", "FROM ", "WHERE "),
-            "bash" to listOf("#!/bin/bash", "#!/bin/sh", "echo ", "if [", "for "),
-            "html" to listOf("<!DOCTYPE", "<html", "<div", "<script", "<style"),
-            "css" to listOf("@media", "@keyframes", "margin:", "padding:", "background:")
-        )
-        
-        for ((lang, keywords) in patterns) {
-            if (keywords.any { content.contains(it, ignoreCase = true) }) {
-                return lang
-            }
-        }
-        
-        return null
-    }
-
     private fun showEmptyState() {
         binding.flashcard.visibility = View.GONE
         binding.emptyState.visibility = View.VISIBLE
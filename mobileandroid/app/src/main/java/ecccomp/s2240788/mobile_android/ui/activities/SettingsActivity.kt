@@ -19,6 +19,7 @@ import ecccomp.s2240788.mobile_android.databinding.ActivitySettingsBinding
 import ecccomp.s2240788.mobile_android.utils.LocaleHelper
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import ecccomp.s2240788.mobile_android.utils.SettingsPreferences
+import ecccomp.s2240788.mobile_android.utils.TokenManager
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
@@ -117,6 +118,13 @@ class SettingsActivity : BaseActivity() {
     }
 
     private fun loadUserProfile() {
+        // キャッシュ済みのユーザー情報を先に表示（ネットワークを待たない）
+        TokenManager.getCachedUser()?.let { cached ->
+            currentUser = cached
+            binding.tvUserName.text = cached.name ?: getString(R.string.unknown_user)
+            binding.tvUserEmail.text = cached.email ?: getString(R.string.no_email)
+        }
+
         lifecycleScope.launch {
             Log.d(TAG, "Loading user profile...")
             val result = withContext(Dispatchers.IO) {
@@ -7,6 +7,7 @@ import androidx.lifecycle.ViewModelProvider
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.databinding.ActivitySplashBinding
 import ecccomp.s2240788.mobile_android.ui.viewmodels.SplashViewModel
+import ecccomp.s2240788.mobile_android.utils.StartupTrace
 
 class SplashActivity : BaseActivity() {
 
@@ -17,6 +18,7 @@ class SplashActivity : BaseActivity() {
         super.onCreate(savedInstanceState)
         binding = ActivitySplashBinding.inflate(layoutInflater)
         setContentView(binding.root)
+        StartupTrace.markFirstFrame(this)
 
         setupWindowInsets()
 
@@ -9,7 +9,6 @@ import android.widget.LinearLayout
 import android.widget.TextView
 import androidx.core.view.isVisible
 import androidx.recyclerview.widget.DiffUtil
-import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeCategory
@@ -20,21 +19,34 @@ import ecccomp.s2240788.mobile_android.data.models.KnowledgeCategory
 data class CategoryTreeItem(
     val category: KnowledgeCategory,
     val level: Int = 0, // 階層レベル（0 = root）
-    val children: List<CategoryTreeItem> = emptyList()
+    val hasChildren: Boolean = false
 )
 
 /**
  * 階層構造のカテゴリを表示するアダプター
  * 展開/折りたたみ機能付き
+ * - 親→子はCategoryTreeIndexで引く（カテゴリ一覧の再走査はしない）
+ * - 展開/折りたたみは表示リストへの範囲挿入/削除だけで反映する
+ * - 選択・アイテム数の変更は該当行だけをpayloadで再バインドする（行の位置はCategoryTreeIndexで引く）
  */
 class CategoryTreeAdapter(
     private val onCategoryClick: (KnowledgeCategory) -> Unit,
     private val onCategorySelect: (KnowledgeCategory) -> Unit
-) : ListAdapter<CategoryTreeItem, CategoryTreeAdapter.CategoryViewHolder>(CategoryDiffCallback()) {
+) : RecyclerView.Adapter<CategoryTreeAdapter.CategoryViewHolder>() {
+
+    companion object {
+        private const val ALL_CATEGORY_ID = -1
+        private const val PAYLOAD_EXPAND = "payload_expand"
+        private const val PAYLOAD_SELECTION = "payload_selection"
+        private const val PAYLOAD_ITEM_COUNT = "payload_item_count"
+    }
 
     private var selectedCategoryId: Int? = null
     private val expandedCategories = mutableSetOf<Int>()
-    private var originalCategories: List<KnowledgeCategory> = emptyList()
+    private var index = CategoryTreeIndex(emptyList())
+    private val items = mutableListOf<CategoryTreeItem>()
+
+    override fun getItemCount(): Int = items.size
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): CategoryViewHolder {
         val view = LayoutInflater.from(parent.context)
@@ -43,7 +55,18 @@ class CategoryTreeAdapter(
     }
 
     override fun onBindViewHolder(holder: CategoryViewHolder, position: Int) {
-        holder.bind(getItem(position))
+        holder.bind(items[position])
+    }
+
+    override fun onBindViewHolder(holder: CategoryViewHolder, position: Int, payloads: MutableList<Any>) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads)
+            return
+        }
+        val item = items[position]
+        if (payloads.contains(PAYLOAD_EXPAND)) holder.bindExpandState(item)
+        if (payloads.contains(PAYLOAD_SELECTION)) holder.bindSelection(item)
+        if (payloads.contains(PAYLOAD_ITEM_COUNT)) holder.bindItemCount(item.category)
     }
 
     /**
@@ -51,89 +74,148 @@ class CategoryTreeAdapter(
      * 「すべて」オプションも含める
      */
     fun setCategories(categories: List<KnowledgeCategory>, includeAllOption: Boolean = true) {
-        // 元のカテゴリリストを保持
-        originalCategories = categories
-        val treeItems = buildCategoryTree(categories)
-        val flattened = flattenTree(treeItems)
-        
+        index = CategoryTreeIndex(categories)
+
+        val newItems = mutableListOf<CategoryTreeItem>()
         // 「すべて」オプションを先頭に追加
         if (includeAllOption) {
-            val allOption = CategoryTreeItem(
-                category = KnowledgeCategory(
-                    id = -1, // 特別なID
-                    user_id = 0,
-                    parent_id = null,
-                    name = "すべて",
-                    description = null,
-                    sort_order = 0,
-                    color = null,
-                    icon = null,
-                    item_count = categories.sumOf { it.item_count },
-                    created_at = "",
-                    updated_at = ""
-                ),
-                level = 0,
-                children = emptyList()
-            )
-            submitList(listOf(allOption) + flattened)
-        } else {
-            submitList(flattened)
+            newItems.add(createAllOption(index.totalItemCount()))
         }
+        appendVisibleChildren(null, 0, newItems)
+
+        // データの入れ替え時だけ差分を計算する（展開/折りたたみでは使わない）
+        val oldItems = items.toList()
+        val diff = DiffUtil.calculateDiff(object : DiffUtil.Callback() {
+            override fun getOldListSize() = oldItems.size
+            override fun getNewListSize() = newItems.size
+            override fun areItemsTheSame(oldPosition: Int, newPosition: Int) =
+                oldItems[oldPosition].category.id == newItems[newPosition].category.id
+            override fun areContentsTheSame(oldPosition: Int, newPosition: Int) =
+                oldItems[oldPosition] == newItems[newPosition]
+        })
+        items.clear()
+        items.addAll(newItems)
+        updatePositions()
+        diff.dispatchUpdatesTo(this)
     }
 
-    /**
-     * 階層構造を構築
-     */
-    private fun buildCategoryTree(
-        categories: List<KnowledgeCategory>,
-        parentId: Int? = null,
-        level: Int = 0
-    ): List<CategoryTreeItem> {
-        return categories
-            .filter { it.parent_id == parentId }
-            .map { category ->
-                val children = buildCategoryTree(categories, category.id, level + 1)
-                CategoryTreeItem(category, level, children)
-            }
+    private fun createAllOption(itemCount: Int): CategoryTreeItem {
+        return CategoryTreeItem(
+            category = KnowledgeCategory(
+                id = ALL_CATEGORY_ID, // 特別なID
+                user_id = 0,
+                parent_id = null,
+                name = "すべて",
+                description = null,
+                sort_order = 0,
+                color = null,
+                icon = null,
+                item_count = itemCount,
+                created_at = "",
+                updated_at = ""
+            ),
+            level = 0,
+            hasChildren = false
+        )
     }
 
     /**
-     * ツリーをフラットリストに変換（展開状態を考慮）
+     * 親カテゴリの下に表示される行を追加（展開済みの子孫も含む）
      */
-    private fun flattenTree(
-        items: List<CategoryTreeItem>,
-        result: MutableList<CategoryTreeItem> = mutableListOf()
-    ): List<CategoryTreeItem> {
-        items.forEach { item ->
-            result.add(item)
+    private fun appendVisibleChildren(
+        parentId: Int?,
+        level: Int,
+        result: MutableList<CategoryTreeItem>
+    ) {
+        index.childrenOf(parentId).forEach { category ->
+            val hasChildren = index.hasChildren(category.id)
+            result.add(CategoryTreeItem(category, level, hasChildren))
             // 展開されている場合は子要素も追加
-            if (expandedCategories.contains(item.category.id) && item.children.isNotEmpty()) {
-                flattenTree(item.children, result)
+            if (hasChildren && expandedCategories.contains(category.id)) {
+                appendVisibleChildren(category.id, level + 1, result)
             }
         }
-        return result
+    }
+
+    private fun positionOf(categoryId: Int): Int = index.positionOf(categoryId)
+
+    /**
+     * 表示リストの行の挿入/削除後に位置のインデックスを作り直す
+     */
+    private fun updatePositions() {
+        index.updatePositions(items.map { it.category.id })
     }
 
     /**
      * カテゴリの展開/折りたたみ
+     * 子孫の行だけを挿入/削除する
      */
     fun toggleExpand(categoryId: Int) {
-        if (expandedCategories.contains(categoryId)) {
-            expandedCategories.remove(categoryId)
+        val position = positionOf(categoryId)
+        if (position == -1) return
+        val item = items[position]
+
+        if (expandedCategories.remove(categoryId)) {
+            // 直後に続く、より深い階層の行が子孫
+            var end = position + 1
+            while (end < items.size && items[end].level > item.level) {
+                end++
+            }
+            val count = end - (position + 1)
+            if (count > 0) {
+                items.subList(position + 1, end).clear()
+                updatePositions()
+                notifyItemRangeRemoved(position + 1, count)
+            }
         } else {
             expandedCategories.add(categoryId)
+            val children = mutableListOf<CategoryTreeItem>()
+            appendVisibleChildren(categoryId, item.level + 1, children)
+            if (children.isNotEmpty()) {
+                items.addAll(position + 1, children)
+                updatePositions()
+                notifyItemRangeInserted(position + 1, children.size)
+            }
         }
-        // 元のカテゴリリストを使って再構築（展開状態を保持）
-        val includeAllOption = currentList.firstOrNull()?.category?.id == -1
-        setCategories(originalCategories, includeAllOption)
+        notifyItemChanged(position, PAYLOAD_EXPAND)
     }
 
     /**
      * 選択されたカテゴリを設定
+     * 選択が外れた行と選択された行だけを更新
      */
     fun setSelectedCategory(categoryId: Int?) {
+        val previous = selectedCategoryId
+        if (previous == categoryId) return
         selectedCategoryId = categoryId
-        notifyDataSetChanged()
+
+        previous?.let { id -> positionOf(id).takeIf { it != -1 }?.let { notifyItemChanged(it, PAYLOAD_SELECTION) } }
+        categoryId?.let { id -> positionOf(id).takeIf { it != -1 }?.let { notifyItemChanged(it, PAYLOAD_SELECTION) } }
+    }
+
+    /**
+     * カテゴリごとのアイテム数を反映（knowledge/categories/statsのitem_counts）
+     * 数が変わったカテゴリの行と「すべて」の合計だけを更新する
+     */
+    fun updateItemCounts(itemCounts: Map<Int, Int>) {
+        var totalDelta = 0
+        itemCounts.forEach { (categoryId, count) ->
+            val before = index[categoryId]?.item_count ?: return@forEach
+            val updated = index.updateItemCount(categoryId, count) ?: return@forEach
+            totalDelta += count - before
+
+            val position = positionOf(categoryId)
+            if (position != -1) {
+                items[position] = items[position].copy(category = updated)
+                notifyItemChanged(position, PAYLOAD_ITEM_COUNT)
+            }
+        }
+
+        if (totalDelta != 0 && items.firstOrNull()?.category?.id == ALL_CATEGORY_ID) {
+            val all = items[0]
+            items[0] = all.copy(category = all.category.copy(item_count = all.category.item_count + totalDelta))
+            notifyItemChanged(0, PAYLOAD_ITEM_COUNT)
+        }
     }
 
     inner class CategoryViewHolder(itemView: View) : RecyclerView.ViewHolder(itemView) {
@@ -146,12 +228,36 @@ class CategoryTreeAdapter(
         private val ivSelected: ImageView = itemView.findViewById(R.id.iv_selected)
         private val llChildren: LinearLayout = itemView.findViewById(R.id.ll_children)
 
+        init {
+            btnExpand.setOnClickListener {
+                currentItem()?.let { toggleExpand(it.category.id) }
+            }
+
+            // カテゴリクリック
+            llCategoryItem.setOnClickListener {
+                val item = currentItem() ?: return@setOnClickListener
+                if (item.hasChildren) {
+                    // 子カテゴリがある場合は展開/折りたたみ
+                    toggleExpand(item.category.id)
+                } else {
+                    // 子カテゴリがない場合は選択
+                    onCategorySelect(item.category)
+                }
+            }
+
+            // 長押しで選択（子カテゴリがある場合でも選択可能）
+            llCategoryItem.setOnLongClickListener {
+                currentItem()?.let { onCategorySelect(it.category) }
+                true
+            }
+        }
+
+        private fun currentItem(): CategoryTreeItem? =
+            bindingAdapterPosition.takeIf { it != RecyclerView.NO_POSITION }?.let { items[it] }
+
         fun bind(item: CategoryTreeItem) {
             val category = item.category
             val level = item.level
-            val hasChildren = item.children.isNotEmpty()
-            val isExpanded = expandedCategories.contains(category.id)
-            val isSelected = selectedCategoryId == category.id
 
             // カテゴリ名
             tvCategoryName.text = category.name
@@ -179,51 +285,36 @@ class CategoryTreeAdapter(
             viewIndent.layoutParams.width = indentWidth
             viewIndent.isVisible = level > 0
 
-            // 子カテゴリがある場合の展開ボタン
-            btnExpand.isVisible = hasChildren
-            btnExpand.rotation = if (isExpanded) 180f else 0f
-            btnExpand.setOnClickListener {
-                toggleExpand(category.id)
-            }
+            bindExpandState(item)
+            bindItemCount(category)
+            bindSelection(item)
+        }
+
+        /**
+         * 子カテゴリがある場合の展開ボタン
+         */
+        fun bindExpandState(item: CategoryTreeItem) {
+            btnExpand.isVisible = item.hasChildren
+            btnExpand.rotation = if (expandedCategories.contains(item.category.id)) 180f else 0f
+        }
 
-            // アイテム数
+        /**
+         * アイテム数
+         */
+        fun bindItemCount(category: KnowledgeCategory) {
             if (category.item_count > 0) {
                 tvItemCount.text = "(${category.item_count})"
                 tvItemCount.isVisible = true
             } else {
                 tvItemCount.isVisible = false
             }
-
-            // 選択状態
-            ivSelected.isVisible = isSelected
-
-            // カテゴリクリック
-            llCategoryItem.setOnClickListener {
-                if (hasChildren) {
-                    // 子カテゴリがある場合は展開/折りたたみ
-                    toggleExpand(category.id)
-                } else {
-                    // 子カテゴリがない場合は選択
-                    onCategorySelect(category)
-                }
-            }
-
-            // 長押しで選択（子カテゴリがある場合でも選択可能）
-            llCategoryItem.setOnLongClickListener {
-                onCategorySelect(category)
-                true
-            }
-        }
-    }
-
-    private class CategoryDiffCallback : DiffUtil.ItemCallback<CategoryTreeItem>() {
-        override fun areItemsTheSame(oldItem: CategoryTreeItem, newItem: CategoryTreeItem): Boolean {
-            return oldItem.category.id == newItem.category.id
         }
 
-        override fun areContentsTheSame(oldItem: CategoryTreeItem, newItem: CategoryTreeItem): Boolean {
-            return oldItem == newItem
+        /**
+         * 選択状態
+         */
+        fun bindSelection(item: CategoryTreeItem) {
+            ivSelected.isVisible = selectedCategoryId == item.category.id
         }
     }
 }
-
@@ -0,0 +1,87 @@
+package ecccomp.s2240788.mobile_android.ui.adapters
+
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeCategory
+
+/**
+ * カテゴリの親→子インデックス
+ * - 一度だけO(n)で構築し、子の取得・子孫/祖先の探索はリストを走査し直さない
+ * - 子の並び順は元のリスト（サーバーのsort_order順）を保持
+ * - 表示中の行の位置もID→位置で持つ（アダプターが表示リストを変えた時にupdatePositionsで作り直す）
+ */
+class CategoryTreeIndex(categories: List<KnowledgeCategory>) {
+
+    private val byId = HashMap<Int, KnowledgeCategory>(categories.size * 2)
+    private val childrenByParent = HashMap<Int?, MutableList<Int>>()
+    private val positionById = HashMap<Int, Int>()
+
+    init {
+        categories.forEach { category ->
+            byId[category.id] = category
+            childrenByParent.getOrPut(category.parent_id) { mutableListOf() }.add(category.id)
+        }
+    }
+
+    val size: Int get() = byId.size
+
+    operator fun get(id: Int): KnowledgeCategory? = byId[id]
+
+    /**
+     * ルートカテゴリ（parent_id = null）
+     */
+    fun roots(): List<KnowledgeCategory> = childrenOf(null)
+
+    fun childrenOf(parentId: Int?): List<KnowledgeCategory> =
+        childrenByParent[parentId]?.mapNotNull { byId[it] } ?: emptyList()
+
+    fun hasChildren(id: Int): Boolean = !childrenByParent[id].isNullOrEmpty()
+
+    /**
+     * すべての子孫カテゴリのID（自身は含まない）
+     */
+    fun descendantIds(id: Int, result: MutableSet<Int> = mutableSetOf()): MutableSet<Int> {
+        childrenByParent[id]?.forEach { childId ->
+            if (result.add(childId)) {
+                descendantIds(childId, result)
+            }
+        }
+        return result
+    }
+
+    /**
+     * すべての祖先カテゴリのID（自身は含まない）
+     */
+    fun ancestorIds(id: Int, result: MutableSet<Int> = mutableSetOf()): MutableSet<Int> {
+        var parentId = byId[id]?.parent_id
+        // 不正なデータで循環していても止まるようにresultで判定
+        while (parentId != null && result.add(parentId)) {
+            parentId = byId[parentId]?.parent_id
+        }
+        return result
+    }
+
+    /**
+     * アイテム数を更新（変わった場合だけ更新後のカテゴリを返す）
+     */
+    fun updateItemCount(id: Int, itemCount: Int): KnowledgeCategory? {
+        val current = byId[id] ?: return null
+        if (current.item_count == itemCount) return null
+        val updated = current.copy(item_count = itemCount)
+        byId[id] = updated
+        return updated
+    }
+
+    /**
+     * 表示中の行の位置を作り直す（表示順のIDを渡す）
+     */
+    fun updatePositions(visibleIds: List<Int>) {
+        positionById.clear()
+        visibleIds.forEachIndexed { position, id -> positionById[id] = position }
+    }
+
+    /**
+     * 表示中の行の位置（表示されていない場合は-1）
+     */
+    fun positionOf(id: Int): Int = positionById[id] ?: -1
+
+    fun totalItemCount(): Int = byId.values.sumOf { it.item_count }
+}
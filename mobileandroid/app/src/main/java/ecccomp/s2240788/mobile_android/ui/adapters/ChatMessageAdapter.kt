@@ -29,6 +29,9 @@ class ChatMessageAdapter : ListAdapter<Any, RecyclerView.ViewHolder>(ChatMessage
         
         // Typing indicator object
         val TYPING_INDICATOR = Any()
+
+        // Payload: only the message text changed (streaming reply)
+        private const val PAYLOAD_CONTENT = "payload_content"
     }
 
     override fun getItemViewType(position: Int): Int {
@@ -78,6 +81,16 @@ class ChatMessageAdapter : ListAdapter<Any, RecyclerView.ViewHolder>(ChatMessage
         }
     }
 
+    override fun onBindViewHolder(holder: RecyclerView.ViewHolder, position: Int, payloads: MutableList<Any>) {
+        val item = getItem(position)
+        if (payloads.contains(PAYLOAD_CONTENT) && holder is AIMessageViewHolder && item is ChatMessage) {
+            // Streaming: update text only
+            holder.bindContent(item)
+            return
+        }
+        super.onBindViewHolder(holder, position, payloads)
+    }
+
     /**
      * ViewHolder for User Messages (right-aligned)
      */
@@ -106,6 +119,10 @@ class ChatMessageAdapter : ListAdapter<Any, RecyclerView.ViewHolder>(ChatMessage
             tvMessage.text = message.content
             tvTimestamp.text = formatTimestamp(message.created_at)
         }
+
+        fun bindContent(message: ChatMessage) {
+            tvMessage.text = message.content
+        }
     }
 
     /**
@@ -197,17 +214,22 @@ class ChatMessageAdapter : ListAdapter<Any, RecyclerView.ViewHolder>(ChatMessage
                 else -> false
             }
         }
+
+        override fun getChangePayload(oldItem: Any, newItem: Any): Any? {
+            // Growing streaming reply: same message, only content changed
+            if (oldItem is ChatMessage && newItem is ChatMessage &&
+                oldItem.copy(content = newItem.content, created_at = newItem.created_at) == newItem
+            ) {
+                return PAYLOAD_CONTENT
+            }
+            return null
+        }
     }
     
     /**
      * Update messages list without affecting typing indicator
      */
     fun updateMessages(messages: List<ChatMessage>) {
-        android.util.Log.d("ChatMessageAdapter", "updateMessages called with ${messages.size} messages")
-        messages.forEachIndexed { index, msg ->
-            android.util.Log.d("ChatMessageAdapter", "Message $index: id=${msg.id}, role=${msg.role}, content=${msg.content.take(50)}")
-        }
-
         val currentList = currentList.toMutableList()
         // Check if typing indicator is currently showing
         val hasTypingIndicator = currentList.any { it === TYPING_INDICATOR }
@@ -220,11 +242,9 @@ class ChatMessageAdapter : ListAdapter<Any, RecyclerView.ViewHolder>(ChatMessage
             newList.add(TYPING_INDICATOR)
         }
 
-        android.util.Log.d("ChatMessageAdapter", "Submitting list with ${newList.size} items (hasTypingIndicator=$hasTypingIndicator)")
-        // Important: Submit null first, then submit the new list
-        // This forces the adapter to recognize the change
-        submitList(null)
-        submitList(newList.toList()) // Create a new list instance
+        // Submit a new list instance; DiffUtil only rebinds changed rows
+        // (a streaming reply is updated with a content payload)
+        submitList(newList.toList())
     }
 
     /**
@@ -6,7 +6,6 @@ import android.content.Context
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
-import android.webkit.WebView
 import android.widget.Toast
 import androidx.core.content.ContextCompat
 import androidx.recyclerview.widget.DiffUtil
@@ -15,7 +14,7 @@ import androidx.recyclerview.widget.RecyclerView
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
 import ecccomp.s2240788.mobile_android.databinding.ItemFocusKnowledgeBinding
-import ecccomp.s2240788.mobile_android.utils.CodeHighlightHelper
+import ecccomp.s2240788.mobile_android.utils.SyntaxHighlighter
 
 /**
  * FocusKnowledgeAdapter
@@ -130,20 +129,10 @@ class FocusKnowledgeAdapter(
                         codeContainer.visibility = View.VISIBLE
                         tvCodeLanguage.text = item.code_language?.uppercase() ?: "CODE"
 
-                        // Use WebView with syntax highlighting
+                        // Native syntax highlighting (cached Spanned)
                         val code = item.content ?: ""
                         val language = item.code_language ?: "plaintext"
-                        val highlightedHtml = CodeHighlightHelper.generateHighlightedHtml(
-                            root.context,
-                            code,
-                            language
-                        )
-
-                        webviewCode.apply {
-                            settings.javaScriptEnabled = true
-                            setBackgroundColor(android.graphics.Color.TRANSPARENT)
-                            loadDataWithBaseURL(null, highlightedHtml, "text/html", "UTF-8", null)
-                        }
+                        tvCode.text = SyntaxHighlighter.highlight(code, language)
 
                         btnCopyCode.setOnClickListener {
                             copyToClipboard(it.context, code)
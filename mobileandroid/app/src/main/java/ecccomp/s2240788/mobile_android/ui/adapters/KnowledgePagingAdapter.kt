@@ -0,0 +1,32 @@
+package ecccomp.s2240788.mobile_android.ui.adapters
+
+import android.view.LayoutInflater
+import android.view.ViewGroup
+import androidx.paging.PagingDataAdapter
+import ecccomp.s2240788.mobile_android.databinding.ItemKnowledgeCardBinding
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+
+/**
+ * KnowledgePagingAdapter
+ * Paging 3版のKnowledgeAdapter（ViewHolder・DiffCallbackは共通）
+ */
+class KnowledgePagingAdapter(
+    private val onItemClick: (KnowledgeItem) -> Unit = {},
+    private val onFavoriteClick: (KnowledgeItem) -> Unit = {},
+    private val onMenuClick: (KnowledgeItem) -> Unit = {}
+) : PagingDataAdapter<KnowledgeItem, KnowledgeAdapter.ViewHolder>(KnowledgeAdapter.KnowledgeDiffCallback()) {
+
+    override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): KnowledgeAdapter.ViewHolder {
+        val binding = ItemKnowledgeCardBinding.inflate(
+            LayoutInflater.from(parent.context),
+            parent,
+            false
+        )
+        return KnowledgeAdapter.ViewHolder(binding, onItemClick, onFavoriteClick, onMenuClick)
+    }
+
+    override fun onBindViewHolder(holder: KnowledgeAdapter.ViewHolder, position: Int) {
+        // プレースホルダーは無効なのでnullは来ない想定
+        getItem(position)?.let { holder.bind(it) }
+    }
+}
@@ -11,8 +11,7 @@ import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.Task
 import ecccomp.s2240788.mobile_android.data.models.Subtask
 import ecccomp.s2240788.mobile_android.databinding.ItemTaskCardBinding
-import java.text.SimpleDateFormat
-import java.util.*
+import ecccomp.s2240788.mobile_android.utils.DateTimes
 
 /**
  * MainTaskAdapter
@@ -133,44 +132,23 @@ class MainTaskAdapter(
                     timeContainer.visibility = View.GONE
                 }
 
-                // Deadline
+                // Deadline（解析済みのepoch dayを共有フォーマッタで表示）
                 if (!task.deadline.isNullOrEmpty()) {
                     dateContainer.visibility = View.VISIBLE
-                    try {
-                        val inputFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-                        val outputFormat = SimpleDateFormat("MM/dd", Locale.getDefault())
-                        val date = inputFormat.parse(task.deadline)
-                        val formattedDate = if (date != null) outputFormat.format(date) else task.deadline
-                        tvTaskDate.text = formattedDate
-                    } catch (e: Exception) {
-                        tvTaskDate.text = task.deadline
-                    }
+                    tvTaskDate.text = task.deadlineEpochDay
+                        ?.let { DateTimes.format(it, "MM/dd") }
+                        ?: task.deadline
                 } else {
                     dateContainer.visibility = View.GONE
                 }
 
-                // Scheduled Time - show if available (now TIME type: HH:MM:SS or HH:MM)
+                // Scheduled Time - show if available (TIME type: HH:MM:SS or HH:MM)
                 if (!task.scheduled_time.isNullOrEmpty()) {
                     scheduledTimeContainer.visibility = View.VISIBLE
-                    try {
-                        // Backend returns HH:MM:SS or HH:MM format (time only, no date)
-                        val displayFormat = SimpleDateFormat("HH:mm", Locale.getDefault())
-                        val apiFormat = SimpleDateFormat("HH:mm:ss", Locale.getDefault())
-
-                        // Parse time string
-                        val time = if (task.scheduled_time.count { it == ':' } == 2) {
-                            // HH:MM:SS format
-                            apiFormat.parse(task.scheduled_time)
-                        } else {
-                            // HH:MM format
-                            displayFormat.parse(task.scheduled_time)
-                        }
-
-                        tvScheduledTime.text = if (time != null) displayFormat.format(time) else task.scheduled_time
-                    } catch (e: Exception) {
-                        // Fallback: just display the time as-is
-                        tvScheduledTime.text = task.scheduled_time
-                    }
+                    // Fallback: just display the time as-is
+                    tvScheduledTime.text = task.scheduledMinuteOfDay
+                        ?.let { DateTimes.formatMinuteOfDay(it) }
+                        ?: task.scheduled_time
                 } else {
                     scheduledTimeContainer.visibility = View.GONE
                 }
@@ -4,15 +4,35 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import android.widget.TextView
+import androidx.core.content.ContextCompat
 import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
 import com.google.android.material.card.MaterialCardView
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.ExerciseTestCase
+import ecccomp.s2240788.mobile_android.data.models.TestCaseResult
 
 class TestCaseAdapter : ListAdapter<ExerciseTestCase, TestCaseAdapter.ViewHolder>(DiffCallback()) {
 
+    companion object {
+        private const val PAYLOAD_RESULT = "payload_result"
+    }
+
+    // 端末上での実行結果（テストケースID → 結果）
+    private var results: Map<Int, TestCaseResult> = emptyMap()
+
+    /**
+     * 実行結果を表示（結果が変わった行だけ再バインド）
+     */
+    fun setResults(newResults: Map<Int, TestCaseResult>) {
+        val old = results
+        results = newResults
+        currentList.forEachIndexed { position, testCase ->
+            if (old[testCase.id] != newResults[testCase.id]) notifyItemChanged(position, PAYLOAD_RESULT)
+        }
+    }
+
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
         val view = LayoutInflater.from(parent.context)
             .inflate(R.layout.item_test_case, parent, false)
@@ -20,7 +40,17 @@ class TestCaseAdapter : ListAdapter<ExerciseTestCase, TestCaseAdapter.ViewHolder
     }
 
     override fun onBindViewHolder(holder: ViewHolder, position: Int) {
-        holder.bind(getItem(position), position + 1)
+        val testCase = getItem(position)
+        holder.bind(testCase, position + 1)
+        holder.bindResult(results[testCase.id])
+    }
+
+    override fun onBindViewHolder(holder: ViewHolder, position: Int, payloads: MutableList<Any>) {
+        if (payloads.contains(PAYLOAD_RESULT)) {
+            holder.bindResult(results[getItem(position).id])
+            return
+        }
+        super.onBindViewHolder(holder, position, payloads)
     }
 
     class ViewHolder(itemView: View) : RecyclerView.ViewHolder(itemView) {
@@ -29,6 +59,10 @@ class TestCaseAdapter : ListAdapter<ExerciseTestCase, TestCaseAdapter.ViewHolder
         private val tvDescription: TextView = itemView.findViewById(R.id.tv_description)
         private val tvInput: TextView = itemView.findViewById(R.id.tv_input)
         private val tvExpectedOutput: TextView = itemView.findViewById(R.id.tv_expected_output)
+        private val tvResult: TextView = itemView.findViewById(R.id.tv_result)
+        private val layoutActualOutput: View = itemView.findViewById(R.id.layout_actual_output)
+        private val tvActualOutputLabel: TextView = itemView.findViewById(R.id.tv_actual_output_label)
+        private val tvActualOutput: TextView = itemView.findViewById(R.id.tv_actual_output)
 
         fun bind(testCase: ExerciseTestCase, testNumber: Int) {
             tvTestNumber.text = "Test Case $testNumber"
@@ -51,6 +85,39 @@ class TestCaseAdapter : ListAdapter<ExerciseTestCase, TestCaseAdapter.ViewHolder
             // Set expected output
             tvExpectedOutput.text = testCase.expectedOutput
         }
+
+        /**
+         * 実行結果（未実行ならバッジと出力を隠す）
+         * 不合格の時だけ実際の出力・エラーを表示
+         */
+        fun bindResult(result: TestCaseResult?) {
+            val context = itemView.context
+            if (result == null) {
+                tvResult.visibility = View.GONE
+                layoutActualOutput.visibility = View.GONE
+                cardTestCase.strokeColor = ContextCompat.getColor(context, R.color.divider_color)
+                return
+            }
+
+            val color = ContextCompat.getColor(context, if (result.passed) R.color.success else R.color.error)
+            tvResult.visibility = View.VISIBLE
+            tvResult.text = if (result.passed) "✓ 成功" else "✗ 失敗"
+            tvResult.setTextColor(color)
+            cardTestCase.strokeColor = color
+
+            if (result.passed) {
+                layoutActualOutput.visibility = View.GONE
+            } else {
+                layoutActualOutput.visibility = View.VISIBLE
+                if (result.error != null) {
+                    tvActualOutputLabel.text = "エラー:"
+                    tvActualOutput.text = result.error
+                } else {
+                    tvActualOutputLabel.text = "実際の出力:"
+                    tvActualOutput.text = result.actualOutput.orEmpty().ifEmpty { "(no output)" }
+                }
+            }
+        }
     }
 
     class DiffCallback : DiffUtil.ItemCallback<ExerciseTestCase>() {
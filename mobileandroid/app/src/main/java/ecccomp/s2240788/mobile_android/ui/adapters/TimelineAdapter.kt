@@ -9,8 +9,7 @@ import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.Task
 import ecccomp.s2240788.mobile_android.databinding.ItemTimelineHourBinding
 import ecccomp.s2240788.mobile_android.databinding.ItemTimelineTaskBinding
-import java.text.SimpleDateFormat
-import java.util.*
+import ecccomp.s2240788.mobile_android.utils.DateTimes
 
 /**
  * TimelineSlot
@@ -48,63 +47,32 @@ class TimelineAdapter(
     override fun getItemCount(): Int = timelineSlots.size
 
     fun submitList(tasks: List<Task>) {
-        android.util.Log.d("TimelineAdapter", "=== SUBMIT LIST DEBUG ===")
-        android.util.Log.d("TimelineAdapter", "Received ${tasks.size} tasks")
+        val currentHour = DateTimes.nowMinuteOfDay() / 60
 
-        tasks.forEach { task ->
-            android.util.Log.d("TimelineAdapter",
-                "Task: id=${task.id}, title=${task.title}, scheduled_time=${task.scheduled_time}")
-        }
-
-        val currentHour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY)
+        // 解析済みの scheduled_time（minute of day）で時間帯ごとに一度だけ振り分ける
+        val tasksByHour = tasks.groupBy { getTaskHour(it) }
 
         // 24時間分のスロットを生成 (00:00 - 23:00)
         timelineSlots = (0..23).map { hour ->
-            // この時間帯のタスクをフィルター
-            val tasksInThisHour = tasks.filter { task ->
-                val taskHour = getTaskHour(task)
-                android.util.Log.d("TimelineAdapter",
-                    "Checking task '${task.title}': scheduled_time=${task.scheduled_time}, " +
-                    "extracted hour=$taskHour, slot hour=$hour, match=${taskHour == hour}")
-                taskHour == hour
-            }
-
-            if (tasksInThisHour.isNotEmpty()) {
-                android.util.Log.d("TimelineAdapter",
-                    "Hour $hour has ${tasksInThisHour.size} tasks")
-            }
-
             TimelineSlot(
                 hour = hour,
-                tasks = tasksInThisHour,
+                tasks = tasksByHour[hour].orEmpty(),
                 isCurrentHour = (hour == currentHour)
             )
         }
 
-        android.util.Log.d("TimelineAdapter", "Created ${timelineSlots.size} time slots")
         android.util.Log.d("TimelineAdapter",
-            "Slots with tasks: ${timelineSlots.count { it.tasks.isNotEmpty() }}")
+            "Received ${tasks.size} tasks, slots with tasks: ${tasksByHour.keys.count { it >= 0 }}")
 
         notifyDataSetChanged()
     }
 
     /**
      * タスクの時間を取得（scheduled_timeから）
-     * Backend now returns TIME type: "HH:mm:ss" or "HH:mm"
+     * Backend returns TIME type: "HH:mm:ss" or "HH:mm"
      */
     private fun getTaskHour(task: Task): Int {
-        return try {
-            if (!task.scheduled_time.isNullOrEmpty()) {
-                val scheduledTime = task.scheduled_time
-                // Format: "HH:mm:ss" or "HH:mm"
-                val parts = scheduledTime.split(":")
-                parts.getOrNull(0)?.toIntOrNull() ?: -1
-            } else {
-                -1 // 時間指定なし
-            }
-        } catch (e: Exception) {
-            -1
-        }
+        return task.scheduledMinuteOfDay?.let { it / 60 } ?: -1 // -1 = 時間指定なし
     }
 
     inner class TimelineViewHolder(
@@ -114,7 +82,7 @@ class TimelineAdapter(
         fun bind(slot: TimelineSlot) {
             binding.apply {
                 // 時間ラベル
-                tvHour.text = String.format("%02d:00", slot.hour)
+                tvHour.text = DateTimes.formatMinuteOfDay(slot.hour * 60)
 
                 // 現在時刻インジケーター
                 if (slot.isCurrentHour) {
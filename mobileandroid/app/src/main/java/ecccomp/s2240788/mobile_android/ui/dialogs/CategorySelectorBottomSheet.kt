@@ -18,6 +18,7 @@ import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeCategory
 import ecccomp.s2240788.mobile_android.databinding.BottomSheetCategorySelectorBinding
 import ecccomp.s2240788.mobile_android.ui.adapters.CategoryTreeAdapter
+import ecccomp.s2240788.mobile_android.ui.adapters.CategoryTreeIndex
 import ecccomp.s2240788.mobile_android.ui.viewmodels.KnowledgeViewModel
 
 /**
@@ -33,6 +34,7 @@ class CategorySelectorBottomSheet : BottomSheetDialogFragment() {
     private lateinit var adapter: CategoryTreeAdapter
 
     private var selectedCategory: KnowledgeCategory? = null
+    private var categoryIndex: CategoryTreeIndex? = null
     private var onCategorySelected: ((KnowledgeCategory?) -> Unit)? = null
 
     companion object {
@@ -93,6 +95,7 @@ class CategorySelectorBottomSheet : BottomSheetDialogFragment() {
         setupSearch()
         setupListeners()
         observeViewModel(initialCategoryId)
+        observeCategoryStats()
         loadCategories()
     }
 
@@ -147,7 +150,8 @@ class CategorySelectorBottomSheet : BottomSheetDialogFragment() {
     private fun observeViewModel(initialCategoryId: Int? = null) {
         viewModel.categories.observe(viewLifecycleOwner) { categories ->
             if (categories.isNotEmpty()) {
-                adapter.setCategories(categories)
+                categoryIndex = CategoryTreeIndex(categories)
+                showCategories(categories)
                 
                 // 初期選択カテゴリを設定
                 val categoryIdToSelect = initialCategoryId 
@@ -155,7 +159,7 @@ class CategorySelectorBottomSheet : BottomSheetDialogFragment() {
                     ?: viewModel.getCurrentCategoryId()
                 
                 categoryIdToSelect?.let { categoryId ->
-                    val category = categories.find { it.id == categoryId }
+                    val category = categoryIndex?.get(categoryId)
                     category?.let {
                         selectedCategory = it
                         adapter.setSelectedCategory(it.id)
@@ -166,72 +170,51 @@ class CategorySelectorBottomSheet : BottomSheetDialogFragment() {
         }
     }
 
+    private fun observeCategoryStats() {
+        viewModel.categoryStats.observe(viewLifecycleOwner) { stats ->
+            stats?.item_counts?.let { adapter.updateItemCounts(it) }
+        }
+    }
+
     private fun loadCategories() {
         viewModel.loadCategories()
+        // カテゴリごとのアイテム数は軽いstatsで取得し、変わった行だけ更新する
+        viewModel.loadCategoryStats()
     }
 
     private fun filterCategories(query: String) {
-        viewModel.categories.value?.let { categories ->
-            if (query.isBlank()) {
-                adapter.setCategories(categories)
-            } else {
-                // 階層構造を考慮した検索
-                // 親カテゴリがマッチする場合、子カテゴリも含める
-                val queryLower = query.lowercase()
-                val matchedCategoryIds = mutableSetOf<Int>()
-                
-                // 直接マッチするカテゴリを検索
-                categories.forEach { category ->
-                    if (category.name.lowercase().contains(queryLower)) {
-                        matchedCategoryIds.add(category.id)
-                        // 親カテゴリがマッチした場合、すべての子カテゴリを追加
-                        addAllChildren(categories, category.id, matchedCategoryIds)
-                    }
-                }
-                
-                // 子カテゴリがマッチした場合、親カテゴリも追加
-                categories.forEach { category ->
-                    if (category.name.lowercase().contains(queryLower)) {
-                        addAllParents(categories, category.parent_id, matchedCategoryIds)
-                    }
-                }
-                
-                val filtered = categories.filter { 
-                    matchedCategoryIds.contains(it.id) 
+        val categories = viewModel.categories.value ?: return
+        val index = categoryIndex ?: return
+        if (query.isBlank()) {
+            showCategories(categories)
+        } else {
+            // 階層構造を考慮した検索
+            // 親カテゴリがマッチする場合は子孫を、子カテゴリがマッチする場合は祖先を含める
+            val queryLower = query.lowercase()
+            val matchedCategoryIds = mutableSetOf<Int>()
+
+            categories.forEach { category ->
+                if (category.name.lowercase().contains(queryLower)) {
+                    matchedCategoryIds.add(category.id)
+                    index.descendantIds(category.id, matchedCategoryIds)
+                    index.ancestorIds(category.id, matchedCategoryIds)
                 }
-                adapter.setCategories(filtered)
             }
+
+            val filtered = categories.filter {
+                matchedCategoryIds.contains(it.id)
+            }
+            showCategories(filtered)
         }
     }
-    
-    /**
-     * すべての子カテゴリを追加（再帰的）
-     */
-    private fun addAllChildren(
-        categories: List<KnowledgeCategory>,
-        parentId: Int,
-        result: MutableSet<Int>
-    ) {
-        categories.filter { it.parent_id == parentId }.forEach { child ->
-            result.add(child.id)
-            addAllChildren(categories, child.id, result)
-        }
-    }
-    
+
     /**
-     * すべての親カテゴリを追加（再帰的）
+     * リストを表示し、最新のアイテム数を重ねる
+     * （viewModel.categoriesのアイテム数は古い場合があるため、statsのitem_countsで上書きする）
      */
-    private fun addAllParents(
-        categories: List<KnowledgeCategory>,
-        parentId: Int?,
-        result: MutableSet<Int>
-    ) {
-        parentId?.let { pid ->
-            categories.find { it.id == pid }?.let { parent ->
-                result.add(parent.id)
-                addAllParents(categories, parent.parent_id, result)
-            }
-        }
+    private fun showCategories(categories: List<KnowledgeCategory>) {
+        adapter.setCategories(categories)
+        viewModel.categoryStats.value?.item_counts?.let { adapter.updateItemCounts(it) }
     }
 
     private fun updateSelectedCategoryDisplay() {
@@ -80,6 +80,8 @@ class ConversationHistoryDialog : DialogFragment() {
 
     fun updateConversations(newConversations: List<ChatConversation>) {
         conversations = newConversations
+        // ビューの作成前（キャッシュ・サーバーの結果が先に届いた時）はonViewCreatedで反映
+        if (_binding == null) return
         adapter.submitList(conversations)
         updateEmptyState()
     }
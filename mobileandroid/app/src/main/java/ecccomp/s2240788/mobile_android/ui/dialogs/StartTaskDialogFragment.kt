@@ -12,6 +12,7 @@ import androidx.recyclerview.widget.LinearLayoutManager
 import com.google.android.material.dialog.MaterialAlertDialogBuilder
 import ecccomp.s2240788.mobile_android.R
 import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.data.repository.FocusKnowledgeRepository
 import ecccomp.s2240788.mobile_android.databinding.DialogStartTaskBinding
 import ecccomp.s2240788.mobile_android.ui.adapters.StartTaskAdapter
 import ecccomp.s2240788.mobile_android.ui.viewmodels.MainViewModel
@@ -89,14 +90,8 @@ class StartTaskDialogFragment : DialogFragment() {
     
     private fun setupRecyclerView() {
         adapter = StartTaskAdapter(
-            onTaskClick = { task ->
-                onTaskSelected?.invoke(task)
-                dismiss()
-            },
-            onStartClick = { task ->
-                onTaskSelected?.invoke(task)
-                dismiss()
-            }
+            onTaskClick = { task -> selectTask(task) },
+            onStartClick = { task -> selectTask(task) }
         )
         
         binding.rvTasks.apply {
@@ -105,6 +100,16 @@ class StartTaskDialogFragment : DialogFragment() {
         }
     }
     
+    /**
+     * タスクを選択
+     * 選ばれた時点でフォーカス画面の知識アイテムを先読みする（確認ダイアログ・開始処理の間に取得が終わる）
+     */
+    private fun selectTask(task: Task) {
+        FocusKnowledgeRepository.prefetch(task.id)
+        onTaskSelected?.invoke(task)
+        dismiss()
+    }
+    
     private fun setupClickListeners() {
         // Close button
         binding.btnClose.setOnClickListener {
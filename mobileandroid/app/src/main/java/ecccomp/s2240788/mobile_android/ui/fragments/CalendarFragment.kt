@@ -18,7 +18,7 @@ import ecccomp.s2240788.mobile_android.ui.activities.TaskDetailActivity
 import ecccomp.s2240788.mobile_android.ui.adapters.TaskAdapter
 import ecccomp.s2240788.mobile_android.ui.adapters.TimelineAdapter
 import ecccomp.s2240788.mobile_android.ui.viewmodels.CalendarViewModel
-import java.text.SimpleDateFormat
+import ecccomp.s2240788.mobile_android.utils.DateTimes
 import java.util.*
 
 /**
@@ -99,7 +99,7 @@ class CalendarFragment : Fragment() {
             val selectedDate = calendar.time
             viewModel.selectDate(selectedDate)
             
-            Log.d("CalendarFragment", "Date selected: ${SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(selectedDate)}")
+            Log.d("CalendarFragment", "Date selected: ${DateTimes.format(selectedDate, "yyyy-MM-dd")}")
         }
     }
 
@@ -216,7 +216,7 @@ class CalendarFragment : Fragment() {
         calendar.add(Calendar.MONTH, -1)
         binding.calendarView.date = calendar.timeInMillis
         viewModel.selectDate(calendar.time)
-        Log.d("CalendarFragment", "Navigated to previous month: ${SimpleDateFormat("yyyy-MM", Locale.getDefault()).format(calendar.time)}")
+        Log.d("CalendarFragment", "Navigated to previous month: ${DateTimes.format(calendar.time, "yyyy-MM")}")
     }
 
     /**
@@ -228,7 +228,7 @@ class CalendarFragment : Fragment() {
         calendar.add(Calendar.MONTH, 1)
         binding.calendarView.date = calendar.timeInMillis
         viewModel.selectDate(calendar.time)
-        Log.d("CalendarFragment", "Navigated to next month: ${SimpleDateFormat("yyyy-MM", Locale.getDefault()).format(calendar.time)}")
+        Log.d("CalendarFragment", "Navigated to next month: ${DateTimes.format(calendar.time, "yyyy-MM")}")
     }
 
     /**
@@ -238,7 +238,7 @@ class CalendarFragment : Fragment() {
         val calendar = Calendar.getInstance()
         binding.calendarView.date = calendar.timeInMillis
         viewModel.selectDate(calendar.time)
-        Log.d("CalendarFragment", "Selected today: ${SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.time)}")
+        Log.d("CalendarFragment", "Selected today: ${DateTimes.format(calendar.time, "yyyy-MM-dd")}")
     }
 
     /**
@@ -249,7 +249,7 @@ class CalendarFragment : Fragment() {
         calendar.add(Calendar.DAY_OF_MONTH, 1)
         binding.calendarView.date = calendar.timeInMillis
         viewModel.selectDate(calendar.time)
-        Log.d("CalendarFragment", "Selected tomorrow: ${SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.time)}")
+        Log.d("CalendarFragment", "Selected tomorrow: ${DateTimes.format(calendar.time, "yyyy-MM-dd")}")
     }
 
     /**
@@ -271,7 +271,7 @@ class CalendarFragment : Fragment() {
         calendar.add(Calendar.DAY_OF_MONTH, daysUntilMonday)
         binding.calendarView.date = calendar.timeInMillis
         viewModel.selectDate(calendar.time)
-        Log.d("CalendarFragment", "Selected next Monday: ${SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.time)}")
+        Log.d("CalendarFragment", "Selected next Monday: ${DateTimes.format(calendar.time, "yyyy-MM-dd")}")
     }
 
     /**
@@ -282,7 +282,7 @@ class CalendarFragment : Fragment() {
         calendar.add(Calendar.DAY_OF_MONTH, 7)
         binding.calendarView.date = calendar.timeInMillis
         viewModel.selectDate(calendar.time)
-        Log.d("CalendarFragment", "Selected next week: ${SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(calendar.time)}")
+        Log.d("CalendarFragment", "Selected next week: ${DateTimes.format(calendar.time, "yyyy-MM-dd")}")
     }
 
     /**
@@ -344,26 +344,13 @@ class CalendarFragment : Fragment() {
      * Update timeline view with study schedules
      */
     private fun updateTimelineView(tasks: List<Task>) {
-        Log.d("CalendarFragment", "=== UPDATE TIMELINE VIEW ===")
-        Log.d("CalendarFragment", "Received ${tasks.size} tasks")
-        Log.d("CalendarFragment", "isTimelineView = $isTimelineView")
-
-        tasks.forEach { task ->
-            Log.d("CalendarFragment",
-                "Task: id=${task.id}, title='${task.title}', " +
-                "scheduled_time='${task.scheduled_time}', category='${task.category}'")
-        }
-
         timelineAdapter.submitList(tasks)
-        Log.d("CalendarFragment", "Called timelineAdapter.submitList()")
 
         // Update UI visibility if currently in timeline view
         if (isTimelineView) {
             if (tasks.isEmpty()) {
-                Log.d("CalendarFragment", "No tasks, showing empty state")
                 showEmptyState()
             } else {
-                Log.d("CalendarFragment", "Has tasks, showing timeline RecyclerView")
                 binding.emptyState.visibility = View.GONE
                 binding.rvTasks.visibility = View.GONE
                 binding.rvTimeline.visibility = View.VISIBLE
@@ -371,8 +358,6 @@ class CalendarFragment : Fragment() {
 
             // タスク数バッジの更新 (study schedules count)
             binding.tvTaskCount.text = tasks.size.toString()
-        } else {
-            Log.d("CalendarFragment", "Not in timeline view, skipping UI update")
         }
 
         Log.d("CalendarFragment", "Timeline view updated with ${tasks.size} study schedules")
@@ -383,12 +368,10 @@ class CalendarFragment : Fragment() {
      */
     private fun updateDateDisplay(date: Date) {
         // 月・年表示
-        val monthYearFormat = SimpleDateFormat("MMMM, yyyy", Locale.getDefault())
-        binding.tvMonthYear.text = monthYearFormat.format(date)
+        binding.tvMonthYear.text = DateTimes.format(date, "MMMM, yyyy")
 
         // 選択された日付表示 (Header)
-        val selectedDateFormat = SimpleDateFormat("dd/MM/yyyy", Locale.getDefault())
-        binding.tvSelectedDate.text = selectedDateFormat.format(date)
+        binding.tvSelectedDate.text = DateTimes.format(date, "dd/MM/yyyy")
 
         // 選択された日付表示 (Card) - 日本語形式
         val calendar = Calendar.getInstance()
@@ -1,10 +1,12 @@
 package ecccomp.s2240788.mobile_android.ui.viewmodels
 
+import android.os.SystemClock
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.ChatStreamEvent
 import ecccomp.s2240788.mobile_android.data.models.ChatConversation
 import ecccomp.s2240788.mobile_android.data.models.ChatMessage
 import ecccomp.s2240788.mobile_android.data.models.Task
@@ -14,6 +16,8 @@ import ecccomp.s2240788.mobile_android.data.models.TimetableClassSuggestion
 import ecccomp.s2240788.mobile_android.data.repository.ChatRepository
 import ecccomp.s2240788.mobile_android.data.result.ChatResult
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.launch
 
 /**
@@ -22,9 +26,12 @@ import kotlinx.coroutines.launch
  */
 class AICoachViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    companion object {
+        // ストリーミング中のUI更新間隔（トークンごとの再描画を抑える）
+        private const val STREAM_UI_INTERVAL_MS = 50L
+    }
+
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val chatRepository: ChatRepository = ChatRepository(apiService)
 
@@ -36,6 +43,25 @@ class AICoachViewModel : ViewModel() {
     private val _messages = MutableLiveData<List<ChatMessage>>()
     val messages: LiveData<List<ChatMessage>> = _messages
 
+    // Streaming state (true after the first token arrives)
+    private val _isStreaming = MutableLiveData<Boolean>()
+    val isStreaming: LiveData<Boolean> = _isStreaming
+
+    // In-flight streaming reply (cancelled when the user leaves or switches conversation)
+    private var streamJob: Job? = null
+
+    // Opening a conversation (cached page first, then newer messages from the server)
+    private var conversationJob: Job? = null
+
+    // Loading the previous page when the user scrolls near the top
+    private var olderMessagesJob: Job? = null
+
+    // 上にスクロールした時に読み込む古いメッセージがまだあるか
+    private var hasMoreOlderMessages = false
+
+    // Local (negative) IDs for messages not yet saved on the server
+    private var lastLocalMessageId = 0L
+
     // Loading state
     private val _isLoading = MutableLiveData<Boolean>()
     val isLoading: LiveData<Boolean> = _isLoading
@@ -163,6 +189,7 @@ class AICoachViewModel : ViewModel() {
 
     /**
      * Send message in existing conversation
+     * 通常のメッセージはSSEでストリーミング、時間割・知識の意図はContext-Aware APIで送信
      */
     fun sendMessage(message: String) {
         if (message.isBlank()) {
@@ -178,25 +205,98 @@ class AICoachViewModel : ViewModel() {
         }
 
         // Create temporary user message to show immediately
-        val tempUserMessage = ChatMessage(
-            id = -1, // Temporary ID
-            conversation_id = conversationId,
-            user_id = null,
-            role = "user",
-            content = message,
-            metadata = null,
-            token_count = null,
-            created_at = java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'", java.util.Locale.getDefault()).apply {
-                timeZone = java.util.TimeZone.getTimeZone("UTC")
-            }.format(java.util.Date()),
-            updated_at = null
-        )
+        val tempUserMessage = createLocalMessage(conversationId, "user", message)
 
         // Add user message immediately for better UX
         val currentMessages = _messages.value?.toMutableList() ?: mutableListOf()
         currentMessages.add(tempUserMessage)
         _messages.value = currentMessages
 
+        if (chatRepository.needsContextAwareReply(message)) {
+            sendMessageWithContext(conversationId, message, tempUserMessage.id)
+        } else {
+            streamReply(conversationId, message, tempUserMessage.id)
+        }
+    }
+
+    /**
+     * Stream AI reply token by token (SSE)
+     * 最後のメッセージだけを差し替えるので、アダプターでは1件分の差分更新になる
+     */
+    private fun streamReply(conversationId: Long, message: String, tempUserMessageId: Long) {
+        streamJob?.cancel()
+        streamJob = viewModelScope.launch {
+            val replyId = nextLocalMessageId()
+            val reply = StringBuilder()
+            var lastPublishedAt = 0L
+            var completed = false
+
+            try {
+                _isSending.value = true
+                _error.value = null
+
+                chatRepository.streamMessage(conversationId, message).collect { event ->
+                    when (event) {
+                        is ChatStreamEvent.Chunk -> {
+                            if (reply.isEmpty()) {
+                                // First token: replace typing indicator with the growing message
+                                _isStreaming.value = true
+                            }
+                            reply.append(event.content)
+                            val now = SystemClock.uptimeMillis()
+                            if (now - lastPublishedAt >= STREAM_UI_INTERVAL_MS) {
+                                lastPublishedAt = now
+                                upsertMessage(createLocalMessage(conversationId, "assistant", reply.toString(), replyId))
+                            }
+                        }
+                        is ChatStreamEvent.CreatedTask -> {
+                            _createdTask.value = event.task
+                            _successMessage.value = "タスクを作成しました！"
+                        }
+                        is ChatStreamEvent.Done -> {
+                            completed = true
+                            val finalMessage = createLocalMessage(conversationId, "assistant", event.fullContent, replyId)
+                                .copy(id = event.messageId)
+                            replaceMessage(replyId, finalMessage)
+                            _currentConversation.value = _currentConversation.value?.let {
+                                it.copy(message_count = it.message_count + 2, last_message_at = finalMessage.created_at)
+                            }
+                        }
+                        is ChatStreamEvent.Error -> {
+                            _error.value = event.message.ifBlank { "メッセージの送信に失敗しました" }
+                        }
+                    }
+                }
+
+                if (completed) {
+                    saveNewMessages(conversationId)
+                } else {
+                    // Stream ended without "done": keep what was received, drop an empty bubble
+                    finishPartialReply(conversationId, replyId, reply)
+                }
+            } catch (e: CancellationException) {
+                // User left the screen or switched conversation: keep the partial reply
+                finishPartialReply(conversationId, replyId, reply)
+                throw e
+            } catch (e: Exception) {
+                android.util.Log.e("AICoachViewModel", "Streaming failed", e)
+                if (reply.isEmpty()) {
+                    // Nothing arrived: remove temporary user message as before
+                    removeMessage(tempUserMessageId)
+                }
+                finishPartialReply(conversationId, replyId, reply)
+                _error.value = chatRepository.streamErrorMessage(e)
+            } finally {
+                _isStreaming.value = false
+                _isSending.value = false
+            }
+        }
+    }
+
+    /**
+     * Send message via context-aware endpoint (task / timetable / knowledge suggestions)
+     */
+    private fun sendMessageWithContext(conversationId: Long, message: String, tempUserMessageId: Long) {
         viewModelScope.launch {
             try {
                 _isSending.value = true
@@ -210,20 +310,20 @@ class AICoachViewModel : ViewModel() {
                         try {
                             // Replace temporary user message with real one and add assistant message
                             val updatedMessages = _messages.value?.toMutableList() ?: mutableListOf()
-                            // Remove temporary message (last one should be the temp user message)
-                            if (updatedMessages.isNotEmpty() && updatedMessages.last().id == -1L) {
-                                updatedMessages.removeAt(updatedMessages.size - 1)
-                            }
+                            updatedMessages.removeAll { it.id == tempUserMessageId }
                             // Add real messages
                             updatedMessages.add(result.data.user_message)
                             updatedMessages.add(result.data.assistant_message)
                             _messages.value = updatedMessages
 
                             // Update conversation
-                            _currentConversation.value = _currentConversation.value?.copy(
-                                message_count = updatedMessages.size,
-                                last_message_at = result.data.assistant_message.created_at
-                            )
+                            _currentConversation.value = _currentConversation.value?.let {
+                                it.copy(
+                                    message_count = it.message_count + 2,
+                                    last_message_at = result.data.assistant_message.created_at
+                                )
+                            }
+                            saveNewMessages(conversationId)
 
                             // Check if task was created (auto-created task)
                             if (result.data.created_task != null) {
@@ -252,11 +352,7 @@ class AICoachViewModel : ViewModel() {
                     }
                     is ChatResult.Error -> {
                         // Remove temporary message on error
-                        val updatedMessages = _messages.value?.toMutableList() ?: mutableListOf()
-                        if (updatedMessages.isNotEmpty() && updatedMessages.last().id == -1L) {
-                            updatedMessages.removeAt(updatedMessages.size - 1)
-                            _messages.value = updatedMessages
-                        }
+                        removeMessage(tempUserMessageId)
                         _error.value = result.message
                     }
                     is ChatResult.Loading -> {
@@ -266,11 +362,7 @@ class AICoachViewModel : ViewModel() {
 
             } catch (e: Exception) {
                 // Remove temporary message on exception
-                val updatedMessages = _messages.value?.toMutableList() ?: mutableListOf()
-                if (updatedMessages.isNotEmpty() && updatedMessages.last().id == -1L) {
-                    updatedMessages.removeAt(updatedMessages.size - 1)
-                    _messages.value = updatedMessages
-                }
+                removeMessage(tempUserMessageId)
                 _error.value = "エラーが発生しました: ${e.message}"
             } finally {
                 _isSending.value = false
@@ -278,21 +370,120 @@ class AICoachViewModel : ViewModel() {
         }
     }
 
+    /**
+     * Cancel the in-flight streaming reply (closes the SSE connection)
+     */
+    fun cancelStreaming() {
+        streamJob?.cancel()
+        streamJob = null
+    }
+
+    /**
+     * Store the sent message and the reply in the local history (server copies, fetched by cursor)
+     * 失敗しても次に会話を開いた時に取得される
+     */
+    private fun saveNewMessages(conversationId: Long) {
+        viewModelScope.launch {
+            val result = chatRepository.syncNewerMessages(conversationId)
+            if (result is ChatResult.Error) {
+                android.util.Log.w("AICoachViewModel", "Failed to store new messages: ${result.message}")
+            }
+        }
+    }
+
+    private fun finishPartialReply(conversationId: Long, replyId: Long, reply: StringBuilder) {
+        if (reply.isNotEmpty()) {
+            upsertMessage(createLocalMessage(conversationId, "assistant", reply.toString(), replyId))
+        } else {
+            removeMessage(replyId)
+        }
+    }
+
+    /**
+     * Add or replace a message by id (other items keep their instances for DiffUtil)
+     */
+    private fun upsertMessage(message: ChatMessage) {
+        val updated = _messages.value?.toMutableList() ?: mutableListOf()
+        val index = updated.indexOfFirst { it.id == message.id }
+        if (index >= 0) {
+            updated[index] = message
+        } else {
+            updated.add(message)
+        }
+        _messages.value = updated
+    }
+
+    private fun replaceMessage(oldId: Long, message: ChatMessage) {
+        val updated = _messages.value?.toMutableList() ?: mutableListOf()
+        val index = updated.indexOfFirst { it.id == oldId }
+        if (index >= 0) {
+            updated[index] = message
+        } else {
+            updated.add(message)
+        }
+        _messages.value = updated
+    }
+
+    private fun removeMessage(id: Long) {
+        val current = _messages.value ?: return
+        if (current.any { it.id == id }) {
+            _messages.value = current.filterNot { it.id == id }
+        }
+    }
+
+    /**
+     * Temporary message shown before the server assigns an ID (negative IDs are local only)
+     */
+    private fun createLocalMessage(
+        conversationId: Long,
+        role: String,
+        content: String,
+        id: Long = nextLocalMessageId()
+    ): ChatMessage {
+        return ChatMessage(
+            id = id,
+            conversation_id = conversationId,
+            user_id = null,
+            role = role,
+            content = content,
+            metadata = null,
+            token_count = null,
+            created_at = java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'", java.util.Locale.getDefault()).apply {
+                timeZone = java.util.TimeZone.getTimeZone("UTC")
+            }.format(java.util.Date()),
+            updated_at = null
+        )
+    }
+
+    private fun nextLocalMessageId(): Long = --lastLocalMessageId
+
     /**
      * Load existing conversation
+     * 端末に保存済みの最新ページをすぐに表示し、サーバーからは新しいメッセージだけを取得する
+     * 古いメッセージは上にスクロールした時に loadOlderMessages() で読み込む
      */
     fun loadConversation(conversationId: Long) {
-        viewModelScope.launch {
+        cancelStreaming()
+        olderMessagesJob?.cancel()
+        conversationJob?.cancel()
+        conversationJob = viewModelScope.launch {
             try {
-                _isLoading.value = true
                 _error.value = null
+                // 会話リストの情報を先に設定（同期が終わる前でもこの会話に送信できる）
+                _currentConversation.value = _conversations.value?.firstOrNull { it.id == conversationId }
 
-                val result = chatRepository.getConversation(conversationId)
+                val cached = chatRepository.getCachedMessages(conversationId)
+                hasMoreOlderMessages = cached.hasMoreOlder
+                _messages.value = cached.messages
+                _isLoading.value = cached.messages.isEmpty()
 
-                when (result) {
+                when (val result = chatRepository.syncMessages(conversationId)) {
                     is ChatResult.Success -> {
-                        _currentConversation.value = result.data
-                        _messages.value = result.data.messages ?: emptyList()
+                        _currentConversation.value = result.data.conversation
+                        hasMoreOlderMessages = result.data.hasMoreOlder
+                        // 同期中に送信したメッセージ（まだIDがない）は残す
+                        val pending = _messages.value.orEmpty().filter { it.id < 0 }
+                        _messages.value = result.data.messages + pending
                     }
                     is ChatResult.Error -> {
                         _error.value = result.message
@@ -302,6 +493,8 @@ class AICoachViewModel : ViewModel() {
                     }
                 }
 
+            } catch (e: CancellationException) {
+                throw e
             } catch (e: Exception) {
                 _error.value = "エラーが発生しました: ${e.message}"
             } finally {
@@ -310,6 +503,33 @@ class AICoachViewModel : ViewModel() {
         }
     }
 
+    /**
+     * Load the previous page of messages (called when the list is scrolled near the top)
+     * 既存のメッセージはそのままで先頭に追加するだけ（アダプターでは挿入分だけの差分更新になる）
+     */
+    fun loadOlderMessages() {
+        val conversationId = _currentConversation.value?.id ?: return
+        if (!hasMoreOlderMessages) return
+        if (olderMessagesJob?.isActive == true || conversationJob?.isActive == true) return
+        val oldestId = _messages.value?.firstOrNull { it.id > 0 }?.id ?: return
+
+        olderMessagesJob = viewModelScope.launch {
+            when (val result = chatRepository.loadOlderMessages(conversationId, oldestId)) {
+                is ChatResult.Success -> {
+                    hasMoreOlderMessages = result.data.hasMoreOlder
+                    if (result.data.messages.isNotEmpty()) {
+                        _messages.value = result.data.messages + _messages.value.orEmpty()
+                    }
+                }
+                is ChatResult.Error -> {
+                    // スクロールのたびにエラーを表示しない（次のスクロールで再試行）
+                    android.util.Log.w("AICoachViewModel", "Failed to load older messages: ${result.message}")
+                }
+                is ChatResult.Loading -> Unit
+            }
+        }
+    }
+
     /**
      * Handle quick action button click
      */
@@ -427,6 +647,10 @@ class AICoachViewModel : ViewModel() {
      * Reset conversation (start fresh)
      */
     fun resetConversation() {
+        cancelStreaming()
+        conversationJob?.cancel()
+        olderMessagesJob?.cancel()
+        hasMoreOlderMessages = false
         _currentConversation.value = null
         _messages.value = emptyList()
         _error.value = null
@@ -458,6 +682,12 @@ class AICoachViewModel : ViewModel() {
                 _isLoadingConversations.value = true
                 _error.value = null
 
+                // 前回取得したリストを先に表示
+                if (_conversations.value.isNullOrEmpty()) {
+                    val cached = chatRepository.getCachedConversations("active")
+                    if (cached.isNotEmpty()) _conversations.value = cached
+                }
+
                 val result = chatRepository.getConversations(
                     status = "active",
                     sortBy = "last_message_at",
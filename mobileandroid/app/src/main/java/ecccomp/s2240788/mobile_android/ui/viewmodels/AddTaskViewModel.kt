@@ -22,9 +22,7 @@ import kotlinx.coroutines.launch
  */
 class AddTaskViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _isLoading = MutableLiveData<Boolean>()
     val isLoading: LiveData<Boolean> = _isLoading
@@ -0,0 +1,126 @@
+package ecccomp.s2240788.mobile_android.ui.viewmodels
+
+import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.data.models.TimelineItem
+import ecccomp.s2240788.mobile_android.utils.DateTimes
+
+/**
+ * カレンダー用の日付インデックス
+ * - タスクは締切日（epoch day）ごとのバケットに優先度の高い順で保持
+ *   データが変わった時だけ、変わったタスクの分だけバケットを更新する（全体を振り分け直さない）
+ * - タイムライン（学習スケジュール・授業）は曜日ごとに時刻順で保持し、
+ *   日付ごとのTaskへの変換結果はタイムラインが差し替わるまで再利用する
+ * 日付の選択・月の移動・件数の取得はバケットを引くだけ
+ */
+class CalendarDayIndex {
+
+    private val tasksByDay = HashMap<Long, MutableList<Task>>()
+
+    // タスクID → 現在のタスク（差分の判定と、締切日が変わった時に古いバケットから外すため）
+    private val tasksById = HashMap<Int, Task>()
+
+    private var timelineByWeekday: Array<List<TimelineItem>> = Array(7) { emptyList() }
+    private val timelineTasksByDay = HashMap<Long, List<Task>>()
+
+    /**
+     * 最新のタスク一覧と差分を取り、追加・変更・削除されたタスクだけをバケットに反映
+     * @return 変更があったか
+     */
+    fun updateTasks(tasks: List<Task>): Boolean {
+        var changed = false
+        val seen = HashSet<Int>(tasks.size * 2)
+        tasks.forEach { task ->
+            seen.add(task.id)
+            if (tasksById[task.id] != task) {
+                upsert(task)
+                changed = true
+            }
+        }
+        if (seen.size != tasksById.size) {
+            tasksById.keys.filter { it !in seen }.forEach { remove(it) }
+            changed = true
+        }
+        return changed
+    }
+
+    /**
+     * タスクの追加・更新（完了など）
+     */
+    fun upsert(task: Task) {
+        tasksById.put(task.id, task)?.let { removeFromBucket(it) }
+        val day = task.deadlineEpochDay ?: return
+        val bucket = tasksByDay.getOrPut(day) { mutableListOf() }
+        // 同じ優先度の中では後ろに追加（並び順が安定するように）
+        val position = bucket.indexOfFirst { it.priority < task.priority }
+        if (position < 0) bucket.add(task) else bucket.add(position, task)
+    }
+
+    /**
+     * タスクの削除
+     */
+    fun remove(taskId: Int) {
+        tasksById.remove(taskId)?.let { removeFromBucket(it) }
+    }
+
+    private fun removeFromBucket(task: Task) {
+        val day = task.deadlineEpochDay ?: return
+        val bucket = tasksByDay[day] ?: return
+        bucket.removeAll { it.id == task.id }
+        if (bucket.isEmpty()) tasksByDay.remove(day)
+    }
+
+    /**
+     * 締切日がその日のタスク（優先度の高い順）
+     */
+    fun tasksOn(epochDay: Long): List<Task> = tasksByDay[epochDay] ?: emptyList()
+
+    fun countOn(epochDay: Long): Int = tasksByDay[epochDay]?.size ?: 0
+
+    /**
+     * タスクがある日（epoch day）
+     */
+    fun daysWithTasks(): Set<Long> = tasksByDay.keys
+
+    /**
+     * 期間内（両端を含む）のタスクを日ごとに
+     * 期間の日数とタスクがある日数の少ない方だけを調べる
+     */
+    fun tasksBetween(startDay: Long, endDay: Long): Map<Long, List<Task>> {
+        if (endDay < startDay) return emptyMap()
+        val result = sortedMapOf<Long, List<Task>>()
+        if (endDay - startDay + 1 <= tasksByDay.size) {
+            for (day in startDay..endDay) {
+                tasksByDay[day]?.let { result[day] = it.toList() }
+            }
+        } else {
+            tasksByDay.forEach { (day, bucket) ->
+                if (day in startDay..endDay) result[day] = bucket.toList()
+            }
+        }
+        return result
+    }
+
+    /**
+     * タイムラインを差し替え（曜日ごとに時刻順で振り分け）
+     */
+    fun replaceTimeline(items: List<TimelineItem>) {
+        val byWeekday = Array(7) { mutableListOf<TimelineItem>() }
+        items.forEach { item ->
+            if (item.day_of_week in 0..6) byWeekday[item.day_of_week].add(item)
+        }
+        timelineByWeekday = Array(7) { weekday ->
+            byWeekday[weekday].sortedBy { DateTimes.parseMinuteOfDay(it.scheduled_time) ?: Int.MAX_VALUE }
+        }
+        timelineTasksByDay.clear()
+    }
+
+    /**
+     * その日のタイムライン（Taskに変換済み・時刻順）
+     */
+    fun timelineOn(epochDay: Long): List<Task> = timelineTasksByDay.getOrPut(epochDay) {
+        // 0=日曜日 … 6=土曜日（TimelineItem.day_of_weekと同じ）
+        val weekday = DateTimes.localDate(epochDay).dayOfWeek.value % 7
+        val date = DateTimes.isoDate(epochDay)
+        timelineByWeekday[weekday].map { it.toTask(date) }
+    }
+}
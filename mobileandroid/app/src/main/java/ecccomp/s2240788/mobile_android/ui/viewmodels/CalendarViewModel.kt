@@ -4,34 +4,39 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.CoalescedApi
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
 import ecccomp.s2240788.mobile_android.data.models.Task
-import ecccomp.s2240788.mobile_android.data.models.StudyScheduleWithPath
 import ecccomp.s2240788.mobile_android.data.models.TimelineItem
-import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import ecccomp.s2240788.mobile_android.data.repository.TaskRepository
+import ecccomp.s2240788.mobile_android.data.result.TaskResult
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
+import ecccomp.s2240788.mobile_android.data.sync.SyncEngine
+import ecccomp.s2240788.mobile_android.utils.DateTimes
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.async
-import java.text.SimpleDateFormat
 import java.util.*
 
 /**
  * CalendarViewModel
  * カレンダー画面のビジネスロジック管理
- * - タスクを日付でフィルタリング
+ * - タスクを日付でフィルタリング（CalendarDayIndexで日付ごとに引く）
  * - カレンダー選択状態の管理
+ * - ローカルDBの変更（作成・完了・削除）を監視し、変わったタスクだけインデックスに反映
  */
 class CalendarViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
+    private val taskRepository = TaskRepository(
+        TodoDatabase.get().taskDao(),
+        SyncEngine.get(),
+        MutationOutbox.get()
     )
 
     private val _allTasks = MutableLiveData<List<Task>>()
     val allTasks: LiveData<List<Task>> = _allTasks
 
-    private val _allStudySchedules = MutableLiveData<List<StudyScheduleWithPath>>()
-    val allStudySchedules: LiveData<List<StudyScheduleWithPath>> = _allStudySchedules
-
     // Timeline items (Study Schedules + Timetable Classes combined)
     private val _allTimelineItems = MutableLiveData<List<TimelineItem>>()
     val allTimelineItems: LiveData<List<TimelineItem>> = _allTimelineItems
@@ -55,6 +60,9 @@ class CalendarViewModel : ViewModel() {
 
     private var currentFilter: FilterType = FilterType.ALL
 
+    // 日付 → タスク / タイムラインのインデックス（メインスレッドからのみ更新・参照）
+    private val dayIndex = CalendarDayIndex()
+
     enum class FilterType {
         ALL, ACTIVE, COMPLETED
     }
@@ -62,45 +70,61 @@ class CalendarViewModel : ViewModel() {
     init {
         // デフォルトで今日の日付を選択
         _selectedDate.value = Calendar.getInstance().time
+        observeLocalTasks()
         fetchTasks()
     }
 
+    /**
+     * ローカルキャッシュを監視
+     * 最初の通知でキャッシュを即時表示し、以降は同期や他の画面での作成・完了・削除のたびに差分を反映
+     */
+    private fun observeLocalTasks() {
+        viewModelScope.launch {
+            taskRepository.observeTasks()
+                .flowOn(Dispatchers.Default)
+                .collect { tasks ->
+                    val changed = dayIndex.updateTasks(tasks)
+                    if (changed || _allTasks.value == null) {
+                        _allTasks.value = tasks
+                        applyListFilter()
+                    }
+                }
+        }
+    }
+
     /**
      * タスク一覧を取得
      * Fetch regular tasks and timeline items (Study Schedules + Timetable Classes combined)
      */
     fun fetchTasks() {
         viewModelScope.launch {
-            try {
+            _error.value = null
+
+            // キャッシュはobserveLocalTasks()が表示する（ネットワークを待たない）
+            val hasCache = !_allTasks.value.isNullOrEmpty()
+            if (!hasCache) {
                 _isLoading.value = true
-                _error.value = null
+            }
 
+            try {
                 // Fetch tasks and timeline items in parallel
-                val tasksDeferred = async { apiService.getTasks(perPage = 100) }
-                val timelineDeferred = async { apiService.getTimelineItems() }
-
-                val tasksResponse = tasksDeferred.await()
+                val timelineDeferred = async { CoalescedApi.getTimelineItems() }
+                val tasksResult = taskRepository.refreshTasks()
                 val timelineResponse = timelineDeferred.await()
 
-                // Process regular tasks
-                if (tasksResponse.isSuccessful) {
-                    val apiResponse = tasksResponse.body()
-                    android.util.Log.d("CalendarViewModel", "API Response: success=${apiResponse?.success}, data type=${apiResponse?.data?.javaClass?.simpleName}")
-
-                    if (apiResponse?.success == true) {
-                        val tasks = parseTasksFromResponse(apiResponse.data)
-                        android.util.Log.d("CalendarViewModel", "Loaded ${tasks.size} tasks from API")
-
-                        _allTasks.value = tasks
-                    } else {
-                        val errorMsg = apiResponse?.message ?: "タスクの取得に失敗しました"
-                        android.util.Log.e("CalendarViewModel", "API Error: $errorMsg")
-                        _error.value = errorMsg
+                // Process regular tasks (keep the cached snapshot when offline)
+                // 同期結果はローカルDB経由でobserveLocalTasks()に届く
+                when (tasksResult) {
+                    is TaskResult.Success -> {
+                        android.util.Log.d("CalendarViewModel", "Loaded ${tasksResult.data.size} tasks from API")
                     }
-                } else {
-                    val errorMsg = "ネットワークエラー: ${tasksResponse.code()} - ${tasksResponse.message()}"
-                    android.util.Log.e("CalendarViewModel", errorMsg)
-                    _error.value = errorMsg
+                    is TaskResult.Error -> {
+                        android.util.Log.e("CalendarViewModel", "API Error: ${tasksResult.message}")
+                        if (!hasCache) {
+                            _error.value = tasksResult.message
+                        }
+                    }
+                    is TaskResult.Loading -> Unit
                 }
 
                 // Process timeline items (Study Schedules + Timetable Classes)
@@ -109,21 +133,23 @@ class CalendarViewModel : ViewModel() {
                     if (apiResponse?.success == true) {
                         val timelineItems = apiResponse.data ?: emptyList()
                         android.util.Log.d("CalendarViewModel", "Loaded ${timelineItems.size} timeline items from API")
-                        _allTimelineItems.value = timelineItems
+                        setTimelineItems(timelineItems)
                     } else {
                         val errorMsg = apiResponse?.message ?: "タイムラインの取得に失敗しました"
                         android.util.Log.e("CalendarViewModel", "Timeline API error: $errorMsg")
-                        _allTimelineItems.value = emptyList()
+                        setTimelineItems(emptyList())
                     }
                 } else {
                     val errorMsg = "ネットワークエラー: ${timelineResponse.code()} - ${timelineResponse.message()}"
                     android.util.Log.e("CalendarViewModel", "Timeline network error: $errorMsg")
-                    _allTimelineItems.value = emptyList()
+                    setTimelineItems(emptyList())
                 }
 
-                applyFilter()
+                applyTimelineFilter()
             } catch (e: Exception) {
-                _error.value = "エラーが発生しました: ${e.message}"
+                if (!hasCache) {
+                    _error.value = "エラーが発生しました: ${e.message}"
+                }
                 android.util.Log.e("CalendarViewModel", "Error fetching tasks", e)
             } finally {
                 _isLoading.value = false
@@ -162,220 +188,45 @@ class CalendarViewModel : ViewModel() {
     }
 
     /**
-     * フィルターを適用してタスクをフィルタリング
-     * Populates both listTasks (regular tasks by deadline) and timelineTasks (study schedules)
+     * タイムラインを差し替えてインデックスを作り直す
      */
-    private fun applyFilter() {
-        val tasks = _allTasks.value ?: emptyList()
-        val studySchedules = _allStudySchedules.value ?: emptyList()
-        val selectedDateValue = _selectedDate.value ?: Calendar.getInstance().time
-        val today = Calendar.getInstance().time
-
-        // 日付フォーマッター
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-        val selectedDateString = dateFormat.format(selectedDateValue)
-        val todayString = dateFormat.format(today)
-
-        // Calculate day of week for selected date (0=Sunday, 1=Monday, ...)
-        val calendar = Calendar.getInstance()
-        calendar.time = selectedDateValue
-        val dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK) - 1 // 0=Sunday, 1=Monday, ..., 6=Saturday
-
-        // ===== LIST VIEW: Regular tasks filtered by deadline =====
-        // ONLY show tasks that have deadline matching the selected date
-        var listFiltered = tasks.filter { task ->
-            if (task.deadline.isNullOrEmpty()) {
-                // Tasks without deadline are NOT shown
-                return@filter false
-            }
-
-            try {
-                // Handle different deadline formats: "yyyy-MM-dd" or "yyyy-MM-dd HH:mm:ss"
-                val deadlineStr = task.deadline.trim()
-                val taskDate = if (deadlineStr.length >= 10) {
-                    deadlineStr.substring(0, 10) // Extract YYYY-MM-DD part
-                } else {
-                    deadlineStr
-                }
-                // Only return true if deadline matches selected date EXACTLY
-                taskDate == selectedDateString
-            } catch (e: Exception) {
-                android.util.Log.e("CalendarViewModel", "Error parsing deadline: ${task.deadline}", e)
-                false
-            }
-        }
-
-        // Apply status filter to list tasks
-        listFiltered = when (currentFilter) {
-            FilterType.ALL -> listFiltered
-            FilterType.ACTIVE -> listFiltered.filter { it.status != "completed" }
-            FilterType.COMPLETED -> listFiltered.filter { it.status == "completed" }
-        }
-
-        // Sort list tasks by priority
-        listFiltered = listFiltered.sortedByDescending { it.priority }
-
-        android.util.Log.d("CalendarViewModel",
-            "List view showing ${listFiltered.size} tasks for $selectedDateString")
-
-        _listTasks.value = listFiltered
-
-        // ===== TIMELINE VIEW: Timeline items (Study Schedules + Timetable Classes) =====
-        val timelineItems = _allTimelineItems.value ?: emptyList()
-
-        android.util.Log.d("CalendarViewModel",
-            "=== TIMELINE FILTERING DEBUG ===")
-        android.util.Log.d("CalendarViewModel",
-            "Total timeline items from API: ${timelineItems.size}")
-        android.util.Log.d("CalendarViewModel",
-            "Selected date: $selectedDateString, day_of_week: $dayOfWeek (0=Sun, 1=Mon)")
-
-        // Log all timeline items
-        timelineItems.forEach { item ->
-            android.util.Log.d("CalendarViewModel",
-                "Timeline item: id=${item.id}, type=${item.type}, title=${item.title}, " +
-                "day_of_week=${item.day_of_week}, scheduled_time=${item.scheduled_time}")
-        }
-
-        var timelineFiltered = timelineItems
-            .filter { item ->
-                val matches = item.day_of_week == dayOfWeek
-                android.util.Log.d("CalendarViewModel",
-                    "Filter: ${item.title} day=${item.day_of_week} vs $dayOfWeek = $matches")
-                matches
-            }
-            .map { item ->
-                android.util.Log.d("CalendarViewModel",
-                    "Converting to Task: ${item.title}")
-                item.toTask(selectedDateString)
-            }
-
-        // Sort timeline by scheduled_time
-        timelineFiltered = timelineFiltered.sortedBy { task ->
-            task.scheduled_time ?: "99:99:99"
-        }
-
-        android.util.Log.d("CalendarViewModel",
-            "Timeline view showing ${timelineFiltered.size} timeline items for $selectedDateString (day $dayOfWeek)")
-
-        _timelineTasks.value = timelineFiltered
+    private fun setTimelineItems(items: List<TimelineItem>) {
+        dayIndex.replaceTimeline(items)
+        _allTimelineItems.value = items
     }
 
     /**
-     * Check if two dates are the same day
+     * フィルターを適用してタスクをフィルタリング
+     * Populates both listTasks (regular tasks by deadline) and timelineTasks (study schedules)
      */
-    private fun isSameDay(date1: Date, date2: Date): Boolean {
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-        return dateFormat.format(date1) == dateFormat.format(date2)
+    private fun applyFilter() {
+        applyListFilter()
+        applyTimelineFilter()
     }
 
-    /**
-     * Convert StudyScheduleWithPath to Task for unified display
-     */
-    private fun convertStudyScheduleToTask(schedule: StudyScheduleWithPath, selectedDate: Date): Task {
-        val pathTitle = schedule.learning_path?.title ?: "学習"
-        val dayName = schedule.getDayNameJapanese()
-        val time = schedule.getFormattedTime() // Returns "HH:mm"
-
-        // Format deadline as the selected date
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-        val deadline = dateFormat.format(selectedDate)
-
-        // scheduled_time is now TIME type (HH:mm:ss only, no date)
-        // Convert HH:mm to HH:mm:ss format
-        val scheduledTime = if (time.count { it == ':' } == 1) {
-            "$time:00" // Add seconds
-        } else {
-            time // Already HH:mm:ss format
-        }
-
-        return Task(
-            id = -schedule.id, // Negative ID to distinguish from regular tasks
-            title = "📚 学習スケジュール: $pathTitle",
-            category = "study",
-            description = "${dayName}曜日 $time - ${schedule.duration_minutes}分",
-            status = "pending",
-            priority = 5, // High priority for study schedules
-            energy_level = "high",
-            estimated_minutes = schedule.duration_minutes,
-            deadline = deadline,
-            scheduled_time = scheduledTime, // Now TIME type (HH:mm:ss)
-            created_at = "",
-            updated_at = "",
-            user_id = 0,
-            project_id = null,
-            learning_milestone_id = schedule.learning_path_id, // Mark as roadmap task
-            ai_breakdown_enabled = false,
-            subtasks = null,
-            knowledge_items = null
-        )
-    }
+    private fun selectedEpochDay(): Long =
+        DateTimes.epochDayOf(_selectedDate.value ?: Calendar.getInstance().time)
 
     /**
-     * API レスポンスからタスクリストをパース
-     * Handles both paginated response and direct list response
+     * LIST VIEW: 締切日が選択日のタスク（インデックスで優先度順に保持済み）
+     * Tasks without deadline are NOT shown
      */
-    private fun parseTasksFromResponse(data: Any?): List<Task> {
-        return try {
-            when (data) {
-                is Map<*, *> -> {
-                    // Paginated response: { data: [...], current_page: 1, ... }
-                    val tasksData = data["data"] as? List<*>
-                    tasksData?.mapNotNull { item ->
-                        when (item) {
-                            is Map<*, *> -> convertMapToTask(item)
-                            is Task -> item
-                            else -> null
-                        }
-                    } ?: emptyList()
-                }
-                is List<*> -> {
-                    // Direct list response
-                    data.mapNotNull { item ->
-                        when (item) {
-                            is Map<*, *> -> convertMapToTask(item)
-                            is Task -> item
-                            else -> null
-                        }
-                    }
-                }
-                else -> {
-                    android.util.Log.w("CalendarViewModel", "Unknown response format: ${data?.javaClass?.simpleName}")
-                    emptyList()
-                }
-            }
-        } catch (e: Exception) {
-            android.util.Log.e("CalendarViewModel", "Error parsing tasks response", e)
-            emptyList()
+    private fun applyListFilter() {
+        val dayTasks = dayIndex.tasksOn(selectedEpochDay())
+
+        // Apply status filter to list tasks
+        _listTasks.value = when (currentFilter) {
+            FilterType.ALL -> dayTasks.toList()
+            FilterType.ACTIVE -> dayTasks.filter { it.status != "completed" }
+            FilterType.COMPLETED -> dayTasks.filter { it.status == "completed" }
         }
     }
 
     /**
-     * Map を Task オブジェクトに変換
+     * TIMELINE VIEW: 選択日の曜日のタイムライン（変換済み・時刻順）
      */
-    private fun convertMapToTask(map: Map<*, *>): Task? {
-        return try {
-            Task(
-                id = (map["id"] as? Number)?.toInt() ?: 0,
-                title = map["title"] as? String ?: "",
-                category = map["category"] as? String,
-                description = map["description"] as? String,
-                status = map["status"] as? String ?: "pending",
-                priority = (map["priority"] as? Number)?.toInt() ?: 3,
-                energy_level = map["energy_level"] as? String ?: "medium",
-                estimated_minutes = (map["estimated_minutes"] as? Number)?.toInt(),
-                deadline = map["deadline"] as? String,
-                scheduled_time = map["scheduled_time"] as? String,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: "",
-                user_id = (map["user_id"] as? Number)?.toInt() ?: 0,
-                project_id = (map["project_id"] as? Number)?.toInt(),
-                learning_milestone_id = (map["learning_milestone_id"] as? Number)?.toInt(),
-                ai_breakdown_enabled = map["ai_breakdown_enabled"] as? Boolean ?: false
-            )
-        } catch (e: Exception) {
-            null
-        }
+    private fun applyTimelineFilter() {
+        _timelineTasks.value = dayIndex.timelineOn(selectedEpochDay())
     }
 
     /**
@@ -383,8 +234,7 @@ class CalendarViewModel : ViewModel() {
      */
     fun getSelectedDateString(): String {
         val date = _selectedDate.value ?: Calendar.getInstance().time
-        val format = SimpleDateFormat("dd/MM/yyyy", Locale.getDefault())
-        return format.format(date)
+        return DateTimes.format(date, "dd/MM/yyyy")
     }
 
     /**
@@ -392,8 +242,7 @@ class CalendarViewModel : ViewModel() {
      */
     fun getMonthYearString(): String {
         val date = _selectedDate.value ?: Calendar.getInstance().time
-        val format = SimpleDateFormat("MMMM, yyyy", Locale.getDefault())
-        return format.format(date)
+        return DateTimes.format(date, "MMMM, yyyy")
     }
     
     /**
@@ -401,85 +250,33 @@ class CalendarViewModel : ViewModel() {
      * タスクがある日付のリストを取得（カレンダー装飾用）
      */
     fun getDatesWithTasks(): Set<String> {
-        val tasks = _allTasks.value ?: emptyList()
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-        
-        return tasks.mapNotNull { task ->
-            if (!task.deadline.isNullOrEmpty()) {
-                try {
-                    task.deadline.substring(0, 10) // Extract YYYY-MM-DD
-                } catch (e: Exception) {
-                    null
-                }
-            } else {
-                null
-            }
-        }.toSet()
+        return dayIndex.daysWithTasks().mapTo(mutableSetOf()) { DateTimes.isoDate(it) }
     }
-    
+
     /**
      * Get task count for a specific date
      * 特定の日付のタスク数を取得
      */
     fun getTaskCountForDate(date: Date): Int {
-        val tasks = _allTasks.value ?: emptyList()
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-        val dateString = dateFormat.format(date)
-        
-        return tasks.count { task ->
-            if (!task.deadline.isNullOrEmpty()) {
-                try {
-                    val taskDate = task.deadline.substring(0, 10)
-                    taskDate == dateString
-                } catch (e: Exception) {
-                    false
-                }
-            } else {
-                false
-            }
-        }
+        return dayIndex.countOn(DateTimes.epochDayOf(date))
     }
-    
+
     /**
      * Get tasks for date range (for monthly view)
      * 期間内のタスクを取得（月表示用）
      */
     fun getTasksForDateRange(startDate: Date, endDate: Date): Map<String, List<Task>> {
-        val tasks = _allTasks.value ?: emptyList()
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-        val result = mutableMapOf<String, MutableList<Task>>()
-        
-        tasks.forEach { task ->
-            if (!task.deadline.isNullOrEmpty()) {
-                try {
-                    val taskDateString = task.deadline.substring(0, 10)
-                    val taskDate = dateFormat.parse(taskDateString)
-                    
-                    if (taskDate != null && !taskDate.before(startDate) && !taskDate.after(endDate)) {
-                        if (!result.containsKey(taskDateString)) {
-                            result[taskDateString] = mutableListOf()
-                        }
-                        result[taskDateString]?.add(task)
-                    }
-                } catch (e: Exception) {
-                    // Skip invalid dates
-                }
-            }
-        }
-        
-        return result
+        return dayIndex.tasksBetween(DateTimes.epochDayOf(startDate), DateTimes.epochDayOf(endDate))
+            .mapKeys { (day, _) -> DateTimes.isoDate(day) }
     }
-    
+
     /**
      * Check if selected date is today
      * 選択された日付が今日かどうか
      */
     fun isSelectedDateToday(): Boolean {
         val selectedDate = _selectedDate.value ?: return false
-        val today = Calendar.getInstance().time
-        val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-        
-        return dateFormat.format(selectedDate) == dateFormat.format(today)
+        return DateTimes.epochDayOf(selectedDate) == DateTimes.todayEpochDay()
     }
 }
 
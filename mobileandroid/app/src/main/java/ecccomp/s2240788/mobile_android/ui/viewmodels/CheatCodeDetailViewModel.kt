@@ -4,15 +4,24 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.cheatcode.CheatCodeLibrary
 import ecccomp.s2240788.mobile_android.data.models.CheatCodeLanguage
 import ecccomp.s2240788.mobile_android.data.models.CheatCodeSection
-import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 
-class CheatCodeDetailViewModel(private val apiService: ApiService = NetworkModule.provideApiService(
-    NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-)) : ViewModel() {
+/**
+ * 言語のセクション・例は端末に保存したパックから表示する（オフラインでも表示できる）
+ * 表示した後にパックが最新か確認し、変わっていれば取得し直して表示を差し替える
+ */
+class CheatCodeDetailViewModel(private val library: CheatCodeLibrary = CheatCodeLibrary.get()) : ViewModel() {
+
+    companion object {
+        // 入力が止まってから検索するまでの時間
+        private const val SEARCH_DELAY_MS = 200L
+    }
 
     private val _sections = MutableLiveData<List<CheatCodeSection>>()
     val sections: LiveData<List<CheatCodeSection>> = _sections
@@ -26,31 +35,39 @@ class CheatCodeDetailViewModel(private val apiService: ApiService = NetworkModul
     private val _error = MutableLiveData<String?>()
     val error: LiveData<String?> = _error
 
+    // 検索中か（検索結果は一致した例だけを含むセクション）
+    private val _isSearching = MutableLiveData(false)
+    val isSearching: LiveData<Boolean> = _isSearching
+
+    private var allSections: List<CheatCodeSection> = emptyList()
+    private var currentLanguageId: Int = -1
+    private var currentQuery: String = ""
+    private var searchJob: Job? = null
+
     fun loadSections(languageId: Int) {
+        currentLanguageId = languageId
         viewModelScope.launch {
-            _isLoading.value = true
             _error.value = null
 
             try {
-                val response = apiService.getCheatCodeSections(languageId)
-
-                if (response.isSuccessful) {
-                    val apiResponse = response.body()
-                    if (apiResponse?.success == true) {
-                        val sectionsResponse = apiResponse.data
-                        _language.value = sectionsResponse?.language
-                        _sections.value = sectionsResponse?.sections ?: emptyList()
-                    } else {
-                        _error.value = apiResponse?.message ?: "Failed to load sections"
-                        _sections.value = emptyList()
-                    }
+                val cached = library.getPack(languageId)
+                if (cached != null) {
+                    showPack(cached.language, cached.sections)
                 } else {
-                    _error.value = "API Error: ${response.message()}"
+                    _isLoading.value = true
+                }
+
+                // 保存済みのバージョンと同じなら304で終わる
+                if (library.syncPack(languageId)) {
+                    library.getPack(languageId)?.let { pack ->
+                        if (pack.sections != allSections) showPack(pack.language, pack.sections)
+                    }
+                } else if (cached == null) {
+                    _error.value = "Failed to load sections"
                     _sections.value = emptyList()
                 }
             } catch (e: Exception) {
-                _error.value = "Network error: ${e.message}"
-                _sections.value = emptyList()
+                _error.value = "Error: ${e.message}"
                 android.util.Log.e("CheatCodeDetailViewModel", "Error loading sections", e)
             } finally {
                 _isLoading.value = false
@@ -58,6 +75,44 @@ class CheatCodeDetailViewModel(private val apiService: ApiService = NetworkModul
         }
     }
 
+    private fun showPack(language: CheatCodeLanguage, sections: List<CheatCodeSection>) {
+        _language.value = language
+        allSections = sections
+        if (currentQuery.isBlank()) {
+            _sections.value = sections
+        } else {
+            search(currentQuery, immediate = true)
+        }
+    }
+
+    /**
+     * セクション名・例のタイトル・説明・コード・タグを全文検索（端末内のみ）
+     * 入力中の古い検索は取り消す
+     */
+    fun search(query: String, immediate: Boolean = false) {
+        currentQuery = query
+        searchJob?.cancel()
+
+        if (query.isBlank()) {
+            _isSearching.value = false
+            _sections.value = allSections
+            return
+        }
+
+        searchJob = viewModelScope.launch {
+            if (!immediate) delay(SEARCH_DELAY_MS)
+            try {
+                val results = library.search(currentLanguageId, query)
+                _isSearching.value = true
+                _sections.value = results
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                android.util.Log.e("CheatCodeDetailViewModel", "Error searching examples", e)
+            }
+        }
+    }
+
     fun refresh(languageId: Int) {
         loadSections(languageId)
     }
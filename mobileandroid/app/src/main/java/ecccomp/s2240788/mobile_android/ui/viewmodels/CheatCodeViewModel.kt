@@ -4,14 +4,15 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.cheatcode.CheatCodeLibrary
 import ecccomp.s2240788.mobile_android.data.models.CheatCodeLanguage
-import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.launch
 
-class CheatCodeViewModel(private val apiService: ApiService = NetworkModule.provideApiService(
-    NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-)) : ViewModel() {
+/**
+ * 言語一覧は端末に保存したパックの一覧から表示し、カテゴリ・検索の絞り込みも端末内で行う
+ * サーバーにはパックの一覧（変わっていなければ304）を確認しに行くだけ
+ */
+class CheatCodeViewModel(private val library: CheatCodeLibrary = CheatCodeLibrary.get()) : ViewModel() {
 
     private val _languages = MutableLiveData<List<CheatCodeLanguage>>()
     val languages: LiveData<List<CheatCodeLanguage>> = _languages
@@ -35,32 +36,22 @@ class CheatCodeViewModel(private val apiService: ApiService = NetworkModule.prov
 
     fun loadLanguages() {
         viewModelScope.launch {
-            _isLoading.value = true
             _error.value = null
 
             try {
-                val response = apiService.getCheatCodeLanguages(
-                    category = if (currentCategory != "all") currentCategory else null,
-                    search = if (currentSearchQuery.isNotBlank()) currentSearchQuery else null
-                )
-
-                if (response.isSuccessful) {
-                    val apiResponse = response.body()
-                    if (apiResponse?.success == true) {
-                        allLanguages = apiResponse.data ?: emptyList()
-                        _languages.value = allLanguages
-                        applyFilters()
-                    } else {
-                        _error.value = apiResponse?.message ?: "Failed to load languages"
-                        _languages.value = emptyList()
-                    }
-                } else {
-                    _error.value = "API Error: ${response.message()}"
+                // 保存済みの一覧を先に表示（初回だけ読み込み中を表示）
+                showLanguages(library.getLanguages())
+                _isLoading.value = allLanguages.isEmpty()
+
+                // パックの一覧を確認（変わった言語があれば一覧を差し替え）
+                if (library.refreshManifest() != null) {
+                    showLanguages(library.getLanguages())
+                } else if (allLanguages.isEmpty()) {
+                    _error.value = "Failed to load languages"
                     _languages.value = emptyList()
                 }
             } catch (e: Exception) {
-                _error.value = "Network error: ${e.message}"
-                _languages.value = emptyList()
+                _error.value = "Error: ${e.message}"
                 android.util.Log.e("CheatCodeViewModel", "Error loading languages", e)
             } finally {
                 _isLoading.value = false
@@ -68,15 +59,22 @@ class CheatCodeViewModel(private val apiService: ApiService = NetworkModule.prov
         }
     }
 
+    private fun showLanguages(languages: List<CheatCodeLanguage>) {
+        if (languages.isEmpty() || languages == allLanguages) return
+        allLanguages = languages
+        _languages.value = allLanguages
+        applyFilters()
+    }
+
     fun filterByCategory(category: String) {
         currentCategory = category
         currentSearchQuery = "" // Reset search when filtering by category
-        loadLanguages()
+        applyFilters()
     }
 
     fun searchLanguages(query: String) {
         currentSearchQuery = query
-        loadLanguages()
+        applyFilters()
     }
 
     private fun applyFilters() {
@@ -89,11 +87,12 @@ class CheatCodeViewModel(private val apiService: ApiService = NetworkModule.prov
             filtered.filter { it.category == currentCategory }
         }
 
-        // Filter by search query (already applied in API call, but keep for local filtering)
+        // Filter by search query
         if (currentSearchQuery.isNotBlank()) {
             filtered = filtered.filter { language ->
                 language.displayName.contains(currentSearchQuery, ignoreCase = true) ||
-                language.name.contains(currentSearchQuery, ignoreCase = true)
+                language.name.contains(currentSearchQuery, ignoreCase = true) ||
+                language.description?.contains(currentSearchQuery, ignoreCase = true) == true
             }
         }
 
@@ -18,9 +18,7 @@ import kotlinx.coroutines.launch
  */
 class DailyReviewViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     // Daily Review Data
     private val _currentReview = MutableLiveData<DailyReview?>()
@@ -334,17 +332,7 @@ class DailyReviewViewModel : ViewModel() {
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true) {
-                        // Parse paginated data
-                        val data = apiResponse.data
-                        if (data is Map<*, *>) {
-                            @Suppress("UNCHECKED_CAST")
-                            val dataList = (data["data"] as? List<*>)?.mapNotNull { item ->
-                                // Convert to DailyReview - this is a simplification
-                                // In production you'd want proper deserialization
-                                null // TODO: Implement proper deserialization
-                            } ?: emptyList()
-                            _reviews.value = dataList
-                        }
+                        _reviews.value = apiResponse.data?.items.orEmpty()
                     } else {
                         _error.value = apiResponse?.message ?: "レビュー履歴の取得に失敗しました"
                     }
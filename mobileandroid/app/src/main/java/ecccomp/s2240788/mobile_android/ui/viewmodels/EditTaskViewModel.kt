@@ -20,9 +20,7 @@ import kotlinx.coroutines.launch
  */
 class EditTaskViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _task = MutableLiveData<Task?>()
     val task: LiveData<Task?> = _task
@@ -5,16 +5,38 @@ import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.exercise.LocalTestRunner
+import ecccomp.s2240788.mobile_android.data.local.CodeDraftDao
+import ecccomp.s2240788.mobile_android.data.local.CodeDraftEntity
+import ecccomp.s2240788.mobile_android.data.local.ExerciseTestCaseDao
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.local.toEntity
+import ecccomp.s2240788.mobile_android.data.local.toModel
 import ecccomp.s2240788.mobile_android.data.models.*
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * エディタに表示するコード
+ * @param isDraft 保存していた下書きを復元したか
+ */
+data class EditorCode(val code: String, val isDraft: Boolean)
 
 class ExerciseDetailViewModel(
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService,
+    private val draftDao: CodeDraftDao = TodoDatabase.get().codeDraftDao(),
+    private val testCaseDao: ExerciseTestCaseDao = TodoDatabase.get().exerciseTestCaseDao()
 ) : ViewModel() {
 
+    companion object {
+        // 入力が止まってから下書きを保存するまでの時間
+        private const val DRAFT_SAVE_DELAY_MS = 1_000L
+    }
+
     private val _exercise = MutableLiveData<ExerciseDetail?>()
     val exercise: LiveData<ExerciseDetail?> = _exercise
 
@@ -39,18 +61,62 @@ class ExerciseDetailViewModel(
     private val _submitError = MutableLiveData<String?>()
     val submitError: LiveData<String?> = _submitError
 
+    // エディタに設定するコード（1回だけ。表示したらclearEditorCode()）
+    private val _editorCode = MutableLiveData<EditorCode?>()
+    val editorCode: LiveData<EditorCode?> = _editorCode
+
+    private var editorCodeLoaded = false
+
+    // サンプルテストケース（保存済みのものを先に表示し、取得できたら置き換える）
+    private val _testCases = MutableLiveData<List<ExerciseTestCase>>()
+    val testCases: LiveData<List<ExerciseTestCase>> = _testCases
+
+    // 端末上での実行結果（テストケースID → 結果）
+    private val _localResults = MutableLiveData<Map<Int, TestCaseResult>>(emptyMap())
+    val localResults: LiveData<Map<Int, TestCaseResult>> = _localResults
+
+    private val _isRunningLocal = MutableLiveData(false)
+    val isRunningLocal: LiveData<Boolean> = _isRunningLocal
+
+    // 実行結果の概要（1回だけ表示。表示したらclearLocalRunSummary()）
+    private val _localRunSummary = MutableLiveData<String?>()
+    val localRunSummary: LiveData<String?> = _localRunSummary
+
+    // まだ保存していない下書き
+    private var pendingDraft: CodeDraftEntity? = null
+    private var draftJob: Job? = null
+
     fun loadExercise(languageId: Int, exerciseId: Int) {
         viewModelScope.launch {
             _isLoading.value = true
             _error.value = null
 
             try {
+                // 下書きがあれば問題の取得を待たずにエディタに表示
+                if (!editorCodeLoaded) {
+                    draftDao.getDraft(languageId, exerciseId)?.let { draft ->
+                        editorCodeLoaded = true
+                        _editorCode.value = EditorCode(draft.code, isDraft = true)
+                    }
+                }
+
+                // 保存済みのテストケースがあれば、オフラインでも表示・端末上で実行できる
+                if (_testCases.value.isNullOrEmpty()) {
+                    val cached = testCaseDao.getTestCases(languageId, exerciseId)
+                    if (cached.isNotEmpty()) _testCases.value = cached.map { it.toModel() }
+                }
+
                 val response = apiService.getExercise(languageId, exerciseId)
 
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true) {
                         _exercise.value = apiResponse.data
+                        apiResponse.data?.testCases?.let { cacheTestCases(languageId, exerciseId, it) }
+                        if (!editorCodeLoaded) {
+                            editorCodeLoaded = true
+                            _editorCode.value = EditorCode(apiResponse.data?.starterCode.orEmpty(), isDraft = false)
+                        }
                     } else {
                         _error.value = apiResponse?.message ?: "Failed to load exercise"
                         _exercise.value = null
@@ -69,6 +135,47 @@ class ExerciseDetailViewModel(
         }
     }
 
+    private suspend fun cacheTestCases(languageId: Int, exerciseId: Int, testCases: List<ExerciseTestCase>) {
+        val sorted = testCases.sortedWith(compareBy({ it.sortOrder }, { it.id }))
+        _testCases.value = sorted
+        try {
+            testCaseDao.replaceTestCases(languageId, exerciseId, sorted.map { it.toEntity(languageId, exerciseId) })
+        } catch (e: Exception) {
+            android.util.Log.e("ExerciseDetailViewModel", "Error caching test cases", e)
+        }
+    }
+
+    /**
+     * サンプルテストケースを端末上で実行（サーバーには送らない。採点はsubmitSolution()で行う）
+     */
+    fun runLocalTests(runner: LocalTestRunner, code: String) {
+        val testCases = _testCases.value.orEmpty()
+        if (testCases.isEmpty() || _isRunningLocal.value == true) return
+
+        viewModelScope.launch {
+            _isRunningLocal.value = true
+            try {
+                val results = runner.run(code, testCases)
+                _localResults.value = testCases.zip(results).associate { (testCase, result) -> testCase.id to result }
+                val passedCount = results.count { it.passed }
+                _localRunSummary.value = if (passedCount == results.size) {
+                    "サンプルテスト $passedCount / ${results.size} 成功（提出して採点してください）"
+                } else {
+                    "サンプルテスト $passedCount / ${results.size} 成功"
+                }
+            } catch (e: Exception) {
+                _localRunSummary.value = "テストを実行できませんでした: ${e.message}"
+                android.util.Log.e("ExerciseDetailViewModel", "Error running tests locally", e)
+            } finally {
+                _isRunningLocal.value = false
+            }
+        }
+    }
+
+    fun clearLocalRunSummary() {
+        _localRunSummary.value = null
+    }
+
     fun submitSolution(languageId: Int, exerciseId: Int, code: String) {
         viewModelScope.launch {
             _isSubmitting.value = true
@@ -142,6 +249,50 @@ class ExerciseDetailViewModel(
         }
     }
 
+    fun clearEditorCode() {
+        _editorCode.value = null
+    }
+
+    /**
+     * エディタの変更（入力が止まってからDRAFT_SAVE_DELAY_MS後に下書きを保存）
+     */
+    fun onCodeChanged(languageId: Int, exerciseId: Int, code: String) {
+        pendingDraft = CodeDraftEntity(languageId, exerciseId, code)
+        draftJob?.cancel()
+        draftJob = viewModelScope.launch {
+            delay(DRAFT_SAVE_DELAY_MS)
+            writePendingDraft()
+        }
+    }
+
+    /**
+     * 保存していない下書きをすぐに保存（画面を離れる時）
+     */
+    fun saveDraftNow() {
+        draftJob?.cancel()
+        viewModelScope.launch { writePendingDraft() }
+    }
+
+    /**
+     * 画面を閉じてViewModelが破棄されても保存は最後まで行う
+     */
+    private suspend fun writePendingDraft() {
+        val draft = pendingDraft ?: return
+        pendingDraft = null
+        withContext(NonCancellable) {
+            try {
+                // 初期コードに戻した場合は下書きを残さない
+                if (draft.code == _exercise.value?.starterCode.orEmpty()) {
+                    draftDao.deleteDraft(draft.language_id, draft.exercise_id)
+                } else {
+                    draftDao.upsertDraft(draft)
+                }
+            } catch (e: Exception) {
+                android.util.Log.e("ExerciseDetailViewModel", "Error saving draft", e)
+            }
+        }
+    }
+
     fun clearSubmitResult() {
         _submitResult.value = null
         _submitError.value = null
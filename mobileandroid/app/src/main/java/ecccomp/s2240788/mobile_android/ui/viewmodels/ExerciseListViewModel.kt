@@ -11,9 +11,7 @@ import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.launch
 
 class ExerciseListViewModel(
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 ) : ViewModel() {
 
     private val _exercises = MutableLiveData<List<ExerciseSummary>>()
@@ -1,16 +1,30 @@
 package ecccomp.s2240788.mobile_android.ui.viewmodels
 
-import android.os.CountDownTimer
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
+import androidx.lifecycle.asLiveData
+import androidx.lifecycle.map
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.CoalescedApi
 import ecccomp.s2240788.mobile_android.data.models.Task
 import ecccomp.s2240788.mobile_android.data.models.Subtask
 import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+import ecccomp.s2240788.mobile_android.data.models.StartFocusSessionRequest
 import ecccomp.s2240788.mobile_android.data.models.StopFocusSessionRequest
+import ecccomp.s2240788.mobile_android.data.repository.FocusKnowledgeRepository
+import ecccomp.s2240788.mobile_android.data.result.TaskResult
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
+import ecccomp.s2240788.mobile_android.services.FocusTimerEngine
+import ecccomp.s2240788.mobile_android.services.FocusTimerState
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.launch
 
 /**
@@ -22,20 +36,42 @@ import kotlinx.coroutines.launch
  */
 class FocusSessionViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
-    // Timer state
-    private var countDownTimer: CountDownTimer? = null
-    private var timeRemainingMillis: Long = 25 * 60 * 1000 // Default: 25 minutes
-    private var totalTimeMillis: Long = 25 * 60 * 1000
-    
-    private val _timerDisplay = MutableLiveData<String>()
-    val timerDisplay: LiveData<String> = _timerDisplay
+    // タスク・サブタスク・セッションの書き込みは送信キュー経由（オフラインでも失われない）
+    private val mutationOutbox = MutationOutbox.get()
+    private val gson = NetworkModule.gson
+    private val isoFormat = java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", java.util.Locale.US)
+
+    // Timer state（FocusTimerEngineが唯一の情報源。Activityが閉じてもServiceで継続する）
+    private val timerEngine = FocusTimerEngine
+    private val totalTimeMillis: Long get() = timerEngine.state.value.totalMillis
+
+    /**
+     * 表示用のtick
+     * 実行中だけ秒の境目ごとに発行し、画面が非表示の間はasLiveDataが収集を止める（裏で1秒ごとに起きない）
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private val timerTicks: LiveData<FocusTimerState> = timerEngine.state
+        .flatMapLatest { state ->
+            if (!state.isRunning) {
+                flowOf(state)
+            } else {
+                flow {
+                    while (true) {
+                        emit(state)
+                        val untilNextSecond = state.remainingMillis() % 1000
+                        delay(if (untilNextSecond == 0L) 1000 else untilNextSecond)
+                    }
+                }
+            }
+        }
+        .onEach { onTimerTick(it) }
+        .asLiveData()
+
+    val timerDisplay: LiveData<String> = timerTicks.map { formatTimerDisplay(it.remainingMillis()) }
 
-    private val _progress = MutableLiveData<Int>()
-    val progress: LiveData<Int> = _progress
+    val progress: LiveData<Int> = timerTicks.map { it.progressPercent() }
 
     private val _isTimerRunning = MutableLiveData<Boolean>(false)
     val isTimerRunning: LiveData<Boolean> = _isTimerRunning
@@ -84,8 +120,9 @@ class FocusSessionViewModel : ViewModel() {
     // Session stats
     private var sessionStartTimeMillis: Long = 0
     private var pomodoroCount: Int = 0
-    private var lastTickTimeMillis: Long = 0
+    private var lastTrackedElapsedMillis: Long = 0 // サブタスク経過時間に反映済みのタイマー経過時間
     private var currentSessionId: Int? = null // 現在のセッションIDを保存
+    private var currentSessionStartKey: String? = null // セッション開始操作の冪等キー（オフライン開始でIDが未確定の場合に使用）
     private var sessionNotes: String? = null // セッション後のメモを保存
 
     enum class TimerMode {
@@ -93,8 +130,24 @@ class FocusSessionViewModel : ViewModel() {
     }
 
     init {
-        updateTimerDisplay(timeRemainingMillis)
-        updateProgress()
+        // 前回の画面（またはプロセス）から続いているタイマーの状態を引き継ぐ
+        val restored = timerEngine.state.value
+        _timerMode.value = TimerMode.entries.firstOrNull { it.name == restored.mode } ?: TimerMode.WORK
+        lastTrackedElapsedMillis = restored.elapsedMillis()
+
+        // 開始・一時停止・完了などの状態遷移だけを監視（画面が非表示でも完了処理は行う）
+        // 完了処理は完了への遷移で一度だけ行う（復元時点ですでに完了していた状態は処理済みのため飛ばす）
+        viewModelScope.launch {
+            var wasFinished = restored.finished
+            timerEngine.state.collect { state ->
+                _isTimerRunning.value = state.isRunning
+                if (state.finished && !wasFinished) {
+                    onTimerTick(state)
+                    onTimerComplete()
+                }
+                wasFinished = state.finished
+            }
+        }
     }
 
     /**
@@ -110,7 +163,7 @@ class FocusSessionViewModel : ViewModel() {
     fun loadTask(taskId: Int) {
         viewModelScope.launch {
             try {
-                val response = apiService.getTask(taskId)
+                val response = CoalescedApi.getTask(taskId)
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true && apiResponse.data != null) {
@@ -157,12 +210,10 @@ class FocusSessionViewModel : ViewModel() {
                                 25
                             }
                         }
-                        setTimerDuration(timerMinutes)
+                        applyTaskDuration(task.id, timerMinutes)
 
-                        // Load knowledge items for task and all subtasks
-                        // タスク固有の知識のみを表示するため、learning_path_idは使用しない
-                        // 確実にロードされるように、awaitで待つ
-                        loadKnowledgeItemsInternal(taskId, subtasks, null)
+                        // Load knowledge items for task (prefetched by StartTaskDialogFragment if possible)
+                        loadKnowledgeItemsInternal(taskId)
                     } else {
                         _toast.value = "タスクが見つかりません"
                     }
@@ -183,7 +234,7 @@ class FocusSessionViewModel : ViewModel() {
     fun loadTaskWithSubtask(taskId: Int, subtaskId: Int) {
         viewModelScope.launch {
             try {
-                val response = apiService.getTask(taskId)
+                val response = CoalescedApi.getTask(taskId)
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true && apiResponse.data != null) {
@@ -234,12 +285,10 @@ class FocusSessionViewModel : ViewModel() {
                             _isDeepWorkMode.value = task.requires_deep_focus
 
                             // Set timer duration based on subtask estimated minutes
-                            setTimerDuration(subtaskTime)
+                            applyTaskDuration(task.id, subtaskTime)
 
-                            // Load knowledge items for task and all subtasks
-                            // タスク固有の知識のみを表示するため、learning_path_idは使用しない
-                            // 確実にロードされるように、awaitで待つ
-                            loadKnowledgeItemsInternal(taskId, subtasks, null)
+                            // Load knowledge items for task (prefetched by StartTaskDialogFragment if possible)
+                            loadKnowledgeItemsInternal(taskId)
                         } else {
                             android.util.Log.e("FocusSessionViewModel",
                                 "Subtask not found: subtaskId=$subtaskId in task $taskId with ${subtasks?.size ?: 0} subtasks")
@@ -262,10 +311,9 @@ class FocusSessionViewModel : ViewModel() {
      * タイマーを開始
      */
     fun startTimer() {
-        if (_isTimerRunning.value == true) return
+        if (timerEngine.state.value.isRunning) return
 
         sessionStartTimeMillis = System.currentTimeMillis()
-        lastTickTimeMillis = sessionStartTimeMillis
         _isTimerRunning.value = true
 
         // セッションを開始（workモードの場合のみ）
@@ -273,42 +321,24 @@ class FocusSessionViewModel : ViewModel() {
             startFocusSession()
         }
 
-        countDownTimer = object : CountDownTimer(timeRemainingMillis, 1000) {
-            override fun onTick(millisUntilFinished: Long) {
-                val currentTime = System.currentTimeMillis()
-                val elapsedSeconds = ((currentTime - lastTickTimeMillis) / 1000).toInt()
-                lastTickTimeMillis = currentTime
-
-                timeRemainingMillis = millisUntilFinished
-                updateTimerDisplay(millisUntilFinished)
-                updateProgress()
-
-                // Update subtask elapsed time and auto-complete if needed
-                if (elapsedSeconds > 0) {
-                    updateSubtaskProgress(elapsedSeconds)
-                }
-            }
-
-            override fun onFinish() {
-                onTimerComplete()
-            }
-        }.start()
+        timerEngine.start(_currentTask.value?.title)
     }
 
     /**
      * タイマーを一時停止
+     * Note: 経過時間はエンジンが保持するので、再開すると続きから
      */
     fun pauseTimer() {
-        countDownTimer?.cancel()
+        timerEngine.pause()
         _isTimerRunning.value = false
-        lastTickTimeMillis = 0
-        // Note: Don't reset elapsed time on pause - keep progress
     }
 
     /**
      * タスクを諦めた時にセッションを停止（公開メソッド）
      */
     fun stopFocusSessionForAbandon() {
+        // 一時停止中の通知が残らないようにタイマーも初期化
+        timerEngine.reset()
         stopFocusSession(null)
     }
 
@@ -328,17 +358,25 @@ class FocusSessionViewModel : ViewModel() {
                 val taskId = _currentTask.value?.id ?: return@launch
                 android.util.Log.d("FocusSessionViewModel", "completeTaskManually called: taskId=$taskId")
                 
-                val response = apiService.completeTask(taskId)
-                if (response.isSuccessful && response.body()?.success == true) {
-                    val completedTask = response.body()?.data
-                    if (completedTask != null) {
-                        _currentTask.value = completedTask
+                val result = mutationOutbox.completeTask(taskId).result
+                when {
+                    result == null -> {
+                        _currentTask.value = _currentTask.value?.copy(status = "completed")
+                        android.util.Log.d("FocusSessionViewModel", "タスク完了をキューに追加: taskId=$taskId")
+                        _toast.value = "タスクが完了しました！（オンライン時に同期されます）"
+                    }
+                    result.success -> {
+                        val completedTask = result.data?.let { gson.fromJson(it, Task::class.java) }
+                        if (completedTask != null) {
+                            _currentTask.value = completedTask
+                        }
                         android.util.Log.d("FocusSessionViewModel", "タスクを完了しました: taskId=$taskId")
                         _toast.value = "タスクが完了しました！"
                     }
-                } else {
-                    android.util.Log.e("FocusSessionViewModel", "タスク完了エラー: ${response.body()?.message}")
-                    _toast.value = "タスク完了に失敗しました"
+                    else -> {
+                        android.util.Log.e("FocusSessionViewModel", "タスク完了エラー: ${result.message}")
+                        _toast.value = "タスク完了に失敗しました"
+                    }
                 }
             } catch (e: Exception) {
                 android.util.Log.e("FocusSessionViewModel", "タスク完了エラー", e)
@@ -351,38 +389,52 @@ class FocusSessionViewModel : ViewModel() {
      * タイマーをリセット
      */
     fun resetTimer() {
-        countDownTimer?.cancel()
+        timerEngine.reset()
         _isTimerRunning.value = false
-        timeRemainingMillis = totalTimeMillis
-        lastTickTimeMillis = 0
+        lastTrackedElapsedMillis = 0
         // Reset subtask elapsed time
         subtaskElapsedSeconds.clear()
         autoCompletedSubtaskIds.clear()
         _subtaskElapsedMinutes.value = emptyMap()
         // セッションIDもクリア
         currentSessionId = null
-        updateTimerDisplay(timeRemainingMillis)
-        updateProgress()
+        currentSessionStartKey = null
     }
 
     /**
      * タイマー時間を設定 (分単位)
      */
     fun setTimerDuration(minutes: Int) {
-        if (_isTimerRunning.value == true) {
-            pauseTimer()
+        val taskId = parentTaskId ?: _currentTask.value?.id
+        timerEngine.configure(
+            totalMillis = minutes * 60 * 1000L,
+            mode = (_timerMode.value ?: TimerMode.WORK).name,
+            taskId = taskId,
+            title = _currentTask.value?.title
+        )
+        _isTimerRunning.value = false
+        lastTrackedElapsedMillis = 0
+    }
+
+    /**
+     * タスクの見積もり時間をタイマーに設定
+     * 同じタスクのタイマーが途中の場合（画面の再作成・タスクの再読み込み）は続きを維持する
+     */
+    private fun applyTaskDuration(taskId: Int, minutes: Int) {
+        val state = timerEngine.state.value
+        if (_timerMode.value != TimerMode.WORK) return
+        if (state.taskId == taskId && state.isInProgress) {
+            android.util.Log.d("FocusSessionViewModel", "Keeping in-progress timer for taskId=$taskId")
+            return
         }
-        totalTimeMillis = minutes * 60 * 1000L
-        timeRemainingMillis = totalTimeMillis
-        updateTimerDisplay(timeRemainingMillis)
-        updateProgress()
+        setTimerDuration(minutes)
     }
 
     /**
      * セッションをスキップ
      */
     fun skipSession() {
-        countDownTimer?.cancel()
+        timerEngine.pause()
         _isTimerRunning.value = false
         onTimerComplete()
     }
@@ -476,29 +528,40 @@ class FocusSessionViewModel : ViewModel() {
             return
         }
 
+        // 開始時刻はタイマー開始時点（オフラインで送信が遅れても記録がずれない）
+        val request = StartFocusSessionRequest(
+            task_id = task.id,
+            duration_minutes = durationMinutes,
+            session_type = "work",
+            started_at = isoFormat.format(java.util.Date(sessionStartTimeMillis))
+        )
+
         viewModelScope.launch {
             try {
-                val request = ecccomp.s2240788.mobile_android.data.models.StartFocusSessionRequest(
-                    task_id = task.id,
-                    duration_minutes = durationMinutes,
-                    session_type = "work"
-                )
                 android.util.Log.d("FocusSessionViewModel", "Sending startFocusSession request: taskId=${request.task_id}, duration=${request.duration_minutes}, type=${request.session_type}")
-                val response = apiService.startFocusSession(request)
+                val submission = mutationOutbox.startFocusSession(request)
+                val result = submission.result
+
+                when {
+                    result == null -> {
+                        // オフライン：接続後に送信される（終了操作はstart_keyで参照）
+                        currentSessionId = null
+                        currentSessionStartKey = submission.key
+                        android.util.Log.d("FocusSessionViewModel", "セッション開始をキューに追加: key=${submission.key}")
+                    }
+                    result.success -> {
+                        currentSessionId = result.data?.asJsonObject?.get("id")?.asInt
+                        currentSessionStartKey = null
+                        android.util.Log.d("FocusSessionViewModel", "セッション開始: sessionId=$currentSessionId")
+                    }
+                    else -> {
+                        // セッション開始失敗時の詳細ログ
+                        val errorMessage = result.message ?: "不明なエラー"
+                        android.util.Log.e("FocusSessionViewModel", "セッション開始失敗: code=${result.status}, message=$errorMessage")
 
-                if (response.isSuccessful && response.body()?.success == true) {
-                    val session = response.body()?.data
-                    currentSessionId = session?.id
-                    android.util.Log.d("FocusSessionViewModel", "セッション開始: sessionId=$currentSessionId")
-                } else {
-                    // セッション開始失敗時の詳細ログ
-                    val errorMessage = response.body()?.message ?: "不明なエラー"
-                    val errorCode = response.code()
-                    android.util.Log.e("FocusSessionViewModel", "セッション開始失敗: code=$errorCode, message=$errorMessage")
-                    android.util.Log.e("FocusSessionViewModel", "Response body: ${response.errorBody()?.string()}")
-                    
-                    // ユーザーに通知
-                    _toast.value = "セッション開始に失敗しました: $errorMessage"
+                        // ユーザーに通知
+                        _toast.value = "セッション開始に失敗しました: $errorMessage"
+                    }
                 }
             } catch (e: Exception) {
                 android.util.Log.e("FocusSessionViewModel", "セッション開始エラー", e)
@@ -516,8 +579,10 @@ class FocusSessionViewModel : ViewModel() {
         viewModelScope.launch {
             try {
                 // currentSessionIdがnullの場合、アクティブなセッションを検索
+                // （オフラインで開始したセッションは開始操作のキーで参照するので検索不要）
                 var sessionId = currentSessionId
-                if (sessionId == null) {
+                val startKey = currentSessionStartKey
+                if (sessionId == null && startKey == null) {
                     android.util.Log.d("FocusSessionViewModel", "currentSessionId is null, searching for active session")
                     val currentSessionResponse = apiService.getCurrentSession()
                     if (currentSessionResponse.isSuccessful && currentSessionResponse.body()?.success == true) {
@@ -530,42 +595,37 @@ class FocusSessionViewModel : ViewModel() {
                     }
                 }
 
-                android.util.Log.d("FocusSessionViewModel", "stopFocusSession called: sessionId=$sessionId, notes=${notes?.take(50)}..., forceCompleteTask=$forceCompleteTask")
+                android.util.Log.d("FocusSessionViewModel", "stopFocusSession called: sessionId=$sessionId, startKey=$startKey, notes=${notes?.take(50)}..., forceCompleteTask=$forceCompleteTask")
                 android.util.Log.d("FocusSessionViewModel", "notes details: isNull=${notes == null}, isBlank=${notes?.isBlank()}, length=${notes?.length}")
                 
                 val request = StopFocusSessionRequest(
                     notes = notes?.takeIf { it.isNotBlank() },
-                    force_complete_task = if (forceCompleteTask) true else null
+                    force_complete_task = if (forceCompleteTask) true else null,
+                    ended_at = isoFormat.format(java.util.Date())
                 )
                 android.util.Log.d("FocusSessionViewModel", "Request created - notes: ${request.notes}, notes_length: ${request.notes?.length}, force_complete_task: ${request.force_complete_task}")
                 
-                val response = apiService.stopFocusSession(sessionId!!, request)
-                android.util.Log.d("FocusSessionViewModel", "API response received: success=${response.isSuccessful}, code=${response.code()}")
+                val result = mutationOutbox.stopFocusSession(sessionId, startKey, request).result
+                android.util.Log.d("FocusSessionViewModel", "Stop result received: delivered=${result != null}, status=${result?.status}")
 
-                if (response.isSuccessful && response.body()?.success == true) {
+                if (result == null) {
+                    // オフライン：終了時刻付きでキューに保存済み（接続後に送信される）
+                    android.util.Log.d("FocusSessionViewModel", "セッション終了をキューに追加: sessionId=$sessionId, startKey=$startKey")
+                    _toast.value = "オフラインのため、セッションは接続後に保存されます"
+                    currentSessionId = null
+                    currentSessionStartKey = null
+                } else if (result.success) {
                     android.util.Log.d("FocusSessionViewModel", "セッション終了: sessionId=$sessionId")
                     
                     // セッション終了レスポンスからタスク完了情報を取得
-                    // バックエンドはApiResponseの直下にtask_completedを返すため、レスポンス全体をMapとして解析
-                    val taskCompleted = try {
-                        // Retrofitのレスポンスから直接Mapとして取得
-                        val responseBody = response.body()
-                        val gson = com.google.gson.Gson()
-                        val json = gson.toJson(responseBody)
-                        val map: Map<*, *> = gson.fromJson(json, Map::class.java)
-                        (map["task_completed"] as? Boolean) ?: false
-                    } catch (e: Exception) {
-                        android.util.Log.w("FocusSessionViewModel", "task_completed取得失敗: ${e.message}")
-                        false
-                    }
+                    val taskCompleted = result.task_completed ?: false
                     
                     // タスクをリロードして最新の状態を取得（ステータス更新を確認）
+                    // サーバーはタスクの更新をコミットしてから応答するので、待たずにすぐ取得できる
+                    // （終了のPUTでRequestCoalescerは無効化されているため、終了前の結果は使われない）
                     val taskId = _currentTask.value?.id
                     if (taskId != null) {
-                        // 少し待ってからタスクをリロード（バックエンドの処理完了を待つ）
-                        kotlinx.coroutines.delay(500)
-                        
-                        val taskResponse = apiService.getTask(taskId)
+                        val taskResponse = CoalescedApi.getTask(taskId)
                         if (taskResponse.isSuccessful && taskResponse.body()?.success == true) {
                             val updatedTask = taskResponse.body()?.data
                             if (updatedTask != null) {
@@ -586,16 +646,6 @@ class FocusSessionViewModel : ViewModel() {
                                     // バックエンドで完了とマークされたが、まだステータスが更新されていない場合
                                     android.util.Log.w("FocusSessionViewModel", 
                                         "タスク完了とマークされたが、ステータスが更新されていません: taskId=$taskId, status=$newStatus")
-                                    // 再度リロードを試みる
-                                    kotlinx.coroutines.delay(1000)
-                                    val retryResponse = apiService.getTask(taskId)
-                                    if (retryResponse.isSuccessful && retryResponse.body()?.success == true) {
-                                        val retryTask = retryResponse.body()?.data
-                                        if (retryTask != null && retryTask.status == "completed") {
-                                            _currentTask.value = retryTask
-                                            _toast.value = "タスクが完了しました！"
-                                        }
-                                    }
                                 } else if (newStatus == "in_progress" && oldStatus != "in_progress") {
                                     android.util.Log.d("FocusSessionViewModel", "タスクが進行中に戻りました: taskId=$taskId")
                                 } else {
@@ -612,12 +662,11 @@ class FocusSessionViewModel : ViewModel() {
                     }
                     
                     currentSessionId = null
+                    currentSessionStartKey = null
                 } else {
                     // セッション終了失敗時の詳細ログ
-                    val errorMessage = response.body()?.message ?: "不明なエラー"
-                    val errorCode = response.code()
-                    android.util.Log.e("FocusSessionViewModel", "セッション終了失敗: code=$errorCode, message=$errorMessage")
-                    android.util.Log.e("FocusSessionViewModel", "Response body: ${response.errorBody()?.string()}")
+                    val errorMessage = result.message ?: "不明なエラー"
+                    android.util.Log.e("FocusSessionViewModel", "セッション終了失敗: code=${result.status}, message=$errorMessage")
                     
                     // ユーザーに通知
                     _toast.value = "セッション終了に失敗しました: $errorMessage"
@@ -640,26 +689,40 @@ class FocusSessionViewModel : ViewModel() {
     }
 
     /**
-     * タイマー表示を更新
+     * タイマー表示用の文字列
      * - 60分未満: MM:SS形式 (例: 25:00)
      * - 60分以上: MM:SS形式 (例: 119:57) - hiển thị tổng số phút
+     * 残りが 24:59.4 の間は 25:00 と表示（切り上げ）
      */
-    private fun updateTimerDisplay(millisUntilFinished: Long) {
-        val totalSeconds = (millisUntilFinished / 1000).toInt()
+    private fun formatTimerDisplay(millisUntilFinished: Long): String {
+        val totalSeconds = ((millisUntilFinished + 999) / 1000).toInt()
         val totalMinutes = totalSeconds / 60
         val seconds = totalSeconds % 60
         
         // Hiển thị dạng MM:SS (tổng số phút:giây)
         // Ví dụ: 119:57 (119 phút 57 giây)
-        _timerDisplay.value = String.format("%d:%02d", totalMinutes, seconds)
+        return String.format("%d:%02d", totalMinutes, seconds)
     }
 
     /**
-     * プログレスバーを更新 (0-100)
+     * tickごとの処理
+     * サブタスクの経過時間は前回反映分との差分で加算（tickが止まっていた間の分もまとめて反映される）
      */
-    private fun updateProgress() {
-        val progressPercent = ((totalTimeMillis - timeRemainingMillis) * 100 / totalTimeMillis).toInt()
-        _progress.value = progressPercent
+    private fun onTimerTick(state: FocusTimerState) {
+        val elapsed = state.elapsedMillis()
+        if (elapsed < lastTrackedElapsedMillis) {
+            // タイマーが設定し直された
+            lastTrackedElapsedMillis = 0
+        }
+        val elapsedSeconds = ((elapsed - lastTrackedElapsedMillis) / 1000).toInt()
+        if (elapsedSeconds > 0) {
+            lastTrackedElapsedMillis += elapsedSeconds * 1000L
+            updateSubtaskProgress(elapsedSeconds)
+        }
+
+        if (state.isRunning && state.remainingMillis() <= 0) {
+            timerEngine.complete()
+        }
     }
 
     /**
@@ -703,7 +766,8 @@ class FocusSessionViewModel : ViewModel() {
     }
 
     /**
-     * Auto-complete a subtask via API
+     * Auto-complete a subtask via the mutation outbox
+     * オフラインでも画面上は即時完了にし、接続後に送信される
      */
     private fun autoCompleteSubtask(subtaskId: Int) {
         // Mark as auto-completed to prevent duplicate calls
@@ -711,8 +775,11 @@ class FocusSessionViewModel : ViewModel() {
 
         viewModelScope.launch {
             try {
-                val response = apiService.toggleSubtask(subtaskId)
-                if (response.isSuccessful && response.body()?.success == true) {
+                val result = mutationOutbox.toggleSubtask(subtaskId).result
+                if (result == null) {
+                    markSubtaskCompletedLocally(subtaskId)
+                    _toast.value = "サブタスクが自動完了しました"
+                } else if (result.success) {
                     // Reload task to get updated subtasks
                     val taskId = _currentTask.value?.id ?: return@launch
                     loadTask(taskId)
@@ -724,71 +791,6 @@ class FocusSessionViewModel : ViewModel() {
         }
     }
 
-    /**
-     * API レスポンスからタスクリストをパース
-     */
-    private fun parseTasksFromResponse(data: Any?): List<Task> {
-        return try {
-            when (data) {
-                is Map<*, *> -> {
-                    // Handle nested structure: { data: [...] }
-                    val tasksData = data["data"] as? List<*>
-                    tasksData?.mapNotNull { item ->
-                        if (item is Map<*, *>) convertMapToTask(item) else null
-                    } ?: emptyList()
-                }
-                is List<*> -> data.mapNotNull { item ->
-                    when (item) {
-                        is Map<*, *> -> convertMapToTask(item)
-                        is Task -> item
-                        else -> null
-                    }
-                }
-                else -> emptyList()
-            }
-        } catch (e: Exception) {
-            emptyList()
-        }
-    }
-
-    /**
-     * Map を Task オブジェクトに変換
-     */
-    private fun convertMapToTask(map: Map<*, *>): Task? {
-        return try {
-            Task(
-                id = (map["id"] as? Number)?.toInt() ?: 0,
-                title = map["title"] as? String ?: "",
-                category = map["category"] as? String,
-                description = map["description"] as? String,
-                status = map["status"] as? String ?: "pending",
-                priority = (map["priority"] as? Number)?.toInt() ?: 3,
-                energy_level = map["energy_level"] as? String ?: "medium",
-                estimated_minutes = (map["estimated_minutes"] as? Number)?.toInt(),
-                deadline = map["deadline"] as? String,
-                scheduled_time = map["scheduled_time"] as? String,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: "",
-                user_id = (map["user_id"] as? Number)?.toInt() ?: 0,
-                project_id = (map["project_id"] as? Number)?.toInt(),
-                learning_milestone_id = (map["learning_milestone_id"] as? Number)?.toInt(),
-                ai_breakdown_enabled = map["ai_breakdown_enabled"] as? Boolean ?: false,
-                // Focus enhancement features
-                requires_deep_focus = map["requires_deep_focus"] as? Boolean ?: false,
-                allow_interruptions = map["allow_interruptions"] as? Boolean ?: true,
-                focus_difficulty = (map["focus_difficulty"] as? Number)?.toInt() ?: 3,
-                warmup_minutes = (map["warmup_minutes"] as? Number)?.toInt(),
-                cooldown_minutes = (map["cooldown_minutes"] as? Number)?.toInt(),
-                recovery_minutes = (map["recovery_minutes"] as? Number)?.toInt(),
-                last_focus_at = map["last_focus_at"] as? String,
-                total_focus_minutes = (map["total_focus_minutes"] as? Number)?.toInt() ?: 0,
-                distraction_count = (map["distraction_count"] as? Number)?.toInt() ?: 0
-            )
-        } catch (e: Exception) {
-            null
-        }
-    }
-
     /**
      * Pomodoro カウントを取得
      */
@@ -809,241 +811,35 @@ class FocusSessionViewModel : ViewModel() {
     }
 
     /**
-     * Load knowledge items for the current task and all its subtasks
+     * Load knowledge items for the task
      * Public method that can be called from Activity
-     * This will fetch task data first to get all subtasks, then load knowledge
      */
     fun loadKnowledgeItems(taskId: Int) {
         viewModelScope.launch {
-            try {
-                // Fetch task to get all subtasks first
-                val response = apiService.getTask(taskId)
-                if (response.isSuccessful) {
-                    val apiResponse = response.body()
-                    if (apiResponse?.success == true && apiResponse.data != null) {
-                        val task = apiResponse.data
-                        val subtasks = task.subtasks ?: emptyList()
-
-                        android.util.Log.d("FocusSessionViewModel",
-                            "Public loadKnowledgeItems: taskId=$taskId, subtasks=${subtasks.size}")
-
-                        // Load knowledge with all subtasks
-                        // タスク固有の知識のみを表示するため、learning_path_idは使用しない
-                        loadKnowledgeItemsInternal(taskId, subtasks, null)
-                    } else {
-                        // Fallback: try without subtasks
-                        loadKnowledgeItemsInternal(taskId, null, null)
-                    }
-                } else {
-                    // Fallback: try without subtasks
-                    loadKnowledgeItemsInternal(taskId, null, null)
-                }
-            } catch (e: Exception) {
-                android.util.Log.e("FocusSessionViewModel",
-                    "Error in public loadKnowledgeItems", e)
-                // Fallback: try without subtasks
-                loadKnowledgeItemsInternal(taskId, null, null)
-            }
+            loadKnowledgeItemsInternal(taskId)
         }
     }
 
     /**
-     * Internal method to load knowledge items (can be called within other suspend functions)
-     * タスク固有の知識アイテムのみを取得（学習パス全体の知識は含めない）
-     * @param taskId The task ID
-     * @param subtasks List of subtasks (optional, will use _subtasks.value if null)
-     * @param learningPathId Learning path ID (deprecated - タスク固有の知識のみを表示するため使用しない)
+     * タスクの知識アイテムを読み込む（knowledge/for-task/{taskId}、サーバー側で絞り込み）
+     * タスク選択ダイアログで先読みしていれば、その結果（取得中ならその完了）をそのまま使う
+     * タスク固有の知識のみを表示する（学習パス全体の知識は含めない）
      */
-    private suspend fun loadKnowledgeItemsInternal(taskId: Int, subtasks: List<Subtask>? = null, learningPathId: Int? = null) {
-        // 変数を関数スコープで定義（try/catch/finallyで使用するため）
-        var taskItems = emptyList<KnowledgeItem>()
-        
-        try {
-            // ローディング状態を設定（UIがローディング中であることを示す）
-            _isLoadingKnowledge.value = true
-            
-            // 初期状態として空のリストを設定（以前のデータをクリア）
-            _knowledgeItems.postValue(emptyList())
-
-            // Get IDs to filter: task ID + all subtask IDs
-            // Use provided subtasks or fallback to LiveData value
-            val currentSubtasks = subtasks ?: _subtasks.value ?: emptyList()
-            val subtaskIds = currentSubtasks.map { it.id }
-            val filterTaskIds = listOf(taskId) + subtaskIds
-
-            android.util.Log.d("FocusSessionViewModel", "Loading knowledge items for taskId=$taskId, subtaskIds=$subtaskIds (${currentSubtasks.size} subtasks)")
-
-            // Load knowledge items with filters applied on server side
-            // タスク固有の知識のみを表示するため、sourceTaskIdのみを使用（learningPathIdは送信しない）
-            // リトライメカニズムを追加して、高速なデバイスでも確実にロードされるようにする
-            var retryCount = 0
-            val maxRetries = 3
-            
-            while (retryCount < maxRetries) {
-                try {
-                    val response = apiService.getKnowledgeItems(
-                        categoryId = null,
-                        itemType = null,
-                        isFavorite = null,
-                        isArchived = false,  // Only non-archived items
-                        search = null,
-                        tags = null,
-                        sourceTaskId = filterTaskIds,  // Filter by task and subtask IDs only
-                        learningPathId = null,  // タスク固有の知識のみを表示するため、learningPathIdは送信しない
-                        perPage = 1000  // Load all items
-                    )
-
-                    if (response.isSuccessful) {
-                        val apiResponse = response.body()
-                        
-                        // デバッグ用ログ：レスポンス構造を確認
-                        android.util.Log.d("FocusSessionViewModel", "API response received: success=${apiResponse?.success}, data type=${apiResponse?.data?.javaClass?.simpleName}")
-                        
-                        if (apiResponse?.success == true) {
-                            // データの構造をログに出力
-                            val responseData = apiResponse.data
-                            when (responseData) {
-                                is List<*> -> {
-                                    android.util.Log.d("FocusSessionViewModel", "Data is List with ${responseData.size} items")
-                                    if (responseData.isNotEmpty()) {
-                                        android.util.Log.d("FocusSessionViewModel", "First item type: ${responseData[0]?.javaClass?.simpleName}")
-                                    }
-                                }
-                                is Map<*, *> -> {
-                                    android.util.Log.d("FocusSessionViewModel", "Data is Map with keys: ${responseData.keys}")
-                                }
-                                else -> {
-                                    android.util.Log.w("FocusSessionViewModel", "Data is unexpected type: ${responseData?.javaClass?.simpleName}")
-                                }
-                            }
-                            
-                            taskItems = parseItemsFromResponse(responseData)
-                            
-                            android.util.Log.d("FocusSessionViewModel", "Parsed ${taskItems.size} knowledge items (attempt ${retryCount + 1})")
-                            
-                            // Log sample items for debugging
-                            if (taskItems.isNotEmpty()) {
-                                android.util.Log.d("FocusSessionViewModel", "Sample item: source_task_id=${taskItems[0].source_task_id}, learning_path_id=${taskItems[0].learning_path_id}, title=${taskItems[0].title}")
-                            } else {
-                                android.util.Log.w("FocusSessionViewModel", "No items parsed from response. Data type: ${responseData?.javaClass?.simpleName}, Data: $responseData")
-                            }
-                        } else {
-                            android.util.Log.w("FocusSessionViewModel", "API response success=false, message=${apiResponse?.message}")
-                            taskItems = emptyList()
-                        }
-
-                        // 成功したらループを抜ける（空のリストでも成功とみなす）
-                        break
-                    } else {
-                        android.util.Log.w("FocusSessionViewModel", "API response not successful: ${response.code()}, attempt ${retryCount + 1}")
-                        if (retryCount < maxRetries - 1) {
-                            // リトライ前に少し待つ
-                            kotlinx.coroutines.delay(200 * (retryCount + 1).toLong())
-                        }
-                    }
-                } catch (e: Exception) {
-                    android.util.Log.e("FocusSessionViewModel", "Error loading knowledge items (attempt ${retryCount + 1}): ${e.message}", e)
-                    if (retryCount < maxRetries - 1) {
-                        // リトライ前に少し待つ
-                        kotlinx.coroutines.delay(200 * (retryCount + 1).toLong())
-                    }
-                }
-                
-                retryCount++
-            }
-
-            // 最終結果を設定（成功または失敗に関わらず）
-            // 空のリストでも設定する（UIが正しく更新されるように）
-            
-            // 空のリストの場合、ログに記録（デバッグ用）
-            if (taskItems.isEmpty()) {
-                android.util.Log.d("FocusSessionViewModel", "No knowledge items found for taskId=$taskId, subtaskIds=$subtaskIds")
-                // エラーメッセージは表示しない（空のリストは正常な状態の可能性がある）
+    private suspend fun loadKnowledgeItemsInternal(taskId: Int) {
+        _isLoadingKnowledge.value = true
+
+        val items = when (val result = FocusKnowledgeRepository.getForTask(taskId)) {
+            is TaskResult.Success -> result.data
+            is TaskResult.Error -> {
+                android.util.Log.w("FocusSessionViewModel", "Failed to load knowledge items for taskId=$taskId: ${result.message}")
+                emptyList()
             }
-        } catch (e: Exception) {
-            android.util.Log.e("FocusSessionViewModel", "Error in loadKnowledgeItemsInternal", e)
-            taskItems = emptyList()
-            _toast.value = "ネットワークエラー: ${e.message}"
-        } finally {
-            // ローディング状態を解除してから、knowledge itemsを設定する
-            // これにより、observerが正しく更新される
-            _isLoadingKnowledge.value = false
-            
-            // 少し遅延してからpostValueすることで、isLoadingKnowledgeのobserverが先に処理される
-            kotlinx.coroutines.delay(50)
-            _knowledgeItems.postValue(taskItems)
-            
-            android.util.Log.d("FocusSessionViewModel", "Posted ${taskItems.size} knowledge items after loading completed")
+            is TaskResult.Loading -> emptyList()
         }
-    }
 
-    /**
-     * Parse Items from API Response
-     */
-    private fun parseItemsFromResponse(data: Any?): List<KnowledgeItem> {
-        return try {
-            android.util.Log.d("FocusSessionViewModel", "parseItemsFromResponse: data type=${data?.javaClass?.simpleName}, data=$data")
-            
-            when (data) {
-                is List<*> -> {
-                    android.util.Log.d("FocusSessionViewModel", "Parsing List with ${data.size} items")
-                    // Retrofit/Gson returns List<LinkedHashMap>, not List<KnowledgeItem>
-                    // Need to use Gson to convert each map to KnowledgeItem
-                    val gson = com.google.gson.Gson()
-                    val parsedItems = data.mapIndexedNotNull { index, item ->
-                        try {
-                            when (item) {
-                                is KnowledgeItem -> {
-                                    android.util.Log.d("FocusSessionViewModel", "Item $index is already KnowledgeItem")
-                                    item
-                                }
-                                is Map<*, *> -> {
-                                    android.util.Log.d("FocusSessionViewModel", "Item $index is Map, converting...")
-                                    // Convert Map to JSON string then parse to KnowledgeItem
-                                    val json = gson.toJson(item)
-                                    val parsed = gson.fromJson(json, KnowledgeItem::class.java)
-                                    android.util.Log.d("FocusSessionViewModel", "Item $index parsed: id=${parsed.id}, title=${parsed.title}")
-                                    parsed
-                                }
-                                else -> {
-                                    android.util.Log.w("FocusSessionViewModel", "Item $index is unexpected type: ${item?.javaClass?.simpleName}")
-                                    null
-                                }
-                            }
-                        } catch (e: Exception) {
-                            android.util.Log.e("FocusSessionViewModel", "Error parsing knowledge item at index $index", e)
-                            null
-                        }
-                    }
-                    android.util.Log.d("FocusSessionViewModel", "Successfully parsed ${parsedItems.size} items from List")
-                    parsedItems
-                }
-                is Map<*, *> -> {
-                    android.util.Log.d("FocusSessionViewModel", "Parsing Map with keys: ${data.keys}")
-                    // Handle paginated response or nested structure
-                    val dataList = data["data"] as? List<*>
-                    if (dataList != null) {
-                        android.util.Log.d("FocusSessionViewModel", "Found 'data' key in Map with ${dataList.size} items")
-                        parseItemsFromResponse(dataList)
-                    } else {
-                        android.util.Log.w("FocusSessionViewModel", "Map does not contain 'data' key")
-                        emptyList()
-                    }
-                }
-                null -> {
-                    android.util.Log.w("FocusSessionViewModel", "Data is null")
-                    emptyList()
-                }
-                else -> {
-                    android.util.Log.w("FocusSessionViewModel", "Unexpected data type: ${data?.javaClass?.simpleName}, value: $data")
-                    emptyList()
-                }
-            }
-        } catch (e: Exception) {
-            android.util.Log.e("FocusSessionViewModel", "Error in parseItemsFromResponse", e)
-            e.printStackTrace()
-            emptyList()
-        }
+        // 一覧を先に設定してからローディングを解除する（解除時のobserverが最新の一覧を参照できるように）
+        _knowledgeItems.value = items
+        _isLoadingKnowledge.value = false
     }
 
     /**
@@ -1065,25 +861,27 @@ class FocusSessionViewModel : ViewModel() {
 
         viewModelScope.launch {
             try {
-                val response = apiService.completeSubtask(subtaskId)
-                if (response.isSuccessful) {
-                    val apiResponse = response.body()
-                    if (apiResponse?.success == true && apiResponse.data != null) {
-                        val result = apiResponse.data
-
+                val result = mutationOutbox.completeSubtask(subtaskId).result
+                when {
+                    result == null -> {
+                        android.util.Log.d("FocusSessionViewModel",
+                            "Subtask completion queued: subtaskId=$subtaskId")
+                        markSubtaskCompletedLocally(subtaskId)
+                        _toast.value = "サブタスクを完了しました！（オンライン時に同期されます）"
+                    }
+                    result.success -> {
                         android.util.Log.d("FocusSessionViewModel",
-                            "Subtask completed successfully: ${result.subtask.title}")
+                            "Subtask completed successfully: subtaskId=$subtaskId")
 
                         // Reload parent task to refresh subtasks list and progress
                         loadTask(taskId)
 
                         // Show success message
-                        _toast.value = apiResponse.message ?: "サブタスクを完了しました！"
-                    } else {
+                        _toast.value = result.message ?: "サブタスクを完了しました！"
+                    }
+                    else -> {
                         _toast.value = "サブタスクの完了に失敗しました"
                     }
-                } else {
-                    _toast.value = "サブタスクの完了に失敗しました"
                 }
             } catch (e: Exception) {
                 android.util.Log.e("FocusSessionViewModel",
@@ -1093,9 +891,12 @@ class FocusSessionViewModel : ViewModel() {
         }
     }
 
-    override fun onCleared() {
-        super.onCleared()
-        countDownTimer?.cancel()
+    /**
+     * 送信待ちの間、画面上のサブタスクを完了扱いにする
+     */
+    private fun markSubtaskCompletedLocally(subtaskId: Int) {
+        _subtasks.value = _subtasks.value?.map {
+            if (it.id == subtaskId) it.copy(is_completed = true) else it
+        }
     }
 }
-
@@ -16,9 +16,7 @@ import kotlinx.coroutines.launch
  */
 class KnowledgeDetailViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _knowledgeItem = MutableLiveData<KnowledgeItem?>()
     val knowledgeItem: LiveData<KnowledgeItem?> = _knowledgeItem
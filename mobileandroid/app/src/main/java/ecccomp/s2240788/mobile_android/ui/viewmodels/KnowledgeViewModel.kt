@@ -4,9 +4,33 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.knowledge.KnowledgeSearchIndex
+import ecccomp.s2240788.mobile_android.data.knowledge.KnowledgeSearchResult
 import ecccomp.s2240788.mobile_android.data.models.*
+import ecccomp.s2240788.mobile_android.data.repository.KnowledgePagingSource
+import ecccomp.s2240788.mobile_android.data.repository.KnowledgeQuery
+import ecccomp.s2240788.mobile_android.data.result.SyncResult
+import ecccomp.s2240788.mobile_android.data.sync.SyncEngine
+import ecccomp.s2240788.mobile_android.data.sync.SyncEntity
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.mapLatest
 import kotlinx.coroutines.launch
 
 /**
@@ -15,9 +39,11 @@ import kotlinx.coroutines.launch
  */
 class KnowledgeViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    companion object {
+        private const val SEARCH_DEBOUNCE_MS = 300L
+    }
+
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _knowledgeItems = MutableLiveData<List<KnowledgeItem>>()
     val knowledgeItems: LiveData<List<KnowledgeItem>> = _knowledgeItems
@@ -70,10 +96,143 @@ class KnowledgeViewModel : ViewModel() {
     private var currentLearningPathId: Int? = null  // null = all paths
     private var currentCategoryId: Int? = null  // null = all categories
 
+    // 全件リストの検索（setQuery）。入力が止まってから端末の全文検索を行い、結果はapplyFilterAndSearchで使う
+    private val searchText = MutableStateFlow("")
+    private var searchResult: KnowledgeSearchResult? = null
+
+    init {
+        collectSearchResults()
+    }
+
     enum class FilterType {
         ALL, NOTES, CODE, EXERCISES, LINKS, ATTACHMENTS, FAVORITES, ARCHIVED, DUE_REVIEW
     }
 
+    // ==================== Paged list (server-side filter/search) ====================
+
+    // フォルダ条件（即時反映）と検索文字列（デバウンス）を分けて保持
+    private val pagedFolderQuery = MutableStateFlow(KnowledgeQuery(uncategorized = true))
+    private val pagedSearchText = MutableStateFlow("")
+    private var currentPagingSource: KnowledgePagingSource? = null
+
+    // 端末の検索索引（同期キャッシュ）が更新された回数。検索中の結果を作り直すために使う
+    private val searchIndexVersion = MutableStateFlow(0)
+
+    /**
+     * ページング済みの知識アイテム
+     * 検索中はフォルダ条件を無視して全体検索（端末の索引を優先）、それ以外は現在のフォルダ内のアイテム
+     */
+    @OptIn(FlowPreview::class, ExperimentalCoroutinesApi::class)
+    val pagedItems: Flow<PagingData<KnowledgeItem>> = combine(
+        pagedFolderQuery,
+        pagedSearchText.debounce(SEARCH_DEBOUNCE_MS).distinctUntilChanged(),
+        searchIndexVersion
+    ) { folderQuery, search, indexVersion ->
+        if (search.isNotBlank()) KnowledgeQuery(search = search.trim()) to indexVersion else folderQuery to 0
+    }
+        .distinctUntilChanged()
+        .flatMapLatest { (query, _) ->
+            if (query.search != null) searchPages(query) else serverPages(query)
+        }
+        .cachedIn(viewModelScope)
+
+    private fun serverPages(query: KnowledgeQuery): Flow<PagingData<KnowledgeItem>> =
+        Pager(
+            config = PagingConfig(
+                pageSize = KnowledgePagingSource.PAGE_SIZE,
+                initialLoadSize = KnowledgePagingSource.PAGE_SIZE,
+                enablePlaceholders = false
+            ),
+            pagingSourceFactory = {
+                KnowledgePagingSource(apiService, query).also { currentPagingSource = it }
+            }
+        ).flow
+
+    /**
+     * 全体検索
+     * 同期キャッシュのアイテムを端末の全文検索で絞り込み、一致度の高い順に1ページで返す
+     * キャッシュがまだない（初回同期前）か索引が使えない場合はサーバーの検索（ページング）を使う
+     */
+    private fun searchPages(query: KnowledgeQuery): Flow<PagingData<KnowledgeItem>> = flow {
+        val local = searchLocal(query.search.orEmpty())
+        if (local != null) {
+            currentPagingSource = null
+            emit(PagingData.from(local))
+        } else {
+            emitAll(serverPages(query))
+        }
+    }
+
+    private suspend fun searchLocal(search: String): List<KnowledgeItem>? {
+        return try {
+            // サーバーの一覧と同じく、アーカイブ済みは検索対象にしない
+            val cached = SyncEngine.get().readRecords(SyncEntity.KNOWLEDGE, KnowledgeItem::class.java)
+                .filter { !it.is_archived }
+            if (cached.isEmpty()) return null
+            KnowledgeSearchIndex.get().search(search, cached).apply(cached)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            android.util.Log.e("KnowledgeViewModel", "Local search failed, using server search", e)
+            null
+        }
+    }
+
+    /**
+     * 知識アイテムを差分同期して端末の検索索引を更新（画面を開いた時・戻った時に呼ぶ）
+     * 変更があれば検索中の結果を作り直す
+     */
+    fun syncSearchIndex() {
+        viewModelScope.launch {
+            val result = SyncEngine.get().sync(setOf(SyncEntity.KNOWLEDGE))
+            if (result is SyncResult.Success && (result.data.changedCounts[SyncEntity.KNOWLEDGE] ?: 0) > 0) {
+                searchIndexVersion.value++
+            } else if (result is SyncResult.Error) {
+                android.util.Log.w("KnowledgeViewModel", "Knowledge sync failed: ${result.message}")
+            }
+        }
+    }
+
+    /**
+     * ページング対象のフォルダを設定（null = ルート: カテゴリなしのアイテム）
+     */
+    fun setPagedFolder(categoryId: Int?) {
+        pagedFolderQuery.value = if (categoryId != null) {
+            KnowledgeQuery(categoryId = categoryId)
+        } else {
+            KnowledgeQuery(uncategorized = true)
+        }
+    }
+
+    /**
+     * ページング一覧の検索文字列を設定（端末の索引で検索。同期前はサーバー側で検索）
+     */
+    fun setPagedSearch(query: String) {
+        pagedSearchText.value = query
+    }
+
+    /**
+     * ページング一覧を再読み込み
+     */
+    fun refreshPagedItems() {
+        currentPagingSource?.invalidate()
+    }
+
+    /**
+     * 更新系の操作後にアイテム一覧を再取得
+     * ページング一覧は再読み込み、全件リストは読み込み済みの画面でのみ再取得
+     */
+    private fun reloadItemsAfterMutation() {
+        refreshPagedItems()
+        // 端末の索引で検索中なら、同期して結果に反映する
+        if (pagedSearchText.value.isNotBlank()) {
+            syncSearchIndex()
+        }
+        if (_knowledgeItems.value != null) {
+            loadKnowledgeItems()
+        }
+    }
+
     /**
      * 知識アイテムを取得
      */
@@ -100,14 +259,11 @@ class KnowledgeViewModel : ViewModel() {
 
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
-                    android.util.Log.d("KnowledgeViewModel", "API Response: success=${apiResponse?.success}, data type=${apiResponse?.data?.javaClass?.simpleName}")
+                    android.util.Log.d("KnowledgeViewModel", "API Response: success=${apiResponse?.success}, total=${apiResponse?.data?.total}")
 
                     if (apiResponse?.success == true) {
-                        val items = parseItemsFromResponse(apiResponse.data)
+                        val items = apiResponse.data?.items.orEmpty()
                         android.util.Log.d("KnowledgeViewModel", "Parsed ${items.size} items")
-                        items.forEachIndexed { index, item ->
-                            android.util.Log.d("KnowledgeViewModel", "Item $index: id=${item.id}, title=${item.title}, type=${item.item_type}")
-                        }
                         _knowledgeItems.postValue(items)
                         applyFilterAndSearch()
                     } else {
@@ -131,62 +287,6 @@ class KnowledgeViewModel : ViewModel() {
         }
     }
 
-    /**
-     * Parse Items from API Response
-     */
-    private fun parseItemsFromResponse(data: Any?): List<KnowledgeItem> {
-        return try {
-            android.util.Log.d("KnowledgeViewModel", "parseItemsFromResponse - data class: ${data?.javaClass?.name}")
-            android.util.Log.d("KnowledgeViewModel", "parseItemsFromResponse - data: $data")
-
-            when (data) {
-                is List<*> -> {
-                    android.util.Log.d("KnowledgeViewModel", "Data is List with ${(data as List<*>).size} items")
-                    val items = data.mapNotNull { item ->
-                        android.util.Log.d("KnowledgeViewModel", "List item class: ${item?.javaClass?.name}")
-                        android.util.Log.d("KnowledgeViewModel", "List item: $item")
-
-                        // Check if it's already a KnowledgeItem
-                        when (item) {
-                            is KnowledgeItem -> item
-                            is Map<*, *> -> {
-                                android.util.Log.d("KnowledgeViewModel", "Item is Map, attempting to parse as KnowledgeItem")
-                                // Try to parse map as KnowledgeItem using Gson
-                                try {
-                                    val gson = com.google.gson.Gson()
-                                    val json = gson.toJson(item)
-                                    gson.fromJson(json, KnowledgeItem::class.java)
-                                } catch (e: Exception) {
-                                    android.util.Log.e("KnowledgeViewModel", "Failed to parse map item", e)
-                                    null
-                                }
-                            }
-                            else -> {
-                                android.util.Log.w("KnowledgeViewModel", "Unknown item type, skipping")
-                                null
-                            }
-                        }
-                    }
-                    android.util.Log.d("KnowledgeViewModel", "Parsed ${items.size} items from list")
-                    items
-                }
-                is Map<*, *> -> {
-                    android.util.Log.d("KnowledgeViewModel", "Data is Map with keys: ${data.keys}")
-                    // Handle paginated response
-                    val dataList = data["data"] as? List<*>
-                    dataList?.mapNotNull { it as? KnowledgeItem } ?: emptyList()
-                }
-                else -> {
-                    android.util.Log.w("KnowledgeViewModel", "Unknown data type, returning empty list")
-                    emptyList()
-                }
-            }
-        } catch (e: Exception) {
-            android.util.Log.e("KnowledgeViewModel", "Exception in parseItemsFromResponse", e)
-            emptyList()
-        }
-    }
-
     /**
      * 知識アイテムを作成
      */
@@ -199,7 +299,7 @@ class KnowledgeViewModel : ViewModel() {
                 val response = apiService.createKnowledgeItem(request)
                 
                 if (response.isSuccessful) {
-                    loadKnowledgeItems() // Reload list
+                    reloadItemsAfterMutation() // Reload list
                     onSuccess()
                 } else {
                     _error.value = "Failed to create item: ${response.message()}"
@@ -224,7 +324,7 @@ class KnowledgeViewModel : ViewModel() {
                 val response = apiService.updateKnowledgeItem(id, request)
                 
                 if (response.isSuccessful) {
-                    loadKnowledgeItems() // Reload list
+                    reloadItemsAfterMutation() // Reload list
                     onSuccess()
                 } else {
                     _error.value = "Failed to update item: ${response.message()}"
@@ -247,10 +347,45 @@ class KnowledgeViewModel : ViewModel() {
 
     /**
      * 検索クエリを設定
+     * 検索は入力が止まってから行う（結果はcollectSearchResultsからfilteredItemsに反映）
      */
     fun setQuery(query: String) {
         currentQuery = query
-        applyFilterAndSearch()
+        searchText.value = query
+    }
+
+    /**
+     * 全件リストの検索
+     * - 入力中はデバウンスし、空にした時はすぐに全件表示に戻す
+     * - 新しい入力があれば実行中の検索（サーバーへの問い合わせを含む）は取り消す
+     */
+    @OptIn(FlowPreview::class, ExperimentalCoroutinesApi::class)
+    private fun collectSearchResults() = viewModelScope.launch {
+        searchText
+            .debounce { if (it.isBlank()) 0L else SEARCH_DEBOUNCE_MS }
+            .map { it.trim() }
+            .distinctUntilChanged()
+            .mapLatest { query ->
+                if (query.isEmpty()) {
+                    null
+                } else {
+                    try {
+                        KnowledgeSearchIndex.get().search(query, _knowledgeItems.value.orEmpty())
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Exception) {
+                        android.util.Log.e("KnowledgeViewModel", "Error searching knowledge items", e)
+                        // 索引が使えない場合は全件を部分一致で絞り込む
+                        KnowledgeSearchResult(query, emptyMap(), emptySet(), emptySet())
+                    }
+                }
+            }
+            .collect { result ->
+                // 検索していない状態のまま（起動直後の空文字）なら何もしない
+                if (result == null && searchResult == null) return@collect
+                searchResult = result
+                applyFilterAndSearch()
+            }
     }
 
     /**
@@ -290,14 +425,11 @@ class KnowledgeViewModel : ViewModel() {
         }
         android.util.Log.d("KnowledgeViewModel", "After type filter (${currentFilter}): ${filtered.size} items")
 
-        // Apply search
-        if (currentQuery.isNotEmpty()) {
-            filtered = filtered.filter { item ->
-                item.title.contains(currentQuery, ignoreCase = true) ||
-                item.content?.contains(currentQuery, ignoreCase = true) == true ||
-                item.tags?.any { it.contains(currentQuery, ignoreCase = true) } == true
-            }
-            android.util.Log.d("KnowledgeViewModel", "After search filter ('$currentQuery'): ${filtered.size} items")
+        // Apply search（全文検索の結果で絞り込み、一致度の高い順に並べる）
+        val result = searchResult
+        if (currentQuery.isNotBlank() && result != null) {
+            filtered = result.apply(filtered)
+            android.util.Log.d("KnowledgeViewModel", "After search filter ('${result.query}'): ${filtered.size} items")
         }
 
         android.util.Log.d("KnowledgeViewModel", "Final filtered items: ${filtered.size}")
@@ -315,7 +447,7 @@ class KnowledgeViewModel : ViewModel() {
                 val response = apiService.toggleKnowledgeFavorite(itemId)
                 
                 if (response.isSuccessful) {
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                     onSuccess()
                 } else {
                     _error.value = "お気に入りの更新に失敗しました: ${response.message()}"
@@ -337,7 +469,7 @@ class KnowledgeViewModel : ViewModel() {
                 val response = apiService.toggleKnowledgeArchive(itemId)
                 
                 if (response.isSuccessful) {
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                     onSuccess()
                 } else {
                     _error.value = "アーカイブの更新に失敗しました: ${response.message()}"
@@ -360,7 +492,7 @@ class KnowledgeViewModel : ViewModel() {
                 val response = apiService.deleteKnowledgeItem(itemId)
                 
                 if (response.isSuccessful) {
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                     onSuccess()
                 } else {
                     _error.value = "削除に失敗しました: ${response.message()}"
@@ -390,7 +522,7 @@ class KnowledgeViewModel : ViewModel() {
                 if (response.isSuccessful) {
                     // 復習項目リストを更新
                     loadDueReviewItems()
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                     _successMessage.value = "復習済みにマークしました"
                     onSuccess()
                 } else {
@@ -443,7 +575,7 @@ class KnowledgeViewModel : ViewModel() {
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true) {
-                        val allItems = parseItemsFromResponse(apiResponse.data)
+                        val allItems = apiResponse.data?.items.orEmpty()
                         val taskItems = allItems.filter { it.source_task_id == taskId }
                         _knowledgeItems.postValue(taskItems)
                         applyFilterAndSearch()
@@ -538,7 +670,7 @@ class KnowledgeViewModel : ViewModel() {
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true) {
-                        val allItems = parseItemsFromResponse(apiResponse.data)
+                        val allItems = apiResponse.data?.items.orEmpty()
                         // For now, just show all items
                         _knowledgeItems.postValue(allItems)
                         applyFilterAndSearch()
@@ -581,7 +713,7 @@ class KnowledgeViewModel : ViewModel() {
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true) {
-                        val allItems = parseItemsFromResponse(apiResponse.data)
+                        val allItems = apiResponse.data?.items.orEmpty()
                         val filteredItems = allItems.filter { item ->
                             item.source_task_id != null && taskIds.contains(item.source_task_id)
                         }
@@ -722,7 +854,7 @@ class KnowledgeViewModel : ViewModel() {
                 if (response.isSuccessful && response.body()?.success == true) {
                     _quickCaptureResponse.postValue(response.body()?.data)
                     _successMessage.postValue("保存しました")
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                 } else {
                     _error.value = "保存に失敗しました"
                 }
@@ -796,7 +928,7 @@ class KnowledgeViewModel : ViewModel() {
 
                 if (response.isSuccessful && response.body()?.success == true) {
                     _successMessage.postValue("${response.body()?.data?.affected_count}件にタグを追加しました")
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                 } else {
                     _error.value = "タグ追加に失敗しました"
                 }
@@ -820,7 +952,7 @@ class KnowledgeViewModel : ViewModel() {
 
                 if (response.isSuccessful && response.body()?.success == true) {
                     _successMessage.postValue("${response.body()?.data?.affected_count}件を移動しました")
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                 } else {
                     _error.value = "移動に失敗しました"
                 }
@@ -844,7 +976,7 @@ class KnowledgeViewModel : ViewModel() {
 
                 if (response.isSuccessful && response.body()?.success == true) {
                     _successMessage.postValue("${response.body()?.data?.affected_count}件を削除しました")
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                 } else {
                     _error.value = "削除に失敗しました"
                 }
@@ -868,7 +1000,7 @@ class KnowledgeViewModel : ViewModel() {
 
                 if (response.isSuccessful && response.body()?.success == true) {
                     _successMessage.postValue("複製しました")
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                     onSuccess()
                 } else {
                     _error.value = "複製に失敗しました"
@@ -1004,7 +1136,7 @@ class KnowledgeViewModel : ViewModel() {
                     _successMessage.postValue("Folder deleted successfully")
                     // Reload both categories and items
                     loadCategories()
-                    loadKnowledgeItems()
+                    reloadItemsAfterMutation()
                 } else {
                     val errorMsg = response.body()?.message ?: "Failed to delete folder"
                     _error.value = errorMsg
@@ -11,9 +11,7 @@ import ecccomp.s2240788.mobile_android.utils.TokenManager
 import kotlinx.coroutines.launch
 
 class LoginViewModel : ViewModel() {
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _isLoading = MutableLiveData<Boolean>()
     val isLoading: LiveData<Boolean> = _isLoading
@@ -55,6 +53,7 @@ class LoginViewModel : ViewModel() {
                     if (authResponse != null && authResponse.token.isNotEmpty()) {
                         // Tokenを保存
                         TokenManager.saveToken(authResponse.token)
+                        TokenManager.saveCachedUser(authResponse.user)
                         _loginSuccess.value = true
                     } else {
                         _error.value = "ログインに失敗しました"
@@ -5,15 +5,16 @@ import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import ecccomp.s2240788.mobile_android.utils.TokenManager
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
 class LogoutViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _isLoading = MutableLiveData<Boolean>()
     val isLoading: LiveData<Boolean> = _isLoading
@@ -52,11 +53,19 @@ class LogoutViewModel : ViewModel() {
                 TokenManager.clearToken()
                 _logoutSuccess.value = true
             } finally {
+                // ローカルキャッシュも削除（別ユーザーでログインした時に表示されないように）
+                clearLocalCache()
                 _isLoading.value = false
             }
         }
     }
 
+    private suspend fun clearLocalCache() {
+        withContext(Dispatchers.IO) {
+            TodoDatabase.clearUserData()
+        }
+    }
+
     fun clearError() {
         _error.value = null
     }
@@ -5,9 +5,15 @@ import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.CoalescedApi
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
 import ecccomp.s2240788.mobile_android.data.models.Task
 import ecccomp.s2240788.mobile_android.data.models.StatsDashboard
 import ecccomp.s2240788.mobile_android.data.models.UserStats
+import ecccomp.s2240788.mobile_android.data.repository.TaskRepository
+import ecccomp.s2240788.mobile_android.data.result.TaskResult
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
+import ecccomp.s2240788.mobile_android.data.sync.SyncEngine
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.async
@@ -24,8 +30,12 @@ data class TodayStats(
 
 class MainViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
+    private val apiService: ApiService = NetworkModule.apiService
+
+    private val taskRepository = TaskRepository(
+        TodoDatabase.get().taskDao(),
+        SyncEngine.get(),
+        MutationOutbox.get()
     )
 
     private val _isLoading = MutableLiveData<Boolean>()
@@ -57,26 +67,28 @@ class MainViewModel : ViewModel() {
 
     fun getTasks() {
         viewModelScope.launch {
-            try {
+            // 1. ローカルキャッシュから即時表示（ネットワークを待たない）
+            val cachedTasks = taskRepository.getCachedTasks()
+            if (cachedTasks.isNotEmpty()) {
+                publishTasks(cachedTasks, _studySessions.value ?: emptyList())
+            } else {
                 _isLoading.value = true
+            }
 
+            // 2. バックグラウンドでサーバーと同期し、結果で上書き
+            try {
                 // Fetch both tasks and study sessions in parallel
-                val tasksDeferred = async { apiService.getTasks() }
-                val studySessionsDeferred = async { apiService.getTodaySessions() }
-
-                val tasksResponse = tasksDeferred.await()
+                val studySessionsDeferred = async { CoalescedApi.getTodaySessions() }
+                val tasksResult = taskRepository.refreshTasks()
                 val studySessionsResponse = studySessionsDeferred.await()
 
-                // Process tasks
-                val tasks = if (tasksResponse.isSuccessful) {
-                    val apiResponse = tasksResponse.body()
-                    if (apiResponse?.success == true) {
-                        extractTasksFromResponse(apiResponse.data)
-                    } else {
-                        emptyList()
-                    }
-                } else {
-                    emptyList()
+                // Process tasks (fall back to the cached snapshot when offline)
+                val tasks = when (tasksResult) {
+                    is TaskResult.Success -> tasksResult.data
+                    else -> cachedTasks
+                }
+                if (tasksResult is TaskResult.Error && cachedTasks.isEmpty()) {
+                    _error.value = tasksResult.message
                 }
 
                 // Process study sessions
@@ -92,20 +104,13 @@ class MainViewModel : ViewModel() {
                 }
 
                 _studySessions.postValue(studySessions)
-
-                // Convert study sessions to Task objects and merge
-                val studySessionTasks = studySessions.map { convertStudySessionToTask(it) }
-                val allTasks = tasks + studySessionTasks
-
-                // Sort and display
-                val sortedTasks = sortTasksForMainDisplay(allTasks)
-                _tasks.postValue(sortedTasks)
-
-                android.util.Log.d("MainViewModel", "Tasks: ${tasks.size}, Study sessions: ${studySessions.size}, Total: ${allTasks.size}, Sorted: ${sortedTasks.size}")
+                publishTasks(tasks, studySessions)
 
             } catch (e: Exception) {
-                _error.value = "Network error: ${e.message}"
-                _tasks.postValue(emptyList())
+                if (cachedTasks.isEmpty()) {
+                    _error.value = "Network error: ${e.message}"
+                    _tasks.postValue(emptyList())
+                }
                 android.util.Log.e("MainViewModel", "Error loading tasks", e)
             } finally {
                 _isLoading.value = false
@@ -113,6 +118,24 @@ class MainViewModel : ViewModel() {
         }
     }
 
+    /**
+     * Merge tasks with study sessions, sort and display
+     */
+    private fun publishTasks(
+        tasks: List<Task>,
+        studySessions: List<ecccomp.s2240788.mobile_android.data.models.StudyScheduleWithPath>
+    ) {
+        // Convert study sessions to Task objects and merge
+        val studySessionTasks = studySessions.map { convertStudySessionToTask(it) }
+        val allTasks = tasks + studySessionTasks
+
+        // Sort and display
+        val sortedTasks = sortTasksForMainDisplay(allTasks)
+        _tasks.postValue(sortedTasks)
+
+        android.util.Log.d("MainViewModel", "Tasks: ${tasks.size}, Study sessions: ${studySessions.size}, Total: ${allTasks.size}, Sorted: ${sortedTasks.size}")
+    }
+
     /**
      * Convert StudyScheduleWithPath to Task for unified display
      */
@@ -143,33 +166,6 @@ class MainViewModel : ViewModel() {
         )
     }
 
-    private fun extractTasksFromResponse(data: Any?): List<Task> {
-        return try {
-            if (data is Map<*, *>) {
-                val tasksData = data["data"] as? List<*>
-                tasksData?.mapNotNull { taskMap ->
-                    if (taskMap is Map<*, *>) {
-                        convertMapToTask(taskMap)
-                    } else {
-                        null
-                    }
-                } ?: emptyList()
-            } else if (data is List<*>) {
-                data.mapNotNull { taskMap ->
-                    if (taskMap is Map<*, *>) {
-                        convertMapToTask(taskMap)
-                    } else {
-                        null
-                    }
-                }
-            } else {
-                emptyList()
-            }
-        } catch (e: Exception) {
-            emptyList()
-        }
-    }
-
     /**
      * Smart task sorting for main display:
      * 1. Prioritize user-created tasks (learning_milestone_id == null)
@@ -201,56 +197,6 @@ class MainViewModel : ViewModel() {
             .take(3) // Take top 3
     }
 
-    private fun convertMapToTask(map: Map<*, *>): Task? {
-        return try {
-            // Parse subtasks
-            val subtasksList = (map["subtasks"] as? List<*>)?.mapNotNull { subtaskMap ->
-                if (subtaskMap is Map<*, *>) {
-                    convertMapToSubtask(subtaskMap)
-                } else null
-            }
-
-            Task(
-                id = (map["id"] as? Number)?.toInt() ?: 0,
-                title = map["title"] as? String ?: "",
-                category = map["category"] as? String,
-                description = map["description"] as? String,
-                status = map["status"] as? String ?: "pending",
-                priority = (map["priority"] as? Number)?.toInt() ?: 3,
-                energy_level = map["energy_level"] as? String ?: "medium",
-                estimated_minutes = (map["estimated_minutes"] as? Number)?.toInt(),
-                deadline = map["deadline"] as? String,
-                scheduled_time = map["scheduled_time"] as? String,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: "",
-                user_id = (map["user_id"] as? Number)?.toInt() ?: 0,
-                project_id = (map["project_id"] as? Number)?.toInt(),
-                learning_milestone_id = (map["learning_milestone_id"] as? Number)?.toInt(),
-                ai_breakdown_enabled = map["ai_breakdown_enabled"] as? Boolean ?: false,
-                subtasks = subtasksList
-            )
-        } catch (e: Exception) {
-            null
-        }
-    }
-
-    private fun convertMapToSubtask(map: Map<*, *>): ecccomp.s2240788.mobile_android.data.models.Subtask? {
-        return try {
-            ecccomp.s2240788.mobile_android.data.models.Subtask(
-                id = (map["id"] as? Number)?.toInt() ?: 0,
-                task_id = (map["task_id"] as? Number)?.toInt() ?: 0,
-                title = map["title"] as? String ?: "",
-                is_completed = map["is_completed"] as? Boolean ?: false,
-                estimated_minutes = (map["estimated_minutes"] as? Number)?.toInt(),
-                sort_order = (map["sort_order"] as? Number)?.toInt() ?: 0,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: ""
-            )
-        } catch (e: Exception) {
-            null
-        }
-    }
-
     /**
      * Start a task (change status to in_progress)
      */
@@ -313,6 +259,7 @@ class MainViewModel : ViewModel() {
                     if (apiResponse?.success == true) {
                         _successMessage.postValue("タスクを削除しました")
                         android.util.Log.d("MainViewModel", "Task deleted: $taskId")
+                        taskRepository.deleteLocally(taskId)
 
                         // Refresh task list and progress
                         getTasks()
@@ -346,36 +293,39 @@ class MainViewModel : ViewModel() {
 
     /**
      * Complete a task
+     * ローカルに即時反映し、送信キュー経由でサーバーへ送る（オフラインでも失われない）
      */
     fun completeTask(taskId: Int) {
         viewModelScope.launch {
             try {
                 _isLoading.value = true
 
-                val response = apiService.completeTask(taskId)
+                val result = MutationOutbox.get().completeTask(taskId).result
 
-                if (response.isSuccessful) {
-                    val apiResponse = response.body()
-                    if (apiResponse?.success == true) {
+                when {
+                    result == null -> {
+                        _successMessage.postValue("タスクを完了しました（オンライン時に同期されます）")
+                        android.util.Log.d("MainViewModel", "Task completion queued: $taskId")
+                    }
+                    result.success -> {
                         _successMessage.postValue("タスクを完了しました！")
                         android.util.Log.d("MainViewModel", "Task completed: $taskId")
-
-                        // Refresh task list and progress
-                        getTasks()
-                        getTodayProgress()
-                    } else {
-                        _error.postValue(apiResponse?.message ?: "タスクの完了に失敗しました")
                     }
-                } else {
-                    val errorMessage = when (response.code()) {
-                        404 -> "タスクが見つかりません"
-                        422 -> "このタスクは完了できません"
-                        else -> "タスクの完了に失敗しました: ${response.message()}"
+                    else -> {
+                        val errorMessage = when (result.status) {
+                            404 -> "タスクが見つかりません"
+                            422 -> "このタスクは完了できません"
+                            else -> result.message ?: "タスクの完了に失敗しました"
+                        }
+                        _error.postValue(errorMessage)
                     }
-                    _error.postValue(errorMessage)
                 }
+
+                // Refresh task list and progress
+                getTasks()
+                getTodayProgress()
             } catch (e: Exception) {
-                _error.postValue("ネットワークエラー: ${e.message}")
+                _error.postValue("タスクの完了に失敗しました: ${e.message}")
                 android.util.Log.e("MainViewModel", "Error completing task", e)
             } finally {
                 _isLoading.value = false
@@ -12,9 +12,7 @@ import kotlinx.coroutines.launch
 
 class NotificationViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
     private val repository = NotificationRepository(apiService)
 
     private val _isLoading = MutableLiveData<Boolean>()
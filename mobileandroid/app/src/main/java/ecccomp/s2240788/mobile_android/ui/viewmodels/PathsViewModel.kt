@@ -17,9 +17,7 @@ import kotlinx.coroutines.launch
  */
 class PathsViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _allPaths = MutableLiveData<List<LearningPath>>()
     val allPaths: LiveData<List<LearningPath>> = _allPaths
@@ -69,7 +67,7 @@ class PathsViewModel : ViewModel() {
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true) {
-                        val paths = parsePathsFromResponse(apiResponse.data)
+                        val paths = apiResponse.data.orEmpty()
                         _allPaths.value = paths
                         updateStatistics(paths)
                         applyFilter()
@@ -168,74 +166,6 @@ class PathsViewModel : ViewModel() {
         }
     }
 
-    /**
-     * API レスポンスからパースする
-     */
-    private fun parsePathsFromResponse(data: Any?): List<LearningPath> {
-        return try {
-            when (data) {
-                is List<*> -> data.mapNotNull { item ->
-                    when (item) {
-                        is Map<*, *> -> convertMapToPath(item)
-                        is LearningPath -> item
-                        else -> null
-                    }
-                }
-                else -> emptyList()
-            }
-        } catch (e: Exception) {
-            emptyList()
-        }
-    }
-
-    /**
-     * Parse Int safely from Any (handles both Number and String)
-     */
-    private fun parseIntSafe(value: Any?): Int {
-        return when (value) {
-            is Number -> value.toInt()
-            is String -> value.toDoubleOrNull()?.toInt() ?: 0
-            else -> 0
-        }
-    }
-
-    /**
-     * Parse Double safely from Any (handles both Number and String)
-     */
-    private fun parseDoubleSafe(value: Any?): Double {
-        return when (value) {
-            is Number -> value.toDouble()
-            is String -> value.toDoubleOrNull() ?: 0.0
-            else -> 0.0
-        }
-    }
-
-    /**
-     * Map を LearningPath に変換
-     */
-    private fun convertMapToPath(map: Map<*, *>): LearningPath? {
-        return try {
-            LearningPath(
-                id = parseIntSafe(map["id"]),
-                user_id = parseIntSafe(map["user_id"]),
-                title = map["title"] as? String ?: "",
-                description = map["description"] as? String,
-                category = map["category"] as? String,
-                status = map["status"] as? String ?: "active",
-                progress_percentage = parseDoubleSafe(map["progress_percentage"]),
-                total_milestones = parseIntSafe(map["total_milestones"]),
-                completed_milestones = parseIntSafe(map["completed_milestones"]),
-                target_date = map["target_date"] as? String,
-                icon = map["icon"] as? String,
-                color = map["color"] as? String,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: ""
-            )
-        } catch (e: Exception) {
-            null
-        }
-    }
-
     /**
      * Paths を再読み込み
      */
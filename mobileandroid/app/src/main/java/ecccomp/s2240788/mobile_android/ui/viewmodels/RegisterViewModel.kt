@@ -4,7 +4,6 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.google.gson.Gson
 import ecccomp.s2240788.mobile_android.data.api.ApiService
 import ecccomp.s2240788.mobile_android.data.models.RegisterRequest
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
@@ -15,9 +14,7 @@ import java.io.IOException
 
 class RegisterViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _isLoading = MutableLiveData<Boolean>()
     val isLoading: LiveData<Boolean> = _isLoading
@@ -73,6 +70,7 @@ class RegisterViewModel : ViewModel() {
                     if (authResponse != null && authResponse.token.isNotEmpty()) {
                         // Tokenを保存
                         TokenManager.saveToken(authResponse.token)
+                        TokenManager.saveCachedUser(authResponse.user)
                         _registerSuccess.value = true
                     } else {
                         _error.value = "登録に失敗しました"
@@ -108,7 +106,7 @@ class RegisterViewModel : ViewModel() {
                 // Laravelの422エラーは通常 { "message": "...", "errors": {...} } の形式
                 // ここでは簡単にmessageを表示
                 if (errorString.contains("\"message\"")) {
-                    val gson = Gson()
+                    val gson = NetworkModule.gson
                     val jsonObject = gson.fromJson(errorString, Map::class.java)
                     jsonObject["message"] as? String ?: "入力データが無効です"
                 } else {
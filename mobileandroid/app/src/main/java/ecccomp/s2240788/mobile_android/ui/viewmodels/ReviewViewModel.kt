@@ -0,0 +1,232 @@
+package ecccomp.s2240788.mobile_android.ui.viewmodels
+
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MutableLiveData
+import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import ecccomp.s2240788.mobile_android.data.local.toModel
+import ecccomp.s2240788.mobile_android.data.models.KnowledgeItem
+import ecccomp.s2240788.mobile_android.data.review.ReviewQueue
+import ecccomp.s2240788.mobile_android.data.review.SrsScheduler
+import ecccomp.s2240788.mobile_android.utils.SyntaxHighlighter
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * 表示用に組み立て済みのカード
+ * @param answerCode exerciseの解答がコードの場合のハイライト済みテキスト
+ * @param contentCode code_snippetのハイライト済みテキスト
+ */
+data class RenderedReviewCard(
+    val item: KnowledgeItem,
+    val answerCode: CharSequence?,
+    val contentCode: CharSequence?
+)
+
+/**
+ * ReviewViewModel
+ * 復習画面のビジネスロジック管理
+ * - カードはReviewQueue（Room）から読むのでオフラインでも即表示
+ * - サーバーからの先読みはバックグラウンドで行い、まだ採点していなければ最新のカードに差し替える
+ * - 採点はローカルに記録してすぐ次のカードへ（送信はReviewQueueがまとめて行う）
+ * - 次のPRERENDER_COUNT枚のコードハイライトを先に組み立てておく
+ */
+class ReviewViewModel : ViewModel() {
+
+    companion object {
+        private const val PRERENDER_COUNT = 5
+
+        private val CODE_BLOCK_REGEX = Regex("```(\\w+)?\\s*\\n([\\s\\S]*?)\\n```")
+
+        private val LANGUAGE_KEYWORDS = mapOf(
+            "python" to listOf("def ", "import ", "from ", "class ", "__init__", "print("),
+            "javascript" to listOf("const ", "let ", "var ", "function ", "=>", "console.log"),
+            "java" to listOf("public class", "private ", "protected ", "System.out", "public static"),
+            "php" to listOf("<?php", "namespace ", "use ", "::", "$"),
+            "go" to listOf("func ", "package ", "import ", "type ", "var "),
+            "cpp" to listOf("#include", "std::", "cout", "cin", "using namespace"),
+            "sql" to listOf("SELECT ", "INSERT ", "UPDATE ", "DELETE ", "FROM ", "WHERE "),
+            "bash" to listOf("#!/bin/bash", "#!/bin/sh", "echo ", "if [", "for "),
+            "html" to listOf("<!DOCTYPE", "<html", "<div", "<script", "<style"),
+            "css" to listOf("@media", "@keyframes", "margin:", "padding:", "background:")
+        )
+    }
+
+    private val reviewQueue = ReviewQueue.get()
+
+    private val _cards = MutableLiveData<List<KnowledgeItem>>()
+    val cards: LiveData<List<KnowledgeItem>> = _cards
+
+    private val _isLoading = MutableLiveData<Boolean>()
+    val isLoading: LiveData<Boolean> = _isLoading
+
+    private val rendered = ConcurrentHashMap<Int, RenderedReviewCard>()
+
+    // 採点またはスキップを始めたらカードの一覧は差し替えない
+    private var sessionStarted = false
+
+    /**
+     * ローカルのカードを表示してから、サーバーから先読み
+     */
+    fun loadCards() {
+        viewModelScope.launch {
+            val local = reviewQueue.dueCards().map { it.toModel() }
+            if (local.isNotEmpty()) {
+                publish(local)
+            } else {
+                // 初回などローカルが空の場合だけローディングを表示
+                _isLoading.value = true
+            }
+
+            val refreshed = reviewQueue.refresh()
+            _isLoading.value = false
+
+            if (refreshed && !sessionStarted) {
+                publish(reviewQueue.dueCards().map { it.toModel() })
+            } else if (_cards.value == null) {
+                publish(local)
+            }
+        }
+    }
+
+    private fun publish(items: List<KnowledgeItem>) {
+        _cards.value = items
+        prerender(items, 0)
+    }
+
+    /**
+     * 採点を記録（待たずに次のカードへ進んでよい）
+     */
+    fun grade(item: KnowledgeItem, quality: String) {
+        sessionStarted = true
+        viewModelScope.launch {
+            reviewQueue.grade(item.id, quality)
+        }
+    }
+
+    fun skip() {
+        sessionStarted = true
+    }
+
+    /**
+     * 現在位置から先のカードを先に組み立てる
+     */
+    fun prerender(items: List<KnowledgeItem>, fromIndex: Int) {
+        val upcoming = items.drop(fromIndex).take(PRERENDER_COUNT).filter { !rendered.containsKey(it.id) }
+        if (upcoming.isEmpty()) return
+        viewModelScope.launch(Dispatchers.Default) {
+            upcoming.forEach { item -> rendered.getOrPut(item.id) { render(item) } }
+        }
+    }
+
+    /**
+     * 表示用のカード（先読み済みならそれを使い、なければその場で組み立てる）
+     */
+    fun renderedCard(item: KnowledgeItem): RenderedReviewCard {
+        return rendered[item.id]?.takeIf { it.item == item } ?: render(item).also { rendered[item.id] = it }
+    }
+
+    /**
+     * 採点ごとの次回までの日数（hard, good, easy）
+     */
+    fun nextIntervals(item: KnowledgeItem): Triple<Int, Int, Int> {
+        val count = item.review_count
+        return Triple(
+            SrsScheduler.grade(count, SrsScheduler.QUALITY_HARD).intervalDays,
+            SrsScheduler.grade(count, SrsScheduler.QUALITY_GOOD).intervalDays,
+            SrsScheduler.grade(count, SrsScheduler.QUALITY_EASY).intervalDays
+        )
+    }
+
+    /**
+     * 送信待ちの採点を送る（画面を離れる時に呼ぶ。結果は待たない）
+     */
+    fun uploadPending() {
+        reviewQueue.scheduleUpload()
+    }
+
+    // ==================== Rendering ====================
+
+    private fun render(item: KnowledgeItem): RenderedReviewCard {
+        return when (item.item_type) {
+            "exercise" -> {
+                val answer = item.answer ?: ""
+                val answerCode = if (isCodeContent(answer)) {
+                    // Extract code from code blocks if present
+                    val (blockLanguage, codeContent) = extractCodeFromBlock(answer)
+                    // Use language from code block, detected language, item's code_language, or default
+                    val language = blockLanguage ?: detectCodeLanguage(codeContent) ?: item.code_language ?: "plaintext"
+                    SyntaxHighlighter.highlight(codeContent, language)
+                } else {
+                    null
+                }
+                RenderedReviewCard(item, answerCode, null)
+            }
+            "code_snippet" -> {
+                val code = item.content ?: ""
+                val contentCode = if (code.isNotEmpty()) {
+                    SyntaxHighlighter.highlight(code, item.code_language ?: "plaintext")
+                } else {
+                    null
+                }
+                RenderedReviewCard(item, null, contentCode)
+            }
+            else -> RenderedReviewCard(item, null, null)
+        }
+    }
+
+    /**
+     * Check if content is code (contains code blocks or code patterns)
+     */
+    private fun isCodeContent(content: String): Boolean {
+        if (content.isEmpty()) return false
+
+        // Check for code blocks (```...```)
+        if (content.contains("```")) {
+            return true
+        }
+
+        // Check for common code patterns
+        val codePatterns = listOf(
+            "def ", "function ", "class ", "import ", "from ",
+            "const ", "let ", "var ", "public ", "private ",
+            "<?php", "package ", "func ", "#include",
+            "SELECT ", "INSERT ", "UPDATE ", "DELETE ",
+            "if (", "for (", "while (", "return ",
+            "->", "::", "=>", "&&", "||"
+        )
+
+        return codePatterns.any { content.contains(it) }
+    }
+
+    /**
+     * Extract code and language from code blocks (```language\ncode\n```)
+     * Returns Pair(language, code)
+     */
+    private fun extractCodeFromBlock(content: String): Pair<String?, String> {
+        // Check for code blocks
+        if (content.contains("```")) {
+            // Try to extract language and code: ```language\ncode\n```
+            val match = CODE_BLOCK_REGEX.find(content)
+            if (match != null) {
+                val language = match.groupValues[1].takeIf { it.isNotEmpty() }
+                val code = match.groupValues[2].trim()
+                return Pair(language, code)
+            }
+        }
+        return Pair(null, content.trim())
+    }
+
+    /**
+     * Detect code language from content
+     */
+    private fun detectCodeLanguage(content: String): String? {
+        for ((lang, keywords) in LANGUAGE_KEYWORDS) {
+            if (keywords.any { content.contains(it, ignoreCase = true) }) {
+                return lang
+            }
+        }
+        return null
+    }
+}
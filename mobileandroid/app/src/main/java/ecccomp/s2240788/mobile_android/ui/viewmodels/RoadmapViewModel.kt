@@ -16,9 +16,7 @@ import kotlinx.coroutines.launch
  */
 class RoadmapViewModel : ViewModel() {
 
-    private val apiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService = NetworkModule.apiService
     private val roadmapRepository = RoadmapRepository(apiService)
 
     // Popular roadmaps
@@ -3,19 +3,10 @@ package ecccomp.s2240788.mobile_android.ui.viewmodels
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
-import androidx.lifecycle.viewModelScope
-import ecccomp.s2240788.mobile_android.data.api.ApiService
-import ecccomp.s2240788.mobile_android.utils.NetworkModule
-import ecccomp.s2240788.mobile_android.utils.TokenManager
-import kotlinx.coroutines.delay
-import kotlinx.coroutines.launch
+import ecccomp.s2240788.mobile_android.utils.SessionManager
 
 class SplashViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
-
     private val _isLoading = MutableLiveData<Boolean>()
     val isLoading: LiveData<Boolean> = _isLoading
 
@@ -26,45 +17,23 @@ class SplashViewModel : ViewModel() {
     val navigateToMain: LiveData<Boolean> = _navigateToMain
 
     /**
-     * 認証状態をチェック
-     * - Tokenが存在する場合、GET /api/userで検証
-     * - 200: MainActivityへ遷移
-     * - 401: Tokenを削除し、LoginActivityへ遷移
-     * - Network error: LoginActivityへ遷移
+     * 認証状態をチェック（ネットワークを待たない楽観的なセッション復元）
+     * - Tokenが存在する場合: すぐにMainActivityへ遷移し、GET /api/userの検証はバックグラウンドで行う
+     *   （401が確定した場合だけResponseInterceptorがログアウトさせる）
+     * - オフライン・タイムアウト: セッションを維持（キャッシュ済みのデータで起動）
+     * - Tokenなし: LoginActivityへ遷移
      */
     fun checkAuthStatus() {
-        viewModelScope.launch {
-            _isLoading.value = true
-
-            // スプラッシュスクリーンを1.5秒表示（UX改善）
-            delay(1500)
-
-            // Tokenが有効かチェック
-            if (TokenManager.isTokenValid()) {
-                try {
-                    // BackendでTokenを検証
-                    val response = apiService.getUser()
+        _isLoading.value = true
 
-                    if (response.isSuccessful) {
-                        // Token有効: MainActivityへ
-                        _navigateToMain.value = true
-                    } else {
-                        // Token無効(401): TokenをクリアしてLoginActivityへ
-                        TokenManager.clearToken()
-                        _navigateToLogin.value = true
-                    }
-                } catch (e: Exception) {
-                    // Network error: LoginActivityへ（オフライン対応は後で実装）
-                    TokenManager.clearToken()
-                    _navigateToLogin.value = true
-                }
-            } else {
-                // Tokenなし: LoginActivityへ
-                _navigateToLogin.value = true
-            }
-
-            _isLoading.value = false
+        if (SessionManager.hasSession()) {
+            SessionManager.validateInBackground()
+            _navigateToMain.value = true
+        } else {
+            _navigateToLogin.value = true
         }
+
+        _isLoading.value = false
     }
 
     fun clearNavigationFlags() {
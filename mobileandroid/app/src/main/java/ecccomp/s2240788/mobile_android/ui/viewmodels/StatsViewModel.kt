@@ -17,9 +17,7 @@ import kotlinx.coroutines.launch
  */
 class StatsViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _stats = MutableLiveData<UserStats?>()
     val stats: LiveData<UserStats?> = _stats
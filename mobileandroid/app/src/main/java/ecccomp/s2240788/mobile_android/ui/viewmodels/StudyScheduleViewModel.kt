@@ -5,6 +5,7 @@ import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.CoalescedApi
 import ecccomp.s2240788.mobile_android.data.models.*
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.launch
@@ -17,9 +18,7 @@ import kotlinx.coroutines.launch
  */
 class StudyScheduleViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     // Schedule setup data
     private val _selectedDays = MutableLiveData<MutableSet<Int>>(mutableSetOf())
@@ -182,16 +181,7 @@ class StudyScheduleViewModel : ViewModel() {
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse?.success == true) {
-                        // Parse schedules from data
-                        val data = apiResponse.data
-                        if (data is Map<*, *>) {
-                            @Suppress("UNCHECKED_CAST")
-                            val schedulesList = (data["schedules"] as? List<*>)?.mapNotNull { item ->
-                                // Simple parsing - in production use proper deserialization
-                                null
-                            } ?: emptyList()
-                            _schedules.value = schedulesList
-                        }
+                        _schedules.value = apiResponse.data?.schedules.orEmpty()
                     } else {
                         _error.value = apiResponse?.message ?: "スケジュールの取得に失敗しました"
                     }
@@ -305,7 +295,7 @@ class StudyScheduleViewModel : ViewModel() {
                 _isLoading.value = true
                 _error.value = null
 
-                val response = apiService.getTodaySessions()
+                val response = CoalescedApi.getTodaySessions()
 
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
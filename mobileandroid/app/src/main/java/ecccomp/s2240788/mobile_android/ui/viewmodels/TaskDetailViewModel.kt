@@ -9,14 +9,13 @@ import ecccomp.s2240788.mobile_android.data.models.CreateSubtaskRequest
 import ecccomp.s2240788.mobile_android.data.models.ScheduleSuggestion
 import ecccomp.s2240788.mobile_android.data.models.Subtask
 import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.launch
 
 class TaskDetailViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     private val _task = MutableLiveData<Task?>()
     val task: LiveData<Task?> = _task
@@ -59,12 +58,13 @@ class TaskDetailViewModel : ViewModel() {
     fun completeTask(taskId: Int) {
         viewModelScope.launch {
             try {
-                val res = apiService.completeTask(taskId)
-                if (res.isSuccessful && res.body()?.success == true) {
-                    _toast.value = "完了しました"
+                // 送信キュー経由（オフラインでも接続後に送信される）
+                val result = MutationOutbox.get().completeTask(taskId).result
+                if (result == null || result.success) {
+                    _toast.value = if (result == null) "完了しました（オンライン時に同期されます）" else "完了しました"
                     _finishEvent.value = true
-                } else _toast.value = "完了に失敗しました"
-            } catch (e: Exception) { _toast.value = "ネットワークエラー: ${e.message}" }
+                } else _toast.value = result.message ?: "完了に失敗しました"
+            } catch (e: Exception) { _toast.value = "完了に失敗しました: ${e.message}" }
         }
     }
 
@@ -103,17 +103,28 @@ class TaskDetailViewModel : ViewModel() {
     }
 
     fun toggleSubtask(subtaskId: Int) {
+        // 画面に即時反映（サーバーの応答を待たない）
+        _task.value?.let { current ->
+            _task.value = current.copy(
+                subtasks = current.subtasks?.map {
+                    if (it.id == subtaskId) it.copy(is_completed = !it.is_completed) else it
+                }
+            )
+        }
+
         viewModelScope.launch {
             try {
-                val res = apiService.toggleSubtask(subtaskId)
-                if (res.isSuccessful && res.body()?.success == true) {
+                // 送信キュー経由（連打は相殺され、オフラインでも接続後に送信される）
+                val result = MutationOutbox.get().toggleSubtask(subtaskId).result
+                if (result != null) {
+                    if (!result.success) {
+                        _toast.value = "サブタスクの更新に失敗しました"
+                    }
                     // Reload task to update subtask list
                     _task.value?.id?.let { loadTask(it) }
-                } else {
-                    _toast.value = "サブタスクの更新に失敗しました"
                 }
             } catch (e: Exception) {
-                _toast.value = "ネットワークエラー: ${e.message}"
+                _toast.value = "サブタスクの更新に失敗しました: ${e.message}"
             }
         }
     }
@@ -214,63 +225,6 @@ class TaskDetailViewModel : ViewModel() {
         }
     }
 
-    private fun extractTasksFromResponse(data: Any?): List<Task> {
-        return try {
-            if (data is Map<*, *>) {
-                val tasksData = data["data"] as? List<*>
-                tasksData?.mapNotNull { m -> if (m is Map<*, *>) convertMapToTask(m) else null } ?: emptyList()
-            } else if (data is List<*>) {
-                data.mapNotNull { m -> if (m is Map<*, *>) convertMapToTask(m) else null }
-            } else emptyList()
-        } catch (e: Exception) {
-            emptyList()
-        }
-    }
-
-    private fun convertMapToTask(map: Map<*, *>): Task? {
-        return try {
-            // Extract subtasks
-            val subtasksList = (map["subtasks"] as? List<*>)?.mapNotNull { subtaskMap ->
-                if (subtaskMap is Map<*, *>) {
-                    try {
-                        Subtask(
-                            id = (subtaskMap["id"] as? Number)?.toInt() ?: 0,
-                            task_id = (subtaskMap["task_id"] as? Number)?.toInt() ?: 0,
-                            title = subtaskMap["title"] as? String ?: "",
-                            is_completed = subtaskMap["is_completed"] as? Boolean ?: false,
-                            estimated_minutes = (subtaskMap["estimated_minutes"] as? Number)?.toInt(),
-                            sort_order = (subtaskMap["sort_order"] as? Number)?.toInt() ?: 0,
-                            created_at = subtaskMap["created_at"] as? String ?: "",
-                            updated_at = subtaskMap["updated_at"] as? String ?: ""
-                        )
-                    } catch (e: Exception) {
-                        null
-                    }
-                } else null
-            }
-
-            Task(
-                id = (map["id"] as? Number)?.toInt() ?: 0,
-                title = map["title"] as? String ?: "",
-                category = map["category"] as? String,
-                description = map["description"] as? String,
-                status = map["status"] as? String ?: "pending",
-                priority = (map["priority"] as? Number)?.toInt() ?: 3,
-                energy_level = map["energy_level"] as? String ?: "medium",
-                estimated_minutes = (map["estimated_minutes"] as? Number)?.toInt(),
-                deadline = map["deadline"] as? String,
-                scheduled_time = map["scheduled_time"] as? String,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: "",
-                user_id = (map["user_id"] as? Number)?.toInt() ?: 0,
-                project_id = (map["project_id"] as? Number)?.toInt(),
-                learning_milestone_id = (map["learning_milestone_id"] as? Number)?.toInt(),
-                ai_breakdown_enabled = map["ai_breakdown_enabled"] as? Boolean ?: false,
-                subtasks = subtasksList
-            )
-        } catch (e: Exception) { null }
-    }
-
     fun clearToast() { _toast.value = null }
 }
 
@@ -5,7 +5,9 @@ import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.CoalescedApi
 import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.launch
 
@@ -15,9 +17,8 @@ import kotlinx.coroutines.launch
  */
 class TaskViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
+    private val gson = NetworkModule.gson
 
     private val _tasks = MutableLiveData<List<Task>>()
     val tasks: LiveData<List<Task>> = _tasks
@@ -56,14 +57,12 @@ class TaskViewModel : ViewModel() {
                 _isLoading.value = true
                 _error.value = null
 
-                val response = apiService.getTasks()
+                val response = CoalescedApi.getTasks()
 
                 if (response.isSuccessful) {
                     val apiResponse = response.body()
                     if (apiResponse != null && apiResponse.success) {
-                        // Extract tasks from paginated response
-                        val tasks = extractTasksFromResponse(apiResponse.data)
-                        _tasks.value = tasks
+                        _tasks.value = apiResponse.data?.items.orEmpty()
                         applyFilter(currentFilter)
                     } else {
                         _error.value = "タスクの取得に失敗しました"
@@ -90,23 +89,29 @@ class TaskViewModel : ViewModel() {
     fun completeTask(taskId: Int) {
         viewModelScope.launch {
             try {
-                val response = apiService.completeTask(taskId)
-
-                if (response.isSuccessful) {
-                    val apiResponse = response.body()
-                    if (apiResponse != null && apiResponse.success) {
-                        _taskCompleted.value = apiResponse.data
+                // 送信キュー経由（オフラインでも接続後に送信される）
+                val result = MutationOutbox.get().completeTask(taskId).result
+
+                when {
+                    result == null -> {
+                        val task = _tasks.value?.find { it.id == taskId }
+                        _taskCompleted.value = task?.copy(status = "completed")
+                        _tasks.value = _tasks.value?.map {
+                            if (it.id == taskId) it.copy(status = "completed") else it
+                        }
+                    }
+                    result.success -> {
+                        _taskCompleted.value = result.data?.let { gson.fromJson(it, Task::class.java) }
                         // リストを更新
                         fetchTasks()
-                    } else {
-                        _error.value = "タスクの完了に失敗しました"
                     }
-                } else {
-                    _error.value = "タスクの完了に失敗しました: ${response.message()}"
+                    else -> {
+                        _error.value = "タスクの完了に失敗しました: ${result.message}"
+                    }
                 }
 
             } catch (e: Exception) {
-                _error.value = "ネットワークエラー: ${e.message}"
+                _error.value = "タスクの完了に失敗しました: ${e.message}"
             }
         }
     }
@@ -212,86 +217,4 @@ class TaskViewModel : ViewModel() {
     fun clearTaskDeleted() {
         _taskDeleted.value = false
     }
-
-    /**
-     * Extract tasks from paginated response
-     * Laravel returns tasks in a nested structure: { data: [tasks], current_page, ... }
-     */
-    private fun extractTasksFromResponse(data: Any?): List<Task> {
-        return try {
-            if (data is Map<*, *>) {
-                val tasksData = data["data"] as? List<*>
-                tasksData?.mapNotNull { taskMap ->
-                    if (taskMap is Map<*, *>) {
-                        convertMapToTask(taskMap)
-                    } else {
-                        null
-                    }
-                } ?: emptyList()
-            } else if (data is List<*>) {
-                data.mapNotNull { taskMap ->
-                    if (taskMap is Map<*, *>) {
-                        convertMapToTask(taskMap)
-                    } else {
-                        null
-                    }
-                }
-            } else {
-                emptyList()
-            }
-        } catch (e: Exception) {
-            emptyList()
-        }
-    }
-
-    private fun convertMapToTask(map: Map<*, *>): Task? {
-        return try {
-            // Parse subtasks
-            val subtasksList = (map["subtasks"] as? List<*>)?.mapNotNull { subtaskMap ->
-                if (subtaskMap is Map<*, *>) {
-                    convertMapToSubtask(subtaskMap)
-                } else null
-            }
-
-            Task(
-                id = (map["id"] as? Number)?.toInt() ?: 0,
-                title = map["title"] as? String ?: "",
-                category = map["category"] as? String,
-                description = map["description"] as? String,
-                status = map["status"] as? String ?: "pending",
-                priority = (map["priority"] as? Number)?.toInt() ?: 3,
-                energy_level = map["energy_level"] as? String ?: "medium",
-                estimated_minutes = (map["estimated_minutes"] as? Number)?.toInt(),
-                deadline = map["deadline"] as? String,
-                scheduled_time = map["scheduled_time"] as? String,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: "",
-                user_id = (map["user_id"] as? Number)?.toInt() ?: 0,
-                project_id = (map["project_id"] as? Number)?.toInt(),
-                learning_milestone_id = (map["learning_milestone_id"] as? Number)?.toInt(),
-                ai_breakdown_enabled = map["ai_breakdown_enabled"] as? Boolean ?: false,
-                subtasks = subtasksList
-            )
-        } catch (e: Exception) {
-            null
-        }
-    }
-
-    private fun convertMapToSubtask(map: Map<*, *>): ecccomp.s2240788.mobile_android.data.models.Subtask? {
-        return try {
-            ecccomp.s2240788.mobile_android.data.models.Subtask(
-                id = (map["id"] as? Number)?.toInt() ?: 0,
-                task_id = (map["task_id"] as? Number)?.toInt() ?: 0,
-                title = map["title"] as? String ?: "",
-                is_completed = map["is_completed"] as? Boolean ?: false,
-                estimated_minutes = (map["estimated_minutes"] as? Number)?.toInt(),
-                sort_order = (map["sort_order"] as? Number)?.toInt() ?: 0,
-                created_at = map["created_at"] as? String ?: "",
-                updated_at = map["updated_at"] as? String ?: ""
-            )
-        } catch (e: Exception) {
-            null
-        }
-    }
 }
-
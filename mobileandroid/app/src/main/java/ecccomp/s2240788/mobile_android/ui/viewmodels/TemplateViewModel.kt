@@ -5,7 +5,6 @@ import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
-import com.google.gson.Gson
 import ecccomp.s2240788.mobile_android.data.api.ApiService
 import ecccomp.s2240788.mobile_android.data.models.*
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
@@ -18,9 +17,7 @@ import kotlinx.coroutines.launch
  */
 class TemplateViewModel : ViewModel() {
 
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
 
     // Templates List
     private val _templates = MutableLiveData<List<LearningPathTemplate>>()
@@ -284,7 +281,7 @@ class TemplateViewModel : ViewModel() {
                         val errorBody = response.errorBody()?.string()
                         if (errorBody != null) {
                             // Try to parse as JSON to get message
-                            val gson = Gson()
+                            val gson = NetworkModule.gson
                             val errorJson = gson.fromJson(errorBody, Map::class.java)
                             (errorJson["message"] as? String) ?: "テンプレートのクローンに失敗しました"
                         } else {
@@ -6,9 +6,12 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import ecccomp.s2240788.mobile_android.data.api.ApiService
 import ecccomp.s2240788.mobile_android.data.models.*
+import ecccomp.s2240788.mobile_android.data.result.SyncResult
+import ecccomp.s2240788.mobile_android.data.sync.SyncEngine
+import ecccomp.s2240788.mobile_android.data.sync.SyncEntity
+import ecccomp.s2240788.mobile_android.utils.DateTimes
 import ecccomp.s2240788.mobile_android.utils.NetworkModule
 import kotlinx.coroutines.launch
-import java.text.SimpleDateFormat
 import java.util.*
 
 /**
@@ -17,9 +20,9 @@ import java.util.*
  */
 class TimetableViewModel : ViewModel() {
     
-    private val apiService: ApiService = NetworkModule.provideApiService(
-        NetworkModule.provideRetrofit(NetworkModule.provideOkHttpClient())
-    )
+    private val apiService: ApiService = NetworkModule.apiService
+    
+    private val syncEngine = SyncEngine.get()
     
     // Classes list
     private val _classes = MutableLiveData<List<TimetableClass>>()
@@ -103,6 +106,7 @@ class TimetableViewModel : ViewModel() {
     /**
      * Load only classes
      * クラス一覧のみ取得
+     * - ローカルの同期キャッシュを先に表示し、差分同期後に更新
      */
     fun loadClasses() {
         viewModelScope.launch {
@@ -110,12 +114,21 @@ class TimetableViewModel : ViewModel() {
                 _isLoading.value = true
                 _error.value = null
                 
-                val response = apiService.getTimetableClasses()
+                val cached = syncEngine.readRecords(SyncEntity.TIMETABLE, TimetableClass::class.java)
+                if (cached.isNotEmpty()) {
+                    _classes.value = sortClasses(cached)
+                }
                 
-                if (response.isSuccessful) {
-                    _classes.value = response.body()?.data ?: emptyList()
-                } else {
-                    _error.value = "Failed to load classes: ${response.message()}"
+                when (val result = syncEngine.sync(setOf(SyncEntity.TIMETABLE))) {
+                    is SyncResult.Success -> {
+                        _classes.value = sortClasses(
+                            syncEngine.readRecords(SyncEntity.TIMETABLE, TimetableClass::class.java)
+                        )
+                    }
+                    is SyncResult.Error -> {
+                        _error.value = "Failed to load classes: ${result.message}"
+                    }
+                    is SyncResult.Loading -> Unit
                 }
             } catch (e: Exception) {
                 _error.value = "Error loading classes: ${e.message}"
@@ -441,8 +454,7 @@ class TimetableViewModel : ViewModel() {
                 
                 // Calculate week start date (Monday)
                 calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY)
-                val dateFormat = SimpleDateFormat("yyyy-MM-dd", Locale.getDefault())
-                val weekStartDate = dateFormat.format(calendar.time)
+                val weekStartDate = DateTimes.isoDate(DateTimes.epochDayOf(calendar.time))
                 
                 val request = UpdateWeeklyContentRequest(
                     year = year,
@@ -504,24 +516,9 @@ class TimetableViewModel : ViewModel() {
     fun getRemainingTime(): Int {
         val current = _currentClass.value ?: return 0
         
-        return try {
-            val calendar = Calendar.getInstance()
-            val currentHour = calendar.get(Calendar.HOUR_OF_DAY)
-            val currentMinute = calendar.get(Calendar.MINUTE)
-            val currentTime = currentHour * 60 + currentMinute
-            
-            // Parse end time from "HH:mm" format
-            val timeFormat = SimpleDateFormat("HH:mm", Locale.getDefault())
-            val endDate = timeFormat.parse(current.endTime)
-            val endCalendar = Calendar.getInstance().apply {
-                time = endDate ?: return 0
-            }
-            val endTime = endCalendar.get(Calendar.HOUR_OF_DAY) * 60 + endCalendar.get(Calendar.MINUTE)
-            
-            maxOf(0, endTime - currentTime)
-        } catch (e: Exception) {
-            0
-        }
+        // Parse end time from "HH:mm" format
+        val endTime = DateTimes.parseMinuteOfDay(current.endTime) ?: return 0
+        return maxOf(0, endTime - DateTimes.nowMinuteOfDay())
     }
     
     /**
@@ -531,24 +528,9 @@ class TimetableViewModel : ViewModel() {
     fun getTimeUntilNextClass(): Int {
         val next = _nextClass.value ?: return 0
         
-        return try {
-            val calendar = Calendar.getInstance()
-            val currentHour = calendar.get(Calendar.HOUR_OF_DAY)
-            val currentMinute = calendar.get(Calendar.MINUTE)
-            val currentTime = currentHour * 60 + currentMinute
-            
-            // Parse start time from "HH:mm" format
-            val timeFormat = SimpleDateFormat("HH:mm", Locale.getDefault())
-            val startDate = timeFormat.parse(next.startTime)
-            val startCalendar = Calendar.getInstance().apply {
-                time = startDate ?: return 0
-            }
-            val startTime = startCalendar.get(Calendar.HOUR_OF_DAY) * 60 + startCalendar.get(Calendar.MINUTE)
-            
-            maxOf(0, startTime - currentTime)
-        } catch (e: Exception) {
-            0
-        }
+        // Parse start time from "HH:mm" format
+        val startTime = DateTimes.parseMinuteOfDay(next.startTime) ?: return 0
+        return maxOf(0, startTime - DateTimes.nowMinuteOfDay())
     }
     
     /**
@@ -622,6 +604,13 @@ class TimetableViewModel : ViewModel() {
         // In future, add week parameter to API call
         loadTimetable()
     }
+    
+    /**
+     * サーバーの並び順（day, period）に合わせる
+     */
+    private fun sortClasses(classes: List<TimetableClass>): List<TimetableClass> {
+        return classes.sortedWith(compareBy({ it.day }, { it.period }))
+    }
 }
 
 /**
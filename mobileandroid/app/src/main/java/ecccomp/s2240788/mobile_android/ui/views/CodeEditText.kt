@@ -0,0 +1,286 @@
+package ecccomp.s2240788.mobile_android.ui.views
+
+import android.content.Context
+import android.os.SystemClock
+import android.text.Editable
+import android.text.InputType
+import android.text.Spanned
+import android.text.TextPaint
+import android.text.TextWatcher
+import android.text.style.CharacterStyle
+import android.text.style.UpdateAppearance
+import android.util.AttributeSet
+import android.view.Gravity
+import androidx.appcompat.widget.AppCompatEditText
+import ecccomp.s2240788.mobile_android.utils.CodeHighlightHelper
+import ecccomp.s2240788.mobile_android.utils.SyntaxHighlighter
+
+/**
+ * CodeEditText
+ * WebViewを使わないコードエディタ（演習画面用）
+ * - シンタックスハイライトは編集された行だけを再計算する（SyntaxHighlighter.highlightLine）
+ *   ブロックコメントの開始・終了が変わった時だけ、状態が一致するまで後ろの行も再計算する
+ * - 編集履歴（元に戻す・やり直す）。続けて入力した文字は1つの操作にまとめる
+ * - コードは getCode() でそのまま取得できる（JSとの文字列のやり取りがない）
+ */
+class CodeEditText @JvmOverloads constructor(
+    context: Context,
+    attrs: AttributeSet? = null,
+    defStyleAttr: Int = android.R.attr.editTextStyle
+) : AppCompatEditText(context, attrs, defStyleAttr) {
+
+    companion object {
+        private const val MAX_HISTORY = 100
+
+        // この時間内に続けて入力・削除した分は1つの操作にまとめる
+        private const val MERGE_WINDOW_MS = 1_000L
+    }
+
+    /**
+     * ハイライト用のspan（入力中の変換範囲など他のspanと区別して外すため）
+     * Parcelableにしない（コピー・画面の状態の保存で色が他に持ち出されないように）
+     */
+    private class CodeColorSpan(private val color: Int) : CharacterStyle(), UpdateAppearance {
+        override fun updateDrawState(tp: TextPaint) {
+            tp.color = color
+        }
+    }
+
+    /**
+     * 1回の編集（startの位置でremovedをinsertedに置き換えた）
+     */
+    private class Edit(val start: Int, var removed: String, var inserted: String, var at: Long)
+
+    private var languageCode = "plaintext"
+
+    // 行ごとに「行末がブロックコメントの中か」（次の行のハイライトに使う）
+    private val lineEndsInComment = ArrayList<Boolean>()
+
+    private val undoStack = ArrayDeque<Edit>()
+    private val redoStack = ArrayDeque<Edit>()
+    private var applyingHistory = false
+    private var settingCode = false
+
+    // 変更の通知（下書きの保存・ボタンの状態の更新）
+    var onCodeChanged: ((String) -> Unit)? = null
+    var onHistoryChanged: (() -> Unit)? = null
+
+    private var pendingStart = 0
+    private var pendingRemoved = ""
+
+    private val watcher = object : TextWatcher {
+        override fun beforeTextChanged(s: CharSequence, start: Int, count: Int, after: Int) {
+            pendingStart = start
+            pendingRemoved = s.subSequence(start, start + count).toString()
+        }
+
+        override fun onTextChanged(s: CharSequence, start: Int, before: Int, count: Int) {
+            val inserted = s.subSequence(start, start + count).toString()
+            if (!applyingHistory) record(pendingStart, pendingRemoved, inserted)
+            (s as? Editable)?.let { rehighlight(it, start, pendingRemoved, inserted) }
+        }
+
+        override fun afterTextChanged(s: Editable) {
+            if (!settingCode) onCodeChanged?.invoke(s.toString())
+        }
+    }
+
+    init {
+        inputType = InputType.TYPE_CLASS_TEXT or
+            InputType.TYPE_TEXT_FLAG_MULTI_LINE or
+            InputType.TYPE_TEXT_FLAG_NO_SUGGESTIONS
+        gravity = Gravity.TOP or Gravity.START
+        setHorizontallyScrolling(true)
+        addTextChangedListener(watcher)
+    }
+
+    /**
+     * 言語を設定（CodeHighlightHelper.mapLanguage()で正規化）して全体をハイライトし直す
+     */
+    fun setLanguage(language: String) {
+        languageCode = CodeHighlightHelper.mapLanguage(language)
+        text?.let { highlightAll(it) }
+    }
+
+    /**
+     * コードを設定（編集履歴はクリア・onCodeChangedは呼ばない）
+     */
+    fun setCode(code: String) {
+        applyingHistory = true
+        settingCode = true
+        try {
+            setText(code)
+        } finally {
+            applyingHistory = false
+            settingCode = false
+        }
+        undoStack.clear()
+        redoStack.clear()
+        onHistoryChanged?.invoke()
+    }
+
+    /**
+     * コード全体を置き換え（リセット・解答のコピー。元に戻すで取り消せる）
+     */
+    fun replaceAll(code: String) {
+        val editable = text ?: return
+        editable.replace(0, editable.length, code)
+        setSelection(0)
+    }
+
+    fun getCode(): String = text?.toString().orEmpty()
+
+    fun canUndo(): Boolean = undoStack.isNotEmpty()
+
+    fun canRedo(): Boolean = redoStack.isNotEmpty()
+
+    fun undo(): Boolean {
+        val edit = undoStack.removeLastOrNull() ?: return false
+        apply(edit.start, edit.inserted.length, edit.removed)
+        redoStack.addLast(edit)
+        onHistoryChanged?.invoke()
+        return true
+    }
+
+    fun redo(): Boolean {
+        val edit = redoStack.removeLastOrNull() ?: return false
+        apply(edit.start, edit.removed.length, edit.inserted)
+        undoStack.addLast(edit)
+        onHistoryChanged?.invoke()
+        return true
+    }
+
+    private fun apply(start: Int, length: Int, replacement: String) {
+        val editable = text ?: return
+        applyingHistory = true
+        try {
+            editable.replace(start, start + length, replacement)
+        } finally {
+            applyingHistory = false
+        }
+        setSelection((start + replacement.length).coerceAtMost(editable.length))
+    }
+
+    /**
+     * 編集を履歴に追加（直前の入力・削除の続きならまとめる）
+     */
+    private fun record(start: Int, removed: String, inserted: String) {
+        if (removed.isEmpty() && inserted.isEmpty()) return
+        val now = SystemClock.uptimeMillis()
+        val last = undoStack.lastOrNull()
+        val merged = last != null && now - last.at <= MERGE_WINDOW_MS && when {
+            // IMEの変換中の単語の置き換え（"hel" → "hell"）
+            start == last.start && removed.isNotEmpty() && removed == last.inserted && '\n' !in inserted -> {
+                last.inserted = inserted
+                true
+            }
+            // 続けて入力（改行で区切る）
+            removed.isEmpty() && last.removed.isEmpty() && inserted.length == 1 && inserted != "\n" &&
+                start == last.start + last.inserted.length -> {
+                last.inserted += inserted
+                true
+            }
+            // Backspaceで続けて削除
+            inserted.isEmpty() && last.inserted.isEmpty() && removed.length == 1 &&
+                start + 1 == last.start -> {
+                undoStack.removeLast()
+                undoStack.addLast(Edit(start, removed + last.removed, "", now))
+                true
+            }
+            else -> false
+        }
+        if (merged) {
+            undoStack.last().at = now
+        } else {
+            undoStack.addLast(Edit(start, removed, inserted, now))
+            if (undoStack.size > MAX_HISTORY) undoStack.removeFirst()
+        }
+        redoStack.clear()
+        onHistoryChanged?.invoke()
+    }
+
+    /**
+     * 編集された行だけをハイライトし直す
+     * 削除・挿入された改行の数だけ行の状態を詰めて、変わった行から再計算する
+     */
+    private fun rehighlight(editable: Editable, start: Int, removed: String, inserted: String) {
+        val firstLine = lineOf(editable, start)
+        if (lineEndsInComment.isEmpty()) {
+            highlightAll(editable)
+            return
+        }
+
+        val removedLines = removed.count { it == '\n' }
+        val insertedLines = inserted.count { it == '\n' }
+        repeat(removedLines.coerceAtMost(lineEndsInComment.size - firstLine - 1)) {
+            lineEndsInComment.removeAt(firstLine + 1)
+        }
+        repeat(insertedLines) { lineEndsInComment.add(firstLine + 1, false) }
+
+        var lineStart = lineStartAt(editable, start)
+        var line = firstLine
+        val lastEditedLine = firstLine + insertedLines
+        while (lineStart <= editable.length && line < lineEndsInComment.size) {
+            val lineEnd = lineEndAt(editable, lineStart)
+            val previous = lineEndsInComment[line]
+            val endsInComment = highlightRange(editable, lineStart, lineEnd, line > 0 && lineEndsInComment[line - 1])
+            lineEndsInComment[line] = endsInComment
+            // 編集した行より後ろは、ブロックコメントの状態が変わらなければそこで終わり
+            if (line >= lastEditedLine && endsInComment == previous) break
+            lineStart = lineEnd + 1
+            line++
+        }
+    }
+
+    private fun highlightAll(editable: Editable) {
+        lineEndsInComment.clear()
+        var lineStart = 0
+        var inComment = false
+        while (lineStart <= editable.length) {
+            val lineEnd = lineEndAt(editable, lineStart)
+            inComment = highlightRange(editable, lineStart, lineEnd, inComment)
+            lineEndsInComment.add(inComment)
+            lineStart = lineEnd + 1
+        }
+    }
+
+    /**
+     * 1行分のspanを付け直す
+     * @return 行末でブロックコメントの中か
+     */
+    private fun highlightRange(editable: Editable, lineStart: Int, lineEnd: Int, inBlockComment: Boolean): Boolean {
+        editable.getSpans(lineStart, lineEnd, CodeColorSpan::class.java).forEach { editable.removeSpan(it) }
+        return SyntaxHighlighter.highlightLine(
+            editable.subSequence(lineStart, lineEnd).toString(),
+            languageCode,
+            inBlockComment
+        ) { tokenStart, tokenEnd, color ->
+            editable.setSpan(
+                CodeColorSpan(color),
+                lineStart + tokenStart,
+                lineStart + tokenEnd,
+                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE
+            )
+        }
+    }
+
+    private fun lineOf(text: CharSequence, offset: Int): Int {
+        var line = 0
+        for (i in 0 until offset.coerceAtMost(text.length)) {
+            if (text[i] == '\n') line++
+        }
+        return line
+    }
+
+    private fun lineStartAt(text: CharSequence, offset: Int): Int {
+        var i = offset.coerceAtMost(text.length) - 1
+        while (i >= 0 && text[i] != '\n') i--
+        return i + 1
+    }
+
+    private fun lineEndAt(text: CharSequence, lineStart: Int): Int {
+        var i = lineStart
+        while (i < text.length && text[i] != '\n') i++
+        return i
+    }
+}
@@ -1,98 +1,11 @@
 package ecccomp.s2240788.mobile_android.utils
 
-import android.content.Context
-import android.text.Html
-import java.io.BufferedReader
-import java.io.InputStreamReader
-
 object CodeHighlightHelper {
 
-    private var htmlTemplate: String? = null
-
-    /**
-     * Generate highlighted HTML from code
-     */
-    fun generateHighlightedHtml(context: Context, code: String, language: String): String {
-        // Load template if not cached
-        if (htmlTemplate == null) {
-            htmlTemplate = loadTemplate(context)
-        }
-
-        // Escape HTML entities in code
-        val escapedCode = escapeHtml(code)
-
-        // Map language names to highlight.js language codes
-        val languageCode = mapLanguage(language.lowercase())
-
-        // Replace placeholders
-        return htmlTemplate!!
-            .replace("LANGUAGE_PLACEHOLDER", languageCode)
-            .replace("CODE_PLACEHOLDER", escapedCode)
-    }
-
-    /**
-     * Load HTML template from assets
-     */
-    private fun loadTemplate(context: Context): String {
-        return try {
-            val inputStream = context.assets.open("code_highlight_template.html")
-            val reader = BufferedReader(InputStreamReader(inputStream))
-            val stringBuilder = StringBuilder()
-            var line: String?
-
-            while (reader.readLine().also { line = it } != null) {
-                stringBuilder.append(line)
-                stringBuilder.append('\n')
-            }
-
-            reader.close()
-            stringBuilder.toString()
-        } catch (e: Exception) {
-            e.printStackTrace()
-            // Fallback template
-            """
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body {
-                        font-family: 'Courier New', monospace;
-                        font-size: 13px;
-                        margin: 0;
-                        padding: 0;
-                        background: transparent;
-                    }
-                    pre {
-                        margin: 0;
-                        white-space: pre-wrap;
-                        word-wrap: break-word;
-                    }
-                </style>
-            </head>
-            <body>
-                <pre><code>CODE_PLACEHOLDER</code></pre>
-            </body>
-            </html>
-            """.trimIndent()
-        }
-    }
-
-    /**
-     * Escape HTML entities
-     */
-    private fun escapeHtml(text: String): String {
-        return text
-            .replace("&", "&amp;")
-            .replace("<", "&lt;")
-            .replace(">", "&gt;")
-            .replace("\"", "&quot;")
-            .replace("'", "&#39;")
-    }
-
     /**
-     * Map language names to highlight.js codes
+     * Map language names to highlighter language codes (SyntaxHighlighter)
      */
-    private fun mapLanguage(language: String): String {
+    fun mapLanguage(language: String): String {
         return when (language.lowercase()) {
             "php", "laravel" -> "php"  // Laravel is PHP framework
             "java" -> "java"
@@ -0,0 +1,130 @@
+package ecccomp.s2240788.mobile_android.utils
+
+import java.time.DateTimeException
+import java.time.Instant
+import java.time.LocalDate
+import java.time.LocalTime
+import java.time.ZoneId
+import java.time.format.DateTimeFormatter
+import java.util.Date
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * DateTimes
+ * 日付・時刻の解析とフォーマット（java.time / minSdk 24はcoreLibraryDesugaringで利用）
+ * - APIの文字列は epoch day（1970-01-01からの日数）と minute of day（0〜1439）に一度だけ変換して使う
+ *   （比較・グループ化は数値で行い、Date/Calendarを作らない）
+ * - DateTimeFormatterはイミュータブルでスレッドセーフなので、パターンとロケールごとに1つだけ作って共有
+ */
+object DateTimes {
+
+    private const val MINUTES_PER_DAY = 24 * 60
+
+    private val formatters = ConcurrentHashMap<String, DateTimeFormatter>()
+
+    /**
+     * "yyyy-MM-dd"（"yyyy-MM-dd HH:mm:ss" / ISO8601の日時なら先頭の日付部分）→ epoch day
+     * 解析できなければnull
+     */
+    fun parseEpochDay(value: String?): Long? {
+        if (value == null || value.length < 10 || value[4] != '-' || value[7] != '-') return null
+        val year = digits(value, 0, 4)
+        val month = digits(value, 5, 7)
+        val day = digits(value, 8, 10)
+        if (year < 0 || month < 0 || day < 0) return null
+        return try {
+            LocalDate.of(year, month, day).toEpochDay()
+        } catch (e: DateTimeException) {
+            null
+        }
+    }
+
+    /**
+     * "HH:mm" / "HH:mm:ss"（"yyyy-MM-dd HH:mm:ss" なら時刻部分）→ minute of day
+     * 解析できなければnull
+     */
+    fun parseMinuteOfDay(value: String?): Int? {
+        if (value.isNullOrEmpty()) return null
+        // 日時の場合は時刻部分から読む
+        val start = if (value.length >= 16 && (value[10] == ' ' || value[10] == 'T')) 11 else 0
+        val colon = value.indexOf(':', start)
+        if (colon <= start || colon - start > 2 || colon + 3 > value.length) return null
+        val hour = digits(value, start, colon)
+        val minute = digits(value, colon + 1, colon + 3)
+        if (hour !in 0..23 || minute !in 0..59) return null
+        return hour * 60 + minute
+    }
+
+    /**
+     * 数字のみの範囲を数値に（数字以外が含まれていれば-1）
+     */
+    private fun digits(value: String, from: Int, to: Int): Int {
+        var result = 0
+        for (i in from until to) {
+            val c = value[i]
+            if (c !in '0'..'9') return -1
+            result = result * 10 + (c - '0')
+        }
+        return result
+    }
+
+    /**
+     * 今日のepoch day（端末のタイムゾーン）
+     */
+    fun todayEpochDay(): Long = LocalDate.now().toEpochDay()
+
+    /**
+     * 現在のminute of day（端末のタイムゾーン）
+     */
+    fun nowMinuteOfDay(): Int = LocalTime.now().let { it.hour * 60 + it.minute }
+
+    /**
+     * Date（カレンダー画面などで選択された日時）→ epoch day（端末のタイムゾーン）
+     */
+    fun epochDayOf(date: Date): Long =
+        Instant.ofEpochMilli(date.time).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay()
+
+    fun localDate(epochDay: Long): LocalDate = LocalDate.ofEpochDay(epochDay)
+
+    /**
+     * epoch day → "yyyy-MM-dd"（APIに送る形式）
+     */
+    fun isoDate(epochDay: Long): String = LocalDate.ofEpochDay(epochDay).toString()
+
+    /**
+     * epoch day を表示用にフォーマット
+     */
+    fun format(epochDay: Long, pattern: String, locale: Locale = Locale.getDefault()): String =
+        formatter(pattern, locale).format(LocalDate.ofEpochDay(epochDay))
+
+    /**
+     * Date を表示用にフォーマット（端末のタイムゾーン）
+     */
+    fun format(date: Date, pattern: String, locale: Locale = Locale.getDefault()): String =
+        formatter(pattern, locale).format(Instant.ofEpochMilli(date.time).atZone(ZoneId.systemDefault()))
+
+    /**
+     * minute of day → "HH:mm"
+     */
+    fun formatMinuteOfDay(minuteOfDay: Int): String {
+        val normalized = Math.floorMod(minuteOfDay, MINUTES_PER_DAY)
+        val hour = normalized / 60
+        val minute = normalized % 60
+        return buildString(5) {
+            if (hour < 10) append('0')
+            append(hour)
+            append(':')
+            if (minute < 10) append('0')
+            append(minute)
+        }
+    }
+
+    /**
+     * パターン・ロケールごとに共有するフォーマッタ（アプリ内で言語を切り替えても別のキーになる）
+     */
+    fun formatter(pattern: String, locale: Locale = Locale.getDefault()): DateTimeFormatter =
+        formatters.getOrPut("$pattern|${locale.toLanguageTag()}") {
+            DateTimeFormatter.ofPattern(pattern, locale)
+        }
+}
@@ -6,14 +6,25 @@ import android.content.SharedPreferences
 import android.widget.Toast
 import androidx.security.crypto.EncryptedSharedPreferences
 import androidx.security.crypto.MasterKey
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
 import ecccomp.s2240788.mobile_android.data.api.ApiService
+import ecccomp.s2240788.mobile_android.data.api.RequestCoalescer
+import ecccomp.s2240788.mobile_android.data.api.registerApiAdapters
+import ecccomp.s2240788.mobile_android.data.local.TodoDatabase
+import ecccomp.s2240788.mobile_android.data.models.User
+import ecccomp.s2240788.mobile_android.data.repository.FocusKnowledgeRepository
 import ecccomp.s2240788.mobile_android.ui.activities.LoginActivity
+import okhttp3.Cache
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
 import okhttp3.Interceptor
 import okhttp3.OkHttpClient
 import okhttp3.Response
 import okhttp3.logging.HttpLoggingInterceptor
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
+import java.io.File
 import java.lang.ref.WeakReference
 import java.util.concurrent.TimeUnit
 
@@ -23,17 +34,80 @@ object NetworkModule {
     private const val BASE_URL = AppConfig.BASE_URL
     internal var contextRef: WeakReference<Context>? = null
 
-    // Lazy initialization of ApiService
-    val apiService: ApiService by lazy {
-        provideApiService(provideRetrofit(provideOkHttpClient()))
-    }
-
     // Timeout constants - Đồng bộ với backend
     // Local LLM (qwen2.5:1.5b) は初回ロードが遅いので長めに設定
     private const val CONNECT_TIMEOUT_SECONDS = 30L    // Kết nối: 30s
     private const val READ_TIMEOUT_SECONDS = 120L       // Đọc response: 120s
     private const val WRITE_TIMEOUT_SECONDS = 30L      // Ghi request: 30s
 
+    // Connection pool - プロセス全体で1つだけ共有（画面遷移でもTCP/TLS接続を再利用）
+    private const val MAX_IDLE_CONNECTIONS = 5
+    private const val KEEP_ALIVE_MINUTES = 5L
+
+    // Dispatcher concurrency（OkHttpのデフォルトは 64 / 5）
+    private const val DEFAULT_MAX_REQUESTS = 32
+    private const val DEFAULT_MAX_REQUESTS_PER_HOST = 8
+
+    // Streaming (SSE) - トークン間の最大待ち時間（全体のタイムアウトはなし）
+    private const val STREAM_IDLE_TIMEOUT_SECONDS = 60L
+
+    // On-disk HTTP response cache
+    // サーバーは Cache-Control: no-cache + ETag/Last-Modified を返すので、OkHttpが毎回再検証し、
+    // 変更がなければ304を受けてキャッシュの本体を返す（カタログ系・統計ダッシュボード）
+    private const val HTTP_CACHE_DIR = "http_cache"
+    private const val HTTP_CACHE_SIZE_BYTES = 20L * 1024 * 1024  // 20MB
+
+    private val connectionPool = ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES)
+
+    private val dispatcher = Dispatcher().apply {
+        maxRequests = DEFAULT_MAX_REQUESTS
+        maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST
+    }
+
+    /**
+     * 共有OkHttpClient（全ViewModel・Workerで同じインスタンスを使用）
+     * setContext()の後に初めて参照されるため、ディスクキャッシュも有効になる
+     */
+    val okHttpClient: OkHttpClient by lazy { buildOkHttpClient() }
+
+    /**
+     * 共有Gson（Retrofitのコンバーター・SSE・同期キャッシュなど手動パースでも同じものを使う）
+     * 型ごとのTypeAdapterはインスタンス内にキャッシュされるため、毎回 Gson() を作らないこと
+     */
+    val gson: Gson by lazy { GsonBuilder().registerApiAdapters().create() }
+
+    /**
+     * 共有Retrofit
+     */
+    val retrofit: Retrofit by lazy {
+        Retrofit.Builder()
+            .baseUrl(BASE_URL)
+            .client(okHttpClient)
+            .addConverterFactory(GsonConverterFactory.create(gson))
+            .build()
+    }
+
+    // Lazy initialization of ApiService
+    val apiService: ApiService by lazy {
+        retrofit.create(ApiService::class.java)
+    }
+
+    /**
+     * SSEストリーミング用のOkHttpClient
+     * 共有クライアントから派生（接続プール・Dispatcher・Interceptorを共有）
+     */
+    val streamingClient: OkHttpClient by lazy {
+        okHttpClient.newBuilder()
+            .readTimeout(STREAM_IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .callTimeout(0, TimeUnit.SECONDS)
+            .build()
+    }
+
+    /**
+     * APIのベースURL（Retrofitを使わない呼び出し用）
+     */
+    val baseUrl: String get() = BASE_URL
+
     /**
      * Contextを設定（Applicationから呼び出す）
      */
@@ -41,28 +115,70 @@ object NetworkModule {
         contextRef = WeakReference(context)
     }
 
-    fun provideOkHttpClient(): OkHttpClient {
-        return OkHttpClient.Builder()
+    /**
+     * HTTPキャッシュを削除（ログアウト時：前のユーザーのレスポンスを残さない）
+     * ディスクI/OのためOkHttpのDispatcherのスレッドで実行する
+     */
+    fun clearHttpCache() {
+        val cache = okHttpClient.cache ?: return
+        dispatcher.executorService.execute {
+            try {
+                cache.evictAll()
+            } catch (e: Exception) {
+                android.util.Log.w("NetworkModule", "Failed to clear HTTP cache: ${e.message}")
+            }
+        }
+    }
+
+    /**
+     * Dispatcherの同時実行数を変更（実行中でも反映される）
+     */
+    fun setDispatcherConcurrency(maxRequests: Int, maxRequestsPerHost: Int) {
+        dispatcher.maxRequests = maxRequests
+        dispatcher.maxRequestsPerHost = maxRequestsPerHost
+    }
+
+    private fun buildOkHttpClient(): OkHttpClient {
+        val builder = OkHttpClient.Builder()
+            .connectionPool(connectionPool)
+            .dispatcher(dispatcher)
             .addInterceptor(AuthInterceptor())               // Tokenをheaderに追加
             .addInterceptor(ResponseInterceptor())           // 401エラーをキャッチして自動ログアウト
+            .addInterceptor(MutationInvalidationInterceptor()) // 更新系のリクエストでGETの共有キャッシュを無効化
             .addInterceptor(HttpLoggingInterceptor().apply {
                 level = HttpLoggingInterceptor.Level.BASIC  // Changed from BODY to BASIC for better performance
             })                                              // Log request và response
             .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
             .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
             .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-            .build()
+
+        contextRef?.get()?.let { ctx ->
+            builder.cache(Cache(File(ctx.cacheDir, HTTP_CACHE_DIR), HTTP_CACHE_SIZE_BYTES))
+        }
+
+        return builder.build()
     }
 
+    /**
+     * 共有OkHttpClientを返す（互換性のため残している。新規コードは okHttpClient を使用）
+     * 個別の設定が必要な場合は okHttpClient.newBuilder() で派生させること（接続プールは共有される）
+     */
+    fun provideOkHttpClient(): OkHttpClient = okHttpClient
+
+    /**
+     * 共有OkHttpClientが渡された場合は共有Retrofitを返す
+     */
     fun provideRetrofit(okHttpClient: OkHttpClient): Retrofit {
+        if (okHttpClient === this.okHttpClient) return retrofit
         return Retrofit.Builder()
             .baseUrl(BASE_URL)
             .client(okHttpClient)
-            .addConverterFactory(GsonConverterFactory.create())
+            .addConverterFactory(GsonConverterFactory.create(gson))
             .build()
     }
 
     fun provideApiService(retrofit: Retrofit): ApiService {
+        if (retrofit === this.retrofit) return apiService
         return retrofit.create(ApiService::class.java)
     }
 }
@@ -86,6 +202,38 @@ class AuthInterceptor : Interceptor {
     }
 }
 
+// 更新系（POST/PUT/PATCH/DELETE）のリクエストでRequestCoalescerを無効化
+// 送信中に始まったGETの結果も古い可能性があるため、開始時と完了時の両方で無効化する
+// 知識アイテムが変わるリクエスト（knowledge/*、セッション終了・メモ保存でのメモの作成）では
+// フォーカス画面用の先読み（FocusKnowledgeRepository）も無効化する
+class MutationInvalidationInterceptor : Interceptor {
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        if (request.method == "GET" || request.method == "HEAD") {
+            return chain.proceed(request)
+        }
+
+        val segments = request.url.pathSegments
+        val isKnowledge = "knowledge" in segments ||
+            ("sessions" in segments && segments.lastOrNull() in KNOWLEDGE_SESSION_ACTIONS)
+        invalidate(isKnowledge)
+        try {
+            return chain.proceed(request)
+        } finally {
+            invalidate(isKnowledge)
+        }
+    }
+
+    companion object {
+        private val KNOWLEDGE_SESSION_ACTIONS = setOf("stop", "notes")
+    }
+
+    private fun invalidate(isKnowledge: Boolean) {
+        RequestCoalescer.invalidateAll()
+        if (isKnowledge) FocusKnowledgeRepository.invalidateAll()
+    }
+}
+
 // Response Interceptor để catch 401 errors và auto-logout
 class ResponseInterceptor : Interceptor {
     override fun intercept(chain: Interceptor.Chain): Response {
@@ -95,10 +243,14 @@ class ResponseInterceptor : Interceptor {
         if (response.code == 401 && !response.request.url.encodedPath.contains("/api/login")) {
             val context = NetworkModule.contextRef?.get()
 
-            context?.let { ctx ->
-                // Tokenをクリア
+            // Tokenをクリア
+            // ログイン中だった場合はローカルのキャッシュも削除（OkHttpのスレッドなのでそのまま実行できる）
+            if (TokenManager.getToken() != null) {
                 TokenManager.clearToken()
+                TodoDatabase.clearUserData()
+            }
 
+            context?.let { ctx ->
                 // メインスレッドで処理
                 android.os.Handler(android.os.Looper.getMainLooper()).post {
                     try {
@@ -129,6 +281,7 @@ class ResponseInterceptor : Interceptor {
 object TokenManager {
     private const val PREFS_NAME = "auth_prefs"
     private const val TOKEN_KEY = "auth_token"
+    private const val CACHED_USER_KEY = "cached_user"
 
     private var encryptedPrefs: SharedPreferences? = null
 
@@ -180,7 +333,27 @@ object TokenManager {
      * トークンをクリア（ログアウト時）
      */
     fun clearToken() {
-        encryptedPrefs?.edit()?.remove(TOKEN_KEY)?.apply()
+        encryptedPrefs?.edit()?.remove(TOKEN_KEY)?.remove(CACHED_USER_KEY)?.apply()
+        NetworkModule.clearHttpCache()
+    }
+
+    /**
+     * 最後に取得したユーザー情報を保存（起動直後・オフライン時の表示用）
+     */
+    fun saveCachedUser(user: User) {
+        encryptedPrefs?.edit()?.putString(CACHED_USER_KEY, NetworkModule.gson.toJson(user))?.apply()
+    }
+
+    /**
+     * 保存済みのユーザー情報（未保存・読み込めない場合はnull）
+     */
+    fun getCachedUser(): User? {
+        val json = encryptedPrefs?.getString(CACHED_USER_KEY, null) ?: return null
+        return try {
+            NetworkModule.gson.fromJson(json, User::class.java)
+        } catch (e: Exception) {
+            null
+        }
     }
 
     /**
@@ -24,6 +24,7 @@ object NotificationHelper {
     private const val CHANNEL_NAME_DEFAULT = "Kizamu Notifications"
     private const val CHANNEL_NAME_REMINDERS = "Task Reminders"
     private const val CHANNEL_NAME_ACHIEVEMENTS = "Achievements"
+    private const val SUMMARY_NOTIFICATION_ID = 8999
 
     /**
      * Create notification channels (Android 8.0+)
@@ -116,6 +117,18 @@ object NotificationHelper {
         }
     }
 
+    /**
+     * Show a single summary for new notifications that were not shown individually
+     */
+    fun showSummaryNotification(context: Context, count: Int) {
+        showNotification(
+            context = context,
+            id = SUMMARY_NOTIFICATION_ID,
+            title = "Kizamu",
+            message = "You have $count more new notifications."
+        )
+    }
+
     /**
      * Show abandoned task warning notification
      */
@@ -0,0 +1,62 @@
+package ecccomp.s2240788.mobile_android.utils
+
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+
+/**
+ * SessionManager
+ * 起動時のセッション復元
+ * - Tokenがあればネットワークを待たずにログイン済みとして扱う（楽観的復元）
+ * - Tokenの検証はバックグラウンドで行い、401が確定した場合だけログアウトする
+ *   （401はResponseInterceptorがTokenを削除してLoginActivityへ遷移させる）
+ * - オフライン・タイムアウト・5xxではセッションを維持する
+ */
+object SessionManager {
+
+    private const val TAG = "SessionManager"
+
+    // 画面（ViewModel）が終了しても検証を続けるためのスコープ
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private var validationJob: Job? = null
+
+    /**
+     * 保存済みのセッションがあるか（ネットワークは使わない）
+     */
+    fun hasSession(): Boolean = TokenManager.isTokenValid()
+
+    /**
+     * Tokenをバックグラウンドで検証（同時に複数回は実行しない）
+     * 成功時はユーザー情報のキャッシュも更新する
+     */
+    fun validateInBackground() {
+        if (validationJob?.isActive == true) return
+
+        validationJob = scope.launch {
+            try {
+                val response = NetworkModule.apiService.getUser()
+                when {
+                    response.isSuccessful -> {
+                        response.body()?.data?.let { TokenManager.saveCachedUser(it) }
+                        Log.d(TAG, "Session validated")
+                    }
+                    response.code() == 401 -> {
+                        // ResponseInterceptorがTokenの削除とログイン画面への遷移を行う
+                        Log.w(TAG, "Session rejected by server (401)")
+                    }
+                    else -> {
+                        // 5xxなどはサーバー側の問題なのでセッションを維持
+                        Log.w(TAG, "Session validation skipped: HTTP ${response.code()}")
+                    }
+                }
+            } catch (e: Exception) {
+                // オフラインでも起動できるようにセッションを維持
+                Log.w(TAG, "Session validation failed (kept session): ${e.message}")
+            }
+        }
+    }
+}
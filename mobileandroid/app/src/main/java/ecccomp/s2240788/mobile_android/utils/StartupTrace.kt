@@ -0,0 +1,72 @@
+package ecccomp.s2240788.mobile_android.utils
+
+import android.app.Activity
+import android.os.Process
+import android.os.SystemClock
+import android.util.Log
+import androidx.core.os.TraceCompat
+import androidx.core.view.OneShotPreDrawListener
+
+/**
+ * StartupTrace
+ * コールドスタートの計測
+ * - time-to-first-frame: プロセス開始から最初の画面が描画されるまで
+ * - time-to-content: プロセス開始からホーム画面にタスクが表示されるまで（reportFullyDrawn）
+ * Logcat（tag: StartupTrace）とシステムトレース（セクション名 "cold_start:*"）に出力する
+ * reportFullyDrawn はMacrobenchmarkのStartupTimingMetric（timeToFullDisplayMs）でも計測される
+ */
+object StartupTrace {
+
+    private const val TAG = "StartupTrace"
+    private const val SECTION_FIRST_FRAME = "cold_start:first_frame"
+    private const val SECTION_CONTENT = "cold_start:content"
+    private const val COOKIE = 0
+
+    private var firstFrameStarted = false
+    private var firstFrameReported = false
+    private var contentReported = false
+
+    /**
+     * プロセス開始からの経過時間（ms）
+     */
+    private fun sinceProcessStart(): Long =
+        SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime()
+
+    /**
+     * 最初の画面の描画直前に一度だけ記録（SplashActivity / MainActivity のonCreateから呼ぶ）
+     * セクションの開始は最初の呼び出しの一度だけ。スプラッシュが描画されずにMainActivityへ進んだ場合は、
+     * 後から呼んだ画面の描画でセクションを終える（同じCOOKIEの非同期セクションを二重に開始しない）
+     */
+    fun markFirstFrame(activity: Activity) {
+        if (firstFrameReported) return
+        if (!firstFrameStarted) {
+            firstFrameStarted = true
+            // onCreateから描画までの間に他のセクションが入るため非同期セクションを使う
+            TraceCompat.beginAsyncSection(SECTION_FIRST_FRAME, COOKIE)
+            if (!contentReported) TraceCompat.beginAsyncSection(SECTION_CONTENT, COOKIE)
+        }
+        OneShotPreDrawListener.add(activity.window.decorView) {
+            if (!firstFrameReported) {
+                firstFrameReported = true
+                TraceCompat.endAsyncSection(SECTION_FIRST_FRAME, COOKIE)
+                Log.i(TAG, "time-to-first-frame: ${sinceProcessStart()}ms (${activity.javaClass.simpleName})")
+            }
+        }
+    }
+
+    /**
+     * 最初のコンテンツ（キャッシュまたはサーバーのタスク）を表示した時に一度だけ記録
+     */
+    fun markContentShown(activity: Activity) {
+        if (contentReported) return
+        contentReported = true
+        TraceCompat.endAsyncSection(SECTION_CONTENT, COOKIE)
+        try {
+            activity.reportFullyDrawn()
+        } catch (e: SecurityException) {
+            // 一部の端末ではreportFullyDrawnに権限チェックがある
+            Log.w(TAG, "reportFullyDrawn failed: ${e.message}")
+        }
+        Log.i(TAG, "time-to-content: ${sinceProcessStart()}ms (${activity.javaClass.simpleName})")
+    }
+}
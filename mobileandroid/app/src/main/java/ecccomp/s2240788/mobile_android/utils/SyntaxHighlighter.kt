@@ -0,0 +1,321 @@
+package ecccomp.s2240788.mobile_android.utils
+
+import android.graphics.Color
+import android.text.SpannableStringBuilder
+import android.text.Spanned
+import android.text.SpannedString
+import android.text.style.ForegroundColorSpan
+import android.util.LruCache
+import java.util.regex.Matcher
+import java.util.regex.Pattern
+
+/**
+ * SyntaxHighlighter
+ * WebViewを使わずにコードをハイライトし、TextViewにそのまま設定できるSpannedを返す
+ * - トークンのルールと色は旧code_highlight_template.htmlと同じ（先頭から順に最初に一致したルールを採用）
+ * - 結果は言語+コードをキーにLruCacheへ保存（RecyclerViewの再バインドや画面の再表示で再計算しない）
+ * 言語名はCodeHighlightHelper.mapLanguage()で正規化してから使う
+ * エディタ（CodeEditText）向けに1行ずつハイライトするhighlightLine()もある
+ */
+object SyntaxHighlighter {
+
+    // キャッシュの上限（ハイライト済みテキストの合計文字数）
+    private const val CACHE_MAX_CHARS = 256 * 1024
+
+    // テンプレートのCSSと同じ配色
+    private val COLOR_COMMENT = Color.parseColor("#6C757D")
+    private val COLOR_PUNCTUATION = Color.parseColor("#495057")
+    private val COLOR_RED = Color.parseColor("#E74C3C")        // property, tag, number
+    private val COLOR_GREEN = Color.parseColor("#27AE60")      // string, selector, attr-name
+    private val COLOR_BLUE = Color.parseColor("#3498DB")       // operator, PHPの変数
+    private val COLOR_PURPLE = Color.parseColor("#9B59B6")     // keyword, attr-value
+    private val COLOR_ORANGE = Color.parseColor("#E67E22")     // class-name
+    private val COLOR_YELLOW = Color.parseColor("#F39C12")     // variable
+
+    private class Rule(val pattern: Pattern, val color: Int)
+
+    private fun rule(regex: String, color: Int, flags: Int = 0) = Rule(Pattern.compile(regex, flags), color)
+
+    // 各言語で共通のルール
+    private const val BLOCK_COMMENT = """/\*[\s\S]*?\*/"""
+    private const val LINE_COMMENT = """//.*"""
+    private const val HASH_COMMENT = """#.*"""
+    private const val QUOTED = """"(?:\\.|[^"\\])*"|'(?:\\.|[^'\\])*'"""
+    private const val QUOTED_WITH_BACKTICK = """$QUOTED|`(?:\\.|[^`\\])*`"""
+    private const val NUMBER = """\b\d+\.?\d*\b"""
+    private const val OPERATOR = """[-+*/=<>!&|]+"""
+    private const val CLASS_NAME = """\b[A-Z][a-zA-Z0-9]*\b"""
+
+    private fun keywords(vararg words: String) = """\b(${words.joinToString("|")})\b"""
+
+    private val markupRules by lazy {
+        listOf(
+            rule("""<!--[\s\S]*?-->""", COLOR_COMMENT),
+            rule("""</?[a-zA-Z][a-zA-Z0-9:-]*""", COLOR_RED),
+            rule("""\s[a-zA-Z:-]+=""", COLOR_GREEN),
+            rule("""=($QUOTED)""", COLOR_PURPLE)
+        )
+    }
+
+    private val yamlRules by lazy {
+        listOf(
+            rule(HASH_COMMENT, COLOR_COMMENT),
+            rule(QUOTED, COLOR_GREEN),
+            rule("""^[a-zA-Z_][a-zA-Z0-9_-]*:""", COLOR_RED, Pattern.MULTILINE),
+            rule(keywords("true", "false", "null", "yes", "no", "on", "off"), COLOR_PURPLE),
+            rule(NUMBER, COLOR_RED),
+            rule("""^---$|^\.\.\.$""", COLOR_BLUE, Pattern.MULTILINE),
+            rule("""^\s*-\s""", COLOR_PUNCTUATION, Pattern.MULTILINE)
+        )
+    }
+
+    /**
+     * 言語ごとのルール（CodeHighlightHelper.mapLanguage()の戻り値がキー）
+     * plaintextや未知の言語はルールなし（そのまま表示）
+     */
+    private val rules: Map<String, List<Rule>> by lazy {
+        mapOf(
+            "php" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(LINE_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule(keywords("echo", "print", "return", "if", "else", "elseif", "foreach", "for", "while", "function", "class", "public", "private", "protected", "static", "const", "new", "extends", "implements", "namespace", "use", "try", "catch", "finally", "throw", "as", "array", "die", "exit", "include", "require"), COLOR_PURPLE),
+                rule("""\$[a-zA-Z_][a-zA-Z0-9_]*""", COLOR_BLUE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "java" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(LINE_COMMENT, COLOR_COMMENT),
+                rule(""""(?:\\.|[^"\\])*"""", COLOR_GREEN),
+                rule(keywords("public", "private", "protected", "static", "final", "class", "interface", "extends", "implements", "new", "return", "if", "else", "for", "while", "do", "switch", "case", "break", "continue", "try", "catch", "finally", "throw", "throws", "import", "package", "void", "int", "long", "double", "float", "char", "boolean", "String", "true", "false", "null"), COLOR_PURPLE),
+                rule(CLASS_NAME, COLOR_ORANGE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "javascript" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(LINE_COMMENT, COLOR_COMMENT),
+                rule(QUOTED_WITH_BACKTICK, COLOR_GREEN),
+                rule(keywords("var", "let", "const", "function", "return", "if", "else", "for", "while", "do", "switch", "case", "break", "continue", "try", "catch", "finally", "throw", "class", "extends", "import", "export", "default", "async", "await", "new", "typeof", "instanceof", "true", "false", "null", "undefined"), COLOR_PURPLE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "python" to listOf(
+                rule(HASH_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule(keywords("def", "class", "if", "elif", "else", "for", "while", "return", "import", "from", "as", "try", "except", "finally", "with", "lambda", "pass", "break", "continue", "True", "False", "None", "and", "or", "not", "in", "is"), COLOR_PURPLE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "html" to markupRules,
+            "xml" to markupRules,
+            "go" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(LINE_COMMENT, COLOR_COMMENT),
+                rule(QUOTED_WITH_BACKTICK, COLOR_GREEN),
+                rule(keywords("package", "import", "func", "var", "const", "type", "struct", "interface", "return", "if", "else", "for", "range", "switch", "case", "break", "continue", "goto", "defer", "go", "chan", "select", "true", "false", "nil"), COLOR_PURPLE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "sql" to listOf(
+                rule("""--.*""", COLOR_COMMENT),
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule(keywords("SELECT", "FROM", "WHERE", "INSERT", "UPDATE", "DELETE", "CREATE", "DROP", "ALTER", "TABLE", "INDEX", "VIEW", "DATABASE", "INTO", "VALUES", "SET", "JOIN", "LEFT", "RIGHT", "INNER", "OUTER", "ON", "AS", "AND", "OR", "NOT", "NULL", "IS", "IN", "LIKE", "BETWEEN", "ORDER", "BY", "GROUP", "HAVING", "LIMIT", "OFFSET", "COUNT", "SUM", "AVG", "MAX", "MIN", "DISTINCT", "PRIMARY", "KEY", "FOREIGN", "REFERENCES", "CONSTRAINT", "DEFAULT", "AUTO_INCREMENT", "UNSIGNED", "INT", "VARCHAR", "TEXT", "DATETIME", "TIMESTAMP", "BOOLEAN", "DECIMAL", "FLOAT", "DOUBLE"), COLOR_PURPLE, Pattern.CASE_INSENSITIVE),
+                rule(NUMBER, COLOR_RED),
+                rule("""[=<>!]+|[-+*/]""", COLOR_BLUE),
+                rule("""[(),;]""", COLOR_PUNCTUATION)
+            ),
+            "kotlin" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(LINE_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule(keywords("package", "import", "class", "interface", "object", "fun", "val", "var", "return", "if", "else", "when", "for", "while", "do", "try", "catch", "finally", "throw", "public", "private", "protected", "internal", "open", "abstract", "override", "companion", "data", "sealed", "enum", "annotation", "suspend", "inline", "crossinline", "noinline", "reified", "infix", "operator", "lateinit", "by", "delegate", "is", "as", "in", "true", "false", "null"), COLOR_PURPLE),
+                rule(CLASS_NAME, COLOR_ORANGE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "css" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule("""[.#]?[a-zA-Z][a-zA-Z0-9-]*(?=\s*\{)""", COLOR_GREEN),
+                rule(keywords("color", "background", "font", "margin", "padding", "border", "width", "height", "display", "position", "top", "left", "right", "bottom", "float", "clear", "z-index", "opacity", "visibility", "overflow", "cursor", "text-align", "text-decoration", "line-height", "letter-spacing", "word-spacing", "font-size", "font-weight", "font-family"), COLOR_RED),
+                rule("""#[0-9a-fA-F]{3,6}\b""", COLOR_RED),
+                rule("""\b\d+\.?\d*(px|em|rem|%|vh|vw|pt)?\b""", COLOR_RED),
+                rule("""[:;{}]""", COLOR_PUNCTUATION)
+            ),
+            "cpp" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(LINE_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule("""#\s*include""", COLOR_PURPLE),
+                rule(keywords("class", "struct", "namespace", "using", "public", "private", "protected", "virtual", "static", "const", "void", "int", "long", "double", "float", "char", "bool", "true", "false", "NULL", "nullptr", "if", "else", "for", "while", "do", "switch", "case", "break", "continue", "return", "try", "catch", "throw", "new", "delete", "template", "typename", "auto", "decltype", "sizeof", "typedef", "enum", "union", "extern", "inline", "friend", "operator", "this"), COLOR_PURPLE),
+                rule(CLASS_NAME, COLOR_ORANGE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "swift" to listOf(
+                rule(BLOCK_COMMENT, COLOR_COMMENT),
+                rule(LINE_COMMENT, COLOR_COMMENT),
+                rule(""""(?:\\.|[^"\\])*"""", COLOR_GREEN),
+                rule(keywords("import", "class", "struct", "enum", "protocol", "extension", "func", "var", "let", "return", "if", "else", "guard", "for", "in", "while", "repeat", "switch", "case", "default", "break", "continue", "do", "try", "catch", "throw", "throws", "public", "private", "internal", "fileprivate", "open", "static", "override", "init", "self", "super", "nil", "true", "false", "as", "is", "async", "await"), COLOR_PURPLE),
+                rule(CLASS_NAME, COLOR_ORANGE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "ruby" to listOf(
+                rule(HASH_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule(keywords("def", "class", "module", "end", "if", "elsif", "else", "unless", "case", "when", "while", "until", "for", "in", "do", "return", "yield", "begin", "rescue", "ensure", "raise", "require", "include", "attr_accessor", "attr_reader", "self", "nil", "true", "false", "and", "or", "not", "puts"), COLOR_PURPLE),
+                rule("""[@$][a-zA-Z_][a-zA-Z0-9_]*|:[a-zA-Z_][a-zA-Z0-9_]*""", COLOR_YELLOW),
+                rule(CLASS_NAME, COLOR_ORANGE),
+                rule(NUMBER, COLOR_RED),
+                rule(OPERATOR, COLOR_BLUE)
+            ),
+            "json" to listOf(
+                rule(""""(?:\\.|[^"\\])*"(?=\s*:)""", COLOR_RED),
+                rule(""""(?:\\.|[^"\\])*"""", COLOR_GREEN),
+                rule(keywords("true", "false", "null"), COLOR_PURPLE),
+                rule("""-?\b\d+(\.\d+)?([eE][+-]?\d+)?\b""", COLOR_RED),
+                rule("""[{}\[\],:]""", COLOR_PUNCTUATION)
+            ),
+            "bash" to listOf(
+                rule(HASH_COMMENT, COLOR_COMMENT),
+                rule(QUOTED, COLOR_GREEN),
+                rule(keywords("if", "then", "else", "elif", "fi", "for", "while", "do", "done", "case", "esac", "function", "return", "echo", "exit", "export", "source", "alias", "unset", "read", "shift", "test", "true", "false"), COLOR_PURPLE),
+                rule("""\$\{?[a-zA-Z_][a-zA-Z0-9_]*\}?""", COLOR_YELLOW),
+                rule("""\b\d+\b""", COLOR_RED),
+                rule("""[|&;><]""", COLOR_BLUE)
+            ),
+            "markdown" to listOf(
+                rule("""^#{1,6}\s+.*$""", COLOR_PURPLE, Pattern.MULTILINE),
+                rule("""\*\*[^*]+\*\*|__[^_]+__""", COLOR_PURPLE),
+                rule("""\*[^*]+\*|_[^_]+_""", COLOR_GREEN),
+                rule("""`[^`]+`""", COLOR_GREEN),
+                rule("""^\s*[-*+]\s""", COLOR_PUNCTUATION, Pattern.MULTILINE),
+                rule("""^\s*\d+\.\s""", COLOR_RED, Pattern.MULTILINE),
+                rule("""\[([^\]]+)\]\(([^)]+)\)""", COLOR_GREEN)
+            ),
+            "yaml" to yamlRules
+        )
+    }
+
+    // 複数行にまたがるブロックコメント（/* … */）がある言語（1行ずつハイライトする時に行をまたいで引き継ぐ）
+    private val blockCommentLanguages by lazy {
+        rules.filterValues { languageRules -> languageRules.any { it.pattern.pattern() == BLOCK_COMMENT } }.keys
+    }
+
+    private val cache = object : LruCache<String, Spanned>(CACHE_MAX_CHARS) {
+        override fun sizeOf(key: String, value: Spanned): Int = value.length.coerceAtLeast(1)
+    }
+
+    /**
+     * コードをハイライトしたテキストを返す（キャッシュ済みならそれを返す）
+     * @param language 言語名（"php", "laravel", "js"など。内部で正規化する）
+     */
+    fun highlight(code: String, language: String?): CharSequence {
+        val languageCode = CodeHighlightHelper.mapLanguage(language.orEmpty())
+        val languageRules = rules[languageCode]
+        if (languageRules.isNullOrEmpty() || code.isEmpty()) return code
+
+        val key = "$languageCode\u0000$code"
+        cache.get(key)?.let { return it }
+
+        val highlighted = tokenize(code, languageRules)
+        cache.put(key, highlighted)
+        return highlighted
+    }
+
+    /**
+     * 1行分をハイライト（エディタで編集された行だけを再計算するため）
+     * 複数行のブロックコメントは、前の行から続いているかを引き継いで判定する
+     * @param languageCode CodeHighlightHelper.mapLanguage()で正規化した言語
+     * @param inBlockComment 前の行から続くブロックコメントの中で始まるか
+     * @param onToken 色を付ける範囲（行内の位置）
+     * @return 行末でブロックコメントの中か（次の行に渡す）
+     */
+    fun highlightLine(
+        line: CharSequence,
+        languageCode: String,
+        inBlockComment: Boolean,
+        onToken: (start: Int, end: Int, color: Int) -> Unit
+    ): Boolean {
+        val languageRules = rules[languageCode]
+        if (languageRules.isNullOrEmpty() || line.isEmpty()) return inBlockComment
+
+        var pos = 0
+        if (inBlockComment) {
+            val close = line.indexOf("*/")
+            if (close < 0) {
+                onToken(0, line.length, COLOR_COMMENT)
+                return true
+            }
+            pos = close + 2
+            onToken(0, pos, COLOR_COMMENT)
+        }
+
+        val supportsBlockComment = languageCode in blockCommentLanguages
+        val matchers = languageRules.map { rule -> matcherFor(rule, line) to rule.color }
+        var endsInComment = false
+        scan(line, matchers, pos, onToken) { start ->
+            // この行で閉じていない /* は行末までコメント（次の行に続く）
+            if (supportsBlockComment && line.startsWith("/*", start)) {
+                onToken(start, line.length, COLOR_COMMENT)
+                endsInComment = true
+                true
+            } else {
+                false
+            }
+        }
+        return endsInComment
+    }
+
+    private fun matcherFor(rule: Rule, text: CharSequence): Matcher {
+        return rule.pattern.matcher(text)
+            // \b や ^ がregionの外側の文字も見て判定できるように
+            .useTransparentBounds(true)
+            .useAnchoringBounds(false)
+    }
+
+    /**
+     * 先頭から順にルールを試し、最初に一致したトークンに色を付ける
+     * どのルールにも一致しない文字はそのまま1文字進める
+     * Matcherはルールごとに1つだけ作り、regionを動かして使い回す
+     */
+    private fun tokenize(code: String, languageRules: List<Rule>): Spanned {
+        val builder = SpannableStringBuilder(code)
+        val matchers = languageRules.map { rule -> matcherFor(rule, code) to rule.color }
+        scan(code, matchers, 0, { start, end, color ->
+            builder.setSpan(ForegroundColorSpan(color), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE)
+        })
+        return SpannedString(builder)
+    }
+
+    /**
+     * @param onUnmatched どのルールにも一致しなかった位置で呼ばれ、trueを返すとそこで終了
+     */
+    private inline fun scan(
+        text: CharSequence,
+        matchers: List<Pair<Matcher, Int>>,
+        from: Int,
+        onToken: (start: Int, end: Int, color: Int) -> Unit,
+        onUnmatched: (start: Int) -> Boolean = { false }
+    ) {
+        var pos = from
+        val length = text.length
+        while (pos < length) {
+            var matchedEnd = -1
+            for ((matcher, color) in matchers) {
+                matcher.region(pos, length)
+                if (matcher.lookingAt() && matcher.end() > pos) {
+                    matchedEnd = matcher.end()
+                    onToken(pos, matchedEnd, color)
+                    break
+                }
+            }
+            if (matchedEnd < 0 && onUnmatched(pos)) return
+            pos = if (matchedEnd > pos) matchedEnd else pos + 1
+        }
+    }
+}
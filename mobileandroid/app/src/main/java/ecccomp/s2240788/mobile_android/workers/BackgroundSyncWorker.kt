@@ -0,0 +1,35 @@
+package ecccomp.s2240788.mobile_android.workers
+
+import android.content.Context
+import android.util.Log
+import androidx.work.CoroutineWorker
+import androidx.work.WorkerParameters
+import ecccomp.s2240788.mobile_android.data.sync.SyncScheduler
+
+/**
+ * BackgroundSyncWorker
+ * バックグラウンド同期1回分（通知・タスクの差分・ハートビート・設定をまとめて送受信）
+ * - 間隔はSyncSchedulerが決め、終了時に次回を登録する
+ * - 失敗してもretryせず、延ばした間隔で次回を登録する（アイドル条件とbackoffは併用できないため）
+ */
+class BackgroundSyncWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+
+    companion object {
+        private const val TAG = "BackgroundSyncWorker"
+    }
+
+    override suspend fun doWork(): Result {
+        val scheduler = SyncScheduler.get(applicationContext)
+        try {
+            scheduler.syncNow()
+        } catch (e: Exception) {
+            Log.e(TAG, "Exception in background sync worker", e)
+        } finally {
+            scheduler.scheduleNext()
+        }
+        return Result.success()
+    }
+}
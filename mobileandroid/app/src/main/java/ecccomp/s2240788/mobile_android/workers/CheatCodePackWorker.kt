@@ -0,0 +1,42 @@
+package ecccomp.s2240788.mobile_android.workers
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.util.Log
+import androidx.work.CoroutineWorker
+import androidx.work.WorkerParameters
+import ecccomp.s2240788.mobile_android.data.cheatcode.CheatCodeLibrary
+
+/**
+ * CheatCodePackWorker
+ * チートコードのパックの一覧を確認し、バージョンが変わった言語のパックだけを取得し直す
+ * - 従量制でないネットワーク（Wi-Fiなど）では、まだ開いていない言語のパックもまとめて取得する
+ */
+class CheatCodePackWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+
+    companion object {
+        private const val TAG = "CheatCodePackWorker"
+    }
+
+    override suspend fun doWork(): Result {
+        return try {
+            val library = CheatCodeLibrary.get()
+            val changed = library.refreshManifest() ?: return Result.retry()
+
+            val connectivityManager = applicationContext.getSystemService(ConnectivityManager::class.java)
+            val unmetered = connectivityManager?.isActiveNetworkMetered == false
+            val targets = if (unmetered) changed + library.missingPackIds() else changed
+
+            val failed = targets.distinct().count { !library.syncPack(it) }
+            Log.d(TAG, "Cheat code packs checked: ${targets.size} to update, $failed failed")
+
+            if (failed > 0) Result.retry() else Result.success()
+        } catch (e: Exception) {
+            Log.e(TAG, "Exception in cheat code pack worker", e)
+            Result.retry()
+        }
+    }
+}
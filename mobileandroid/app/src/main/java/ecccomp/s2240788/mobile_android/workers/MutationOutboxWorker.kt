@@ -0,0 +1,41 @@
+package ecccomp.s2240788.mobile_android.workers
+
+import android.content.Context
+import android.util.Log
+import androidx.work.CoroutineWorker
+import androidx.work.WorkerParameters
+import ecccomp.s2240788.mobile_android.data.sync.MutationOutbox
+import ecccomp.s2240788.mobile_android.data.sync.SyncEngine
+import ecccomp.s2240788.mobile_android.data.sync.SyncEntity
+
+/**
+ * MutationOutboxWorker
+ * オフライン中に溜まった操作をネットワーク接続後にまとめて再送する
+ * - 送信できたらタスクを差分同期してサーバー側の最終状態（自動完了など）をローカルに反映
+ * - 残っていればバックオフして再試行
+ */
+class MutationOutboxWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+
+    companion object {
+        private const val TAG = "MutationOutboxWorker"
+    }
+
+    override suspend fun doWork(): Result {
+        return try {
+            val report = MutationOutbox.get().flush()
+            Log.d(TAG, "Delivered ${report.delivered.size} mutations, ${report.remaining} remaining")
+
+            if (report.delivered.isNotEmpty()) {
+                SyncEngine.get().sync(setOf(SyncEntity.TASKS))
+            }
+
+            if (report.remaining > 0) Result.retry() else Result.success()
+        } catch (e: Exception) {
+            Log.e(TAG, "Exception in mutation outbox worker", e)
+            Result.retry()
+        }
+    }
+}
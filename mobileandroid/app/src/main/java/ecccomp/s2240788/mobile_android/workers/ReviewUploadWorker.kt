@@ -0,0 +1,34 @@
+package ecccomp.s2240788.mobile_android.workers
+
+import android.content.Context
+import android.util.Log
+import androidx.work.CoroutineWorker
+import androidx.work.WorkerParameters
+import ecccomp.s2240788.mobile_android.data.review.ReviewQueue
+
+/**
+ * ReviewUploadWorker
+ * オフライン中に記録した採点をネットワーク接続後にまとめて送信する
+ * - 残っていればバックオフして再試行
+ */
+class ReviewUploadWorker(
+    context: Context,
+    params: WorkerParameters
+) : CoroutineWorker(context, params) {
+
+    companion object {
+        private const val TAG = "ReviewUploadWorker"
+    }
+
+    override suspend fun doWork(): Result {
+        return try {
+            val remaining = ReviewQueue.get().upload()
+            Log.d(TAG, "Review upload finished, $remaining remaining")
+
+            if (remaining > 0) Result.retry() else Result.success()
+        } catch (e: Exception) {
+            Log.e(TAG, "Exception in review upload worker", e)
+            Result.retry()
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ecccomp.s2240788.mobile_android.data.review
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.TimeZone
+
+/**
+ * SrsSchedulerのテスト
+ * Backend: KnowledgeController::applyReview / calculateReviewInterval と同じ結果になること
+ */
+class SrsSchedulerTest {
+
+    private lateinit var defaultTimeZone: TimeZone
+
+    @Before
+    fun setUp() {
+        defaultTimeZone = TimeZone.getDefault()
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"))
+    }
+
+    @After
+    fun tearDown() {
+        TimeZone.setDefault(defaultTimeZone)
+    }
+
+    @Test
+    fun good_advancesOneLevel() {
+        assertEquals(SrsOutcome(1, 1), SrsScheduler.grade(0, SrsScheduler.QUALITY_GOOD))
+        assertEquals(SrsOutcome(2, 3), SrsScheduler.grade(1, SrsScheduler.QUALITY_GOOD))
+        assertEquals(SrsOutcome(4, 14), SrsScheduler.grade(3, SrsScheduler.QUALITY_GOOD))
+    }
+
+    @Test
+    fun unknownQuality_isTreatedAsGood() {
+        assertEquals(SrsScheduler.grade(2, SrsScheduler.QUALITY_GOOD), SrsScheduler.grade(2, "unknown"))
+    }
+
+    @Test
+    fun hard_decreasesCountAndUsesShorterInterval() {
+        assertEquals(SrsOutcome(2, 1), SrsScheduler.grade(3, SrsScheduler.QUALITY_HARD))
+        assertEquals(SrsOutcome(4, 7), SrsScheduler.grade(5, SrsScheduler.QUALITY_HARD))
+    }
+
+    @Test
+    fun hard_neverGoesBelowZero() {
+        assertEquals(SrsOutcome(0, 1), SrsScheduler.grade(0, SrsScheduler.QUALITY_HARD))
+        assertEquals(SrsOutcome(0, 1), SrsScheduler.grade(1, SrsScheduler.QUALITY_HARD))
+    }
+
+    @Test
+    fun easy_skipsAheadAndUsesLongerInterval() {
+        assertEquals(SrsOutcome(2, 7), SrsScheduler.grade(0, SrsScheduler.QUALITY_EASY))
+        assertEquals(SrsOutcome(4, 30), SrsScheduler.grade(2, SrsScheduler.QUALITY_EASY))
+    }
+
+    @Test
+    fun interval_isCappedAtLongestLevel() {
+        assertEquals(SrsOutcome(8, 120), SrsScheduler.grade(7, SrsScheduler.QUALITY_GOOD))
+        assertEquals(SrsOutcome(52, 120), SrsScheduler.grade(50, SrsScheduler.QUALITY_EASY))
+        assertEquals(SrsOutcome(49, 60), SrsScheduler.grade(50, SrsScheduler.QUALITY_HARD))
+    }
+
+    @Test
+    fun nextReviewDate_crossesMonthAndYear() {
+        assertEquals("2026-02-01", SrsScheduler.nextReviewDate(at("2026-01-31T10:00:00+09:00"), 1))
+        assertEquals("2027-01-13", SrsScheduler.nextReviewDate(at("2026-12-30T10:00:00+09:00"), 14))
+        assertEquals("2028-02-29", SrsScheduler.nextReviewDate(at("2028-02-28T10:00:00+09:00"), 1))
+    }
+
+    @Test
+    fun nextReviewDate_usesLocalCalendarDay() {
+        // 2026-03-01T00:30 JST は UTC では前日だが、端末の日付（JST）で数える
+        assertEquals("2026-03-04", SrsScheduler.nextReviewDate(at("2026-02-28T15:30:00Z"), 3))
+    }
+
+    private fun at(iso: String): Date =
+        SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US).parse(iso)!!
+}
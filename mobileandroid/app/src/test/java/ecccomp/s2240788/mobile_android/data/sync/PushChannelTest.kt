@@ -0,0 +1,158 @@
+package ecccomp.s2240788.mobile_android.data.sync
+
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+/**
+ * PushChannelのテスト
+ * ローカルのSSEサーバー（MockWebServer）に接続し、再接続・バックオフ・Last-Event-IDでの再開・401での停止を確認する
+ */
+class PushChannelTest {
+
+    private lateinit var server: MockWebServer
+    private lateinit var channel: PushChannel
+    private val synced = CopyOnWriteArrayList<Set<SyncEntity>>()
+
+    @Before
+    fun setUp() {
+        server = MockWebServer()
+        server.start()
+        channel = PushChannel(
+            client = OkHttpClient(),
+            baseUrl = server.url("/api/").toString(),
+            tokenProvider = { "token" },
+            onSync = { synced += it },
+            minBackoffMs = MIN_BACKOFF_MS,
+            debounceMs = 10
+        )
+    }
+
+    @After
+    fun tearDown() {
+        channel.stop()
+        server.shutdown()
+    }
+
+    @Test
+    fun reconnectsWithLastEventIdAfterServerCloses() {
+        server.enqueue(
+            sse(
+                "retry: 50\nid: 5\n\n" +
+                    "id: 6\nevent: sync\ndata: {\"entities\":[\"knowledge\"]}\n\n"
+            )
+        )
+        server.enqueue(sse("retry: 50\n\n"))
+
+        channel.start()
+
+        val first = take()
+        assertEquals("/api/push/stream", first.path)
+        assertEquals("text/event-stream", first.getHeader("Accept"))
+        assertNull(first.getHeader("Last-Event-ID"))
+
+        // サーバーが接続を閉じたらretryの時間後に再接続し、最後に受け取ったIDから再開
+        assertEquals("6", take().getHeader("Last-Event-ID"))
+
+        // 新しい接続の最初の同期と、通知されたエンティティの同期
+        waitUntil { synced.flatten().toSet().containsAll(setOf(SyncEntity.TASKS, SyncEntity.NOTIFICATIONS, SyncEntity.KNOWLEDGE)) }
+    }
+
+    @Test
+    fun idOnlyEventIsUsedForResume() {
+        server.enqueue(sse("retry: 50\nid: 42\n\n"))
+        server.enqueue(sse("retry: 50\n\n"))
+
+        channel.start()
+        take()
+
+        assertEquals("42", take().getHeader("Last-Event-ID"))
+    }
+
+    @Test
+    fun backsOffExponentiallyOnFailures() {
+        server.enqueue(MockResponse().setResponseCode(500))
+        server.enqueue(MockResponse().setResponseCode(500))
+        server.enqueue(MockResponse().setResponseCode(503))
+        server.enqueue(sse("retry: 50\n\n"))
+
+        channel.start()
+        take()
+        val t1 = System.nanoTime()
+        take()
+        val t2 = System.nanoTime()
+        take()
+        val t3 = System.nanoTime()
+        take()
+
+        val firstGap = TimeUnit.NANOSECONDS.toMillis(t2 - t1)
+        val secondGap = TimeUnit.NANOSECONDS.toMillis(t3 - t2)
+        assertTrue("first backoff was ${firstGap}ms", firstGap >= MIN_BACKOFF_MS)
+        assertTrue("second backoff was ${secondGap}ms", secondGap >= MIN_BACKOFF_MS * 2)
+    }
+
+    @Test
+    fun stopsOnUnauthorized() {
+        server.enqueue(MockResponse().setResponseCode(401))
+        server.enqueue(sse("retry: 50\n\n"))
+
+        channel.start()
+        take()
+
+        assertNull(server.takeRequest(MIN_BACKOFF_MS * 5, TimeUnit.MILLISECONDS))
+        assertTrue(synced.isEmpty())
+    }
+
+    @Test
+    fun stopClosesOpenStreamAndRestartResumes() {
+        // 接続したまま少しずつkeepaliveを送り続けるストリーム
+        server.enqueue(
+            sse("retry: 50\nid: 7\n\n" + ": keepalive\n".repeat(500))
+                .throttleBody(32, 1, TimeUnit.SECONDS)
+        )
+        server.enqueue(sse("retry: 50\n\n"))
+
+        channel.start()
+        take()
+        Thread.sleep(300)
+        channel.stop()
+
+        // 停止後は再接続しない
+        assertNull(server.takeRequest(MIN_BACKOFF_MS * 5, TimeUnit.MILLISECONDS))
+
+        channel.start()
+        assertEquals("7", take().getHeader("Last-Event-ID"))
+    }
+
+    private fun sse(body: String) = MockResponse()
+        .setHeader("Content-Type", "text/event-stream")
+        .setBody(body)
+
+    private fun take(): RecordedRequest {
+        val request = server.takeRequest(5, TimeUnit.SECONDS)
+        assertNotNull("expected a connection", request)
+        return request!!
+    }
+
+    private fun waitUntil(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 5_000
+        while (!condition()) {
+            assertTrue("condition not met in time", System.currentTimeMillis() < deadline)
+            Thread.sleep(20)
+        }
+    }
+
+    companion object {
+        private const val MIN_BACKOFF_MS = 100L
+    }
+}
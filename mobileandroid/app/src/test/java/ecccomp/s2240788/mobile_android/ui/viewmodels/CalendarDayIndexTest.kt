@@ -0,0 +1,187 @@
+package ecccomp.s2240788.mobile_android.ui.viewmodels
+
+import ecccomp.s2240788.mobile_android.data.models.Task
+import ecccomp.s2240788.mobile_android.data.models.TimelineItem
+import ecccomp.s2240788.mobile_android.utils.DateTimes
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.time.Instant
+import java.util.Date
+import java.util.TimeZone
+
+/**
+ * CalendarDayIndexのテスト
+ * 締切日のバケット・月をまたぐ期間・端末のタイムゾーン（Asia/Tokyo以外・夏時間）での日付の選択
+ */
+class CalendarDayIndexTest {
+
+    private lateinit var defaultTimeZone: TimeZone
+    private lateinit var index: CalendarDayIndex
+
+    @Before
+    fun setUp() {
+        defaultTimeZone = TimeZone.getDefault()
+        index = CalendarDayIndex()
+    }
+
+    @After
+    fun tearDown() {
+        TimeZone.setDefault(defaultTimeZone)
+    }
+
+    @Test
+    fun tasksOn_ordersByPriorityAndKeepsInsertionOrder() {
+        index.updateTasks(
+            listOf(
+                task(1, "2026-03-31", priority = 3),
+                task(2, "2026-03-31", priority = 5),
+                task(3, "2026-03-31", priority = 3),
+                task(4, null, priority = 5)
+            )
+        )
+
+        assertEquals(listOf(2, 1, 3), index.tasksOn(day("2026-03-31")).map { it.id })
+        assertEquals(3, index.countOn(day("2026-03-31")))
+        assertEquals(setOf(day("2026-03-31")), index.daysWithTasks())
+    }
+
+    @Test
+    fun updateTasks_movesTaskAcrossMonthEnd() {
+        index.updateTasks(listOf(task(1, "2026-03-31"), task(2, "2026-03-31")))
+
+        assertTrue(index.updateTasks(listOf(task(1, "2026-04-01"), task(2, "2026-03-31"))))
+        assertEquals(listOf(2), index.tasksOn(day("2026-03-31")).map { it.id })
+        assertEquals(listOf(1), index.tasksOn(day("2026-04-01")).map { it.id })
+
+        // 同じ内容なら変更なし
+        assertFalse(index.updateTasks(listOf(task(1, "2026-04-01"), task(2, "2026-03-31"))))
+
+        // 一覧から消えたタスクはバケットからも消える
+        assertTrue(index.updateTasks(listOf(task(1, "2026-04-01"))))
+        assertEquals(0, index.countOn(day("2026-03-31")))
+        assertEquals(setOf(day("2026-04-01")), index.daysWithTasks())
+    }
+
+    @Test
+    fun tasksBetween_includesBothEndsAcrossMonths() {
+        index.updateTasks(
+            listOf(
+                task(1, "2026-03-30"),
+                task(2, "2026-03-31"),
+                task(3, "2026-04-01"),
+                task(4, "2026-04-03")
+            )
+        )
+
+        // 期間の日数がタスクのある日数より少ない（日ごとに引く）
+        assertEquals(
+            listOf(day("2026-03-31"), day("2026-04-01")),
+            index.tasksBetween(day("2026-03-31"), day("2026-04-01")).keys.toList()
+        )
+        // 期間の日数の方が多い（バケットを走査する）
+        assertEquals(
+            listOf(day("2026-03-31"), day("2026-04-01"), day("2026-04-03")),
+            index.tasksBetween(day("2026-03-31"), day("2026-04-30")).keys.toList()
+        )
+        assertTrue(index.tasksBetween(day("2026-04-01"), day("2026-03-31")).isEmpty())
+    }
+
+    @Test
+    fun deadlineDay_doesNotDependOnDeviceTimeZone() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"))
+        index.updateTasks(listOf(task(1, "2026-03-31 23:30:00")))
+        assertEquals(listOf(1), index.tasksOn(day("2026-03-31")).map { it.id })
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"))
+        val other = CalendarDayIndex()
+        other.updateTasks(listOf(task(1, "2026-03-31 23:30:00")))
+        assertEquals(listOf(1), other.tasksOn(day("2026-03-31")).map { it.id })
+    }
+
+    @Test
+    fun selectedDate_usesDeviceCalendarDay() {
+        index.updateTasks(listOf(task(1, "2026-03-31"), task(2, "2026-04-01")))
+        // 2026-04-01T03:00Z はロサンゼルスでは3/31の20:00、東京では4/1の12:00
+        val selected = at("2026-04-01T03:00:00Z")
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"))
+        assertEquals(listOf(1), index.tasksOn(DateTimes.epochDayOf(selected)).map { it.id })
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"))
+        assertEquals(listOf(2), index.tasksOn(DateTimes.epochDayOf(selected)).map { it.id })
+    }
+
+    @Test
+    fun daylightSavingWeek_keepsOneBucketPerDay() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"))
+        // 夏時間の開始日（2026-03-08）をまたぐ週
+        index.updateTasks((2..8).map { task(it, "2026-03-0$it") } + task(9, "2026-03-09"))
+
+        val week = index.tasksBetween(day("2026-03-02"), day("2026-03-08"))
+        assertEquals(7, week.size)
+        assertEquals(listOf(8), week[day("2026-03-08")]?.map { it.id })
+
+        // 夏時間の開始日の23:30（EDT）はまだ3/8、翌0:00から3/9
+        assertEquals(listOf(8), index.tasksOn(DateTimes.epochDayOf(at("2026-03-09T03:30:00Z"))).map { it.id })
+        assertEquals(listOf(9), index.tasksOn(DateTimes.epochDayOf(at("2026-03-09T04:00:00Z"))).map { it.id })
+    }
+
+    @Test
+    fun timelineOn_mapsWeekdayAndSortsByTime() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"))
+        index.replaceTimeline(
+            listOf(
+                timeline("study_1", dayOfWeek = 0, time = "18:00:00"),
+                timeline("study_2", dayOfWeek = 0, time = "09:30:00"),
+                timeline("study_3", dayOfWeek = 0, time = "invalid"),
+                timeline("study_4", dayOfWeek = 1, time = "08:00:00")
+            )
+        )
+
+        // 2026-03-08（日曜日・夏時間の開始日）
+        val sunday = index.timelineOn(day("2026-03-08"))
+        assertEquals(listOf(-2, -1, -3), sunday.map { it.id })
+        assertTrue(sunday.all { it.deadline == "2026-03-08" })
+
+        // 2026-03-31は火曜日（該当なし）、月をまたいだ翌週の月曜日は4/6
+        assertTrue(index.timelineOn(day("2026-03-31")).isEmpty())
+        assertEquals(listOf(-4), index.timelineOn(day("2026-04-06")).map { it.id })
+    }
+
+    private fun day(date: String): Long = DateTimes.parseEpochDay(date)!!
+
+    private fun at(iso: String): Date = Date(Instant.parse(iso).toEpochMilli())
+
+    private fun task(id: Int, deadline: String?, priority: Int = 3) = Task(
+        id = id,
+        title = "Task $id",
+        category = null,
+        description = null,
+        status = "pending",
+        priority = priority,
+        energy_level = "medium",
+        estimated_minutes = null,
+        deadline = deadline,
+        scheduled_time = null,
+        created_at = "",
+        updated_at = "",
+        user_id = 1,
+        project_id = null,
+        learning_milestone_id = null,
+        ai_breakdown_enabled = false
+    )
+
+    private fun timeline(id: String, dayOfWeek: Int, time: String) = TimelineItem(
+        id = id,
+        type = "study_schedule",
+        title = id,
+        day_of_week = dayOfWeek,
+        scheduled_time = time,
+        duration_minutes = 30,
+        category = "study"
+    )
+}
@@ -0,0 +1,126 @@
+package ecccomp.s2240788.mobile_android.utils
+
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import java.time.Instant
+import java.util.Date
+import java.util.Locale
+import java.util.TimeZone
+
+/**
+ * DateTimesのテスト
+ * APIの日付文字列は端末のタイムゾーンに関係なく同じ日、Date（端末で選択した日時）は端末のタイムゾーンの日になること
+ */
+class DateTimesTest {
+
+    private lateinit var defaultTimeZone: TimeZone
+
+    @Before
+    fun setUp() {
+        defaultTimeZone = TimeZone.getDefault()
+    }
+
+    @After
+    fun tearDown() {
+        TimeZone.setDefault(defaultTimeZone)
+    }
+
+    @Test
+    fun parseEpochDay_crossesMonthAndLeapDay() {
+        assertEquals(20543L, DateTimes.parseEpochDay("2026-03-31"))
+        assertEquals(20544L, DateTimes.parseEpochDay("2026-04-01"))
+        assertEquals(21243L, DateTimes.parseEpochDay("2028-02-29"))
+        assertEquals("2028-03-01", DateTimes.isoDate(DateTimes.parseEpochDay("2028-02-29")!! + 1))
+    }
+
+    @Test
+    fun parseEpochDay_readsDatePartOfDateTime() {
+        assertEquals(20543L, DateTimes.parseEpochDay("2026-03-31 23:30:00"))
+        assertEquals(20543L, DateTimes.parseEpochDay("2026-03-31T23:30:00+09:00"))
+    }
+
+    @Test
+    fun parseEpochDay_rejectsInvalidDates() {
+        assertNull(DateTimes.parseEpochDay(null))
+        assertNull(DateTimes.parseEpochDay("2026-02-29"))
+        assertNull(DateTimes.parseEpochDay("2026-13-01"))
+        assertNull(DateTimes.parseEpochDay("2026/03/31"))
+        assertNull(DateTimes.parseEpochDay("2026-3-1"))
+    }
+
+    @Test
+    fun parseEpochDay_doesNotDependOnDeviceTimeZone() {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"))
+        val tokyo = DateTimes.parseEpochDay("2026-04-01")
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"))
+        assertEquals(tokyo, DateTimes.parseEpochDay("2026-04-01"))
+    }
+
+    @Test
+    fun epochDayOf_usesDeviceTimeZone() {
+        // 2026-03-31T15:30Z は東京では4/1、ロサンゼルスでは3/31
+        val instant = at("2026-03-31T15:30:00Z")
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"))
+        assertEquals(DateTimes.parseEpochDay("2026-04-01"), DateTimes.epochDayOf(instant))
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"))
+        assertEquals(DateTimes.parseEpochDay("2026-03-31"), DateTimes.epochDayOf(instant))
+    }
+
+    @Test
+    fun epochDayOf_aroundDaylightSavingChanges() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"))
+
+        // 夏時間の開始日（2026-03-08、23時間の日）の前後
+        assertEquals(DateTimes.parseEpochDay("2026-03-08"), DateTimes.epochDayOf(at("2026-03-08T05:00:00Z")))
+        assertEquals(DateTimes.parseEpochDay("2026-03-08"), DateTimes.epochDayOf(at("2026-03-09T03:59:00Z")))
+        assertEquals(DateTimes.parseEpochDay("2026-03-09"), DateTimes.epochDayOf(at("2026-03-09T04:00:00Z")))
+
+        // 夏時間の終了日（2026-11-01、25時間の日）の23:30（EST）
+        assertEquals(DateTimes.parseEpochDay("2026-11-01"), DateTimes.epochDayOf(at("2026-11-02T04:30:00Z")))
+        assertEquals(DateTimes.parseEpochDay("2026-11-02"), DateTimes.epochDayOf(at("2026-11-02T05:00:00Z")))
+    }
+
+    @Test
+    fun formatDate_usesDeviceTimeZone() {
+        val instant = at("2026-03-31T15:30:00Z")
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"))
+        assertEquals("2026-04-01 00:30", DateTimes.format(instant, "yyyy-MM-dd HH:mm", Locale.US))
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"))
+        assertEquals("2026-03-31 11:30", DateTimes.format(instant, "yyyy-MM-dd HH:mm", Locale.US))
+    }
+
+    @Test
+    fun parseMinuteOfDay_readsTimeAndDateTime() {
+        assertEquals(9 * 60 + 5, DateTimes.parseMinuteOfDay("09:05"))
+        assertEquals(9 * 60 + 5, DateTimes.parseMinuteOfDay("9:05:30"))
+        assertEquals(23 * 60 + 30, DateTimes.parseMinuteOfDay("2026-03-31 23:30:00"))
+        // 夏時間の開始で存在しない時刻も、文字列のとおりの時刻として扱う
+        assertEquals(2 * 60 + 30, DateTimes.parseMinuteOfDay("2026-03-08T02:30:00"))
+    }
+
+    @Test
+    fun parseMinuteOfDay_rejectsInvalidTimes() {
+        assertNull(DateTimes.parseMinuteOfDay(null))
+        assertNull(DateTimes.parseMinuteOfDay(""))
+        assertNull(DateTimes.parseMinuteOfDay("24:00"))
+        assertNull(DateTimes.parseMinuteOfDay("12:60"))
+        assertNull(DateTimes.parseMinuteOfDay("12:5"))
+    }
+
+    @Test
+    fun formatMinuteOfDay_wrapsAroundMidnight() {
+        assertEquals("00:00", DateTimes.formatMinuteOfDay(0))
+        assertEquals("23:59", DateTimes.formatMinuteOfDay(-1))
+        assertEquals("00:00", DateTimes.formatMinuteOfDay(24 * 60))
+        assertEquals("09:05", DateTimes.formatMinuteOfDay(9 * 60 + 5))
+    }
+
+    private fun at(iso: String): Date = Date(Instant.parse(iso).toEpochMilli())
+}
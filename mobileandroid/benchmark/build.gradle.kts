@@ -0,0 +1,43 @@
+plugins {
+    alias(libs.plugins.android.test)
+    alias(libs.plugins.kotlin.android)
+    alias(libs.plugins.baselineprofile)
+}
+
+// Macrobenchmark・Baseline Profileの生成（:app の主要な操作を計測する）
+// 計測:   ./gradlew :benchmark:connectedBenchmarkReleaseAndroidTest
+// 生成:   ./gradlew :app:generateReleaseBaselineProfile
+// ログイン用アカウントはインストルメンテーション引数で渡す（benchmark/run-benchmarks.sh を参照）
+android {
+    namespace = "ecccomp.s2240788.mobile_android.benchmark"
+    compileSdk = 36
+
+    defaultConfig {
+        // Baseline Profileの生成はAPI 28以上（ルート化なしならAPI 33以上）
+        minSdk = 28
+        targetSdk = 35
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_17
+        targetCompatibility = JavaVersion.VERSION_17
+    }
+    kotlinOptions {
+        jvmTarget = "17"
+    }
+
+    targetProjectPath = ":app"
+}
+
+baselineProfile {
+    // 接続済みの端末で生成（数値の計測は実機で行うこと。エミュレーターの値は参考にならない）
+    useConnectedDevices = true
+}
+
+dependencies {
+    implementation(libs.androidx.junit)
+    implementation(libs.androidx.uiautomator)
+    implementation(libs.androidx.benchmark.macro.junit4)
+}
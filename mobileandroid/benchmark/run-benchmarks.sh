@@ -0,0 +1,41 @@
+#!/usr/bin/env bash
+# Macrobenchmarkを実行し、結果（*-benchmarkData.json）をコミットごとに保存する
+#
+# 使い方（mobileandroid/ で実行、実機を1台接続しておく）:
+#   BENCHMARK_EMAIL=... BENCHMARK_PASSWORD=... ./benchmark/run-benchmarks.sh [テストクラス名]
+#   例: ./benchmark/run-benchmarks.sh StartupBenchmark
+#
+# 結果: benchmark-results/<コミット>/（未コミットの変更がある場合は <コミット>-dirty）
+# 計測用アカウントには未着手のタスクを用意しておく（フォーカスセッションの計測で開始される）
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+: "${BENCHMARK_EMAIL:?BENCHMARK_EMAIL is required}"
+: "${BENCHMARK_PASSWORD:?BENCHMARK_PASSWORD is required}"
+
+COMMIT="$(git rev-parse --short HEAD)"
+if [ -n "$(git status --porcelain -- .)" ]; then
+    COMMIT="${COMMIT}-dirty"
+fi
+
+RUNNER_ARG="-Pandroid.testInstrumentationRunnerArguments"
+ARGS=(
+    "${RUNNER_ARG}.benchmarkEmail=${BENCHMARK_EMAIL}"
+    "${RUNNER_ARG}.benchmarkPassword=${BENCHMARK_PASSWORD}"
+    # Baseline Profileの生成（BaselineProfileGenerator）は除外
+    "${RUNNER_ARG}.androidx.benchmark.enabledRules=Macrobenchmark"
+)
+if [ $# -gt 0 ]; then
+    ARGS+=("${RUNNER_ARG}.class=ecccomp.s2240788.mobile_android.benchmark.$1")
+fi
+
+OUTPUT_DIR="benchmark/build/outputs/connected_android_test_additional_output"
+rm -rf "$OUTPUT_DIR"
+
+./gradlew :benchmark:connectedBenchmarkReleaseAndroidTest "${ARGS[@]}"
+
+RESULT_DIR="benchmark-results/${COMMIT}"
+mkdir -p "$RESULT_DIR"
+find "$OUTPUT_DIR" -name '*-benchmarkData.json' -exec cp {} "$RESULT_DIR"/ \;
+echo "Benchmark results saved to ${RESULT_DIR}"
@@ -0,0 +1,45 @@
+package ecccomp.s2240788.mobile_android.benchmark
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Baseline Profileの生成（./gradlew :app:generateReleaseBaselineProfile）
+ * - startup: コールドスタート → ホーム（Startup Profileにも含め、dexの先頭に配置する）
+ * - journeys: ホームのスクロール・ナレッジ・チートコード・フォーカスセッションの開始（Startup Profileには含めない）
+ * 結果は app/src/release/generated/baselineProfiles に保存されるのでコミットする
+ */
+@LargeTest
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+
+    @get:Rule
+    val baselineProfileRule = BaselineProfileRule()
+
+    @Test
+    fun startup() = baselineProfileRule.collect(
+        packageName = TARGET_PACKAGE,
+        includeInStartupProfile = true
+    ) {
+        ensureLoggedIn()
+    }
+
+    @Test
+    fun journeys() = baselineProfileRule.collect(
+        packageName = TARGET_PACKAGE
+    ) {
+        ensureLoggedIn()
+        scrollHomeTasks()
+        openKnowledge()
+        pageCheatCodeExamples()
+        // フォーカス画面は戻る時に確認が出るので最後に開く
+        device.pressHome()
+        startActivityAndWait()
+        waitForHome()
+        startFocusSession()
+    }
+}
@@ -0,0 +1,127 @@
+package ecccomp.s2240788.mobile_android.benchmark
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.BySelector
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.UiDevice
+import androidx.test.uiautomator.UiObject2
+import androidx.test.uiautomator.Until
+import java.util.regex.Pattern
+
+/**
+ * 計測・Baseline Profileの生成で共通の操作（主要なユーザー操作）
+ * 画面の要素はリソースIDで探す（文言は言語設定で変わるため）
+ */
+
+internal const val TARGET_PACKAGE = "ecccomp.s2240788.mobile_android"
+
+private const val UI_TIMEOUT_MS = 15_000L
+
+// ログイン用アカウント（インストルメンテーション引数 benchmarkEmail / benchmarkPassword）
+private const val ARG_EMAIL = "benchmarkEmail"
+private const val ARG_PASSWORD = "benchmarkPassword"
+
+private fun res(id: String): BySelector = By.res(TARGET_PACKAGE, id)
+
+private fun UiDevice.waitFor(selector: BySelector, description: String): UiObject2 =
+    wait(Until.findObject(selector), UI_TIMEOUT_MS)
+        ?: error("$description not found within ${UI_TIMEOUT_MS}ms")
+
+/**
+ * アプリを起動し、ログイン画面が出たら引数のアカウントでログインしてホームまで進める
+ * ログイン状態は端末に保存されるので、実際にログインするのは初回だけ
+ */
+fun MacrobenchmarkScope.ensureLoggedIn() {
+    pressHome()
+    startActivityAndWait()
+
+    // スプラッシュの後、ログイン画面かホームのどちらかが表示される
+    device.wait(
+        Until.hasObject(By.res(Pattern.compile("$TARGET_PACKAGE:id/(et_email|rv_tasks)"))),
+        UI_TIMEOUT_MS
+    )
+    val emailField = device.findObject(res("et_email"))
+    if (emailField != null) {
+        val arguments = InstrumentationRegistry.getArguments()
+        val email = arguments.getString(ARG_EMAIL)
+        val password = arguments.getString(ARG_PASSWORD)
+        check(!email.isNullOrEmpty() && !password.isNullOrEmpty()) {
+            "Not logged in: pass -Pandroid.testInstrumentationRunnerArguments.$ARG_EMAIL=... and $ARG_PASSWORD=..."
+        }
+        emailField.text = email
+        device.waitFor(res("et_password"), "Password field").text = password
+        device.waitFor(res("btn_login"), "Login button").click()
+    }
+    waitForHome()
+}
+
+/**
+ * ホームのタスク一覧（MainTaskAdapter）が表示されるまで待つ
+ */
+fun MacrobenchmarkScope.waitForHome() {
+    device.waitFor(res("rv_tasks"), "Home task list")
+}
+
+/**
+ * ホームをスクロール（タスク一覧はNestedScrollViewの中にある）
+ */
+fun MacrobenchmarkScope.scrollHomeTasks() {
+    val scrollView = device.waitFor(res("scroll_view"), "Home scroll view")
+    // ジェスチャーがシステムのナビゲーションに入らないように余白を取る
+    scrollView.setGestureMargin(device.displayWidth / 5)
+    repeat(3) {
+        scrollView.fling(Direction.DOWN)
+        device.waitForIdle()
+    }
+    scrollView.fling(Direction.UP)
+    device.waitForIdle()
+}
+
+/**
+ * ボトムナビゲーションからナレッジ画面（KnowledgeActivity）を開く
+ */
+fun MacrobenchmarkScope.openKnowledge() {
+    device.waitFor(res("nav_knowledge"), "Knowledge tab").click()
+    device.waitFor(res("rv_knowledge"), "Knowledge list")
+    device.waitForIdle()
+}
+
+/**
+ * ナレッジ画面からチートコードを開き、最初の言語のセクション・コード例をスクロール
+ */
+fun MacrobenchmarkScope.pageCheatCodeExamples() {
+    device.waitFor(res("cheat_code_card"), "Cheat code card").click()
+    val firstLanguage = device.waitFor(
+        res("rv_languages").hasChild(By.clickable(true)),
+        "Cheat code languages"
+    ).children.first { it.isClickable }
+    firstLanguage.click()
+
+    val sections = device.waitFor(res("rv_sections"), "Cheat code sections")
+    device.wait(Until.hasObject(res("rv_examples")), UI_TIMEOUT_MS)
+    sections.setGestureMargin(device.displayWidth / 5)
+    repeat(3) {
+        sections.fling(Direction.DOWN)
+        device.waitForIdle()
+    }
+}
+
+/**
+ * ホームの「開始」からタスクを選んでフォーカスセッションを開始し、タイマーが表示されるまで待つ
+ * 開始したタスクは進行中になり選択肢から外れるため、計測用アカウントには未着手のタスクを回数分用意しておく
+ */
+fun MacrobenchmarkScope.startFocusSession() {
+    device.waitFor(res("btn_start_5min"), "Start button").click()
+    val firstTask = device.waitFor(
+        res("rv_tasks").hasChild(By.clickable(true)),
+        "Start task dialog"
+    ).children.first { it.isClickable }
+    firstTask.click()
+
+    // 確認ダイアログの「開始」
+    device.waitFor(By.res("android", "button1"), "Start confirmation").click()
+    device.waitFor(res("tv_timer_display"), "Focus timer")
+    device.waitForIdle()
+}
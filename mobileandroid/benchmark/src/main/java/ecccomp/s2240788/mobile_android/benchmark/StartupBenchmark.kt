@@ -0,0 +1,57 @@
+package ecccomp.s2240788.mobile_android.benchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.MemoryUsageMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * コールドスタート → MainActivity（タスク一覧の表示）
+ * - timeToInitialDisplayMs: 最初の画面（スプラッシュ）の描画まで
+ * - timeToFullDisplayMs: ホームにタスクが表示されるまで（StartupTrace.markContentShown の reportFullyDrawn）
+ * Baseline Profileなし（None）とあり（UseIfAvailable。未生成の場合はプロファイルなしのPartialになる）を比較する
+ */
+@OptIn(ExperimentalMetricApi::class)
+@LargeTest
+@RunWith(Parameterized::class)
+class StartupBenchmark(private val compilationMode: CompilationMode) {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun coldStartToHome() = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(StartupTimingMetric(), MemoryUsageMetric(MemoryUsageMetric.Mode.Last)),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = ITERATIONS,
+        setupBlock = {
+            // ログインはここで済ませる（COLDなので計測前にプロセスは終了される）
+            ensureLoggedIn()
+            pressHome()
+        }
+    ) {
+        startActivityAndWait()
+        waitForHome()
+    }
+
+    companion object {
+        private const val ITERATIONS = 10
+
+        @Parameterized.Parameters(name = "{0}")
+        @JvmStatic
+        fun compilationModes(): List<CompilationMode> = listOf(
+            CompilationMode.None(),
+            CompilationMode.Partial(BaselineProfileMode.UseIfAvailable)
+        )
+    }
+}
@@ -0,0 +1,65 @@
+package ecccomp.s2240788.mobile_android.benchmark
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.benchmark.macro.MemoryUsageMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * 主要な画面操作のフレーム時間（frameDurationCpuMs / frameOverrunMs）とメモリ（最大値）
+ * 毎回プロセスを終了してホームから始める（前の回の画面・キャッシュの影響を受けないように）
+ */
+@OptIn(ExperimentalMetricApi::class)
+@LargeTest
+@RunWith(Parameterized::class)
+class UserJourneyBenchmark(private val compilationMode: CompilationMode) {
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun scrollHomeTasks() = measure { scrollHomeTasks() }
+
+    @Test
+    fun openKnowledge() = measure { openKnowledge() }
+
+    @Test
+    fun pageCheatCodeExamples() = measure {
+        openKnowledge()
+        pageCheatCodeExamples()
+    }
+
+    @Test
+    fun startFocusSession() = measure { startFocusSession() }
+
+    private fun measure(journey: MacrobenchmarkScope.() -> Unit) = benchmarkRule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(FrameTimingMetric(), MemoryUsageMetric(MemoryUsageMetric.Mode.Max)),
+        compilationMode = compilationMode,
+        iterations = ITERATIONS,
+        setupBlock = {
+            killProcess()
+            ensureLoggedIn()
+        },
+        measureBlock = journey
+    )
+
+    companion object {
+        private const val ITERATIONS = 5
+
+        @Parameterized.Parameters(name = "{0}")
+        @JvmStatic
+        fun compilationModes(): List<CompilationMode> = listOf(
+            CompilationMode.None(),
+            CompilationMode.Partial(BaselineProfileMode.UseIfAvailable)
+        )
+    }
+}
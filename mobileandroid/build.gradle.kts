@@ -2,5 +2,8 @@ plugins {
     id("com.android.application") version "8.13.1" apply false
     id("org.jetbrains.kotlin.android") version "2.2.0" apply false
     id("com.google.gms.google-services") version "4.4.4" apply false
+    // Macrobenchmark・Baseline Profile（:benchmark）
+    id("com.android.test") version "8.13.1" apply false
+    id("androidx.baselineprofile") version "1.4.0" apply false
     // nếu dùng kapt/parcelize/serialization/compose plugin thì dùng cùng "2.0.21"
 }
@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "mobile-android"
 include(":app")
+include(":benchmark")